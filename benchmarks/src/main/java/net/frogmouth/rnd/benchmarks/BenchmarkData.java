@@ -0,0 +1,127 @@
+package net.frogmouth.rnd.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import net.frogmouth.rnd.shapefile.DBFFieldDefinition;
+import net.frogmouth.rnd.shapefile.DBFFieldType;
+import net.frogmouth.rnd.shapefile.ShapeType;
+import net.frogmouth.rnd.shapefile.ShapefileWriter;
+import net.frogmouth.rnd.simplefeaturesaccess.Geometry;
+import net.frogmouth.rnd.simplefeaturesaccess.LineString;
+import net.frogmouth.rnd.simplefeaturesaccess.PackedCoordinateSequence;
+import net.frogmouth.rnd.simplefeaturesaccess.Point;
+
+/**
+ * Generated benchmark inputs.
+ *
+ * <p>Each data set is a .shp / .shx / .dbf set written with {@link ShapefileWriter} from a fixed
+ * seed, so results are comparable between runs. The files are read back into memory, so the
+ * benchmarks measure parsing rather than disk access.
+ */
+final class BenchmarkData {
+
+    /** Number of vertices in each generated polyline. */
+    static final int VERTICES_PER_LINE = 16;
+
+    private static final long SEED = 20221104L;
+
+    private static final List<DBFFieldDefinition> FIELDS =
+            List.of(
+                    new DBFFieldDefinition("ID", DBFFieldType.Numeric, 10, 0),
+                    new DBFFieldDefinition("NAME", DBFFieldType.Character, 32, 0),
+                    new DBFFieldDefinition("VALUE", DBFFieldType.Numeric, 14, 4),
+                    new DBFFieldDefinition("UPDATED", DBFFieldType.Date, 8, 0),
+                    new DBFFieldDefinition("ACTIVE", DBFFieldType.Logical, 1, 0));
+
+    final byte[] shp;
+    final byte[] shx;
+    final byte[] dbf;
+    final List<Geometry> geometries;
+
+    private BenchmarkData(byte[] shp, byte[] shx, byte[] dbf, List<Geometry> geometries) {
+        this.shp = shp;
+        this.shx = shx;
+        this.dbf = dbf;
+        this.geometries = geometries;
+    }
+
+    /**
+     * Generate a data set.
+     *
+     * @param shapeType the shape type, which must be one that {@link ShapefileWriter} supports
+     * @param records the number of records
+     * @return the file contents, and the geometries that were written
+     * @throws IOException if the temporary files could not be written or read
+     */
+    static BenchmarkData generate(ShapeType shapeType, int records) throws IOException {
+        Random random = new Random(SEED);
+        List<Geometry> geometries = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            geometries.add(createGeometry(shapeType, random));
+        }
+        Path dir = Files.createTempDirectory("jgeovec-bench");
+        File shpFile = dir.resolve("bench.shp").toFile();
+        File shxFile = dir.resolve("bench.shx").toFile();
+        File dbfFile = dir.resolve("bench.dbf").toFile();
+        try {
+            try (ShapefileWriter writer = ShapefileWriter.create(shpFile, shapeType, FIELDS)) {
+                LocalDate epoch = LocalDate.of(2000, 1, 1);
+                for (int i = 0; i < records; i++) {
+                    writer.write(
+                            geometries.get(i),
+                            i + 1,
+                            "Feature " + i,
+                            random.nextDouble() * 10000.0,
+                            epoch.plusDays(random.nextInt(8000)),
+                            random.nextBoolean());
+                }
+            }
+            return new BenchmarkData(
+                    Files.readAllBytes(shpFile.toPath()),
+                    Files.readAllBytes(shxFile.toPath()),
+                    Files.readAllBytes(dbfFile.toPath()),
+                    geometries);
+        } finally {
+            Files.deleteIfExists(shpFile.toPath());
+            Files.deleteIfExists(shxFile.toPath());
+            Files.deleteIfExists(dbfFile.toPath());
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static Geometry createGeometry(ShapeType shapeType, Random random) {
+        double x = 110.0 + random.nextDouble() * 45.0;
+        double y = -45.0 + random.nextDouble() * 35.0;
+        return switch (shapeType) {
+            case Point -> new Point(x, y);
+            case PointM -> Point.fromXYM(x, y, random.nextDouble() * 100.0);
+            case PointZ -> new Point(x, y, random.nextDouble() * 1000.0, random.nextDouble());
+            default -> {
+                boolean hasZ = shapeType.hasZ();
+                boolean hasM = shapeType.hasM();
+                int stride = PackedCoordinateSequence.getStride(hasZ, hasM);
+                double[] coordinates = new double[VERTICES_PER_LINE * stride];
+                int i = 0;
+                for (int vertex = 0; vertex < VERTICES_PER_LINE; vertex++) {
+                    x += (random.nextDouble() - 0.5) * 0.01;
+                    y += (random.nextDouble() - 0.5) * 0.01;
+                    coordinates[i++] = x;
+                    coordinates[i++] = y;
+                    if (hasZ) {
+                        coordinates[i++] = random.nextDouble() * 1000.0;
+                    }
+                    if (hasM) {
+                        coordinates[i++] = vertex;
+                    }
+                }
+                yield new LineString(new PackedCoordinateSequence(coordinates, hasZ, hasM));
+            }
+        };
+    }
+}
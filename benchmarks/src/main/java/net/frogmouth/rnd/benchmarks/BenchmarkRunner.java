@@ -0,0 +1,37 @@
+package net.frogmouth.rnd.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for the benchmarks jar.
+ *
+ * <p>This takes the usual JMH command line options (e.g. a benchmark name pattern, or {@code -p
+ * records=1000}), and always adds the GC profiler, so each result comes with the allocation rate
+ * ({@code gc.alloc.rate.norm} is bytes allocated per operation).
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {}
+
+    /**
+     * Run the benchmarks.
+     *
+     * @param args JMH command line options
+     * @throws CommandLineOptionException if the options are not valid
+     * @throws RunnerException if a benchmark fails
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        new Runner(
+                        new OptionsBuilder()
+                                .parent(commandLineOptions)
+                                .addProfiler(GCProfiler.class)
+                                .build())
+                .run();
+    }
+}
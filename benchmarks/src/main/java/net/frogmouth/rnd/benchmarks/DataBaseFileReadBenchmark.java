@@ -0,0 +1,50 @@
+package net.frogmouth.rnd.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import net.frogmouth.rnd.shapefile.DataBaseFile;
+import net.frogmouth.rnd.shapefile.ShapeType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Row based DBF parsing, with {@link DataBaseFile#fromInputStream}.
+ *
+ * <p>The generated table has Numeric, Character, Date and Logical fields.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DataBaseFileReadBenchmark {
+
+    @Param({"1000", "100000"})
+    public int records;
+
+    private byte[] dbf;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dbf = BenchmarkData.generate(ShapeType.Point, records).dbf;
+    }
+
+    @Benchmark
+    public DataBaseFile fromInputStream(Throughput throughput) throws IOException {
+        DataBaseFile dataBaseFile = DataBaseFile.fromInputStream(new ByteArrayInputStream(dbf));
+        throughput.add(records, dbf.length);
+        return dataBaseFile;
+    }
+}
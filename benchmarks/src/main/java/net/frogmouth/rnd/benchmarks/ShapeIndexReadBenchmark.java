@@ -0,0 +1,50 @@
+package net.frogmouth.rnd.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import net.frogmouth.rnd.shapefile.ShapeIndex;
+import net.frogmouth.rnd.shapefile.ShapeType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Shape index (.shx) parsing, with {@link ShapeIndex#fromInputStream}.
+ *
+ * <p>The index layout does not depend on the shape type, so only the size varies.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShapeIndexReadBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int records;
+
+    private byte[] shx;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        shx = BenchmarkData.generate(ShapeType.Point, records).shx;
+    }
+
+    @Benchmark
+    public ShapeIndex fromInputStream(Throughput throughput) throws IOException {
+        ShapeIndex shapeIndex = ShapeIndex.fromInputStream(new ByteArrayInputStream(shx));
+        throughput.add(records, shx.length);
+        return shapeIndex;
+    }
+}
@@ -0,0 +1,59 @@
+package net.frogmouth.rnd.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import net.frogmouth.rnd.shapefile.ShapeType;
+import net.frogmouth.rnd.shapefile.Shapefile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Streaming .shp decoding, with {@link Shapefile#fromInputStream}. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShapefileReadBenchmark {
+
+    @Param({"Point", "PointM", "PointZ", "PolyLine", "PolyLineM", "PolyLineZ"})
+    public ShapeType shapeType;
+
+    @Param({"1000", "100000"})
+    public int records;
+
+    private byte[] shp;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        shp = BenchmarkData.generate(shapeType, records).shp;
+        // Make sure every record is really decoded, so that the results are not just header parsing
+        Shapefile.fromInputStream(
+                new ByteArrayInputStream(shp),
+                shapeRecord -> {
+                    if (shapeRecord.geometry() == null) {
+                        throw new IllegalStateException(
+                                "No geometry decoded for " + shapeRecord.shapeType());
+                    }
+                });
+    }
+
+    @Benchmark
+    public void fromInputStream(Throughput throughput, Blackhole blackhole) throws IOException {
+        blackhole.consume(
+                Shapefile.fromInputStream(new ByteArrayInputStream(shp), blackhole::consume));
+        throughput.add(records, shp.length);
+    }
+}
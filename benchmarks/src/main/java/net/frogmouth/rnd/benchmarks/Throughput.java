@@ -0,0 +1,43 @@
+package net.frogmouth.rnd.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary throughput counters.
+ *
+ * <p>Benchmarks add the records and bytes they process in each operation, and JMH reports them as
+ * rates alongside the operation rate: {@code records} in records per second, and {@code bytes} in
+ * bytes per second (divide by 10^6 for MB/s).
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Throughput {
+
+    /** Number of records processed. */
+    public long records;
+
+    /** Number of input (or output) bytes processed. */
+    public long bytes;
+
+    /** Reset the counters before each iteration. */
+    @Setup(Level.Iteration)
+    public void reset() {
+        records = 0;
+        bytes = 0;
+    }
+
+    /**
+     * Count one operation.
+     *
+     * @param recordCount the number of records processed by the operation
+     * @param byteCount the number of bytes processed by the operation
+     */
+    void add(long recordCount, long byteCount) {
+        records += recordCount;
+        bytes += byteCount;
+    }
+}
@@ -0,0 +1,76 @@
+package net.frogmouth.rnd.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.frogmouth.rnd.shapefile.ShapeType;
+import net.frogmouth.rnd.simplefeaturesaccess.Geometry;
+import net.frogmouth.rnd.simplefeaturesaccess.WKTWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * WKT formatting, to a reused {@link StringBuilder}.
+ *
+ * <p>{@code bytes} counts the characters written. {@code toString} is the convenience path used for
+ * logging and debugging, which creates a writer and a string for each geometry.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WKTWriteBenchmark {
+
+    @Param({"Point", "PolyLine", "PolyLineZ"})
+    public ShapeType shapeType;
+
+    @Param({"1000", "10000"})
+    public int records;
+
+    /** Maximum decimal places, or -1 for the shortest round-trip text. */
+    @Param({"-1", "6"})
+    public int maxDecimals;
+
+    private List<Geometry> geometries;
+    private WKTWriter writer;
+    private final StringBuilder output = new StringBuilder();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        geometries = BenchmarkData.generate(shapeType, records).geometries;
+        writer = maxDecimals < 0 ? new WKTWriter() : new WKTWriter(maxDecimals);
+    }
+
+    @Benchmark
+    public int write(Throughput throughput) throws IOException {
+        output.setLength(0);
+        for (Geometry geometry : geometries) {
+            writer.write(geometry, output);
+            output.append('\n');
+        }
+        throughput.add(records, output.length());
+        return output.length();
+    }
+
+    @Benchmark
+    public int toString(Throughput throughput) {
+        int length = 0;
+        for (Geometry geometry : geometries) {
+            length += geometry.toString().length() + 1;
+        }
+        throughput.add(records, length);
+        return length;
+    }
+}
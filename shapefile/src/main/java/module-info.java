@@ -1,4 +1,6 @@
 /** Shapefile reading module. */
 module net.frogmouth.rnd.shapefile {
-    requires net.frogmouth.rnd.simplefeaturesaccess;
+    requires transitive net.frogmouth.rnd.simplefeaturesaccess;
+    requires static jdk.jfr;
+    requires static jdk.management;
 }
@@ -0,0 +1,348 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Asynchronous random access reader for Shapefile records.
+ *
+ * <p>This is intended for fanning out many record reads at once, and joining on them later, without
+ * blocking a thread for each read. The offsets of the requested records are looked up in the shape
+ * index, and records that are next to each other in the .shp file (or separated by no more than
+ * {@link #MAX_MERGE_GAP} bytes) are merged into a single read. Each read is issued on an {@link
+ * AsynchronousFileChannel}, and each record is decoded when its read completes.
+ *
+ * <p>At most a fixed number of reads are outstanding at once; any more are queued until an earlier
+ * read completes. Reads go into direct buffers from a pool, which hold up to the buffer size given
+ * when the reader is opened. A single record that is larger than that is read into a buffer of its
+ * own.
+ *
+ * <p>Records are decoded on the threads of the channel, so work that is done on the results should
+ * be moved to another executor (e.g. with {@link CompletableFuture#thenApplyAsync}) if it is slow.
+ *
+ * <p>Records are identified by their zero-based index, so the first record is index 0. Instances
+ * are thread safe, and should be closed after use. Any reads that are still queued when the reader
+ * is closed fail with an {@link AsynchronousCloseException}.
+ */
+public final class AsyncShapeRecordReader implements Closeable {
+
+    /** Default maximum number of outstanding reads. */
+    public static final int DEFAULT_MAX_OUTSTANDING_READS = 16;
+
+    /** Default size of the pooled read buffers, in bytes. */
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * Largest gap between two records that are merged into a single read, in bytes.
+     *
+     * <p>Reading past a short run of unwanted records is cheaper than issuing another read.
+     */
+    public static final int MAX_MERGE_GAP = 4096;
+
+    private static final int RECORD_HEADER_LEN = ShapeRecordDecoder.RECORD_HEADER_LEN;
+    private final AsynchronousFileChannel channel;
+    private final MappedShapeIndex shapeIndex;
+    private final int maxOutstandingReads;
+    private final int bufferSize;
+    private final ConcurrentLinkedQueue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Extent> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger peakOutstanding = new AtomicInteger();
+    private final LongAdder readCount = new LongAdder();
+    private volatile boolean closed;
+
+    private AsyncShapeRecordReader(
+            AsynchronousFileChannel channel,
+            MappedShapeIndex shapeIndex,
+            int maxOutstandingReads,
+            int bufferSize) {
+        this.channel = channel;
+        this.shapeIndex = shapeIndex;
+        this.maxOutstandingReads = maxOutstandingReads;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Open an asynchronous reader for a .shp / .shx file pair, with the default limits.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param shxFile the corresponding Shape Index (.shx) file
+     * @return the reader, which must be closed after use
+     * @throws IOException if either file could not be opened, or the index could not be parsed
+     */
+    public static AsyncShapeRecordReader open(File shpFile, File shxFile) throws IOException {
+        return open(shpFile, shxFile, DEFAULT_MAX_OUTSTANDING_READS, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Open an asynchronous reader for a .shp / .shx file pair.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param shxFile the corresponding Shape Index (.shx) file
+     * @param maxOutstandingReads the maximum number of reads to have in progress at once
+     * @param bufferSize the size of each pooled read buffer, which is also the largest merged read
+     * @return the reader, which must be closed after use
+     * @throws IOException if either file could not be opened, or the index could not be parsed
+     * @throws IllegalArgumentException if either limit is less than 1
+     */
+    public static AsyncShapeRecordReader open(
+            File shpFile, File shxFile, int maxOutstandingReads, int bufferSize)
+            throws IOException {
+        if (maxOutstandingReads < 1) {
+            throw new IllegalArgumentException(
+                    "Maximum outstanding reads must be at least 1: " + maxOutstandingReads);
+        }
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be at least 1: " + bufferSize);
+        }
+        MappedShapeIndex shapeIndex = MappedShapeIndex.open(shxFile);
+        AsynchronousFileChannel channel =
+                AsynchronousFileChannel.open(shpFile.toPath(), StandardOpenOption.READ);
+        return new AsyncShapeRecordReader(channel, shapeIndex, maxOutstandingReads, bufferSize);
+    }
+
+    /**
+     * Get the number of records.
+     *
+     * @return the number of records listed in the shape index
+     */
+    public int getNumRecords() {
+        return shapeIndex.size();
+    }
+
+    /**
+     * Read a single record.
+     *
+     * @param index the zero-based index of the record
+     * @return a future that completes with the decoded record
+     * @throws IndexOutOfBoundsException if the index is not valid
+     */
+    public CompletableFuture<ShapeRecord> read(int index) {
+        return read(new int[] {index}).get(0);
+    }
+
+    /**
+     * Read a batch of records.
+     *
+     * <p>The records are sorted into file order, and merged into as few reads as the buffer size
+     * allows. The reads are issued (or queued) before this returns.
+     *
+     * @param indexes the zero-based indexes of the records
+     * @return a future for each record, in the same order as {@code indexes}. A record that is
+     *     requested more than once has the same future each time.
+     * @throws IndexOutOfBoundsException if any index is not valid, in which case nothing is read
+     */
+    public List<CompletableFuture<ShapeRecord>> read(int... indexes) {
+        long[] keys = ShapeRecordReader.sortByOffset(shapeIndex, indexes);
+        List<CompletableFuture<ShapeRecord>> futures =
+                new ArrayList<>(Collections.nCopies(indexes.length, null));
+        List<Extent> extents = new ArrayList<>();
+        Extent extent = null;
+        int previous = -1;
+        int previousPosition = -1;
+        for (long key : keys) {
+            int i = (int) key;
+            int index = indexes[i];
+            if (index == previous) {
+                // Duplicates sort next to each other, and share a future
+                futures.set(i, futures.get(previousPosition));
+                continue;
+            }
+            previous = index;
+            previousPosition = i;
+            long position = shapeIndex.offset(index);
+            int length = RECORD_HEADER_LEN + shapeIndex.contentLength(index);
+            if (extent == null || !extent.canAppend(position, length)) {
+                extent = new Extent(position);
+                extents.add(extent);
+            }
+            futures.set(i, extent.append(position, length));
+        }
+        for (Extent e : extents) {
+            pending.add(e);
+        }
+        drain();
+        return futures;
+    }
+
+    /** Start queued reads, up to the limit on outstanding reads. */
+    private void drain() {
+        while (!pending.isEmpty()) {
+            int n = outstanding.get();
+            if (n >= maxOutstandingReads) {
+                // A read in progress drains the queue when it completes
+                return;
+            }
+            if (!outstanding.compareAndSet(n, n + 1)) {
+                continue;
+            }
+            Extent extent = pending.poll();
+            if (extent == null) {
+                outstanding.decrementAndGet();
+                continue;
+            }
+            peakOutstanding.accumulateAndGet(n + 1, Math::max);
+            extent.start();
+        }
+    }
+
+    private ByteBuffer acquireBuffer(int length) {
+        if (length > bufferSize) {
+            return ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        ByteBuffer bb = bufferPool.poll();
+        if (bb == null) {
+            bb = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        bb.clear().limit(length);
+        return bb;
+    }
+
+    private void releaseBuffer(ByteBuffer bb) {
+        if (bb.isDirect()) {
+            bufferPool.offer(bb);
+        }
+    }
+
+    /**
+     * Get the number of reads that have been issued.
+     *
+     * @return the number of reads, counting each merged read once
+     */
+    long getReadCount() {
+        return readCount.sum();
+    }
+
+    /**
+     * Get the largest number of reads that have been in progress at once.
+     *
+     * @return the peak number of outstanding reads
+     */
+    int getPeakOutstandingReads() {
+        return peakOutstanding.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+        Extent extent;
+        while ((extent = pending.poll()) != null) {
+            extent.fail(new AsynchronousCloseException());
+        }
+        bufferPool.clear();
+    }
+
+    /** A run of records that are read together. */
+    private final class Extent implements CompletionHandler<Integer, ByteBuffer> {
+
+        private final long position;
+        private int length;
+        private final List<Integer> offsets = new ArrayList<>();
+        private final List<Integer> contentLengths = new ArrayList<>();
+        private final List<CompletableFuture<ShapeRecord>> futures = new ArrayList<>();
+
+        Extent(long position) {
+            this.position = position;
+        }
+
+        boolean canAppend(long recordPosition, int recordLength) {
+            long end = position + length;
+            return recordPosition >= end
+                    && recordPosition - end <= MAX_MERGE_GAP
+                    && recordPosition + recordLength - position <= bufferSize;
+        }
+
+        CompletableFuture<ShapeRecord> append(long recordPosition, int recordLength) {
+            int offset = (int) (recordPosition - position);
+            offsets.add(offset);
+            contentLengths.add(recordLength - RECORD_HEADER_LEN);
+            length = offset + recordLength;
+            CompletableFuture<ShapeRecord> future = new CompletableFuture<>();
+            futures.add(future);
+            return future;
+        }
+
+        void start() {
+            if (closed) {
+                finish(null, new AsynchronousCloseException());
+                return;
+            }
+            readCount.increment();
+            ByteBuffer bb = acquireBuffer(length);
+            try {
+                channel.read(bb, position, bb, this);
+            } catch (RuntimeException e) {
+                failed(e, bb);
+            }
+        }
+
+        @Override
+        public void completed(Integer n, ByteBuffer bb) {
+            if (n < 0) {
+                failed(
+                        new EOFException(
+                                String.format(
+                                        "Unexpected end of file reading at offset %d", position)),
+                        bb);
+                return;
+            }
+            if (bb.hasRemaining()) {
+                try {
+                    channel.read(bb, position + bb.position(), bb, this);
+                } catch (RuntimeException e) {
+                    failed(e, bb);
+                }
+                return;
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i)
+                            .complete(
+                                    ShapeRecordDecoder.decodeRecord(
+                                            bb, offsets.get(i), contentLengths.get(i)));
+                } catch (IOException | RuntimeException e) {
+                    futures.get(i).completeExceptionally(e);
+                }
+            }
+            finish(bb, null);
+        }
+
+        @Override
+        public void failed(Throwable exc, ByteBuffer bb) {
+            finish(bb, exc);
+        }
+
+        void fail(Throwable exc) {
+            for (CompletableFuture<ShapeRecord> future : futures) {
+                future.completeExceptionally(exc);
+            }
+        }
+
+        private void finish(ByteBuffer bb, Throwable exc) {
+            if (exc != null) {
+                fail(exc);
+            }
+            if (bb != null) {
+                releaseBuffer(bb);
+            }
+            outstanding.decrementAndGet();
+            drain();
+        }
+    }
+}
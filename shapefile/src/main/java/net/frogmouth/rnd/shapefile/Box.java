@@ -38,4 +38,35 @@ public record Box(double minX, double minY, double maxX, double maxY) {
     public static Box fromByteBuffer(final ByteBuffer bb) {
         return fromByteBuffer(bb, 0);
     }
+
+    /**
+     * Whether this box intersects another box.
+     *
+     * <p>Boxes that only touch along an edge or at a corner are considered to intersect.
+     *
+     * @param other the other box
+     * @return true if the boxes intersect, otherwise false
+     */
+    public boolean intersects(final Box other) {
+        return intersects(other.minX, other.minY, other.maxX, other.maxY);
+    }
+
+    /**
+     * Whether this box intersects a box given by its bounds.
+     *
+     * <p>This allows testing against values read directly from a buffer, without creating a Box.
+     *
+     * @param otherMinX the minimum X value of the other box
+     * @param otherMinY the minimum Y value of the other box
+     * @param otherMaxX the maximum X value of the other box
+     * @param otherMaxY the maximum Y value of the other box
+     * @return true if the boxes intersect, otherwise false
+     */
+    public boolean intersects(
+            final double otherMinX,
+            final double otherMinY,
+            final double otherMaxX,
+            final double otherMaxY) {
+        return minX <= otherMaxX && otherMinX <= maxX && minY <= otherMaxY && otherMinY <= maxY;
+    }
 }
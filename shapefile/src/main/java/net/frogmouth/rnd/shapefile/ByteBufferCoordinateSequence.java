@@ -0,0 +1,84 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import net.frogmouth.rnd.simplefeaturesaccess.CoordinateSequence;
+
+/**
+ * Coordinate sequence view over the vertices of a .shp record.
+ *
+ * <p>This is a flyweight: it holds only the buffer and the offsets of the ordinate arrays within
+ * the record, and reads each value on demand with an absolute get. No coordinates are copied until
+ * {@link #copy()} is called. Indexes are checked against the number of points, as the buffer
+ * usually holds other records as well.
+ *
+ * <p>The buffer must not be modified while the view is in use. Memory-mapped buffers from {@link
+ * MappedFile} meet this requirement, and the view keeps the mapping alive.
+ */
+final class ByteBufferCoordinateSequence implements CoordinateSequence {
+
+    private static final int XY_STRIDE = 2 * Double.BYTES;
+    private final ByteBuffer bb;
+    private final int size;
+    private final int xyOffset;
+    private final int zOffset;
+    private final int mOffset;
+
+    /**
+     * Constructor.
+     *
+     * @param bb little endian buffer holding the record
+     * @param size the number of points
+     * @param xyOffset the offset of the first X value within the buffer
+     * @param zOffset the offset of the first Z value within the buffer, or -1 if there are no Z
+     *     values
+     * @param mOffset the offset of the first M value within the buffer, or -1 if there are no M
+     *     values
+     */
+    ByteBufferCoordinateSequence(ByteBuffer bb, int size, int xyOffset, int zOffset, int mOffset) {
+        this.bb = bb;
+        this.size = size;
+        this.xyOffset = xyOffset;
+        this.zOffset = zOffset;
+        this.mOffset = mOffset;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean hasZ() {
+        return zOffset >= 0;
+    }
+
+    @Override
+    public boolean hasM() {
+        return mOffset >= 0;
+    }
+
+    @Override
+    public double getX(int index) {
+        return bb.getDouble(xyOffset + Objects.checkIndex(index, size) * XY_STRIDE);
+    }
+
+    @Override
+    public double getY(int index) {
+        return bb.getDouble(xyOffset + Objects.checkIndex(index, size) * XY_STRIDE + Double.BYTES);
+    }
+
+    @Override
+    public double getZ(int index) {
+        return hasZ()
+                ? bb.getDouble(zOffset + Objects.checkIndex(index, size) * Double.BYTES)
+                : Double.NaN;
+    }
+
+    @Override
+    public double getM(int index) {
+        return hasM()
+                ? bb.getDouble(mOffset + Objects.checkIndex(index, size) * Double.BYTES)
+                : Double.NaN;
+    }
+}
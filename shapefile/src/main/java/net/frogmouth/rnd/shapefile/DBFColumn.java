@@ -0,0 +1,211 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Values of a single DBF field, for a batch of records.
+ *
+ * <p>The raw fixed width field bytes for each record are packed back to back, so a column holds one
+ * array rather than an object per value. Values are only decoded when they are asked for.
+ */
+public final class DBFColumn {
+
+    /** Value returned by {@link #getEpochDay(int)} for a null date. */
+    public static final int NULL_DATE = Integer.MIN_VALUE;
+
+    private final DBFFieldDefinition fieldDefinition;
+    private final int size;
+    private final int width;
+    private final ByteBuffer values;
+
+    /**
+     * Constructor.
+     *
+     * @param fieldDefinition the definition of the field
+     * @param size the number of records
+     * @param values the field bytes for each record, back to back
+     */
+    DBFColumn(DBFFieldDefinition fieldDefinition, int size, byte[] values) {
+        this.fieldDefinition = fieldDefinition;
+        this.size = size;
+        this.width = fieldDefinition.fieldLengthBinary();
+        this.values = ByteBuffer.wrap(values);
+    }
+
+    /**
+     * Get the field definition.
+     *
+     * @return the definition of the field this column holds
+     */
+    public DBFFieldDefinition getFieldDefinition() {
+        return fieldDefinition;
+    }
+
+    /**
+     * Get the number of values.
+     *
+     * @return the number of records in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get a value as a string.
+     *
+     * <p>The leading and trailing padding spaces are removed.
+     *
+     * @param row the zero-based row within the batch
+     * @return the value
+     * @throws IndexOutOfBoundsException if the row is not valid
+     */
+    public String getString(int row) {
+        int offset = offsetOf(row);
+        int start = offset;
+        int end = offset + width;
+        while (start < end && values.get(start) == ' ') {
+            start++;
+        }
+        while (end > start && values.get(end - 1) == ' ') {
+            end--;
+        }
+        return new String(values.array(), start, end - start, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Check whether a value is null.
+     *
+     * <p>This follows the shapelib conventions: blank values are null for all field types, as are
+     * Numeric and Float values starting with the {@code '*'} overflow marker, all zero Dates, and
+     * {@code '?'} Logical values.
+     *
+     * @param row the zero-based row within the batch
+     * @return true if the value is null
+     * @throws IndexOutOfBoundsException if the row is not valid
+     */
+    public boolean isNull(int row) {
+        return DBFValueParser.isNull(values, offsetOf(row), width, fieldDefinition.fieldType());
+    }
+
+    /**
+     * Get a Numeric or Float value as a long.
+     *
+     * <p>Any fraction is truncated.
+     *
+     * @param row the zero-based row within the batch
+     * @return the integer part of the value, or 0 if the value is null
+     * @throws IndexOutOfBoundsException if the row is not valid
+     * @throws IllegalStateException if the field is not Numeric or Float
+     * @throws NumberFormatException if the value is not a valid number, or is out of range
+     */
+    public long getLong(int row) {
+        checkNumeric();
+        return DBFValueParser.parseUnscaled(values, offsetOf(row), width, 0);
+    }
+
+    /**
+     * Get a Numeric or Float value as an unscaled fixed point long.
+     *
+     * <p>The scale is the decimal count from the field definition, so a value of {@code 12.5} in a
+     * field with 2 decimals is returned as {@code 1250}. This is exact, unlike {@link
+     * #getDouble(int)}.
+     *
+     * @param row the zero-based row within the batch
+     * @return the value multiplied by 10 to the power of the decimal count, or 0 if the value is
+     *     null
+     * @throws IndexOutOfBoundsException if the row is not valid
+     * @throws IllegalStateException if the field is not Numeric or Float
+     * @throws NumberFormatException if the value is not a valid number, or is out of range
+     */
+    public long getUnscaledLong(int row) {
+        checkNumeric();
+        return DBFValueParser.parseUnscaled(
+                values, offsetOf(row), width, fieldDefinition.fieldDecimalCount());
+    }
+
+    /**
+     * Get a Numeric or Float value as a double.
+     *
+     * @param row the zero-based row within the batch
+     * @return the value, or NaN if the value is null
+     * @throws IndexOutOfBoundsException if the row is not valid
+     * @throws IllegalStateException if the field is not Numeric or Float
+     * @throws NumberFormatException if the value is not a valid number
+     */
+    public double getDouble(int row) {
+        checkNumeric();
+        return DBFValueParser.parseDouble(values, offsetOf(row), width);
+    }
+
+    /**
+     * Get a Date value as a count of days since 1970-01-01.
+     *
+     * <p>This is the same count as {@link java.time.LocalDate#toEpochDay()}, so {@code
+     * LocalDate.ofEpochDay} converts it back to a date.
+     *
+     * @param row the zero-based row within the batch
+     * @return the epoch day, or {@link #NULL_DATE} if the value is null
+     * @throws IndexOutOfBoundsException if the row is not valid
+     * @throws IllegalStateException if the field is not a Date
+     * @throws java.time.DateTimeException if the value is not a valid date
+     */
+    public int getEpochDay(int row) {
+        checkType(DBFFieldType.Date);
+        return DBFValueParser.parseEpochDay(values, offsetOf(row), width);
+    }
+
+    /**
+     * Get a Logical value, which may be unknown.
+     *
+     * @param row the zero-based row within the batch
+     * @return {@link Boolean#TRUE}, {@link Boolean#FALSE}, or null if the value is unknown
+     * @throws IndexOutOfBoundsException if the row is not valid
+     * @throws IllegalStateException if the field is not Logical
+     * @throws IllegalArgumentException if the value is not a valid logical value
+     */
+    public Boolean getLogical(int row) {
+        checkType(DBFFieldType.Logical);
+        return DBFValueParser.parseLogical(values, offsetOf(row), width);
+    }
+
+    /**
+     * Get a Logical value as a boolean.
+     *
+     * @param row the zero-based row within the batch
+     * @return true if the value is true, or false if it is false or unknown
+     * @throws IndexOutOfBoundsException if the row is not valid
+     * @throws IllegalStateException if the field is not Logical
+     * @throws IllegalArgumentException if the value is not a valid logical value
+     */
+    public boolean getBoolean(int row) {
+        return getLogical(row) == Boolean.TRUE;
+    }
+
+    private void checkType(DBFFieldType expected) {
+        if (fieldDefinition.fieldType() != expected) {
+            throw wrongType(expected.getName());
+        }
+    }
+
+    private void checkNumeric() {
+        DBFFieldType fieldType = fieldDefinition.fieldType();
+        if (fieldType != DBFFieldType.Numeric && fieldType != DBFFieldType.Float) {
+            throw wrongType("Numeric or Float");
+        }
+    }
+
+    private IllegalStateException wrongType(String expected) {
+        return new IllegalStateException(
+                String.format(
+                        "Field %s is %s, not %s",
+                        fieldDefinition.fieldName(),
+                        fieldDefinition.fieldType().getName(),
+                        expected));
+    }
+
+    private int offsetOf(int row) {
+        return Objects.checkIndex(row, size) * width;
+    }
+}
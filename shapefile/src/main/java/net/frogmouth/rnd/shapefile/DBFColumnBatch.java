@@ -0,0 +1,162 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A batch of DBF records, held as one {@link DBFColumn} per projected field.
+ *
+ * <p>Batches read by {@link DBFColumnReader} hold consecutive records. Batches read by {@link
+ * DBFRecordReader} hold the requested records in request order, so {@link #getRecordIndex(int)}
+ * gives the record in each row.
+ *
+ * <p>Deleted records are still present in the batch, so row numbers line up with record numbers,
+ * but are flagged by {@link #isDeleted(int)}.
+ */
+public final class DBFColumnBatch {
+
+    private final int firstRecord;
+    private final int[] recordIndexes;
+    private final int size;
+    private final BitSet deleted;
+    private final List<DBFColumn> columns;
+
+    private DBFColumnBatch(
+            int firstRecord,
+            int[] recordIndexes,
+            int size,
+            BitSet deleted,
+            List<DBFColumn> columns) {
+        this.firstRecord = firstRecord;
+        this.recordIndexes = recordIndexes;
+        this.size = size;
+        this.deleted = deleted;
+        this.columns = List.copyOf(columns);
+    }
+
+    /**
+     * Get the index of the first record.
+     *
+     * @return the zero-based index of the record in the first row of the batch
+     */
+    public int getFirstRecord() {
+        return firstRecord;
+    }
+
+    /**
+     * Get the index of the record in a row.
+     *
+     * @param row the zero-based row within the batch
+     * @return the zero-based index of the record
+     * @throws IndexOutOfBoundsException if the row is not valid
+     */
+    public int getRecordIndex(int row) {
+        Objects.checkIndex(row, size);
+        return recordIndexes == null ? firstRecord + row : recordIndexes[row];
+    }
+
+    /**
+     * Get the number of rows.
+     *
+     * @return the number of records in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check whether a row is deleted.
+     *
+     * @param row the zero-based row within the batch
+     * @return true if the record is flagged as deleted
+     * @throws IndexOutOfBoundsException if the row is not valid
+     */
+    public boolean isDeleted(int row) {
+        return deleted.get(Objects.checkIndex(row, size));
+    }
+
+    /**
+     * Get the columns.
+     *
+     * @return the columns, in projection order
+     */
+    public List<DBFColumn> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get a column.
+     *
+     * @param index the zero-based index of the column within the projection
+     * @return the column
+     * @throws IndexOutOfBoundsException if the index is not valid
+     */
+    public DBFColumn getColumn(int index) {
+        return columns.get(index);
+    }
+
+    /** Builder that copies the projected field bytes out of each record. */
+    static final class Builder {
+        private final List<DBFFieldDefinition> definitions;
+        private final int size;
+        private final int[] widths;
+        private final int[] fieldOffsets;
+        private final byte[][] values;
+        private final BitSet deleted;
+
+        /**
+         * Constructor.
+         *
+         * @param header the DBF header
+         * @param projection the zero-based indexes of the fields to copy
+         * @param size the number of rows in the batch
+         */
+        Builder(DBFHeader header, int[] projection, int size) {
+            this.definitions = header.getFieldDefinitions(projection);
+            this.size = size;
+            this.widths = new int[projection.length];
+            this.fieldOffsets = new int[projection.length];
+            this.values = new byte[projection.length][];
+            for (int c = 0; c < projection.length; c++) {
+                widths[c] = definitions.get(c).fieldLengthBinary();
+                fieldOffsets[c] = header.getFieldOffset(projection[c]);
+                values[c] = new byte[size * widths[c]];
+            }
+            this.deleted = new BitSet(size);
+        }
+
+        /**
+         * Copy a record into a row.
+         *
+         * @param row the zero-based row within the batch
+         * @param bb buffer holding the record
+         * @param recordOffset the offset of the record (i.e. its deletion flag) within the buffer
+         */
+        void add(int row, ByteBuffer bb, int recordOffset) {
+            if (DBFHeader.isDeleted(bb.get(recordOffset))) {
+                deleted.set(row);
+            }
+            for (int c = 0; c < values.length; c++) {
+                bb.get(recordOffset + fieldOffsets[c], values[c], row * widths[c], widths[c]);
+            }
+        }
+
+        /**
+         * Build the batch.
+         *
+         * @param firstRecord the zero-based index of the record in the first row
+         * @param recordIndexes the record in each row, or null if the records are consecutive
+         * @return the batch
+         */
+        DBFColumnBatch build(int firstRecord, int[] recordIndexes) {
+            List<DBFColumn> columns = new ArrayList<>(values.length);
+            for (int c = 0; c < values.length; c++) {
+                columns.add(new DBFColumn(definitions.get(c), size, values[c]));
+            }
+            return new DBFColumnBatch(firstRecord, recordIndexes, size, deleted, columns);
+        }
+    }
+}
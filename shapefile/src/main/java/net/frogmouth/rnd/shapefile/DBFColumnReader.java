@@ -0,0 +1,134 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Columnar reader for DBF attribute tables.
+ *
+ * <p>The reader is opened with a projection: the fields that are actually needed. The file is
+ * memory-mapped, and because DBF records are fixed length, only the byte ranges of the projected
+ * fields are copied out of each record. Those bytes are packed into one {@link DBFColumn} per field
+ * for each batch of records, so reading a few columns of a wide table costs neither a string per
+ * cell nor a pass over the unused fields.
+ *
+ * <p>Instances hold an open file, and should be closed after use. Instances are not thread safe.
+ */
+public final class DBFColumnReader implements Closeable {
+
+    private final MappedFile mappedFile;
+    private final DBFHeader header;
+    private final int[] projection;
+    private final List<DBFFieldDefinition> columns;
+
+    private DBFColumnReader(MappedFile mappedFile, DBFHeader header, int[] projection) {
+        this.mappedFile = mappedFile;
+        this.header = header;
+        this.projection = projection;
+        this.columns = header.getFieldDefinitions(projection);
+    }
+
+    /**
+     * Open a DBF file for columnar reading.
+     *
+     * @param dbfFile the DBF file
+     * @param fieldNames the names of the fields to read, in the order the columns should be
+     *     returned. If no names are given, all of the fields are read.
+     * @return the reader, which must be closed after use
+     * @throws IOException if the file could not be opened or the header is not valid
+     * @throws IllegalArgumentException if a field name does not match any field
+     */
+    public static DBFColumnReader open(File dbfFile, String... fieldNames) throws IOException {
+        MappedFile mappedFile = MappedFile.open(dbfFile.toPath());
+        try {
+            DBFHeader header = DBFHeader.read(mappedFile);
+            int[] projection = header.getProjection(fieldNames);
+            return new DBFColumnReader(mappedFile, header, projection);
+        } catch (IOException | RuntimeException e) {
+            mappedFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the number of records.
+     *
+     * @return the number of records, including deleted records
+     */
+    public int getNumRecords() {
+        return header.getNumRecords();
+    }
+
+    /**
+     * Get the definitions of the projected fields.
+     *
+     * @return the field definitions, in projection order
+     */
+    public List<DBFFieldDefinition> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Read a batch of consecutive records.
+     *
+     * @param firstRecord the zero-based index of the first record to read
+     * @param count the maximum number of records to read. Fewer are read if the end of the table is
+     *     reached.
+     * @return the batch, with one column for each projected field
+     * @throws IOException if the records could not be read
+     * @throws IndexOutOfBoundsException if the first record is not valid
+     */
+    public DBFColumnBatch readBatch(int firstRecord, int count) throws IOException {
+        int numRecords = header.getNumRecords();
+        Objects.checkIndex(firstRecord, numRecords + 1);
+        int size = Math.max(0, Math.min(count, numRecords - firstRecord));
+        int recordLength = header.getRecordLength();
+        DBFColumnBatch.Builder builder = new DBFColumnBatch.Builder(header, projection, size);
+        for (int row = 0; row < size; row++) {
+            int offset = mappedFile.map(header.getRecordPosition(firstRecord + row), recordLength);
+            builder.add(row, mappedFile.buffer(), offset);
+        }
+        return builder.build(firstRecord, null);
+    }
+
+    /**
+     * Find the records that match a predicate.
+     *
+     * <p>The predicate is checked against the raw record bytes, and deleted records are skipped
+     * before the predicate is checked, so nothing is decoded for records that do not match. The
+     * predicate can use any field in the file, not just the projected fields.
+     *
+     * <p>The record indexes line up with the Shapefile records, so the result can be passed
+     * straight to {@link ShapeRecordReader#read(int...)} to fetch the matching geometries.
+     *
+     * @param predicate the attribute filter
+     * @return the zero-based indexes of the matching records, in ascending order
+     * @throws IOException if the records could not be read
+     * @throws IllegalArgumentException if the predicate uses a field that does not exist, or
+     *     compares a field of the wrong type
+     */
+    public int[] filter(DBFPredicate predicate) throws IOException {
+        DBFPredicate.Matcher matcher = predicate.bind(header);
+        int numRecords = header.getNumRecords();
+        int recordLength = header.getRecordLength();
+        IntStream.Builder matches = IntStream.builder();
+        for (int i = 0; i < numRecords; i++) {
+            int offset = mappedFile.map(header.getRecordPosition(i), recordLength);
+            ByteBuffer bb = mappedFile.buffer();
+            if (!DBFHeader.isDeleted(bb.get(offset)) && matcher.matches(bb, offset)) {
+                matches.add(i);
+            }
+        }
+        return matches.build().toArray();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mappedFile.close();
+    }
+}
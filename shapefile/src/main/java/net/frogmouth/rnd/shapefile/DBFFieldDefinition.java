@@ -2,6 +2,7 @@ package net.frogmouth.rnd.shapefile;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -24,6 +25,28 @@ public record DBFFieldDefinition(
         return new DBFFieldDefinition(fieldName, fieldType, fieldLengthBinary, fieldDecimalCount);
     }
 
+    /**
+     * Parse a field definition from a buffer.
+     *
+     * @param bb buffer holding the DBF header
+     * @param offset the offset of the 32 byte field subrecord within the buffer
+     * @return the field definition
+     * @throws IOException if the field type is not valid
+     */
+    static DBFFieldDefinition fromByteBuffer(ByteBuffer bb, int offset) throws IOException {
+        int nameLength = 0;
+        while (nameLength < 11 && bb.get(offset + nameLength) != 0) {
+            nameLength++;
+        }
+        byte[] fieldNameBytes = new byte[nameLength];
+        bb.get(offset, fieldNameBytes);
+        String fieldName = new String(fieldNameBytes, StandardCharsets.US_ASCII).trim();
+        DBFFieldType fieldType = DBFFieldType.lookupType(bb.get(offset + 11));
+        int fieldLengthBinary = bb.get(offset + 16) & 0xFF;
+        int fieldDecimalCount = bb.get(offset + 17) & 0xFF;
+        return new DBFFieldDefinition(fieldName, fieldType, fieldLengthBinary, fieldDecimalCount);
+    }
+
     @Override
     public String toString() {
         return String.format(
@@ -0,0 +1,355 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Header of a DBF file, with the layout of its fixed length records.
+ *
+ * <p>Each record starts with a deletion flag byte, followed by the fields in definition order, each
+ * taking exactly its {@link DBFFieldDefinition#fieldLengthBinary()} bytes. That makes the position
+ * of any field of any record a simple calculation.
+ */
+final class DBFHeader {
+
+    /** Length of the fixed part of the header, before the field subrecords. */
+    static final int PREFIX_LEN = 32;
+
+    /** Length of each field subrecord. */
+    static final int FIELD_SUBRECORD_LEN = 32;
+
+    /** Deletion flag value for a valid record. */
+    static final byte VALID_FLAG = 0x20;
+
+    /** Deletion flag value for a deleted record. */
+    static final byte DELETED_FLAG = 0x2A;
+
+    /** Marker byte after the last record. */
+    static final byte END_OF_FILE = 0x1A;
+
+    private static final byte DBASE_III = 0x03;
+    private static final byte FIELD_TERMINATOR = 0x0D;
+    private static final int MAX_FIELD_NAME_LEN = 10;
+    private static final int NUM_RECORDS_OFFSET = 4;
+    private static final int HEADER_LENGTH_OFFSET = 8;
+    private static final int RECORD_LENGTH_OFFSET = 10;
+
+    private final LocalDate lastUpdate;
+    private final int numRecords;
+    private final int headerLength;
+    private final int recordLength;
+    private final List<DBFFieldDefinition> fieldDefinitions;
+    private final int[] fieldOffsets;
+
+    private DBFHeader(
+            LocalDate lastUpdate,
+            int numRecords,
+            int headerLength,
+            int recordLength,
+            List<DBFFieldDefinition> fieldDefinitions,
+            int[] fieldOffsets) {
+        this.lastUpdate = lastUpdate;
+        this.numRecords = numRecords;
+        this.headerLength = headerLength;
+        this.recordLength = recordLength;
+        this.fieldDefinitions = fieldDefinitions;
+        this.fieldOffsets = fieldOffsets;
+    }
+
+    /**
+     * Check whether a record is deleted.
+     *
+     * <p>Only {@link #DELETED_FLAG} marks a deleted record. Some writers use other values than
+     * {@link #VALID_FLAG} for records that are not deleted, so any other value is treated as valid.
+     *
+     * @param deletedFlag the first byte of the record
+     * @return true if the record is deleted
+     */
+    static boolean isDeleted(byte deletedFlag) {
+        return deletedFlag == DELETED_FLAG;
+    }
+
+    /**
+     * Read the header from a mapped DBF file.
+     *
+     * @param mappedFile the mapped file
+     * @return the header
+     * @throws IOException if the header is truncated or not valid
+     */
+    static DBFHeader read(MappedFile mappedFile) throws IOException {
+        int offset = mappedFile.map(0, PREFIX_LEN);
+        int headerLength = mappedFile.buffer().getShort(offset + HEADER_LENGTH_OFFSET) & 0xFFFF;
+        offset = mappedFile.map(0, Math.max(headerLength, PREFIX_LEN));
+        return fromByteBuffer(
+                mappedFile.buffer().slice(offset, Math.max(headerLength, PREFIX_LEN)));
+    }
+
+    /**
+     * Read the raw header bytes from a DBF file.
+     *
+     * <p>This uses positional reads, so the position of the channel is not changed.
+     *
+     * @param channel the channel for the DBF file
+     * @return a new little endian buffer holding the whole header, up to the first record
+     * @throws IOException if the header is truncated
+     */
+    static ByteBuffer readBytes(FileChannel channel) throws IOException {
+        ByteBuffer prefix = ByteBuffer.allocate(PREFIX_LEN).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, prefix);
+        int headerLength = prefix.getShort(HEADER_LENGTH_OFFSET) & 0xFFFF;
+        ByteBuffer bb =
+                ByteBuffer.allocate(Math.max(headerLength, PREFIX_LEN))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, bb);
+        return bb.flip();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer bb) throws IOException {
+        while (bb.hasRemaining()) {
+            if (channel.read(bb, bb.position()) < 0) {
+                throw new EOFException(
+                        String.format("DBF header truncated at %d bytes", bb.position()));
+            }
+        }
+    }
+
+    /**
+     * Parse the header from a buffer.
+     *
+     * @param buffer buffer holding the whole header from position 0, up to the first record
+     * @return the header
+     * @throws IOException if the header is not valid
+     */
+    static DBFHeader fromByteBuffer(ByteBuffer buffer) throws IOException {
+        ByteBuffer bb = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        LocalDate lastUpdate;
+        try {
+            lastUpdate = LocalDate.of(1900 + (bb.get(1) & 0xFF), bb.get(2), bb.get(3));
+        } catch (DateTimeException e) {
+            lastUpdate = null;
+        }
+        long numRecords = Integer.toUnsignedLong(bb.getInt(NUM_RECORDS_OFFSET));
+        if (numRecords > Integer.MAX_VALUE) {
+            throw new IOException("Too many DBF records: " + numRecords);
+        }
+        int headerLength = bb.getShort(HEADER_LENGTH_OFFSET) & 0xFFFF;
+        int recordLength = bb.getShort(RECORD_LENGTH_OFFSET) & 0xFFFF;
+        List<DBFFieldDefinition> fieldDefinitions = new ArrayList<>();
+        int position = PREFIX_LEN;
+        while (position + FIELD_SUBRECORD_LEN <= headerLength
+                && bb.get(position) != FIELD_TERMINATOR) {
+            fieldDefinitions.add(DBFFieldDefinition.fromByteBuffer(bb, position));
+            position += FIELD_SUBRECORD_LEN;
+        }
+        int[] fieldOffsets = new int[fieldDefinitions.size()];
+        // The first byte of each record is the deletion flag
+        int fieldOffset = 1;
+        for (int i = 0; i < fieldOffsets.length; i++) {
+            fieldOffsets[i] = fieldOffset;
+            fieldOffset += fieldDefinitions.get(i).fieldLengthBinary();
+        }
+        if (fieldOffset > recordLength) {
+            throw new IOException(
+                    String.format(
+                            "DBF fields need %d bytes, but the record length is %d",
+                            fieldOffset, recordLength));
+        }
+        return new DBFHeader(
+                lastUpdate,
+                (int) numRecords,
+                headerLength,
+                recordLength,
+                List.copyOf(fieldDefinitions),
+                fieldOffsets);
+    }
+
+    /**
+     * Encode a header.
+     *
+     * <p>This is the reverse of {@link #fromByteBuffer(ByteBuffer)}, writing a dBASE III header
+     * (version byte 0x03) with no table flags and no code page.
+     *
+     * @param fieldDefinitions the field definitions, in record order
+     * @param numRecords the number of records
+     * @param lastUpdate the last update date
+     * @return a new buffer holding the whole header, up to the first record, positioned at the
+     *     start
+     * @throws IllegalArgumentException if a field name is longer than 10 characters, a field is
+     *     wider than 255 bytes, or the records would be longer than 65535 bytes
+     */
+    static ByteBuffer encode(
+            List<DBFFieldDefinition> fieldDefinitions, int numRecords, LocalDate lastUpdate) {
+        int headerLength = PREFIX_LEN + fieldDefinitions.size() * FIELD_SUBRECORD_LEN + 1;
+        ByteBuffer bb = ByteBuffer.allocate(headerLength).order(ByteOrder.LITTLE_ENDIAN);
+        bb.put(0, DBASE_III);
+        setNumRecords(bb, numRecords, lastUpdate);
+        int recordLength = 1;
+        int position = PREFIX_LEN;
+        for (DBFFieldDefinition field : fieldDefinitions) {
+            byte[] name = field.fieldName().getBytes(StandardCharsets.US_ASCII);
+            if (name.length == 0 || name.length > MAX_FIELD_NAME_LEN) {
+                throw new IllegalArgumentException("Invalid DBF field name: " + field.fieldName());
+            }
+            if (field.fieldLengthBinary() < 1 || field.fieldLengthBinary() > 0xFF) {
+                throw new IllegalArgumentException(
+                        String.format(
+                                "Invalid DBF field width for %s: %d",
+                                field.fieldName(), field.fieldLengthBinary()));
+            }
+            bb.put(position, name);
+            bb.put(position + 11, field.fieldType().getEncodedValue());
+            bb.put(position + 16, (byte) field.fieldLengthBinary());
+            bb.put(position + 17, (byte) field.fieldDecimalCount());
+            recordLength += field.fieldLengthBinary();
+            position += FIELD_SUBRECORD_LEN;
+        }
+        if (recordLength > 0xFFFF) {
+            throw new IllegalArgumentException("DBF record length too long: " + recordLength);
+        }
+        bb.put(position, FIELD_TERMINATOR);
+        bb.putShort(HEADER_LENGTH_OFFSET, (short) headerLength);
+        bb.putShort(RECORD_LENGTH_OFFSET, (short) recordLength);
+        return bb;
+    }
+
+    /**
+     * Update the record count and last update date in an encoded header.
+     *
+     * @param bb little endian buffer holding at least the fixed part of the header
+     * @param numRecords the number of records
+     * @param lastUpdate the last update date
+     */
+    static void setNumRecords(ByteBuffer bb, int numRecords, LocalDate lastUpdate) {
+        bb.put(1, (byte) (lastUpdate.getYear() - 1900));
+        bb.put(2, (byte) lastUpdate.getMonthValue());
+        bb.put(3, (byte) lastUpdate.getDayOfMonth());
+        bb.putInt(NUM_RECORDS_OFFSET, numRecords);
+    }
+
+    /**
+     * Get the last update date.
+     *
+     * @return the last update, or null if the header date is not valid
+     */
+    LocalDate getLastUpdate() {
+        return lastUpdate;
+    }
+
+    /**
+     * Get the number of records.
+     *
+     * @return the number of records, including deleted records
+     */
+    int getNumRecords() {
+        return numRecords;
+    }
+
+    /**
+     * Get the header length.
+     *
+     * @return the number of bytes before the first record
+     */
+    int getHeaderLength() {
+        return headerLength;
+    }
+
+    /**
+     * Get the record length.
+     *
+     * @return the number of bytes in each record, including the deletion flag
+     */
+    int getRecordLength() {
+        return recordLength;
+    }
+
+    /**
+     * Get the field definitions.
+     *
+     * @return the field definitions, in record order
+     */
+    List<DBFFieldDefinition> getFieldDefinitions() {
+        return fieldDefinitions;
+    }
+
+    /**
+     * Get the definitions of a projection of fields.
+     *
+     * @param projection the zero-based indexes of the fields
+     * @return the field definitions, in projection order
+     */
+    List<DBFFieldDefinition> getFieldDefinitions(int[] projection) {
+        List<DBFFieldDefinition> definitions = new ArrayList<>(projection.length);
+        for (int fieldIndex : projection) {
+            definitions.add(fieldDefinitions.get(fieldIndex));
+        }
+        return List.copyOf(definitions);
+    }
+
+    /**
+     * Get the offset of a field within each record.
+     *
+     * @param fieldIndex the zero-based index of the field
+     * @return the offset of the field from the start of the record (i.e. the deletion flag)
+     */
+    int getFieldOffset(int fieldIndex) {
+        return fieldOffsets[fieldIndex];
+    }
+
+    /**
+     * Look up a field by name.
+     *
+     * <p>DBF field names are not case sensitive, so neither is the lookup.
+     *
+     * @param fieldName the name of the field
+     * @return the zero-based index of the field
+     * @throws IllegalArgumentException if there is no field with that name
+     */
+    int getFieldIndex(String fieldName) {
+        for (int i = 0; i < fieldDefinitions.size(); i++) {
+            if (fieldDefinitions.get(i).fieldName().equalsIgnoreCase(fieldName)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No such DBF field: " + fieldName);
+    }
+
+    /**
+     * Resolve a projection of field names.
+     *
+     * @param fieldNames the names of the fields, or none for all of the fields
+     * @return the zero-based indexes of the fields, in the same order as the names
+     * @throws IllegalArgumentException if a name does not match any field
+     */
+    int[] getProjection(String... fieldNames) {
+        if (fieldNames.length == 0) {
+            int[] projection = new int[fieldDefinitions.size()];
+            for (int i = 0; i < projection.length; i++) {
+                projection[i] = i;
+            }
+            return projection;
+        }
+        int[] projection = new int[fieldNames.length];
+        for (int i = 0; i < fieldNames.length; i++) {
+            projection[i] = getFieldIndex(fieldNames[i]);
+        }
+        return projection;
+    }
+
+    /**
+     * Get the file position of a record.
+     *
+     * @param recordIndex the zero-based index of the record
+     * @return the byte position of the start of the record (i.e. its deletion flag)
+     */
+    long getRecordPosition(int recordIndex) {
+        return headerLength + (long) recordIndex * recordLength;
+    }
+}
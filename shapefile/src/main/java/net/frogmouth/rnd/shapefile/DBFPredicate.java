@@ -0,0 +1,324 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Attribute filter for DBF records.
+ *
+ * <p>Predicates are evaluated directly against the raw fixed width field bytes of each record, so
+ * records that do not match are rejected without decoding any of their fields. They are built from
+ * the static factory methods, and combined with {@link #and(DBFPredicate)} and {@link
+ * #or(DBFPredicate)}, for example:
+ *
+ * <pre>{@code
+ * DBFPredicate.eq("ROAD_CLASS", "M").and(DBFPredicate.greaterThan("POP", 100000))
+ * }</pre>
+ *
+ * <p>Field names are resolved when the predicate is used, by {@link
+ * DBFColumnReader#filter(DBFPredicate)}. Text comparisons ignore the padding spaces, and apply to
+ * any field type. Numeric, date and logical comparisons only apply to fields of the matching type.
+ * Null values (see {@link DBFColumn#isNull(int)}) never match a comparison.
+ */
+public abstract class DBFPredicate {
+
+    /** A predicate bound to the field layout of a particular file. */
+    @FunctionalInterface
+    interface Matcher {
+
+        /**
+         * Test a record.
+         *
+         * @param bb buffer holding the record
+         * @param recordOffset the offset of the record (i.e. its deletion flag) within the buffer
+         * @return true if the record matches
+         */
+        boolean matches(ByteBuffer bb, int recordOffset);
+    }
+
+    DBFPredicate() {}
+
+    /**
+     * Bind this predicate to the field layout of a file.
+     *
+     * @param header the DBF header
+     * @return the matcher for records of that file
+     * @throws IllegalArgumentException if a field does not exist, or has the wrong type
+     */
+    abstract Matcher bind(DBFHeader header);
+
+    private static DBFPredicate of(Function<DBFHeader, Matcher> binder) {
+        return new DBFPredicate() {
+            @Override
+            Matcher bind(DBFHeader header) {
+                return binder.apply(header);
+            }
+        };
+    }
+
+    /**
+     * Match records where a field has a text value.
+     *
+     * @param fieldName the name of the field
+     * @param value the value to match, ignoring padding
+     * @return the predicate
+     */
+    public static DBFPredicate eq(String fieldName, String value) {
+        return in(fieldName, value);
+    }
+
+    /**
+     * Match records where a field has any of a set of text values.
+     *
+     * @param fieldName the name of the field
+     * @param values the values to match, ignoring padding
+     * @return the predicate
+     */
+    public static DBFPredicate in(String fieldName, String... values) {
+        return text(fieldName, values, false);
+    }
+
+    /**
+     * Match records where a field starts with a prefix.
+     *
+     * @param fieldName the name of the field
+     * @param prefix the prefix to match, after any leading padding
+     * @return the predicate
+     */
+    public static DBFPredicate prefix(String fieldName, String prefix) {
+        return text(fieldName, new String[] {prefix}, true);
+    }
+
+    /**
+     * Match records where a Numeric or Float field has a value.
+     *
+     * @param fieldName the name of the field
+     * @param value the value to match
+     * @return the predicate
+     */
+    public static DBFPredicate eq(String fieldName, double value) {
+        return between(fieldName, value, value);
+    }
+
+    /**
+     * Match records where a Numeric or Float field has any of a set of values.
+     *
+     * @param fieldName the name of the field
+     * @param values the values to match
+     * @return the predicate
+     */
+    public static DBFPredicate in(String fieldName, double... values) {
+        double[] sorted = Arrays.stream(values).filter(v -> !Double.isNaN(v)).sorted().toArray();
+        return of(
+                header -> {
+                    Field field =
+                            Field.bind(header, fieldName, DBFFieldType.Numeric, DBFFieldType.Float);
+                    return (bb, recordOffset) -> {
+                        double v = field.parseDouble(bb, recordOffset);
+                        return !Double.isNaN(v) && Arrays.binarySearch(sorted, v) >= 0;
+                    };
+                });
+    }
+
+    /**
+     * Match records where a Numeric or Float field is within a range.
+     *
+     * @param fieldName the name of the field
+     * @param min the smallest matching value (inclusive)
+     * @param max the largest matching value (inclusive)
+     * @return the predicate
+     */
+    public static DBFPredicate between(String fieldName, double min, double max) {
+        return of(
+                header -> {
+                    Field field =
+                            Field.bind(header, fieldName, DBFFieldType.Numeric, DBFFieldType.Float);
+                    return (bb, recordOffset) -> {
+                        double v = field.parseDouble(bb, recordOffset);
+                        return v >= min && v <= max;
+                    };
+                });
+    }
+
+    /**
+     * Match records where a Numeric or Float field is greater than a value.
+     *
+     * @param fieldName the name of the field
+     * @param value the value, which does not match
+     * @return the predicate
+     */
+    public static DBFPredicate greaterThan(String fieldName, double value) {
+        return between(fieldName, Math.nextUp(value), Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Match records where a Numeric or Float field is less than a value.
+     *
+     * @param fieldName the name of the field
+     * @param value the value, which does not match
+     * @return the predicate
+     */
+    public static DBFPredicate lessThan(String fieldName, double value) {
+        return between(fieldName, Double.NEGATIVE_INFINITY, Math.nextDown(value));
+    }
+
+    /**
+     * Match records where a Date field is within a range.
+     *
+     * @param fieldName the name of the field
+     * @param min the earliest matching date (inclusive)
+     * @param max the latest matching date (inclusive)
+     * @return the predicate
+     */
+    public static DBFPredicate between(String fieldName, LocalDate min, LocalDate max) {
+        long minDay = min.toEpochDay();
+        long maxDay = max.toEpochDay();
+        return of(
+                header -> {
+                    Field field = Field.bind(header, fieldName, DBFFieldType.Date);
+                    return (bb, recordOffset) -> {
+                        int day =
+                                DBFValueParser.parseEpochDay(
+                                        bb, recordOffset + field.offset, field.width);
+                        return day != DBFColumn.NULL_DATE && day >= minDay && day <= maxDay;
+                    };
+                });
+    }
+
+    /**
+     * Match records where a Logical field has a value.
+     *
+     * @param fieldName the name of the field
+     * @param value the value to match. Unknown values never match.
+     * @return the predicate
+     */
+    public static DBFPredicate eq(String fieldName, boolean value) {
+        Boolean expected = value;
+        return of(
+                header -> {
+                    Field field = Field.bind(header, fieldName, DBFFieldType.Logical);
+                    return (bb, recordOffset) ->
+                            DBFValueParser.parseLogical(
+                                            bb, recordOffset + field.offset, field.width)
+                                    == expected;
+                });
+    }
+
+    /**
+     * Match records that match both this predicate and another.
+     *
+     * <p>The other predicate is only evaluated if this one matches.
+     *
+     * @param other the other predicate
+     * @return the combined predicate
+     */
+    public DBFPredicate and(DBFPredicate other) {
+        DBFPredicate first = this;
+        return of(
+                header -> {
+                    Matcher a = first.bind(header);
+                    Matcher b = other.bind(header);
+                    return (bb, recordOffset) ->
+                            a.matches(bb, recordOffset) && b.matches(bb, recordOffset);
+                });
+    }
+
+    /**
+     * Match records that match either this predicate or another.
+     *
+     * <p>The other predicate is only evaluated if this one does not match.
+     *
+     * @param other the other predicate
+     * @return the combined predicate
+     */
+    public DBFPredicate or(DBFPredicate other) {
+        DBFPredicate first = this;
+        return of(
+                header -> {
+                    Matcher a = first.bind(header);
+                    Matcher b = other.bind(header);
+                    return (bb, recordOffset) ->
+                            a.matches(bb, recordOffset) || b.matches(bb, recordOffset);
+                });
+    }
+
+    private static DBFPredicate text(String fieldName, String[] values, boolean prefix) {
+        byte[][] encoded = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            encoded[i] = values[i].strip().getBytes(StandardCharsets.US_ASCII);
+        }
+        return of(
+                header -> {
+                    Field field = Field.bind(header, fieldName);
+                    return (bb, recordOffset) -> {
+                        int start = recordOffset + field.offset;
+                        int end = start + field.width;
+                        while (start < end && bb.get(start) == ' ') {
+                            start++;
+                        }
+                        while (end > start && bb.get(end - 1) == ' ') {
+                            end--;
+                        }
+                        for (byte[] value : encoded) {
+                            if (matchesText(bb, start, end - start, value, prefix)) {
+                                return true;
+                            }
+                        }
+                        return false;
+                    };
+                });
+    }
+
+    private static boolean matchesText(
+            ByteBuffer bb, int start, int length, byte[] value, boolean prefix) {
+        if (prefix ? length < value.length : length != value.length) {
+            return false;
+        }
+        for (int i = 0; i < value.length; i++) {
+            if (bb.get(start + i) != value[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Position and type of a field within each record. */
+    private static final class Field {
+        final int offset;
+        final int width;
+
+        private Field(int offset, int width) {
+            this.offset = offset;
+            this.width = width;
+        }
+
+        /**
+         * Find a field, checking its type.
+         *
+         * @param header the DBF header
+         * @param fieldName the name of the field
+         * @param allowedTypes the field types the comparison applies to, or none for any type
+         * @return the field position
+         * @throws IllegalArgumentException if the field does not exist, or has the wrong type
+         */
+        static Field bind(DBFHeader header, String fieldName, DBFFieldType... allowedTypes) {
+            int index = header.getFieldIndex(fieldName);
+            DBFFieldDefinition definition = header.getFieldDefinitions().get(index);
+            if (allowedTypes.length > 0
+                    && !Arrays.asList(allowedTypes).contains(definition.fieldType())) {
+                throw new IllegalArgumentException(
+                        String.format(
+                                "Field %s is %s, which does not support this comparison",
+                                definition.fieldName(), definition.fieldType().getName()));
+            }
+            return new Field(header.getFieldOffset(index), definition.fieldLengthBinary());
+        }
+
+        double parseDouble(ByteBuffer bb, int recordOffset) {
+            return DBFValueParser.parseDouble(bb, recordOffset + offset, width);
+        }
+    }
+}
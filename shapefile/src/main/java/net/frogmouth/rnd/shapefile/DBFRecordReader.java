@@ -0,0 +1,184 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Random access reader for DBF records.
+ *
+ * <p>DBF records are fixed length and follow the header, so the position of any record can be
+ * calculated from its index. This reads any record with a single positional read, without scanning
+ * the records before it. Batches of records are sorted, and records that are adjacent (or close
+ * together) in the file are fetched with one read.
+ *
+ * <p>Records are identified by their zero-based index, which matches the index used by {@link
+ * ShapeRecordReader}.
+ *
+ * <p>Instances hold an open file channel, and should be closed after use. Instances reuse a read
+ * buffer, and are not thread safe.
+ */
+public final class DBFRecordReader implements Closeable {
+
+    /** Largest gap between records, in bytes, that is read through rather than skipped. */
+    static final int COALESCE_GAP_BYTES = 8 * 1024;
+
+    /** Largest single read, in bytes, when coalescing records. */
+    static final int MAX_READ_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final DBFHeader header;
+    private final int[] projection;
+    private final List<DBFFieldDefinition> columns;
+    private ByteBuffer buffer = ByteBuffer.allocate(0);
+    private long readCount;
+
+    private DBFRecordReader(FileChannel channel, DBFHeader header, int[] projection) {
+        this.channel = channel;
+        this.header = header;
+        this.projection = projection;
+        this.columns = header.getFieldDefinitions(projection);
+    }
+
+    /**
+     * Open a DBF file for random access.
+     *
+     * @param dbfFile the DBF file
+     * @param fieldNames the names of the fields to read, in the order the columns should be
+     *     returned. If no names are given, all of the fields are read.
+     * @return the reader, which must be closed after use
+     * @throws IOException if the file could not be opened or the header is not valid
+     * @throws IllegalArgumentException if a field name does not match any field
+     */
+    public static DBFRecordReader open(File dbfFile, String... fieldNames) throws IOException {
+        FileChannel channel = FileChannel.open(dbfFile.toPath(), StandardOpenOption.READ);
+        try {
+            DBFHeader header = DBFHeader.fromByteBuffer(DBFHeader.readBytes(channel));
+            return new DBFRecordReader(channel, header, header.getProjection(fieldNames));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the number of records.
+     *
+     * @return the number of records, including deleted records
+     */
+    public int getNumRecords() {
+        return header.getNumRecords();
+    }
+
+    /**
+     * Get the definitions of the projected fields.
+     *
+     * @return the field definitions, in projection order
+     */
+    public List<DBFFieldDefinition> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Read a single record.
+     *
+     * @param index the zero-based index of the record
+     * @return a batch holding just that record
+     * @throws IOException if the record could not be read
+     * @throws IndexOutOfBoundsException if the index is not valid
+     */
+    public DBFColumnBatch read(int index) throws IOException {
+        return read(new int[] {index});
+    }
+
+    /**
+     * Read a batch of records.
+     *
+     * <p>The records are read in file order, and runs of records that are no more than {@link
+     * #COALESCE_GAP_BYTES} apart are fetched with a single read. The rows of the result are in the
+     * order of the requested indexes.
+     *
+     * @param indexes the zero-based indexes of the records
+     * @return the batch, with one row for each requested index
+     * @throws IOException if any of the records could not be read
+     * @throws IndexOutOfBoundsException if any index is not valid
+     */
+    public DBFColumnBatch read(int... indexes) throws IOException {
+        int numRecords = header.getNumRecords();
+        int recordLength = header.getRecordLength();
+        // Sort by record, carrying the request position in the low half of each key
+        long[] keys = new long[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            keys[i] = ((long) Objects.checkIndex(indexes[i], numRecords) << Integer.SIZE) | i;
+        }
+        Arrays.sort(keys);
+        DBFColumnBatch.Builder builder =
+                new DBFColumnBatch.Builder(header, projection, indexes.length);
+        int maxRunRecords = Math.max(1, MAX_READ_BYTES / Math.max(recordLength, 1));
+        int maxGapRecords = COALESCE_GAP_BYTES / Math.max(recordLength, 1);
+        int start = 0;
+        while (start < keys.length) {
+            int first = (int) (keys[start] >>> Integer.SIZE);
+            int end = start + 1;
+            while (end < keys.length) {
+                int previous = (int) (keys[end - 1] >>> Integer.SIZE);
+                int next = (int) (keys[end] >>> Integer.SIZE);
+                if (next - previous - 1 > maxGapRecords || next - first >= maxRunRecords) {
+                    break;
+                }
+                end++;
+            }
+            int last = (int) (keys[end - 1] >>> Integer.SIZE);
+            ByteBuffer bb =
+                    readRecords(header.getRecordPosition(first), (last - first + 1) * recordLength);
+            for (int k = start; k < end; k++) {
+                int record = (int) (keys[k] >>> Integer.SIZE);
+                builder.add((int) keys[k], bb, (record - first) * recordLength);
+            }
+            start = end;
+        }
+        return builder.build(indexes.length == 0 ? 0 : indexes[0], indexes.clone());
+    }
+
+    /**
+     * Get the number of reads issued so far.
+     *
+     * @return the number of positional reads used to fetch records
+     */
+    long getReadCount() {
+        return readCount;
+    }
+
+    private ByteBuffer readRecords(long position, int length) throws IOException {
+        if (buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(length);
+        }
+        buffer.clear().limit(length);
+        readFully(channel, buffer, position);
+        readCount++;
+        return buffer;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer bb, long position)
+            throws IOException {
+        while (bb.hasRemaining()) {
+            int n = channel.read(bb, position + bb.position());
+            if (n < 0) {
+                throw new EOFException(
+                        String.format("Unexpected end of file reading at offset %d", position));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,222 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+/**
+ * Formatters for DBF field values, straight into the fixed width ASCII field bytes.
+ *
+ * <p>This is the reverse of {@link DBFValueParser}. Values are written with absolute puts into a
+ * buffer, and integers and fixed point numbers with up to 15 significant digits are formatted
+ * without creating a {@link String}. Numbers are right aligned, and all other values are left
+ * aligned, padded with spaces.
+ *
+ * <p>Null values are written as the shapelib null for the field type: blank for Numeric, Float,
+ * Character and Date fields, and {@code '?'} for Logical fields.
+ */
+final class DBFValueFormatter {
+
+    private static final long[] POWERS_OF_TEN = {
+        1L,
+        10L,
+        100L,
+        1000L,
+        10000L,
+        100000L,
+        1000000L,
+        10000000L,
+        100000000L,
+        1000000000L,
+        10000000000L,
+        100000000000L,
+        1000000000000L,
+        10000000000000L,
+        100000000000000L,
+        1000000000000000L
+    };
+
+    /** Scaled values below this have no more digits than a double holds, so fit in a long. */
+    private static final double MAX_FAST_SCALED = 1e15;
+
+    private DBFValueFormatter() {}
+
+    /**
+     * Format a value into a field.
+     *
+     * @param bb buffer to write the field bytes to
+     * @param offset the offset of the field within the buffer
+     * @param field the field definition
+     * @param value the value, or null. Numeric and Float fields take a {@link Number}, Date fields
+     *     a {@link LocalDate}, and Logical fields a {@link Boolean}. Character fields take any
+     *     value, using its {@link Object#toString()}.
+     * @throws IllegalArgumentException if the value does not suit the field type, or does not fit
+     *     in the field width
+     */
+    static void format(ByteBuffer bb, int offset, DBFFieldDefinition field, Object value) {
+        int width = field.fieldLengthBinary();
+        if (value == null) {
+            fill(bb, offset, width, (byte) ' ');
+            if (field.fieldType() == DBFFieldType.Logical) {
+                bb.put(offset, (byte) '?');
+            }
+            return;
+        }
+        switch (field.fieldType()) {
+            case Numeric, Float -> {
+                if (!(value instanceof Number number)) {
+                    throw wrongValue(field, value);
+                }
+                formatNumber(bb, offset, field, number);
+            }
+            case Date -> {
+                if (!(value instanceof LocalDate date)) {
+                    throw wrongValue(field, value);
+                }
+                formatDate(bb, offset, field, date);
+            }
+            case Logical -> {
+                if (!(value instanceof Boolean b)) {
+                    throw wrongValue(field, value);
+                }
+                fill(bb, offset, width, (byte) ' ');
+                bb.put(offset, (byte) (b ? 'T' : 'F'));
+            }
+            default -> formatText(bb, offset, field, value.toString());
+        }
+    }
+
+    private static void formatNumber(
+            ByteBuffer bb, int offset, DBFFieldDefinition field, Number number) {
+        int width = field.fieldLengthBinary();
+        int scale = field.fieldDecimalCount();
+        boolean integral =
+                number instanceof Long
+                        || number instanceof Integer
+                        || number instanceof Short
+                        || number instanceof Byte;
+        if (integral && scale == 0) {
+            formatUnscaled(bb, offset, field, number, number.longValue(), 0);
+            return;
+        }
+        double d = number.doubleValue();
+        if (Double.isNaN(d)) {
+            fill(bb, offset, width, (byte) ' ');
+            return;
+        }
+        if (scale < POWERS_OF_TEN.length) {
+            double scaled = d * POWERS_OF_TEN[scale];
+            if (Math.abs(scaled) < MAX_FAST_SCALED) {
+                // Round half away from zero, as BigDecimal HALF_UP does
+                long magnitude = (long) (Math.abs(scaled) + 0.5);
+                long unscaled = scaled < 0 ? -magnitude : magnitude;
+                formatUnscaled(bb, offset, field, number, unscaled, scale);
+                return;
+            }
+        }
+        if (Double.isInfinite(d)) {
+            throw tooWide(field, number);
+        }
+        BigDecimal decimal =
+                new BigDecimal(number.toString()).setScale(scale, RoundingMode.HALF_UP);
+        formatText(bb, offset, field, decimal.toPlainString(), true);
+    }
+
+    private static void formatUnscaled(
+            ByteBuffer bb,
+            int offset,
+            DBFFieldDefinition field,
+            Number number,
+            long unscaled,
+            int scale) {
+        int width = field.fieldLengthBinary();
+        boolean negative = unscaled < 0;
+        // Work with a negative magnitude, so that Long.MIN_VALUE does not overflow
+        long remaining = negative ? unscaled : -unscaled;
+        int position = offset + width;
+        int digits = 0;
+        do {
+            if (digits == scale && scale > 0) {
+                if (--position < offset) {
+                    throw tooWide(field, number);
+                }
+                bb.put(position, (byte) '.');
+            }
+            if (--position < offset) {
+                throw tooWide(field, number);
+            }
+            bb.put(position, (byte) ('0' - (remaining % 10)));
+            remaining /= 10;
+            digits++;
+        } while (remaining != 0 || digits <= scale);
+        if (negative) {
+            if (--position < offset) {
+                throw tooWide(field, number);
+            }
+            bb.put(position, (byte) '-');
+        }
+        fill(bb, offset, position - offset, (byte) ' ');
+    }
+
+    private static void formatDate(
+            ByteBuffer bb, int offset, DBFFieldDefinition field, LocalDate date) {
+        int year = date.getYear();
+        if (field.fieldLengthBinary() < 8 || year < 0 || year > 9999) {
+            throw tooWide(field, date);
+        }
+        fill(bb, offset, field.fieldLengthBinary(), (byte) ' ');
+        putDigits(bb, offset, year, 4);
+        putDigits(bb, offset + 4, date.getMonthValue(), 2);
+        putDigits(bb, offset + 6, date.getDayOfMonth(), 2);
+    }
+
+    private static void putDigits(ByteBuffer bb, int offset, int value, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            bb.put(offset + i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+    }
+
+    private static void formatText(
+            ByteBuffer bb, int offset, DBFFieldDefinition field, String text) {
+        formatText(bb, offset, field, text, false);
+    }
+
+    private static void formatText(
+            ByteBuffer bb, int offset, DBFFieldDefinition field, String text, boolean rightAlign) {
+        int width = field.fieldLengthBinary();
+        int length = text.length();
+        if (length > width) {
+            throw tooWide(field, text);
+        }
+        int start = rightAlign ? offset + width - length : offset;
+        fill(bb, offset, width, (byte) ' ');
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            bb.put(start + i, (byte) (c < 0x80 ? c : '?'));
+        }
+    }
+
+    private static void fill(ByteBuffer bb, int offset, int length, byte b) {
+        for (int i = 0; i < length; i++) {
+            bb.put(offset + i, b);
+        }
+    }
+
+    private static IllegalArgumentException wrongValue(DBFFieldDefinition field, Object value) {
+        return new IllegalArgumentException(
+                String.format(
+                        "Cannot write %s to %s field %s",
+                        value.getClass().getSimpleName(),
+                        field.fieldType().getName(),
+                        field.fieldName()));
+    }
+
+    private static IllegalArgumentException tooWide(DBFFieldDefinition field, Object value) {
+        return new IllegalArgumentException(
+                String.format(
+                        "Value %s does not fit in field %s (%d bytes)",
+                        value, field.fieldName(), field.fieldLengthBinary()));
+    }
+}
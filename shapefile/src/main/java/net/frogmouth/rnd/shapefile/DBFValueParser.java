@@ -0,0 +1,330 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+
+/**
+ * Parsers for DBF field values, straight from the fixed width ASCII field bytes.
+ *
+ * <p>All parsing is done with absolute reads from a buffer, and does not create a {@link String}
+ * for each value, so scanning numeric columns does not generate garbage. The only exceptions are
+ * error messages, and floating point values that are too long (or use an exponent) to be converted
+ * exactly by the fast path, which fall back to {@link Double#parseDouble(String)}.
+ *
+ * <p>Null handling follows shapelib: a blank Numeric, Float or Character value is null, as is a
+ * Numeric or Float value that starts with {@code '*'} (the overflow marker), a blank or all zero
+ * Date, and a Logical value of {@code '?'} or blank.
+ */
+final class DBFValueParser {
+
+    /** Powers of ten that can be represented exactly as doubles. */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+        1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Most significant digits handled without the JDK parser.
+     *
+     * <p>Any 15 digit mantissa is below 2^53, so it converts to a double exactly.
+     */
+    private static final int MAX_MANTISSA_DIGITS = 15;
+
+    private static final int DATE_LEN = 8;
+
+    private DBFValueParser() {}
+
+    /**
+     * Test whether a value is null.
+     *
+     * @param bb buffer holding the field bytes
+     * @param offset the offset of the field within the buffer
+     * @param width the field width in bytes
+     * @param fieldType the field type
+     * @return true if the value is null for its type
+     */
+    static boolean isNull(ByteBuffer bb, int offset, int width, DBFFieldType fieldType) {
+        int first = skipSpaces(bb, offset, offset + width);
+        switch (fieldType) {
+            case Numeric:
+            case Float:
+                return first == offset + width || bb.get(first) == '*';
+            case Date:
+                for (int i = offset; i < offset + width; i++) {
+                    byte b = bb.get(i);
+                    if (b != ' ' && b != '0') {
+                        return false;
+                    }
+                }
+                return true;
+            case Logical:
+                return first == offset + width || bb.get(first) == '?';
+            default:
+                return first == offset + width;
+        }
+    }
+
+    /**
+     * Parse a number as a fixed point value.
+     *
+     * <p>Extra fraction digits beyond the scale are truncated, so a scale of 0 gives the integer
+     * part of the value.
+     *
+     * @param bb buffer holding the field bytes
+     * @param offset the offset of the field within the buffer
+     * @param width the field width in bytes
+     * @param scale the number of fraction digits to keep
+     * @return the value multiplied by 10 to the power of {@code scale}, or 0 for null
+     * @throws NumberFormatException if the value is not a valid number, or does not fit
+     */
+    static long parseUnscaled(ByteBuffer bb, int offset, int width, int scale) {
+        int end = offset + width;
+        int i = skipSpaces(bb, offset, end);
+        if (i == end || bb.get(i) == '*') {
+            return 0;
+        }
+        boolean negative = false;
+        if (bb.get(i) == '-' || bb.get(i) == '+') {
+            negative = bb.get(i) == '-';
+            i++;
+        }
+        long value = 0;
+        boolean hasDigits = false;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            byte b = bb.get(i);
+            if (b >= '0' && b <= '9') {
+                hasDigits = true;
+                if (fractionDigits >= 0) {
+                    if (fractionDigits == scale) {
+                        continue;
+                    }
+                    fractionDigits++;
+                }
+                value = appendDigit(value, b - '0', bb, offset, width);
+            } else if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (b == ' ') {
+                break;
+            } else {
+                throw notANumber(bb, offset, width);
+            }
+        }
+        if (!hasDigits || skipSpaces(bb, i, end) != end) {
+            throw notANumber(bb, offset, width);
+        }
+        for (int k = Math.max(fractionDigits, 0); k < scale; k++) {
+            value = appendDigit(value, 0, bb, offset, width);
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parse a number as a double.
+     *
+     * <p>Values with up to 15 significant digits (the common case for DBF fields) are converted
+     * exactly with a single division. Longer values, and values with an exponent, fall back to the
+     * JDK parser.
+     *
+     * @param bb buffer holding the field bytes
+     * @param offset the offset of the field within the buffer
+     * @param width the field width in bytes
+     * @return the value, or NaN for null
+     * @throws NumberFormatException if the value is not a valid number
+     */
+    static double parseDouble(ByteBuffer bb, int offset, int width) {
+        int end = offset + width;
+        int i = skipSpaces(bb, offset, end);
+        if (i == end || bb.get(i) == '*') {
+            return Double.NaN;
+        }
+        boolean negative = false;
+        if (bb.get(i) == '-' || bb.get(i) == '+') {
+            negative = bb.get(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int significantDigits = 0;
+        boolean hasDigits = false;
+        boolean inFraction = false;
+        int fractionDigits = 0;
+        for (; i < end; i++) {
+            byte b = bb.get(i);
+            if (b >= '0' && b <= '9') {
+                hasDigits = true;
+                if (inFraction) {
+                    fractionDigits++;
+                }
+                if (mantissa == 0 && b == '0') {
+                    continue;
+                }
+                if (significantDigits == MAX_MANTISSA_DIGITS) {
+                    return parseDoubleSlow(bb, offset, width);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                significantDigits++;
+            } else if (b == '.' && !inFraction) {
+                inFraction = true;
+            } else if (b == ' ') {
+                break;
+            } else {
+                // Exponents (and anything unexpected) go to the JDK parser
+                return parseDoubleSlow(bb, offset, width);
+            }
+        }
+        if (!hasDigits || skipSpaces(bb, i, end) != end) {
+            throw notANumber(bb, offset, width);
+        }
+        if (fractionDigits >= POWERS_OF_TEN.length) {
+            return parseDoubleSlow(bb, offset, width);
+        }
+        // Both operands are exact, so the division is correctly rounded
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private static double parseDoubleSlow(ByteBuffer bb, int offset, int width) {
+        return Double.parseDouble(text(bb, offset, width).trim());
+    }
+
+    /**
+     * Parse a date as a count of days since 1970-01-01.
+     *
+     * @param bb buffer holding the field bytes
+     * @param offset the offset of the field within the buffer
+     * @param width the field width in bytes, which should be 8
+     * @return the epoch day, or {@link DBFColumn#NULL_DATE} for null
+     * @throws DateTimeException if the value is not a valid {@code YYYYMMDD} date
+     */
+    static int parseEpochDay(ByteBuffer bb, int offset, int width) {
+        if (isNull(bb, offset, width, DBFFieldType.Date)) {
+            return DBFColumn.NULL_DATE;
+        }
+        if (width < DATE_LEN) {
+            throw notADate(bb, offset, width);
+        }
+        int year = parseDigits(bb, offset, 4);
+        int month = parseDigits(bb, offset + 4, 2);
+        int day = parseDigits(bb, offset + 6, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            throw notADate(bb, offset, width);
+        }
+        return epochDay(year, month, day);
+    }
+
+    /**
+     * Parse a logical value.
+     *
+     * @param bb buffer holding the field bytes
+     * @param offset the offset of the field within the buffer
+     * @param width the field width in bytes
+     * @return {@link Boolean#TRUE} for {@code T, t, Y, y}, {@link Boolean#FALSE} for {@code F, f,
+     *     N, n}, or null for {@code ?} or blank
+     * @throws IllegalArgumentException if the value is not a valid logical value
+     */
+    static Boolean parseLogical(ByteBuffer bb, int offset, int width) {
+        int i = skipSpaces(bb, offset, offset + width);
+        if (i == offset + width) {
+            return null;
+        }
+        switch (bb.get(i)) {
+            case 'T':
+            case 't':
+            case 'Y':
+            case 'y':
+                return Boolean.TRUE;
+            case 'F':
+            case 'f':
+            case 'N':
+            case 'n':
+                return Boolean.FALSE;
+            case '?':
+                return null;
+            default:
+                throw new IllegalArgumentException(
+                        "Not a valid DBF logical value: '" + text(bb, offset, width) + "'");
+        }
+    }
+
+    /**
+     * Convert a date to a count of days since 1970-01-01.
+     *
+     * <p>This is the {@code days_from_civil} algorithm from Howard Hinnant's date algorithms, which
+     * gives the same result as {@link java.time.LocalDate#toEpochDay()} without creating an object.
+     */
+    static int epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static int parseDigits(ByteBuffer bb, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            byte b = bb.get(i);
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private static long appendDigit(long value, int digit, ByteBuffer bb, int offset, int width) {
+        if (value > (Long.MAX_VALUE - digit) / 10) {
+            throw new NumberFormatException(
+                    "DBF value out of range for a long: '" + text(bb, offset, width) + "'");
+        }
+        return value * 10 + digit;
+    }
+
+    private static int skipSpaces(ByteBuffer bb, int start, int end) {
+        int i = start;
+        while (i < end && bb.get(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static NumberFormatException notANumber(ByteBuffer bb, int offset, int width) {
+        return new NumberFormatException(
+                "Not a valid DBF number: '" + text(bb, offset, width) + "'");
+    }
+
+    private static DateTimeException notADate(ByteBuffer bb, int offset, int width) {
+        return new DateTimeException("Not a valid DBF date: '" + text(bb, offset, width) + "'");
+    }
+
+    /**
+     * Get the raw text of a field.
+     *
+     * @param bb buffer holding the field bytes
+     * @param offset the offset of the field within the buffer
+     * @param width the field width in bytes
+     * @return the field bytes as a string, including any padding
+     */
+    static String text(ByteBuffer bb, int offset, int width) {
+        byte[] bytes = new byte[width];
+        bb.get(offset, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
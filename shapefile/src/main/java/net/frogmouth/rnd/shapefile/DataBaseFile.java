@@ -1,5 +1,6 @@
 package net.frogmouth.rnd.shapefile;
 
+import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -35,7 +36,24 @@ public class DataBaseFile {
      * @throws IOException if the file is not valid
      */
     public static DataBaseFile fromFile(File file) throws FileNotFoundException, IOException {
-        return fromInputStream(new FileInputStream(file));
+        return fromFile(file, null);
+    }
+
+    /**
+     * Create DataBaseFile from a file, reporting metrics for each phase of the read.
+     *
+     * @param file the file to read from
+     * @param listener the listener to report metrics to, or null for none
+     * @return the corresponding DataBaseFile.
+     * @throws FileNotFoundException if the file could not be opened
+     * @throws IOException if the file is not valid
+     */
+    public static DataBaseFile fromFile(File file, ReadMetricsListener listener)
+            throws FileNotFoundException, IOException {
+        ReadRecorder recorder = new ReadRecorder("dbf", file.getPath(), listener);
+        recorder.begin(ReadPhase.Open);
+        InputStream inputStream = new BufferedInputStream(new FileInputStream(file));
+        return read(inputStream, recorder);
     }
 
     /**
@@ -46,75 +64,116 @@ public class DataBaseFile {
      * @throws IOException if the file is not valid
      */
     public static DataBaseFile fromInputStream(InputStream inputStream) throws IOException {
+        return fromInputStream(inputStream, null);
+    }
+
+    /**
+     * Create DataBaseFile from an input stream, reporting metrics for each phase of the read.
+     *
+     * <p>Deleted rows are counted as skipped records.
+     *
+     * @param inputStream the input stream to read from
+     * @param listener the listener to report metrics to, or null for none
+     * @return the corresponding DataBaseFile.
+     * @throws IOException if the file is not valid
+     */
+    public static DataBaseFile fromInputStream(
+            InputStream inputStream, ReadMetricsListener listener) throws IOException {
+        return read(inputStream, new ReadRecorder("dbf", null, listener));
+    }
+
+    private static DataBaseFile read(InputStream inputStream, ReadRecorder recorder)
+            throws IOException {
         DataBaseFile dbf = new DataBaseFile();
         try (DataInputStream dis = new DataInputStream(inputStream)) {
-            byte dbfFileType = dis.readByte();
-            System.out.println(String.format("dbfFileType: 0x%02x", dbfFileType));
+            recorder.begin(ReadPhase.Header);
+            dis.readByte(); // file type
             int lastUpdateYear = 1900 + (dis.readByte() & 0xFF);
             byte lastUpdateMonth = dis.readByte();
             byte lastUpdateDay = dis.readByte();
             dbf.setLastUpdate(LocalDate.of(lastUpdateYear, lastUpdateMonth, lastUpdateDay));
-            System.out.println("Last update: " + dbf.getLastUpdate().toString());
             long numRecords = readUint32LittleEndian(dis);
-            System.out.println(String.format("numRecords: 0x%08x (%d)", numRecords, numRecords));
             int firstDataRecordOffset = readUint16LittleEndian(dis);
-            System.out.println(
-                    String.format(
-                            "firstDataRecordOffset: 0x%04x (%d)",
-                            firstDataRecordOffset, firstDataRecordOffset));
             int singleRecordLength = readUint16LittleEndian(dis);
-            System.out.println(
-                    String.format(
-                            "singleRecordLength: 0x%04x (%d)",
-                            singleRecordLength, singleRecordLength));
-            dis.skipNBytes(28 - 12);
-            byte tableFlags = dis.readByte();
-            System.out.println(String.format("tableFlags: 0x%02x", tableFlags));
-            byte codePageMark = dis.readByte();
-            System.out.println(String.format("codePageMark: 0x%02x", codePageMark));
-
-            dis.skipNBytes(32 - 30);
+            // Table flags and code page mark are not used
+            dis.skipNBytes(32 - 12);
             int fieldSubrecordBytes = firstDataRecordOffset - 33;
             int numFieldSubrecords = fieldSubrecordBytes / 32;
             for (int i = 0; i < numFieldSubrecords; i++) {
                 DBFFieldDefinition fieldDefinition = DBFFieldDefinition.fromDataInputStream(dis);
                 dbf.addFieldDefinition(fieldDefinition);
-                System.out.println("field definition: " + fieldDefinition.toString());
             }
-            List<DatabaseRow> rows = new ArrayList<>();
-            System.out.println(String.format("End code: 0x%02x", dis.readByte()));
-            for (int j = 0; j < numRecords; j++) {
+            // Skip the terminator, and anything else before the first record
+            dis.skipNBytes(firstDataRecordOffset - 32 - 32 * numFieldSubrecords);
+            recorder.bytes(firstDataRecordOffset);
+
+            recorder.begin(ReadPhase.Decode);
+            for (long j = 0; j < numRecords; j++) {
                 byte deletedFlag = dis.readByte();
-                if (deletedFlag == 0x20) {
-                    DatabaseRow row = new DatabaseRow();
-                    for (DBFFieldDefinition fieldDefinition : dbf.fieldDefinitions) {
-                        byte[] bytes = new byte[fieldDefinition.fieldLengthBinary()];
-                        dis.read(bytes);
-                        DatabaseField field =
-                                new DatabaseField(new String(bytes, StandardCharsets.US_ASCII));
-                        row.addField(field);
-                    }
-                    rows.add(row);
+                if (DBFHeader.isDeleted(deletedFlag)) {
+                    dis.skipNBytes(singleRecordLength - 1);
+                    recorder.skip(singleRecordLength);
+                    continue;
                 }
+                DatabaseRow row = new DatabaseRow();
+                for (DBFFieldDefinition fieldDefinition : dbf.fieldDefinitions) {
+                    byte[] bytes = new byte[fieldDefinition.fieldLengthBinary()];
+                    dis.readFully(bytes);
+                    DatabaseField field =
+                            new DatabaseField(new String(bytes, StandardCharsets.US_ASCII));
+                    row.addField(field);
+                }
+                recorder.record(null, singleRecordLength);
             }
-            for (DatabaseRow row : rows) {
-                System.out.println(row.toString(dbf.getFieldDefinitions()));
-            }
-            System.out.println("Available: " + dis.available());
+            recorder.end();
         }
         return dbf;
     }
 
+    /**
+     * Open a columnar reader for a DBF file.
+     *
+     * <p>Unlike {@link #fromFile(File)}, the reader only reads the requested fields, and returns
+     * them as batches of raw column values rather than a string per cell.
+     *
+     * @param file the DBF file
+     * @param fieldNames the names of the fields to read, or none to read all of the fields
+     * @return the reader, which must be closed after use
+     * @throws IOException if the file could not be opened or the header is not valid
+     * @throws IllegalArgumentException if a field name does not match any field
+     */
+    public static DBFColumnReader openColumnReader(File file, String... fieldNames)
+            throws IOException {
+        return DBFColumnReader.open(file, fieldNames);
+    }
+
+    /**
+     * Open a random access reader for a DBF file.
+     *
+     * <p>The reader stays open, and fetches individual records (or batches of records) by index
+     * with positional reads, rather than scanning the whole file.
+     *
+     * @param file the DBF file
+     * @param fieldNames the names of the fields to read, or none to read all of the fields
+     * @return the reader, which must be closed after use
+     * @throws IOException if the file could not be opened or the header is not valid
+     * @throws IllegalArgumentException if a field name does not match any field
+     */
+    public static DBFRecordReader openRecordReader(File file, String... fieldNames)
+            throws IOException {
+        return DBFRecordReader.open(file, fieldNames);
+    }
+
     private static long readUint32LittleEndian(DataInputStream dis) throws IOException {
         byte[] bytes = new byte[Integer.BYTES];
-        dis.read(bytes);
+        dis.readFully(bytes);
         ByteBuffer bb = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
         return (bb.getInt() & 0xFFFFFFFFL);
     }
 
     private static int readUint16LittleEndian(DataInputStream dis) throws IOException {
         byte[] bytes = new byte[Short.BYTES];
-        dis.read(bytes);
+        dis.readFully(bytes);
         ByteBuffer bb = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
         return (bb.getShort() & 0xFFFF);
     }
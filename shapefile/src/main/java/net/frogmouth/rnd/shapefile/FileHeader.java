@@ -1,9 +1,11 @@
 package net.frogmouth.rnd.shapefile;
 
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 
 /**
  * Shapefile / Shape Index file header.
@@ -13,8 +15,10 @@ import java.nio.ByteOrder;
 public class FileHeader {
 
     private static final int SHP_FILE_CODE = 9994;
-    private static final int UNUSED_COUNT = 5;
-    private static final int NUM_BOUNDING_BOX_VALUES = 8;
+    private static final int FILE_LENGTH_OFFSET = 24;
+    private static final int VERSION_OFFSET = 28;
+    private static final int SHAPE_TYPE_OFFSET = 32;
+    private static final int BOUNDING_BOX_OFFSET = 36;
     /**
      * FileHeader size in bytes.
      *
@@ -22,7 +26,7 @@ public class FileHeader {
      */
     static int BYTES = 100;
 
-    private int fileLength;
+    private long fileLength;
     private int version;
     private ShapeType shapeType;
     private double minX;
@@ -46,21 +50,59 @@ public class FileHeader {
      * @throws IOException if parsing fails.
      */
     public static FileHeader fromDataInputStream(final DataInputStream dis) throws IOException {
+        byte[] headerBytes = dis.readNBytes(FileHeader.BYTES);
+        if (headerBytes.length < FileHeader.BYTES) {
+            throw new EOFException(
+                    String.format("File header truncated at %d bytes", headerBytes.length));
+        }
+        return fromByteBuffer(ByteBuffer.wrap(headerBytes));
+    }
+
+    /**
+     * Parse a file header from the start of a file channel.
+     *
+     * <p>This uses a positional read, so the position of the channel is not changed.
+     *
+     * @param channel the file channel to read the header values from
+     * @return the corresponding FileHeader.
+     * @throws IOException if reading or parsing fails.
+     */
+    public static FileHeader fromFileChannel(final FileChannel channel) throws IOException {
+        ByteBuffer headerBytes = ByteBuffer.allocate(FileHeader.BYTES);
+        while (headerBytes.hasRemaining()) {
+            if (channel.read(headerBytes, headerBytes.position()) < 0) {
+                throw new EOFException(
+                        String.format("File header truncated at %d bytes", headerBytes.position()));
+            }
+        }
+        return fromByteBuffer(headerBytes);
+    }
+
+    /**
+     * Parse a file header from a byte buffer.
+     *
+     * <p>The header is read from the start of the buffer, using absolute positions, so the position
+     * and byte order of the buffer do not matter. This allows parsing directly from a memory-mapped
+     * file.
+     *
+     * @param bb the byte buffer to read the header values from
+     * @return the corresponding FileHeader.
+     * @throws IOException if parsing fails.
+     */
+    public static FileHeader fromByteBuffer(final ByteBuffer bb) throws IOException {
+        ByteBuffer bigEndian = bb.duplicate().order(ByteOrder.BIG_ENDIAN);
+        ByteBuffer littleEndian = bb.duplicate().order(ByteOrder.LITTLE_ENDIAN);
         FileHeader fh = new FileHeader();
-        int fileCode = dis.readInt();
+        int fileCode = bigEndian.getInt(0);
         if (fileCode != FileHeader.SHP_FILE_CODE) {
             throw new IOException(
                     String.format("Bad file code - probably not shapefile: 0x%08x", fileCode));
         }
-        for (int i = 0; i < FileHeader.UNUSED_COUNT; i++) {
-            dis.readInt();
-        }
-        int fileLength = dis.readInt() * Short.BYTES;
-        fh.setFileLength(fileLength);
-        int versionBigEndian = dis.readInt();
-        fh.setVersion(Integer.reverseBytes(versionBigEndian));
-        int shapeTypeBigEndian = dis.readInt();
-        int shapeTypeLittleEndian = Integer.reverseBytes(shapeTypeBigEndian);
+        // The length is in 16-bit words, and is treated as unsigned (as GDAL does)
+        fh.setFileLength(
+                Integer.toUnsignedLong(bigEndian.getInt(FILE_LENGTH_OFFSET)) * Short.BYTES);
+        fh.setVersion(littleEndian.getInt(VERSION_OFFSET));
+        int shapeTypeLittleEndian = littleEndian.getInt(SHAPE_TYPE_OFFSET);
         ShapeType shapeType = ShapeType.lookupValue(shapeTypeLittleEndian);
         if (shapeType == null) {
             throw new IOException(
@@ -69,29 +111,62 @@ public class FileHeader {
                             shapeTypeLittleEndian));
         }
         fh.setShapeType(shapeType);
-        byte[] bboxValues = dis.readNBytes(FileHeader.NUM_BOUNDING_BOX_VALUES * Double.BYTES);
-        ByteBuffer bbox = ByteBuffer.wrap(bboxValues).order(ByteOrder.LITTLE_ENDIAN);
-        fh.setMinX(bbox.getDouble(0 * Double.BYTES));
-        fh.setMinY(bbox.getDouble(1 * Double.BYTES));
-        fh.setMaxX(bbox.getDouble(2 * Double.BYTES));
-        fh.setMaxY(bbox.getDouble(3 * Double.BYTES));
+        fh.setMinX(littleEndian.getDouble(BOUNDING_BOX_OFFSET + 0 * Double.BYTES));
+        fh.setMinY(littleEndian.getDouble(BOUNDING_BOX_OFFSET + 1 * Double.BYTES));
+        fh.setMaxX(littleEndian.getDouble(BOUNDING_BOX_OFFSET + 2 * Double.BYTES));
+        fh.setMaxY(littleEndian.getDouble(BOUNDING_BOX_OFFSET + 3 * Double.BYTES));
         if (shapeType.hasZ()) {
-            fh.setMinZ(bbox.getDouble(4 * Double.BYTES));
-            fh.setMaxZ(bbox.getDouble(5 * Double.BYTES));
+            fh.setMinZ(littleEndian.getDouble(BOUNDING_BOX_OFFSET + 4 * Double.BYTES));
+            fh.setMaxZ(littleEndian.getDouble(BOUNDING_BOX_OFFSET + 5 * Double.BYTES));
         }
         if (shapeType.hasM()) {
-            fh.setMinM(bbox.getDouble(6 * Double.BYTES));
-            fh.setMaxM(bbox.getDouble(7 * Double.BYTES));
+            fh.setMinM(littleEndian.getDouble(BOUNDING_BOX_OFFSET + 6 * Double.BYTES));
+            fh.setMaxM(littleEndian.getDouble(BOUNDING_BOX_OFFSET + 7 * Double.BYTES));
         }
         return fh;
     }
 
+    /**
+     * Encode this file header.
+     *
+     * <p>This is the reverse of {@link #fromByteBuffer(ByteBuffer)}. Z and M ranges that are not
+     * set are written as 0, which is what the specification requires for shape types without Z or M
+     * values.
+     *
+     * @return a new buffer holding the 100 byte header, positioned at the start
+     */
+    public ByteBuffer toByteBuffer() {
+        ByteBuffer bb = ByteBuffer.allocate(FileHeader.BYTES).order(ByteOrder.BIG_ENDIAN);
+        bb.putInt(0, FileHeader.SHP_FILE_CODE);
+        bb.putInt(FILE_LENGTH_OFFSET, (int) (fileLength / Short.BYTES));
+        bb.order(ByteOrder.LITTLE_ENDIAN);
+        bb.putInt(VERSION_OFFSET, version);
+        bb.putInt(SHAPE_TYPE_OFFSET, shapeType.getValue());
+        double[] ranges = {
+            minX,
+            minY,
+            maxX,
+            maxY,
+            minZ == null ? 0.0 : minZ,
+            maxZ == null ? 0.0 : maxZ,
+            minM == null ? 0.0 : minM,
+            maxM == null ? 0.0 : maxM
+        };
+        for (int i = 0; i < ranges.length; i++) {
+            bb.putDouble(BOUNDING_BOX_OFFSET + i * Double.BYTES, ranges[i]);
+        }
+        return bb;
+    }
+
     /**
      * Get the file length.
      *
+     * <p>The length is stored in 16-bit words, so this is always even. It is a {@code long}, as
+     * files can be larger than 2 GB.
+     *
      * @return the file length in bytes.
      */
-    public int getFileLength() {
+    public long getFileLength() {
         return fileLength;
     }
 
@@ -100,7 +175,7 @@ public class FileHeader {
      *
      * @param length the file length in bytes.
      */
-    public void setFileLength(int length) {
+    public void setFileLength(long length) {
         this.fileLength = length;
     }
 
@@ -0,0 +1,494 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Packed Hilbert R-tree spatial index.
+ *
+ * <p>This is a static R-tree over the bounding boxes of the records in a .shp file, stored as a
+ * sidecar file next to it (with the {@link #FILE_EXTENSION} extension). The records are sorted by
+ * the Hilbert curve value of their box centres, and then packed bottom-up into nodes of a fixed
+ * size, so the tree is fully populated and needs no pointers beyond the first child position.
+ *
+ * <p>The file is little endian, and is laid out as a 16 byte header followed by the node entries,
+ * root first and leaves last:
+ *
+ * <ul>
+ *   <li>magic number ({@code "JHRT"}), version, node size and number of items, each as a 4 byte
+ *       integer
+ *   <li>node entries of 40 bytes each: minX, minY, maxX, maxY as doubles, then an 8 byte reference.
+ *       For internal nodes, the reference is the position of the first child entry. For leaves, the
+ *       upper 32 bits are the record index and the lower 32 bits are the record offset from the
+ *       Shape Index (in 16-bit words).
+ * </ul>
+ *
+ * <p>Queries map the index file and walk down from the root, so each query only touches the pages
+ * for the nodes on the paths to the matching leaves. Instances are immutable after opening and can
+ * be queried from several threads at once.
+ */
+public final class HilbertRTree implements Closeable {
+
+    /** File extension for the index sidecar file. */
+    public static final String FILE_EXTENSION = "hrt";
+
+    /** Default number of entries in each node. */
+    public static final int DEFAULT_NODE_SIZE = 16;
+
+    private static final int MAGIC = 0x5452484A; // "JHRT" in little endian
+    private static final int VERSION = 1;
+    private static final int HEADER_LEN = 4 * Integer.BYTES;
+    private static final int ENTRY_LEN = Box.BYTES + Long.BYTES;
+    private static final int ENTRIES_PER_CHUNK = 1 << 25;
+    private static final int HILBERT_MAX = (1 << 16) - 1;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer[] chunks;
+    private final int nodeSize;
+    private final int numItems;
+    private final long[] levelStarts;
+    private final long[] levelEnds;
+
+    private HilbertRTree(FileChannel channel, ByteBuffer header) throws IOException {
+        this.channel = channel;
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException(
+                    String.format(
+                            "Bad magic number - not a Hilbert R-tree index: 0x%08x",
+                            header.getInt(0)));
+        }
+        if (header.getInt(Integer.BYTES) != VERSION) {
+            throw new IOException(
+                    String.format("Unsupported index version: %d", header.getInt(Integer.BYTES)));
+        }
+        this.nodeSize = header.getInt(2 * Integer.BYTES);
+        this.numItems = header.getInt(3 * Integer.BYTES);
+        List<long[]> levels = computeLevels(numItems, nodeSize);
+        this.levelStarts = levels.get(0);
+        this.levelEnds = levels.get(1);
+        long numNodes = levelEnds.length == 0 ? 0 : levelEnds[0];
+        long expectedSize = HEADER_LEN + numNodes * ENTRY_LEN;
+        if (channel.size() < expectedSize) {
+            throw new IOException(
+                    String.format(
+                            "Index truncated: expected %d bytes, found %d",
+                            expectedSize, channel.size()));
+        }
+        int numChunks = (int) ((numNodes + ENTRIES_PER_CHUNK - 1) / ENTRIES_PER_CHUNK);
+        this.chunks = new ByteBuffer[numChunks];
+        for (int i = 0; i < numChunks; i++) {
+            long first = (long) i * ENTRIES_PER_CHUNK;
+            long count = Math.min(ENTRIES_PER_CHUNK, numNodes - first);
+            chunks[i] =
+                    channel.map(
+                                    FileChannel.MapMode.READ_ONLY,
+                                    HEADER_LEN + first * ENTRY_LEN,
+                                    count * ENTRY_LEN)
+                            .order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Get the sidecar index file for a .shp file.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @return the index file, with the same base name and the {@link #FILE_EXTENSION} extension
+     */
+    public static File getIndexFile(File shpFile) {
+        String name = shpFile.getName();
+        int dot = name.lastIndexOf('.');
+        String baseName = dot < 0 ? name : name.substring(0, dot);
+        return new File(shpFile.getParentFile(), baseName + "." + FILE_EXTENSION);
+    }
+
+    /**
+     * Build the index for a .shp / .shx file pair, using the default node size.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param shxFile the corresponding Shape Index (.shx) file
+     * @param indexFile the index file to write, which is replaced if it exists
+     * @throws IOException if reading the inputs or writing the index fails
+     */
+    public static void build(File shpFile, File shxFile, File indexFile) throws IOException {
+        build(shpFile, shxFile, indexFile, DEFAULT_NODE_SIZE);
+    }
+
+    /**
+     * Build the index for a .shp / .shx file pair.
+     *
+     * <p>The record bounds are read in parallel, and the Hilbert sort runs in parallel, so the
+     * build takes O(n log n) time spread across the common fork-join pool. Null shapes are left out
+     * of the index.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param shxFile the corresponding Shape Index (.shx) file
+     * @param indexFile the index file to write, which is replaced if it exists
+     * @param nodeSize the number of entries in each node, at least 2
+     * @throws IOException if reading the inputs or writing the index fails
+     */
+    public static void build(File shpFile, File shxFile, File indexFile, int nodeSize)
+            throws IOException {
+        List<IndexRecord> indexRecords = ShapeIndex.fromFile(shxFile).getIndexRecords();
+        double[] bounds = RecordBounds.read(shpFile, indexRecords);
+        int[] offsets = new int[indexRecords.size()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = indexRecords.get(i).offset();
+        }
+        write(indexFile.toPath(), bounds, offsets, nodeSize);
+    }
+
+    /**
+     * Write an index for a set of record bounds.
+     *
+     * @param indexPath the index file to write
+     * @param bounds the bounds of each record as {@code minX, minY, maxX, maxY}, with NaN for
+     *     records that should be left out
+     * @param offsets the Shape Index offset (in 16-bit words) of each record
+     * @param nodeSize the number of entries in each node, at least 2
+     * @throws IOException if writing the index fails
+     */
+    static void write(Path indexPath, double[] bounds, int[] offsets, int nodeSize)
+            throws IOException {
+        if (nodeSize < 2) {
+            throw new IllegalArgumentException("Node size must be at least 2: " + nodeSize);
+        }
+        int[] order = sortByHilbert(bounds, offsets.length);
+        int numItems = order.length;
+        List<long[]> levels = computeLevels(numItems, nodeSize);
+        long[] levelStarts = levels.get(0);
+        long[] levelEnds = levels.get(1);
+        // Internal node boxes, indexed by level. The leaf boxes come straight from bounds.
+        double[][] levelBoxes = new double[levelStarts.length][];
+        for (int level = 1; level < levelStarts.length; level++) {
+            int count = (int) (levelEnds[level] - levelStarts[level]);
+            int childCount = (int) (levelEnds[level - 1] - levelStarts[level - 1]);
+            double[] boxes = new double[count * 4];
+            // The children of the lowest internal level are the leaves, in Hilbert order
+            double[] childBoxes = level == 1 ? bounds : levelBoxes[level - 1];
+            int[] childOrder = level == 1 ? order : null;
+            IntStream.range(0, count)
+                    .parallel()
+                    .forEach(
+                            parent -> {
+                                int firstChild = parent * nodeSize;
+                                int lastChild = Math.min(firstChild + nodeSize, childCount);
+                                double minX = Double.POSITIVE_INFINITY;
+                                double minY = Double.POSITIVE_INFINITY;
+                                double maxX = Double.NEGATIVE_INFINITY;
+                                double maxY = Double.NEGATIVE_INFINITY;
+                                for (int child = firstChild; child < lastChild; child++) {
+                                    int c = (childOrder == null ? child : childOrder[child]) * 4;
+                                    minX = Math.min(minX, childBoxes[c]);
+                                    minY = Math.min(minY, childBoxes[c + 1]);
+                                    maxX = Math.max(maxX, childBoxes[c + 2]);
+                                    maxY = Math.max(maxY, childBoxes[c + 3]);
+                                }
+                                boxes[parent * 4] = minX;
+                                boxes[parent * 4 + 1] = minY;
+                                boxes[parent * 4 + 2] = maxX;
+                                boxes[parent * 4 + 3] = maxY;
+                            });
+            levelBoxes[level] = boxes;
+        }
+        try (FileChannel out =
+                FileChannel.open(
+                        indexPath,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer =
+                    ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(nodeSize).putInt(numItems);
+            // Root first, so write the levels from the top down
+            for (int level = levelStarts.length - 1; level > 0; level--) {
+                double[] boxes = levelBoxes[level];
+                for (int i = 0; i < boxes.length / 4; i++) {
+                    buffer = ensureRemaining(out, buffer);
+                    putBox(buffer, boxes, i * 4);
+                    buffer.putLong(levelStarts[level - 1] + (long) i * nodeSize);
+                }
+            }
+            for (int item : order) {
+                buffer = ensureRemaining(out, buffer);
+                putBox(buffer, bounds, item * 4);
+                buffer.putLong(
+                        ((long) item << Integer.SIZE) | Integer.toUnsignedLong(offsets[item]));
+            }
+            buffer.flip();
+            writeFully(out, buffer);
+        }
+    }
+
+    private static ByteBuffer ensureRemaining(FileChannel out, ByteBuffer buffer)
+            throws IOException {
+        if (buffer.remaining() < ENTRY_LEN) {
+            buffer.flip();
+            writeFully(out, buffer);
+            buffer.clear();
+        }
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static void putBox(ByteBuffer buffer, double[] boxes, int offset) {
+        for (int i = 0; i < 4; i++) {
+            buffer.putDouble(boxes[offset + i]);
+        }
+    }
+
+    /**
+     * Sort the non-null records by the Hilbert value of their box centres.
+     *
+     * @return the record indexes in Hilbert order, leaving out records with NaN bounds
+     */
+    private static int[] sortByHilbert(double[] bounds, int n) {
+        double extentMinX = Double.POSITIVE_INFINITY;
+        double extentMinY = Double.POSITIVE_INFINITY;
+        double extentMaxX = Double.NEGATIVE_INFINITY;
+        double extentMaxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            if (!Double.isNaN(bounds[i * 4])) {
+                extentMinX = Math.min(extentMinX, bounds[i * 4]);
+                extentMinY = Math.min(extentMinY, bounds[i * 4 + 1]);
+                extentMaxX = Math.max(extentMaxX, bounds[i * 4 + 2]);
+                extentMaxY = Math.max(extentMaxY, bounds[i * 4 + 3]);
+            }
+        }
+        double width = extentMaxX - extentMinX;
+        double height = extentMaxY - extentMinY;
+        double scaleX = width > 0 ? HILBERT_MAX / width : 0;
+        double scaleY = height > 0 ? HILBERT_MAX / height : 0;
+        double originX = extentMinX;
+        double originY = extentMinY;
+        // The key holds the (unsigned) Hilbert value above the record index, so sorting the keys
+        // sorts the records. Null shapes sort to the end.
+        long[] keys = new long[n];
+        IntStream.range(0, n)
+                .parallel()
+                .forEach(
+                        i -> {
+                            if (Double.isNaN(bounds[i * 4])) {
+                                keys[i] = Long.MAX_VALUE;
+                                return;
+                            }
+                            double centreX = (bounds[i * 4] + bounds[i * 4 + 2]) / 2;
+                            double centreY = (bounds[i * 4 + 1] + bounds[i * 4 + 3]) / 2;
+                            int x = (int) ((centreX - originX) * scaleX);
+                            int y = (int) ((centreY - originY) * scaleY);
+                            long h = Integer.toUnsignedLong(hilbert(x, y));
+                            keys[i] = (h << (Integer.SIZE - 1)) | i;
+                        });
+        Arrays.parallelSort(keys);
+        int numItems = 0;
+        while (numItems < n && keys[numItems] != Long.MAX_VALUE) {
+            numItems++;
+        }
+        int[] order = new int[numItems];
+        for (int k = 0; k < numItems; k++) {
+            order[k] = (int) (keys[k] & Integer.MAX_VALUE);
+        }
+        return order;
+    }
+
+    /**
+     * Compute the Hilbert curve value for a position on a 2^16 by 2^16 grid.
+     *
+     * <p>This is the branch-free algorithm from "Fast Hilbert curve" by rawrunprotected, which is
+     * also used by the FlatGeobuf packed R-tree.
+     *
+     * @param x the X position, between 0 and 65535
+     * @param y the Y position, between 0 and 65535
+     * @return the Hilbert value, as an unsigned 32-bit integer
+     */
+    static int hilbert(int x, int y) {
+        int a = x ^ y;
+        int b = 0xFFFF ^ a;
+        int c = 0xFFFF ^ (x | y);
+        int d = x & (y ^ 0xFFFF);
+
+        int aa = a | (b >>> 1);
+        int bb = (a >>> 1) ^ a;
+        int cc = ((c >>> 1) ^ (b & (d >>> 1))) ^ c;
+        int dd = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+
+        a = aa;
+        b = bb;
+        c = cc;
+        d = dd;
+        aa = (a & (a >>> 2)) ^ (b & (b >>> 2));
+        bb = (a & (b >>> 2)) ^ (b & ((a ^ b) >>> 2));
+        cc ^= (a & (c >>> 2)) ^ (b & (d >>> 2));
+        dd ^= (b & (c >>> 2)) ^ ((a ^ b) & (d >>> 2));
+
+        a = aa;
+        b = bb;
+        c = cc;
+        d = dd;
+        aa = (a & (a >>> 4)) ^ (b & (b >>> 4));
+        bb = (a & (b >>> 4)) ^ (b & ((a ^ b) >>> 4));
+        cc ^= (a & (c >>> 4)) ^ (b & (d >>> 4));
+        dd ^= (b & (c >>> 4)) ^ ((a ^ b) & (d >>> 4));
+
+        a = aa;
+        b = bb;
+        c = cc;
+        d = dd;
+        cc ^= (a & (c >>> 8)) ^ (b & (d >>> 8));
+        dd ^= (b & (c >>> 8)) ^ ((a ^ b) & (d >>> 8));
+
+        a = cc ^ (cc >>> 1);
+        b = dd ^ (dd >>> 1);
+
+        int i0 = x ^ y;
+        int i1 = b | (0xFFFF ^ (i0 | a));
+        return (interleave(i1) << 1) | interleave(i0);
+    }
+
+    private static int interleave(int value) {
+        int v = value & 0xFFFF;
+        v = (v | (v << 8)) & 0x00FF00FF;
+        v = (v | (v << 4)) & 0x0F0F0F0F;
+        v = (v | (v << 2)) & 0x33333333;
+        v = (v | (v << 1)) & 0x55555555;
+        return v;
+    }
+
+    /**
+     * Compute the position range of each level of the tree.
+     *
+     * <p>Level 0 holds the leaves, and the last level holds the root. The root is stored first in
+     * the file, so the leaves have the highest positions.
+     *
+     * @return the start positions (inclusive) and end positions (exclusive) of each level
+     */
+    private static List<long[]> computeLevels(int numItems, int nodeSize) {
+        List<Long> levelCounts = new ArrayList<>();
+        if (numItems > 0) {
+            long count = numItems;
+            levelCounts.add(count);
+            do {
+                count = (count + nodeSize - 1) / nodeSize;
+                levelCounts.add(count);
+            } while (count > 1);
+        }
+        long[] starts = new long[levelCounts.size()];
+        long[] ends = new long[levelCounts.size()];
+        long position = 0;
+        for (int level = levelCounts.size() - 1; level >= 0; level--) {
+            starts[level] = position;
+            position += levelCounts.get(level);
+            ends[level] = position;
+        }
+        return List.of(starts, ends);
+    }
+
+    /**
+     * Open an index file for querying.
+     *
+     * @param indexFile the index file
+     * @return the index, which must be closed after use
+     * @throws IOException if the file could not be opened or is not valid
+     */
+    public static HilbertRTree open(File indexFile) throws IOException {
+        FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LEN).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Index header truncated");
+                }
+            }
+            return new HilbertRTree(channel, header);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the number of items in the index.
+     *
+     * @return the number of indexed records, which excludes null shapes
+     */
+    public int getNumItems() {
+        return numItems;
+    }
+
+    /**
+     * Get the number of entries in each node.
+     *
+     * @return the node size
+     */
+    public int getNodeSize() {
+        return nodeSize;
+    }
+
+    /**
+     * Query the index for records whose bounding box intersects a window.
+     *
+     * <p>Matches are reported in Hilbert order, which is not the record order.
+     *
+     * @param window the query window
+     * @param visitor the visitor to call for each matching record
+     */
+    public void query(Box window, SpatialIndexVisitor visitor) {
+        if (numItems == 0) {
+            return;
+        }
+        int maxDepth = levelStarts.length;
+        long[] stackPositions = new long[maxDepth * nodeSize + 1];
+        int[] stackLevels = new int[maxDepth * nodeSize + 1];
+        int top = 0;
+        stackPositions[top] = 0;
+        stackLevels[top] = maxDepth - 1;
+        top++;
+        while (top > 0) {
+            top--;
+            long start = stackPositions[top];
+            int level = stackLevels[top];
+            long end = Math.min(start + nodeSize, levelEnds[level]);
+            for (long position = start; position < end; position++) {
+                ByteBuffer chunk = chunks[(int) (position / ENTRIES_PER_CHUNK)];
+                int offset = (int) (position % ENTRIES_PER_CHUNK) * ENTRY_LEN;
+                if (!window.intersects(
+                        chunk.getDouble(offset),
+                        chunk.getDouble(offset + Double.BYTES),
+                        chunk.getDouble(offset + 2 * Double.BYTES),
+                        chunk.getDouble(offset + 3 * Double.BYTES))) {
+                    continue;
+                }
+                long reference = chunk.getLong(offset + Box.BYTES);
+                if (level == 0) {
+                    int recordIndex = (int) (reference >>> Integer.SIZE);
+                    long recordOffset = (reference & 0xFFFFFFFFL) * Short.BYTES;
+                    visitor.visit(recordIndex, recordOffset);
+                } else {
+                    stackPositions[top] = reference;
+                    stackLevels[top] = level - 1;
+                    top++;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -1,4 +1,20 @@
 package net.frogmouth.rnd.shapefile;
 
-/** Index Record. */
-public record IndexRecord(int offset, int contentLength) {}
+/**
+ * Index Record.
+ *
+ * @param offset the offset of the record header in the .shp file, in 16-bit words. This is treated
+ *     as unsigned, so that files over 4 GB can be addressed.
+ * @param contentLength the length of the record content in bytes, excluding the record header
+ */
+public record IndexRecord(int offset, int contentLength) {
+
+    /**
+     * Get the offset of the record header in bytes.
+     *
+     * @return the offset from the start of the .shp file
+     */
+    public long byteOffset() {
+        return Integer.toUnsignedLong(offset) * Short.BYTES;
+    }
+}
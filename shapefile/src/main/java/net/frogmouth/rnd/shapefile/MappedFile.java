@@ -0,0 +1,141 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only memory mapping of a file, in chunks.
+ *
+ * <p>A single mapping is limited to {@link Integer#MAX_VALUE} bytes, so larger files are mapped as
+ * a sequence of windows. Callers ask for a byte range with {@link #map(long, int)}, which returns
+ * the offset of that range within {@link #buffer()}, remapping only if the range is not already
+ * covered by the current window.
+ *
+ * <p>The buffer is little endian, which suits the record contents. Big endian values (such as the
+ * record header) need to be reversed by the caller.
+ */
+final class MappedFile implements Closeable {
+
+    /** Default size of each mapped window, in bytes. */
+    static final int DEFAULT_CHUNK_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final long size;
+    private final int chunkSize;
+    private ByteBuffer chunk;
+    private long chunkStart;
+    private long chunkEnd;
+
+    /**
+     * Constructor.
+     *
+     * @param channel the channel to map from
+     * @param chunkSize the size of each mapped window, in bytes
+     * @param ownsChannel whether the channel is closed along with this instance
+     * @throws IOException if the size of the channel could not be determined
+     */
+    private MappedFile(FileChannel channel, int chunkSize, boolean ownsChannel) throws IOException {
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.size = channel.size();
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Create a mapped view of a channel that is shared with other users.
+     *
+     * <p>Each view has its own current window, so separate views of the same channel can be used
+     * from separate threads. Closing the view does not close the channel.
+     *
+     * @param channel the channel to map from
+     * @param chunkSize the size of each mapped window, in bytes
+     * @return the mapped view
+     * @throws IOException if the size of the channel could not be determined
+     */
+    static MappedFile view(FileChannel channel, int chunkSize) throws IOException {
+        return new MappedFile(channel, chunkSize, false);
+    }
+
+    /**
+     * Open a file for mapped reading, using the default chunk size.
+     *
+     * @param path the path to the file
+     * @return the mapped file
+     * @throws IOException if the file could not be opened
+     */
+    static MappedFile open(Path path) throws IOException {
+        return open(path, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Open a file for mapped reading.
+     *
+     * @param path the path to the file
+     * @param chunkSize the size of each mapped window, in bytes
+     * @return the mapped file
+     * @throws IOException if the file could not be opened
+     */
+    static MappedFile open(Path path, int chunkSize) throws IOException {
+        return new MappedFile(FileChannel.open(path, StandardOpenOption.READ), chunkSize, true);
+    }
+
+    /**
+     * Get the size of the underlying file.
+     *
+     * @return the file size in bytes
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Ensure a byte range is mapped.
+     *
+     * @param position the absolute file position of the start of the range
+     * @param length the number of bytes in the range
+     * @return the offset of {@code position} within {@link #buffer()}
+     * @throws IOException if the range is outside the file, or mapping fails
+     */
+    int map(long position, int length) throws IOException {
+        long end = position + length;
+        if (position < 0 || length < 0 || end > size) {
+            throw new IOException(
+                    String.format(
+                            "Range %d..%d is outside the file size of %d", position, end, size));
+        }
+        if (chunk == null || position < chunkStart || end > chunkEnd) {
+            long mappingLength = Math.max(Math.min(chunkSize, size - position), length);
+            chunk =
+                    channel.map(FileChannel.MapMode.READ_ONLY, position, mappingLength)
+                            .order(ByteOrder.LITTLE_ENDIAN);
+            chunkStart = position;
+            chunkEnd = position + mappingLength;
+        }
+        return (int) (position - chunkStart);
+    }
+
+    /**
+     * Get the currently mapped window.
+     *
+     * <p>This is only valid for the range most recently requested with {@link #map(long, int)}.
+     *
+     * @return the little endian view of the current window
+     */
+    ByteBuffer buffer() {
+        return chunk;
+    }
+
+    @Override
+    public void close() throws IOException {
+        chunk = null;
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Shape Index file, read in place from a memory mapping.
+ *
+ * <p>This is the compact alternative to {@link ShapeIndex}. Rather than parsing an {@link
+ * IndexRecord} for each record up front, it maps the .shx file and decodes the offset and content
+ * length of a record when they are asked for. Opening it only reads the file header, whatever the
+ * number of records, and the accessors do not allocate.
+ *
+ * <p>The mapping is read-only, and is released when the instance is garbage collected, so there is
+ * nothing to close. Instances are immutable and thread safe.
+ */
+public final class MappedShapeIndex {
+
+    private static final int RECORD_LEN = 2 * Integer.BYTES;
+    /** Number of index records in each mapped chunk, which keeps each chunk to 1 GB. */
+    private static final int RECORDS_PER_CHUNK_SHIFT = 27;
+
+    private static final int RECORDS_PER_CHUNK_MASK = (1 << RECORDS_PER_CHUNK_SHIFT) - 1;
+
+    private final ByteBuffer fileHeaderBytes;
+    private final ByteBuffer[] chunks;
+    private final int size;
+
+    private MappedShapeIndex(ByteBuffer fileHeaderBytes, ByteBuffer[] chunks, int size) {
+        this.fileHeaderBytes = fileHeaderBytes;
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    /**
+     * Open a Shape Index file.
+     *
+     * @param file the Shape Index (.shx) file
+     * @return the mapped index
+     * @throws IOException if the file could not be opened or mapped, or the header is not valid
+     */
+    public static MappedShapeIndex open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            FileHeader fileHeader = FileHeader.fromFileChannel(channel);
+            long recordsLength = fileHeader.getFileLength() - FileHeader.BYTES;
+            if (fileHeader.getFileLength() > channel.size()) {
+                throw new IOException(
+                        String.format(
+                                "Shape index truncated at %d of %d bytes",
+                                channel.size(), fileHeader.getFileLength()));
+            }
+            long numRecords = Math.max(recordsLength, 0) / RECORD_LEN;
+            if (numRecords > Integer.MAX_VALUE) {
+                throw new IOException("Too many records in shape index: " + numRecords);
+            }
+            int numChunks =
+                    (int) ((numRecords + RECORDS_PER_CHUNK_MASK) >>> RECORDS_PER_CHUNK_SHIFT);
+            ByteBuffer[] chunks = new ByteBuffer[numChunks];
+            for (int c = 0; c < numChunks; c++) {
+                long first = (long) c << RECORDS_PER_CHUNK_SHIFT;
+                long count = Math.min(numRecords - first, RECORDS_PER_CHUNK_MASK + 1);
+                // The index records are big endian, which is the default order
+                chunks[c] =
+                        channel.map(
+                                FileChannel.MapMode.READ_ONLY,
+                                FileHeader.BYTES + first * RECORD_LEN,
+                                count * RECORD_LEN);
+            }
+            ByteBuffer fileHeaderBytes = fileHeader.toByteBuffer().asReadOnlyBuffer();
+            return new MappedShapeIndex(fileHeaderBytes, chunks, (int) numRecords);
+        }
+    }
+
+    /**
+     * Get the file header.
+     *
+     * @return a new copy of the file header, which the caller may modify
+     */
+    public FileHeader getFileHeader() {
+        try {
+            return FileHeader.fromByteBuffer(fileHeaderBytes.duplicate());
+        } catch (IOException e) {
+            // The header was parsed when the index was opened
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Get the number of records.
+     *
+     * @return the number of records in the index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the offset of a record.
+     *
+     * @param index the zero-based index of the record
+     * @return the offset of the record header from the start of the .shp file, in bytes
+     * @throws IndexOutOfBoundsException if the index is not valid
+     */
+    public long offset(int index) {
+        Objects.checkIndex(index, size);
+        int words = chunks[index >>> RECORDS_PER_CHUNK_SHIFT].getInt(position(index));
+        return Integer.toUnsignedLong(words) * Short.BYTES;
+    }
+
+    /**
+     * Get the content length of a record.
+     *
+     * @param index the zero-based index of the record
+     * @return the length of the record content in bytes, excluding the record header
+     * @throws IndexOutOfBoundsException if the index is not valid
+     */
+    public int contentLength(int index) {
+        Objects.checkIndex(index, size);
+        int words =
+                chunks[index >>> RECORDS_PER_CHUNK_SHIFT].getInt(position(index) + Integer.BYTES);
+        return words * Short.BYTES;
+    }
+
+    private static int position(int index) {
+        return (index & RECORDS_PER_CHUNK_MASK) * RECORD_LEN;
+    }
+}
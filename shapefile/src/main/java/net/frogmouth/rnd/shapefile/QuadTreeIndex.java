@@ -0,0 +1,484 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Quadtree spatial index, in the MapServer / GDAL .qix format.
+ *
+ * <p>This is the index written by the MapServer {@code shptree} utility and by GDAL ({@code CREATE
+ * SPATIAL INDEX} on a Shapefile), stored as a sidecar file next to the .shp file with the {@link
+ * #FILE_EXTENSION} extension. Reading it lets existing indexes be used for window queries, and
+ * writing it produces files those tools can use.
+ *
+ * <p>The file starts with an 8 byte header of {@code "SQT"}, a byte order flag (1 for little
+ * endian, 2 for big endian), a version (1) and three reserved bytes. Older files have no header and
+ * are read as little endian. Then comes the number of shapes and the maximum depth as 4 byte
+ * integers, followed by the nodes in depth first order. Each node is:
+ *
+ * <ul>
+ *   <li>the number of bytes taken by all of the nodes below it, as a 4 byte integer
+ *   <li>the node bounds: minX, minY, maxX, maxY as doubles
+ *   <li>the number of shapes in the node, and the zero-based indexes of those shapes, as 4 byte
+ *       integers
+ *   <li>the number of child nodes, as a 4 byte integer
+ * </ul>
+ *
+ * <p>Each shape is held in the deepest node whose bounds fully contain the shape bounds, so a query
+ * returns candidates: shapes in nodes that intersect the window. The candidates need to be checked
+ * against the record bounds, as {@link Shapefile#query(File, File, Box, ShapeRecordVisitor)} does.
+ *
+ * <p>Instances are immutable after opening and can be queried from several threads at once.
+ */
+public final class QuadTreeIndex implements Closeable {
+
+    /** File extension for the index sidecar file. */
+    public static final String FILE_EXTENSION = "qix";
+
+    /** Maximum depth used when the depth is chosen from the number of shapes. */
+    public static final int MAX_DEFAULT_DEPTH = 12;
+
+    private static final byte[] SIGNATURE = {'S', 'Q', 'T'};
+    private static final byte LSB_ORDER = 1;
+    private static final byte MSB_ORDER = 2;
+    private static final byte VERSION = 1;
+    private static final int SIGNATURE_LEN = 8;
+    private static final int HEADER_LEN = SIGNATURE_LEN + 2 * Integer.BYTES;
+    private static final int NODE_HEADER_LEN = Integer.BYTES + Box.BYTES + Integer.BYTES;
+    private static final double SPLIT_RATIO = 0.55;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final boolean swap;
+    private final int numShapes;
+    private final int maxDepth;
+    private final long rootPosition;
+
+    private QuadTreeIndex(FileChannel channel) throws IOException {
+        this.channel = channel;
+        try (MappedFile mappedFile = MappedFile.view(channel, MappedFile.DEFAULT_CHUNK_SIZE)) {
+            int offset = mappedFile.map(0, Math.min(HEADER_LEN, (int) mappedFile.size()));
+            ByteBuffer bb = mappedFile.buffer();
+            boolean hasSignature = mappedFile.size() >= HEADER_LEN;
+            for (int i = 0; hasSignature && i < SIGNATURE.length; i++) {
+                hasSignature = bb.get(offset + i) == SIGNATURE[i];
+            }
+            if (hasSignature) {
+                byte order = bb.get(offset + SIGNATURE.length);
+                if (order != LSB_ORDER && order != MSB_ORDER) {
+                    throw new IOException(String.format("Unsupported .qix byte order: %d", order));
+                }
+                this.swap = order == MSB_ORDER;
+                this.rootPosition = HEADER_LEN;
+            } else {
+                // Old format, without the signature
+                this.swap = false;
+                this.rootPosition = HEADER_LEN - SIGNATURE_LEN;
+            }
+            offset = mappedFile.map(rootPosition - 2 * Integer.BYTES, 2 * Integer.BYTES);
+            this.numShapes = getInt(mappedFile.buffer(), offset);
+            this.maxDepth = getInt(mappedFile.buffer(), offset + Integer.BYTES);
+        }
+    }
+
+    /**
+     * Get the sidecar index file for a .shp file.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @return the index file, with the same base name and the {@link #FILE_EXTENSION} extension
+     */
+    public static File getIndexFile(File shpFile) {
+        String name = shpFile.getName();
+        int dot = name.lastIndexOf('.');
+        String baseName = dot < 0 ? name : name.substring(0, dot);
+        return new File(shpFile.getParentFile(), baseName + "." + FILE_EXTENSION);
+    }
+
+    /**
+     * Build the index for a .shp / .shx file pair, choosing the depth from the number of shapes.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param shxFile the corresponding Shape Index (.shx) file
+     * @param indexFile the index file to write, which is replaced if it exists
+     * @throws IOException if reading the inputs or writing the index fails
+     */
+    public static void build(File shpFile, File shxFile, File indexFile) throws IOException {
+        build(shpFile, shxFile, indexFile, 0);
+    }
+
+    /**
+     * Build the index for a .shp / .shx file pair.
+     *
+     * <p>This follows the same rules as {@code shptree}: the root covers the extent of the records,
+     * each node splits into four overlapping quadrants (splitting the longer side into two 55%
+     * halves, then each half again), and each record goes into the deepest node that fully contains
+     * it. Null shapes are left out of the index. The index is written little endian.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param shxFile the corresponding Shape Index (.shx) file
+     * @param indexFile the index file to write, which is replaced if it exists
+     * @param maxDepth the maximum depth of the tree, or 0 to choose it from the number of shapes
+     * @throws IOException if reading the inputs or writing the index fails
+     */
+    public static void build(File shpFile, File shxFile, File indexFile, int maxDepth)
+            throws IOException {
+        List<IndexRecord> indexRecords = ShapeIndex.fromFile(shxFile).getIndexRecords();
+        double[] bounds = RecordBounds.read(shpFile, indexRecords);
+        write(indexFile.toPath(), bounds, maxDepth, ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Write an index for a set of record bounds.
+     *
+     * @param indexPath the index file to write
+     * @param bounds the bounds of each record as {@code minX, minY, maxX, maxY}, with NaN for
+     *     records that should be left out
+     * @param maxDepth the maximum depth of the tree, or 0 to choose it from the number of records
+     * @param byteOrder the byte order to write
+     * @throws IOException if writing the index fails
+     */
+    static void write(Path indexPath, double[] bounds, int maxDepth, ByteOrder byteOrder)
+            throws IOException {
+        int n = bounds.length / 4;
+        if (maxDepth <= 0) {
+            maxDepth = getDefaultDepth(n);
+        }
+        double extentMinX = Double.POSITIVE_INFINITY;
+        double extentMinY = Double.POSITIVE_INFINITY;
+        double extentMaxX = Double.NEGATIVE_INFINITY;
+        double extentMaxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            if (!Double.isNaN(bounds[i * 4])) {
+                extentMinX = Math.min(extentMinX, bounds[i * 4]);
+                extentMinY = Math.min(extentMinY, bounds[i * 4 + 1]);
+                extentMaxX = Math.max(extentMaxX, bounds[i * 4 + 2]);
+                extentMaxY = Math.max(extentMaxY, bounds[i * 4 + 3]);
+            }
+        }
+        Node root =
+                extentMinX > extentMaxX
+                        ? new Node(0, 0, 0, 0)
+                        : new Node(extentMinX, extentMinY, extentMaxX, extentMaxY);
+        for (int i = 0; i < n; i++) {
+            if (!Double.isNaN(bounds[i * 4])) {
+                root.insert(i, bounds, i * 4, maxDepth);
+            }
+        }
+        root.trim();
+        root.computeSubtreeLength();
+        try (FileChannel out =
+                FileChannel.open(
+                        indexPath,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(byteOrder);
+            buffer.put(SIGNATURE)
+                    .put(byteOrder == ByteOrder.BIG_ENDIAN ? MSB_ORDER : LSB_ORDER)
+                    .put(VERSION)
+                    .put((byte) 0)
+                    .put((byte) 0)
+                    .put((byte) 0);
+            buffer.putInt(n).putInt(maxDepth);
+            writeNode(out, buffer, root);
+            buffer.flip();
+            writeFully(out, buffer);
+        }
+    }
+
+    /**
+     * Choose the tree depth for a number of shapes, in the same way as {@code shptree}.
+     *
+     * @param numShapes the number of shapes
+     * @return the depth, at most {@link #MAX_DEFAULT_DEPTH}
+     */
+    static int getDefaultDepth(int numShapes) {
+        int depth = 0;
+        long numNodes = 1;
+        while (numNodes * 4 < numShapes) {
+            depth++;
+            numNodes *= 2;
+        }
+        return Math.min(depth, MAX_DEFAULT_DEPTH);
+    }
+
+    private static void writeNode(FileChannel out, ByteBuffer buffer, Node node)
+            throws IOException {
+        ensureRemaining(out, buffer, NODE_HEADER_LEN);
+        buffer.putInt((int) node.subtreeLength)
+                .putDouble(node.minX)
+                .putDouble(node.minY)
+                .putDouble(node.maxX)
+                .putDouble(node.maxY)
+                .putInt(node.numIds);
+        for (int i = 0; i < node.numIds; i++) {
+            ensureRemaining(out, buffer, Integer.BYTES);
+            buffer.putInt(node.ids[i]);
+        }
+        ensureRemaining(out, buffer, Integer.BYTES);
+        buffer.putInt(node.numChildren);
+        for (int i = 0; i < node.numChildren; i++) {
+            writeNode(out, buffer, node.children[i]);
+        }
+    }
+
+    private static void ensureRemaining(FileChannel out, ByteBuffer buffer, int length)
+            throws IOException {
+        if (buffer.remaining() < length) {
+            buffer.flip();
+            writeFully(out, buffer);
+            buffer.clear();
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    /**
+     * Open an index file for querying.
+     *
+     * @param indexFile the index file
+     * @return the index, which must be closed after use
+     * @throws IOException if the file could not be opened or is not valid
+     */
+    public static QuadTreeIndex open(File indexFile) throws IOException {
+        FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ);
+        try {
+            return new QuadTreeIndex(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the number of shapes.
+     *
+     * @return the number of records in the Shapefile when the index was built, including null
+     *     shapes
+     */
+    public int getNumShapes() {
+        return numShapes;
+    }
+
+    /**
+     * Get the maximum depth of the tree.
+     *
+     * @return the maximum depth recorded in the index header
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Query the index for candidate records that may intersect a window.
+     *
+     * <p>This returns every record held in a node whose bounds intersect the window. That includes
+     * all of the records that intersect the window, but may include some that do not.
+     *
+     * @param window the query window
+     * @return the zero-based indexes of the candidate records, in ascending order
+     * @throws IOException if the index could not be read
+     */
+    public int[] query(Box window) throws IOException {
+        IntStream.Builder results = IntStream.builder();
+        try (MappedFile mappedFile = MappedFile.view(channel, MappedFile.DEFAULT_CHUNK_SIZE)) {
+            if (mappedFile.size() > rootPosition) {
+                queryNode(mappedFile, rootPosition, window, results);
+            }
+        }
+        int[] candidates = results.build().toArray();
+        Arrays.sort(candidates);
+        return candidates;
+    }
+
+    /**
+     * Query a node and the nodes below it.
+     *
+     * @return the position just past the node and all of its descendants
+     */
+    private long queryNode(
+            MappedFile mappedFile, long position, Box window, IntStream.Builder results)
+            throws IOException {
+        int offset = mappedFile.map(position, NODE_HEADER_LEN);
+        ByteBuffer bb = mappedFile.buffer();
+        int subtreeLength = getInt(bb, offset);
+        int numIds = getInt(bb, offset + Integer.BYTES + Box.BYTES);
+        long idsPosition = position + NODE_HEADER_LEN;
+        long childCountPosition = idsPosition + (long) numIds * Integer.BYTES;
+        long end = childCountPosition + Integer.BYTES + Integer.toUnsignedLong(subtreeLength);
+        if (!window.intersects(
+                getDouble(bb, offset + Integer.BYTES),
+                getDouble(bb, offset + Integer.BYTES + Double.BYTES),
+                getDouble(bb, offset + Integer.BYTES + 2 * Double.BYTES),
+                getDouble(bb, offset + Integer.BYTES + 3 * Double.BYTES))) {
+            return end;
+        }
+        offset = mappedFile.map(idsPosition, numIds * Integer.BYTES + Integer.BYTES);
+        bb = mappedFile.buffer();
+        for (int i = 0; i < numIds; i++) {
+            results.add(getInt(bb, offset + i * Integer.BYTES));
+        }
+        int numChildren = getInt(bb, offset + numIds * Integer.BYTES);
+        long childPosition = childCountPosition + Integer.BYTES;
+        for (int i = 0; i < numChildren; i++) {
+            childPosition = queryNode(mappedFile, childPosition, window, results);
+        }
+        return childPosition;
+    }
+
+    private int getInt(ByteBuffer bb, int offset) {
+        int value = bb.getInt(offset);
+        return swap ? Integer.reverseBytes(value) : value;
+    }
+
+    private double getDouble(ByteBuffer bb, int offset) {
+        long value = bb.getLong(offset);
+        return Double.longBitsToDouble(swap ? Long.reverseBytes(value) : value);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /** Quadtree node, used while building the index. */
+    private static final class Node {
+        private static final int[] NO_IDS = new int[0];
+
+        final double minX;
+        final double minY;
+        final double maxX;
+        final double maxY;
+        int[] ids = NO_IDS;
+        int numIds;
+        Node[] children;
+        int numChildren;
+        long subtreeLength;
+
+        Node(double minX, double minY, double maxX, double maxY) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        boolean contains(double[] bounds, int offset) {
+            return bounds[offset] >= minX
+                    && bounds[offset + 1] >= minY
+                    && bounds[offset + 2] <= maxX
+                    && bounds[offset + 3] <= maxY;
+        }
+
+        void insert(int id, double[] bounds, int offset, int maxDepth) {
+            Node node = this;
+            int depth = maxDepth;
+            while (depth > 1) {
+                if (node.children == null) {
+                    Node[] quadrants = node.split();
+                    boolean fits = false;
+                    for (Node quadrant : quadrants) {
+                        fits |= quadrant.contains(bounds, offset);
+                    }
+                    if (!fits) {
+                        break;
+                    }
+                    node.children = quadrants;
+                    node.numChildren = quadrants.length;
+                }
+                Node next = null;
+                for (Node child : node.children) {
+                    if (child.contains(bounds, offset)) {
+                        next = child;
+                        break;
+                    }
+                }
+                if (next == null) {
+                    break;
+                }
+                node = next;
+                depth--;
+            }
+            node.add(id);
+        }
+
+        private void add(int id) {
+            if (numIds == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(4, ids.length * 2));
+            }
+            ids[numIds++] = id;
+        }
+
+        private Node[] split() {
+            Node[] halves = splitBounds(this);
+            Node[] first = splitBounds(halves[0]);
+            Node[] second = splitBounds(halves[1]);
+            return new Node[] {first[0], first[1], second[0], second[1]};
+        }
+
+        private static Node[] splitBounds(Node in) {
+            if (in.maxX - in.minX > in.maxY - in.minY) {
+                double range = in.maxX - in.minX;
+                return new Node[] {
+                    new Node(in.minX, in.minY, in.minX + range * SPLIT_RATIO, in.maxY),
+                    new Node(in.maxX - range * SPLIT_RATIO, in.minY, in.maxX, in.maxY)
+                };
+            }
+            double range = in.maxY - in.minY;
+            return new Node[] {
+                new Node(in.minX, in.minY, in.maxX, in.minY + range * SPLIT_RATIO),
+                new Node(in.minX, in.maxY - range * SPLIT_RATIO, in.maxX, in.maxY)
+            };
+        }
+
+        /**
+         * Remove empty nodes below this one.
+         *
+         * @return true if this node is empty and can be removed as well
+         */
+        boolean trim() {
+            for (int i = 0; i < numChildren; i++) {
+                if (children[i].trim()) {
+                    children[i] = children[numChildren - 1];
+                    numChildren--;
+                    i--;
+                }
+            }
+            return numChildren == 0 && numIds == 0;
+        }
+
+        /**
+         * Compute the number of bytes taken by the nodes below this one.
+         *
+         * @throws IOException if the result does not fit in the 4 byte field
+         */
+        void computeSubtreeLength() throws IOException {
+            long length = 0;
+            for (int i = 0; i < numChildren; i++) {
+                Node child = children[i];
+                child.computeSubtreeLength();
+                length +=
+                        NODE_HEADER_LEN
+                                + (long) child.numIds * Integer.BYTES
+                                + Integer.BYTES
+                                + child.subtreeLength;
+            }
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Index too large for the .qix format: " + length + " bytes");
+            }
+            subtreeLength = length;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package net.frogmouth.rnd.shapefile;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder events for a single read of a file.
+ *
+ * <p>This is the only class that uses the jdk.jfr module, which is optional. {@link ReadRecorder}
+ * only creates an instance when that module is present, so that reading works on a runtime image
+ * without it. Instances are not thread safe, and are used on the reading thread.
+ */
+final class ReadEvents {
+
+    private final String fileType;
+    private final String path;
+    private Event event;
+    private BatchDecodeEvent batch;
+
+    /**
+     * Constructor.
+     *
+     * @param fileType the type of file, as the lower case extension
+     * @param path the file path, or null if it is not known (e.g. for an input stream)
+     */
+    ReadEvents(String fileType, String path) {
+        this.fileType = fileType;
+        this.path = path;
+    }
+
+    /**
+     * Start the event for a phase.
+     *
+     * @param phase the phase that is starting. There is no event for the decode phase as a whole,
+     *     only for each batch.
+     */
+    void begin(ReadPhase phase) {
+        switch (phase) {
+            case Open -> {
+                FileOpenEvent openEvent = new FileOpenEvent();
+                openEvent.fileType = fileType;
+                openEvent.path = path;
+                event = openEvent;
+            }
+            case Header -> {
+                HeaderParseEvent headerEvent = new HeaderParseEvent();
+                headerEvent.fileType = fileType;
+                event = headerEvent;
+            }
+            case Decode -> event = null;
+        }
+        if (event != null) {
+            event.begin();
+        }
+    }
+
+    /**
+     * Count a record in the current batch, and commit the batch when it is full.
+     *
+     * @param bytes the number of bytes read for the record
+     * @param skipped whether the record was passed over, rather than decoded
+     */
+    void record(long bytes, boolean skipped) {
+        if (batch == null) {
+            // One small event per batch, which is only committed if a recording enabled it
+            batch = new BatchDecodeEvent();
+            batch.fileType = fileType;
+            batch.begin();
+        }
+        if (skipped) {
+            batch.recordsSkipped++;
+        } else {
+            batch.recordsRead++;
+        }
+        batch.bytesRead += bytes;
+        if (batch.recordsRead + batch.recordsSkipped >= ReadRecorder.BATCH_SIZE) {
+            commitBatch();
+        }
+    }
+
+    private void commitBatch() {
+        batch.commit();
+        batch = null;
+    }
+
+    /**
+     * Commit the events for the current phase.
+     *
+     * @param bytesRead the number of bytes read in the phase
+     */
+    void end(long bytesRead) {
+        if (event != null) {
+            if (event instanceof FileOpenEvent openEvent) {
+                openEvent.bytesRead = bytesRead;
+            } else if (event instanceof HeaderParseEvent headerEvent) {
+                headerEvent.bytesRead = bytesRead;
+            }
+            event.commit();
+            event = null;
+        }
+        if (batch != null) {
+            commitBatch();
+        }
+    }
+
+    @Name("net.frogmouth.rnd.shapefile.FileOpen")
+    @Label("File Open")
+    @Category({"jgeovec", "Shapefile"})
+    @Description("Opening or memory-mapping a Shapefile component")
+    static final class FileOpenEvent extends Event {
+
+        @Label("File Type")
+        String fileType;
+
+        @Label("Path")
+        String path;
+
+        @Label("Bytes Read")
+        @DataAmount
+        long bytesRead;
+    }
+
+    @Name("net.frogmouth.rnd.shapefile.HeaderParse")
+    @Label("Header Parse")
+    @Category({"jgeovec", "Shapefile"})
+    @Description("Reading and parsing a Shapefile component header")
+    static final class HeaderParseEvent extends Event {
+
+        @Label("File Type")
+        String fileType;
+
+        @Label("Bytes Read")
+        @DataAmount
+        long bytesRead;
+    }
+
+    @Name("net.frogmouth.rnd.shapefile.BatchDecode")
+    @Label("Batch Decode")
+    @Category({"jgeovec", "Shapefile"})
+    @Description("Reading and decoding a batch of records")
+    static final class BatchDecodeEvent extends Event {
+
+        @Label("File Type")
+        String fileType;
+
+        @Label("Records Read")
+        long recordsRead;
+
+        @Label("Records Skipped")
+        long recordsSkipped;
+
+        @Label("Bytes Read")
+        @DataAmount
+        long bytesRead;
+    }
+}
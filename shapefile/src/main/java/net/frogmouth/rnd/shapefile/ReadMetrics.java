@@ -0,0 +1,29 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.util.Map;
+
+/**
+ * Metrics for one phase of reading a file.
+ *
+ * @param fileType the type of file read, as the lower case extension: {@code "shp"}, {@code "shx"}
+ *     or {@code "dbf"}
+ * @param phase the phase of reading
+ * @param bytesRead the number of bytes read (or, for a memory-mapped file, looked at)
+ * @param recordsRead the number of records decoded
+ * @param recordsSkipped the number of records passed over without decoding, such as deleted DBF
+ *     rows, or records outside a query window
+ * @param recordsByShapeType the number of decoded records of each shape type, for .shp files. This
+ *     is empty for other files.
+ * @param nanos the elapsed time of the phase, in nanoseconds
+ * @param allocatedBytes the number of bytes allocated on the reading thread during the phase, or -1
+ *     if the JVM does not measure allocations
+ */
+public record ReadMetrics(
+        String fileType,
+        ReadPhase phase,
+        long bytesRead,
+        long recordsRead,
+        long recordsSkipped,
+        Map<ShapeType, Long> recordsByShapeType,
+        long nanos,
+        long allocatedBytes) {}
@@ -0,0 +1,19 @@
+package net.frogmouth.rnd.shapefile;
+
+/**
+ * Listener for reader metrics.
+ *
+ * <p>Readers that take a listener call it once at the end of each {@link ReadPhase}, on the reading
+ * thread. Nothing is measured per record beyond a few counters, so a listener can be left on for
+ * production loads.
+ */
+@FunctionalInterface
+public interface ReadMetricsListener {
+
+    /**
+     * Report a completed phase.
+     *
+     * @param metrics the metrics for the phase
+     */
+    void phaseCompleted(ReadMetrics metrics);
+}
@@ -0,0 +1,21 @@
+package net.frogmouth.rnd.shapefile;
+
+/**
+ * Phases of reading a file, for {@link ReadMetrics}.
+ *
+ * <p>Each file is opened, then its header is parsed, then its records are decoded. Readers that are
+ * handed an open input stream skip the open phase.
+ */
+public enum ReadPhase {
+    /** Opening the file, or mapping it into memory. */
+    Open,
+    /** Reading and parsing the file header, including any DBF field definitions. */
+    Header,
+    /**
+     * Reading and decoding the records.
+     *
+     * <p>Records are read as they are decoded, and passed to any visitor, so this includes the time
+     * waiting for I/O and the time spent in the visitor.
+     */
+    Decode
+}
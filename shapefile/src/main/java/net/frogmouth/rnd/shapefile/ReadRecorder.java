@@ -0,0 +1,191 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Instrumentation for a single read of a file.
+ *
+ * <p>This counts records and bytes for each {@link ReadPhase}, reports them to an optional {@link
+ * ReadMetricsListener} when the phase ends, and emits JDK Flight Recorder events: one for opening
+ * the file, one for parsing the header, and one for each batch of {@link #BATCH_SIZE} decoded
+ * records. Events that no recording has enabled are dropped when they are committed.
+ *
+ * <p>The jdk.jfr and jdk.management modules are optional. Without jdk.jfr no events are emitted,
+ * and without jdk.management the allocated bytes are reported as -1.
+ *
+ * <p>Allocations are only measured when there is a listener. Instances are not thread safe, and are
+ * used on the reading thread.
+ */
+final class ReadRecorder {
+
+    /** Number of records (read or skipped) in each batch decode event. */
+    static final int BATCH_SIZE = 4096;
+
+    private static final ShapeType[] SHAPE_TYPES = ShapeType.values();
+    private static final boolean EVENTS_AVAILABLE = isModulePresent("jdk.jfr");
+    private static final boolean ALLOCATIONS_AVAILABLE = isModulePresent("jdk.management");
+
+    private final String fileType;
+    private final ReadMetricsListener listener;
+    private final long[] recordsByShapeType = new long[SHAPE_TYPES.length];
+    private final ReadEvents events;
+    private ReadPhase phase;
+    private long startNanos;
+    private long startAllocatedBytes;
+    private long bytesRead;
+    private long recordsRead;
+    private long recordsSkipped;
+
+    /**
+     * Constructor.
+     *
+     * @param fileType the type of file, as the lower case extension
+     * @param path the file path, or null if it is not known (e.g. for an input stream)
+     * @param listener the listener to report each phase to, or null for none
+     */
+    ReadRecorder(String fileType, String path, ReadMetricsListener listener) {
+        this.fileType = fileType;
+        this.listener = listener;
+        this.events = EVENTS_AVAILABLE ? new ReadEvents(fileType, path) : null;
+    }
+
+    private static boolean isModulePresent(String name) {
+        return ModuleLayer.boot().findModule(name).isPresent();
+    }
+
+    private static long getCurrentThreadAllocatedBytes() {
+        if (!ALLOCATIONS_AVAILABLE) {
+            return -1;
+        }
+        try {
+            return AllocationCounter.getCurrentThreadAllocatedBytes();
+        } catch (LinkageError e) {
+            // The module is present, but the platform MXBean could not be loaded
+            return -1;
+        }
+    }
+
+    /**
+     * Start a phase.
+     *
+     * @param phase the phase to start, which ends the current phase if there is one
+     */
+    void begin(ReadPhase phase) {
+        if (this.phase != null) {
+            end();
+        }
+        this.phase = phase;
+        bytesRead = 0;
+        recordsRead = 0;
+        recordsSkipped = 0;
+        if (listener != null) {
+            Arrays.fill(recordsByShapeType, 0);
+            startAllocatedBytes = getCurrentThreadAllocatedBytes();
+        }
+        if (events != null) {
+            events.begin(phase);
+        }
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Count bytes read that are not part of a record, such as a header.
+     *
+     * @param bytes the number of bytes
+     */
+    void bytes(long bytes) {
+        bytesRead += bytes;
+    }
+
+    /**
+     * Count a decoded record.
+     *
+     * @param shapeType the shape type of the record, or null for records of other files
+     * @param bytes the number of bytes read for the record
+     */
+    void record(ShapeType shapeType, long bytes) {
+        if (shapeType != null) {
+            recordsByShapeType[shapeType.ordinal()]++;
+        }
+        recordsRead++;
+        bytesRead += bytes;
+        if (events != null) {
+            events.record(bytes, false);
+        }
+    }
+
+    /**
+     * Count a record that was passed over.
+     *
+     * @param bytes the number of bytes read for the record
+     */
+    void skip(long bytes) {
+        recordsSkipped++;
+        bytesRead += bytes;
+        if (events != null) {
+            events.record(bytes, true);
+        }
+    }
+
+    /** End the current phase, and report it. */
+    void end() {
+        long nanos = System.nanoTime() - startNanos;
+        if (events != null) {
+            events.end(bytesRead);
+        }
+        if (listener != null) {
+            long allocatedBytes = -1;
+            if (startAllocatedBytes >= 0) {
+                allocatedBytes = getCurrentThreadAllocatedBytes() - startAllocatedBytes;
+            }
+            listener.phaseCompleted(
+                    new ReadMetrics(
+                            fileType,
+                            phase,
+                            bytesRead,
+                            recordsRead,
+                            recordsSkipped,
+                            getRecordsByShapeType(),
+                            nanos,
+                            allocatedBytes));
+        }
+        phase = null;
+    }
+
+    private Map<ShapeType, Long> getRecordsByShapeType() {
+        Map<ShapeType, Long> counts = new EnumMap<>(ShapeType.class);
+        for (int i = 0; i < SHAPE_TYPES.length; i++) {
+            if (recordsByShapeType[i] > 0) {
+                counts.put(SHAPE_TYPES[i], recordsByShapeType[i]);
+            }
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Per thread allocation counter, from the HotSpot thread MXBean.
+     *
+     * <p>This is only loaded when the jdk.management module is present.
+     */
+    private static final class AllocationCounter {
+
+        private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = getThreadMXBean();
+
+        private static com.sun.management.ThreadMXBean getThreadMXBean() {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                    && bean.isThreadAllocatedMemorySupported()
+                    && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean;
+            }
+            return null;
+        }
+
+        static long getCurrentThreadAllocatedBytes() {
+            return THREAD_MX_BEAN == null ? -1 : THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Bulk reader for the bounding boxes of .shp records, as used to build spatial indexes.
+ *
+ * <p>Only the fixed-position bounds at the start of each record are read, using the offsets from
+ * the Shape Index, so the vertex data is never touched.
+ */
+final class RecordBounds {
+
+    private static final int BATCH_SIZE = 1 << 16;
+
+    private RecordBounds() {}
+
+    /**
+     * Read the bounds of every record.
+     *
+     * <p>The records are read in parallel batches, each with its own mapped view of the file.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param indexRecords the index records from the corresponding Shape Index (.shx) file
+     * @return the bounds of each record as {@code minX, minY, maxX, maxY}, with NaN for null shapes
+     * @throws IOException if the .shp file could not be read
+     */
+    static double[] read(File shpFile, List<IndexRecord> indexRecords) throws IOException {
+        int n = indexRecords.size();
+        double[] bounds = new double[n * 4];
+        try (FileChannel channel = FileChannel.open(shpFile.toPath(), StandardOpenOption.READ)) {
+            int numBatches = (n + BATCH_SIZE - 1) / BATCH_SIZE;
+            IntStream.range(0, numBatches)
+                    .parallel()
+                    .forEach(batch -> readBatch(channel, indexRecords, batch, bounds));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return bounds;
+    }
+
+    private static void readBatch(
+            FileChannel channel, List<IndexRecord> indexRecords, int batch, double[] bounds) {
+        int first = batch * BATCH_SIZE;
+        int last = Math.min(first + BATCH_SIZE, indexRecords.size());
+        try {
+            MappedFile mappedFile = MappedFile.view(channel, MappedFile.DEFAULT_CHUNK_SIZE);
+            for (int i = first; i < last; i++) {
+                IndexRecord indexRecord = indexRecords.get(i);
+                long position = indexRecord.byteOffset() + ShapeRecordDecoder.RECORD_HEADER_LEN;
+                int prefixLength =
+                        Math.min(indexRecord.contentLength(), ShapeRecordDecoder.BOUNDS_PREFIX_LEN);
+                int offset = mappedFile.map(position, prefixLength);
+                ShapeRecordDecoder.readBounds(mappedFile.buffer(), offset, bounds, i * 4);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
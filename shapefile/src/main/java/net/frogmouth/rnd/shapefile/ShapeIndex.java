@@ -1,5 +1,6 @@
 package net.frogmouth.rnd.shapefile;
 
+import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -31,7 +32,24 @@ public class ShapeIndex {
      * @throws IOException if parsing fails.
      */
     public static ShapeIndex fromFile(File file) throws FileNotFoundException, IOException {
-        return fromInputStream(new FileInputStream(file));
+        return fromFile(file, null);
+    }
+
+    /**
+     * Create a ShapeIndex instance from a file, reporting metrics for each phase of the read.
+     *
+     * @param file the file to read from
+     * @param listener the listener to report metrics to, or null for none
+     * @return the corresponding ShapeIndex
+     * @throws FileNotFoundException if the file could not be found
+     * @throws IOException if parsing fails.
+     */
+    public static ShapeIndex fromFile(File file, ReadMetricsListener listener)
+            throws FileNotFoundException, IOException {
+        ReadRecorder recorder = new ReadRecorder("shx", file.getPath(), listener);
+        recorder.begin(ReadPhase.Open);
+        InputStream inputStream = new BufferedInputStream(new FileInputStream(file));
+        return read(inputStream, recorder);
     }
 
     /**
@@ -42,10 +60,32 @@ public class ShapeIndex {
      * @throws IOException if parsing fails.
      */
     public static ShapeIndex fromInputStream(InputStream inputStream) throws IOException {
+        return fromInputStream(inputStream, null);
+    }
+
+    /**
+     * Create a ShapeIndex instance from an input stream, reporting metrics for each phase of the
+     * read.
+     *
+     * @param inputStream the input stream to read from
+     * @param listener the listener to report metrics to, or null for none
+     * @return the corresponding ShapeIndex
+     * @throws IOException if parsing fails.
+     */
+    public static ShapeIndex fromInputStream(InputStream inputStream, ReadMetricsListener listener)
+            throws IOException {
+        return read(inputStream, new ReadRecorder("shx", null, listener));
+    }
+
+    private static ShapeIndex read(InputStream inputStream, ReadRecorder recorder)
+            throws IOException {
         ShapeIndex shapeIndex = new ShapeIndex();
         try (DataInputStream dis = new DataInputStream(inputStream)) {
+            recorder.begin(ReadPhase.Header);
             shapeIndex.setFileHeader(FileHeader.fromDataInputStream(dis));
-            int bytesRemaining = shapeIndex.getFileHeader().getFileLength() - FileHeader.BYTES;
+            recorder.bytes(FileHeader.BYTES);
+            recorder.begin(ReadPhase.Decode);
+            long bytesRemaining = shapeIndex.getFileHeader().getFileLength() - FileHeader.BYTES;
             while (bytesRemaining > 0) {
                 int offset = dis.readInt();
                 bytesRemaining -= Integer.BYTES;
@@ -53,7 +93,9 @@ public class ShapeIndex {
                 bytesRemaining -= Integer.BYTES;
                 IndexRecord indexRecord = new IndexRecord(offset, contentLength);
                 shapeIndex.addIndexRecord(indexRecord);
+                recorder.record(null, 2 * Integer.BYTES);
             }
+            recorder.end();
         }
         return shapeIndex;
     }
@@ -76,9 +118,43 @@ public class ShapeIndex {
         this.fileHeader = fileHeader;
     }
 
+    /**
+     * Get the number of records.
+     *
+     * @return the number of records in this ShapeIndex.
+     */
+    public int size() {
+        return indexRecords.size();
+    }
+
+    /**
+     * Get the offset of a record, without copying the records.
+     *
+     * @param index the zero-based index of the record
+     * @return the offset of the record header from the start of the .shp file, in bytes
+     * @throws IndexOutOfBoundsException if the index is not valid
+     */
+    public long offset(int index) {
+        return indexRecords.get(index).byteOffset();
+    }
+
+    /**
+     * Get the content length of a record, without copying the records.
+     *
+     * @param index the zero-based index of the record
+     * @return the length of the record content in bytes, excluding the record header
+     * @throws IndexOutOfBoundsException if the index is not valid
+     */
+    public int contentLength(int index) {
+        return indexRecords.get(index).contentLength();
+    }
+
     /**
      * Get the records.
      *
+     * <p>This returns a copy of the records. Use {@link #offset(int)} and {@link
+     * #contentLength(int)} to look up single records, or {@link MappedShapeIndex} for large files.
+     *
      * @return the records for this ShapeIndex.
      */
     public List<IndexRecord> getIndexRecords() {
@@ -0,0 +1,17 @@
+package net.frogmouth.rnd.shapefile;
+
+import net.frogmouth.rnd.simplefeaturesaccess.Geometry;
+
+/**
+ * Shape record.
+ *
+ * <p>This is a single decoded record from the .shp file.
+ *
+ * @param recordNumber the record number as stored in the file, starting from 1
+ * @param shapeType the shape type of this record, which is either the shape type of the file, or
+ *     {@link ShapeType#NullShape}
+ * @param box the bounding box of the record, or null for a null shape
+ * @param geometry the decoded geometry, or null for a null shape, a multi-part polyline, or a shape
+ *     type that cannot be decoded yet
+ */
+public record ShapeRecord(int recordNumber, ShapeType shapeType, Box box, Geometry geometry) {}
@@ -0,0 +1,215 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of decoded Shapefile records.
+ *
+ * <p>This sits in front of {@link ShapeRecordReader#read(int)}, so that records that are read over
+ * and over (e.g. major roads or administrative boundaries for a tile server) are only decoded once.
+ * Records are keyed by the identity of the .shp file and the zero-based record index, so one cache
+ * can be shared by any number of readers, on any number of files. Readers that are opened on the
+ * same file share entries, and a file that is modified gets new entries.
+ *
+ * <p>The cache is limited by an estimate of the memory held by the decoded records, rather than by
+ * the number of records. The estimate for each record is made from its content length in the shape
+ * index, which grows with the number of vertices, plus a fixed overhead per entry. When the limit
+ * is exceeded, the least recently used records are evicted first. Records that are larger than the
+ * whole limit are returned without being cached.
+ *
+ * <p>Instances are thread safe. Note that {@link ShapeRecordReader} is not, so each thread should
+ * either use its own reader, or share a {@link SharedShapeRecordReader}. The records are shared
+ * between callers, and are immutable.
+ */
+public final class ShapeRecordCache {
+
+    /** Estimated size in bytes of each entry, in addition to the record content. */
+    static final int ENTRY_OVERHEAD = 128;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long weightedSize;
+
+    /**
+     * Constructor.
+     *
+     * @param maxBytes the maximum estimated size of the cached records, in bytes
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public ShapeRecordCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Read a single record, through the cache.
+     *
+     * @param reader the reader to use if the record is not cached
+     * @param index the zero-based index of the record
+     * @return the decoded record, which may be shared with other callers
+     * @throws IOException if the record was not cached, and could not be read or decoded
+     * @throws IndexOutOfBoundsException if the index is not valid
+     */
+    public ShapeRecord read(ShapeRecordReader reader, int index) throws IOException {
+        return read(reader.getFileKey(), reader.getContentLength(index), index, reader::read);
+    }
+
+    /**
+     * Read a single record from a shared reader, through the cache.
+     *
+     * @param reader the reader to use if the record is not cached
+     * @param index the zero-based index of the record
+     * @return the decoded record, which may be shared with other callers
+     * @throws IOException if the record was not cached, and could not be read or decoded
+     * @throws IndexOutOfBoundsException if the index is not valid
+     */
+    public ShapeRecord read(SharedShapeRecordReader reader, int index) throws IOException {
+        return read(reader.getFileKey(), reader.getContentLength(index), index, reader::read);
+    }
+
+    private ShapeRecord read(Object fileKey, int contentLength, int index, Loader loader)
+            throws IOException {
+        Key key = new Key(fileKey, index);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            hits.increment();
+            return entry.shapeRecord();
+        }
+        misses.increment();
+        // Decode outside the lock, so that a slow read does not hold up hits on other records
+        ShapeRecord shapeRecord = loader.read(index);
+        long weight = ENTRY_OVERHEAD + (long) contentLength;
+        if (weight > maxBytes) {
+            return shapeRecord;
+        }
+        synchronized (this) {
+            Entry existing = entries.get(key);
+            if (existing != null) {
+                // Another thread decoded the same record first
+                return existing.shapeRecord();
+            }
+            entries.put(key, new Entry(shapeRecord, weight));
+            weightedSize += weight;
+            evict();
+        }
+        return shapeRecord;
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (weightedSize > maxBytes && iterator.hasNext()) {
+            weightedSize -= iterator.next().weight();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Remove the cached records for a file.
+     *
+     * @param reader a reader on the file
+     */
+    public void invalidate(ShapeRecordReader reader) {
+        invalidate(reader.getFileKey());
+    }
+
+    /**
+     * Remove the cached records for a file.
+     *
+     * @param reader a shared reader on the file
+     */
+    public void invalidate(SharedShapeRecordReader reader) {
+        invalidate(reader.getFileKey());
+    }
+
+    private synchronized void invalidate(Object fileKey) {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> entry = iterator.next();
+            if (entry.getKey().fileKey().equals(fileKey)) {
+                weightedSize -= entry.getValue().weight();
+                iterator.remove();
+            }
+        }
+    }
+
+    /** Remove all of the cached records. */
+    public synchronized void clear() {
+        entries.clear();
+        weightedSize = 0;
+    }
+
+    /**
+     * Get the maximum size.
+     *
+     * @return the maximum estimated size of the cached records, in bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Get the current size.
+     *
+     * @return the estimated size of the cached records, in bytes
+     */
+    public synchronized long getWeightedSize() {
+        return weightedSize;
+    }
+
+    /**
+     * Get the number of cached records.
+     *
+     * @return the number of records currently in the cache
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Get the number of cache hits.
+     *
+     * @return the number of reads that were served from the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of cache misses.
+     *
+     * @return the number of reads that had to read and decode the record
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of evictions.
+     *
+     * @return the number of records that were removed to keep within the maximum size
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private interface Loader {
+        ShapeRecord read(int index) throws IOException;
+    }
+
+    private record Key(Object fileKey, int index) {}
+
+    private record Entry(ShapeRecord shapeRecord, long weight) {}
+}
@@ -0,0 +1,282 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import net.frogmouth.rnd.simplefeaturesaccess.LineString;
+import net.frogmouth.rnd.simplefeaturesaccess.PackedCoordinateSequence;
+import net.frogmouth.rnd.simplefeaturesaccess.Point;
+
+/**
+ * Decoder for the content of .shp records.
+ *
+ * <p>All decoding is done with absolute reads from a little endian buffer, so the same code serves
+ * heap buffers (from streams or positional reads) and memory-mapped files.
+ */
+final class ShapeRecordDecoder {
+
+    static final int RECORD_HEADER_LEN = 2 * Integer.BYTES;
+    static final int NUM_VALUES_IN_POINT = 2;
+    static final int NUM_VALUES_IN_POINTZM = 4;
+    static final int POLYLINE_HEADER_LEN = Box.BYTES + 2 * Integer.BYTES;
+
+    /** Length of the record content prefix holding the shape type and the bounds. */
+    static final int BOUNDS_PREFIX_LEN = Integer.BYTES + Box.BYTES;
+
+    private ShapeRecordDecoder() {}
+
+    /**
+     * Read the shape type at the start of the record content.
+     *
+     * @param bb little endian buffer holding the record content
+     * @param offset the offset of the record content within the buffer
+     * @return the record shape type
+     * @throws IOException if the shape type is not valid
+     */
+    static ShapeType readShapeType(final ByteBuffer bb, final int offset) throws IOException {
+        int recordShapeTypeLittleEndian = bb.getInt(offset);
+        ShapeType recordShapeType = ShapeType.lookupValue(recordShapeTypeLittleEndian);
+        if (recordShapeType == null) {
+            throw new IOException(
+                    String.format(
+                            "Unsupported record shape type: 0x%08x", recordShapeTypeLittleEndian));
+        }
+        return recordShapeType;
+    }
+
+    /**
+     * Test whether the bounds of a record intersect a query window, without decoding it.
+     *
+     * <p>This only reads the shape type and the fixed-position bounds: the {@link Box} for the
+     * multi-vertex shape types, or the X and Y values for point types. The buffer must hold at
+     * least {@link #BOUNDS_PREFIX_LEN} bytes of the record content, or the whole content if that is
+     * shorter.
+     *
+     * @param bb little endian buffer holding the record content
+     * @param offset the offset of the record content (i.e. the shape type) within the buffer
+     * @param window the query window
+     * @return true if the record bounds intersect the window, false if they do not or the record is
+     *     a null shape
+     * @throws IOException if the record shape type is not valid
+     */
+    static boolean intersects(final ByteBuffer bb, final int offset, final Box window)
+            throws IOException {
+        ShapeType recordShapeType = readShapeType(bb, offset);
+        int valuesOffset = offset + Integer.BYTES;
+        return switch (recordShapeType) {
+            case NullShape -> false;
+            case Point, PointM, PointZ -> {
+                double x = bb.getDouble(valuesOffset);
+                double y = bb.getDouble(valuesOffset + Double.BYTES);
+                yield window.intersects(x, y, x, y);
+            }
+            default -> window.intersects(
+                    bb.getDouble(valuesOffset),
+                    bb.getDouble(valuesOffset + 1 * Double.BYTES),
+                    bb.getDouble(valuesOffset + 2 * Double.BYTES),
+                    bb.getDouble(valuesOffset + 3 * Double.BYTES));
+        };
+    }
+
+    /**
+     * Read the bounds of a record, without decoding it.
+     *
+     * <p>This reads the same values as {@link #intersects(ByteBuffer, int, Box)}, and stores them
+     * as {@code minX, minY, maxX, maxY}. Null shapes have no bounds, and are stored as NaN.
+     *
+     * @param bb little endian buffer holding the record content
+     * @param offset the offset of the record content (i.e. the shape type) within the buffer
+     * @param bounds the array to store the bounds into
+     * @param boundsOffset the index in {@code bounds} to store the minimum X value at
+     * @return false if the record is a null shape, otherwise true
+     * @throws IOException if the record shape type is not valid
+     */
+    static boolean readBounds(
+            final ByteBuffer bb, final int offset, final double[] bounds, final int boundsOffset)
+            throws IOException {
+        ShapeType recordShapeType = readShapeType(bb, offset);
+        int valuesOffset = offset + Integer.BYTES;
+        switch (recordShapeType) {
+            case NullShape -> {
+                Arrays.fill(bounds, boundsOffset, boundsOffset + 4, Double.NaN);
+                return false;
+            }
+            case Point, PointM, PointZ -> {
+                double x = bb.getDouble(valuesOffset);
+                double y = bb.getDouble(valuesOffset + Double.BYTES);
+                bounds[boundsOffset] = x;
+                bounds[boundsOffset + 1] = y;
+                bounds[boundsOffset + 2] = x;
+                bounds[boundsOffset + 3] = y;
+            }
+            default -> {
+                for (int i = 0; i < 4; i++) {
+                    bounds[boundsOffset + i] = bb.getDouble(valuesOffset + i * Double.BYTES);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decode a single record, including the record header.
+     *
+     * @param bb little endian buffer holding the record
+     * @param offset the offset of the record header within the buffer
+     * @param contentLength the length of the record content in bytes, excluding the header
+     * @return the decoded record, with a null geometry if the shape type cannot be decoded yet
+     * @throws IOException if the record shape type is not valid
+     */
+    static ShapeRecord decodeRecord(final ByteBuffer bb, final int offset, final int contentLength)
+            throws IOException {
+        return decodeRecord(bb, offset, contentLength, false);
+    }
+
+    /**
+     * Decode a single record, including the record header.
+     *
+     * @param bb little endian buffer holding the record
+     * @param offset the offset of the record header within the buffer
+     * @param contentLength the length of the record content in bytes, excluding the header
+     * @param view whether to return views over the buffer, rather than copying the coordinates
+     * @return the decoded record, with a null geometry if the shape type cannot be decoded yet
+     * @throws IOException if the record shape type is not valid
+     */
+    static ShapeRecord decodeRecord(
+            final ByteBuffer bb, final int offset, final int contentLength, final boolean view)
+            throws IOException {
+        // The record header is big endian, but the buffer is little endian
+        int recordNumber = Integer.reverseBytes(bb.getInt(offset));
+        return decode(recordNumber, bb, offset + RECORD_HEADER_LEN, contentLength, view);
+    }
+
+    /**
+     * Decode the content of a single record.
+     *
+     * @param recordNumber the record number from the record header
+     * @param bb little endian buffer holding the record content
+     * @param offset the offset of the record content (i.e. the shape type) within the buffer
+     * @param contentLength the length of the record content in bytes
+     * @return the decoded record, with a null geometry if the shape type cannot be decoded yet
+     * @throws IOException if the record shape type is not valid
+     */
+    static ShapeRecord decode(
+            final int recordNumber, final ByteBuffer bb, final int offset, final int contentLength)
+            throws IOException {
+        return decode(recordNumber, bb, offset, contentLength, false);
+    }
+
+    /**
+     * Decode the content of a single record.
+     *
+     * <p>If {@code view} is true, line geometries are returned as views that read their coordinates
+     * from the buffer on demand. The buffer content must then remain unchanged for as long as the
+     * geometries are used.
+     *
+     * @param recordNumber the record number from the record header
+     * @param bb little endian buffer holding the record content
+     * @param offset the offset of the record content (i.e. the shape type) within the buffer
+     * @param contentLength the length of the record content in bytes
+     * @param view whether to return views over the buffer, rather than copying the coordinates
+     * @return the decoded record, with a null geometry if the shape type cannot be decoded yet
+     * @throws IOException if the record shape type is not valid
+     */
+    static ShapeRecord decode(
+            final int recordNumber,
+            final ByteBuffer bb,
+            final int offset,
+            final int contentLength,
+            final boolean view)
+            throws IOException {
+        ShapeType recordShapeType = readShapeType(bb, offset);
+        // the values follow the 4 bytes for the Shape Type at the start of the record
+        int valuesOffset = offset + Integer.BYTES;
+        int recordBytesLen = contentLength - Integer.BYTES;
+        return switch (recordShapeType) {
+            case NullShape -> new ShapeRecord(recordNumber, recordShapeType, null, null);
+            case Point, PointM, PointZ -> {
+                Point point = decodePoint(recordShapeType, bb, valuesOffset, recordBytesLen);
+                yield new ShapeRecord(recordNumber, recordShapeType, boxOf(point), point);
+            }
+            case PolyLine, PolyLineM, PolyLineZ -> {
+                Box box = Box.fromByteBuffer(bb, valuesOffset);
+                // Null for a multi-part line, which cannot be decoded yet
+                LineString lineString =
+                        decodePolyLine(recordShapeType, bb, valuesOffset, recordBytesLen, view);
+                yield new ShapeRecord(recordNumber, recordShapeType, box, lineString);
+            }
+            default -> {
+                // There are no geometry classes for the other types, so only the bounds are read
+                Box box = Box.fromByteBuffer(bb, valuesOffset);
+                yield new ShapeRecord(recordNumber, recordShapeType, box, null);
+            }
+        };
+    }
+
+    private static Box boxOf(Point point) {
+        return new Box(point.x(), point.y(), point.x(), point.y());
+    }
+
+    private static Point decodePoint(
+            final ShapeType shapeType, final ByteBuffer bb, final int offset, final int bytesLen) {
+        double x = bb.getDouble(offset);
+        double y = bb.getDouble(offset + 1 * Double.BYTES);
+        return switch (shapeType) {
+            case PointM -> Point.fromXYM(x, y, bb.getDouble(offset + 2 * Double.BYTES));
+            case PointZ -> {
+                // This could be POINTZ, or POINTZM - the M is optional
+                double z = bb.getDouble(offset + 2 * Double.BYTES);
+                if (bytesLen == NUM_VALUES_IN_POINTZM * Double.BYTES) {
+                    yield new Point(x, y, z, bb.getDouble(offset + 3 * Double.BYTES));
+                }
+                yield Point.fromXYZ(x, y, z);
+            }
+            default -> new Point(x, y);
+        };
+    }
+
+    private static LineString decodePolyLine(
+            final ShapeType shapeType,
+            final ByteBuffer bb,
+            final int offset,
+            final int bytesLen,
+            final boolean view) {
+        int numParts = bb.getInt(offset + Box.BYTES);
+        int numPoints = bb.getInt(offset + Box.BYTES + Integer.BYTES);
+        int pointsOffset = offset + POLYLINE_HEADER_LEN + numParts * Integer.BYTES;
+        // The Z part (for PolyLineZ) and then the M part follow the points, each as a range and
+        // then one value per point. Everything before that is common with PolyLine.
+        int rangeLen = (2 + numPoints) * Double.BYTES;
+        int zOffset = pointsOffset + numPoints * NUM_VALUES_IN_POINT * Double.BYTES;
+        boolean hasZ = shapeType.hasZ();
+        int mOffset = hasZ ? zOffset + rangeLen : zOffset;
+        // The M part is optional, so it may not be present in the record
+        boolean hasM = shapeType.hasM() && (mOffset - offset) + rangeLen <= bytesLen;
+        if (numParts > 1) {
+            // There is no MultiLineString class, so multi-part lines are left undecoded
+            return null;
+        }
+        int zValuesOffset = hasZ ? zOffset + 2 * Double.BYTES : -1;
+        int mValuesOffset = hasM ? mOffset + 2 * Double.BYTES : -1;
+        if (view) {
+            return new LineString(
+                    new ByteBufferCoordinateSequence(
+                            bb, numPoints, pointsOffset, zValuesOffset, mValuesOffset));
+        }
+        int stride = PackedCoordinateSequence.getStride(hasZ, hasM);
+        double[] coordinates = new double[numPoints * stride];
+        for (int pointNumber = 0; pointNumber < numPoints; pointNumber++) {
+            int pointOffset = pointsOffset + pointNumber * NUM_VALUES_IN_POINT * Double.BYTES;
+            int i = pointNumber * stride;
+            coordinates[i++] = bb.getDouble(pointOffset);
+            coordinates[i++] = bb.getDouble(pointOffset + Double.BYTES);
+            if (hasZ) {
+                coordinates[i++] = bb.getDouble(zValuesOffset + pointNumber * Double.BYTES);
+            }
+            if (hasM) {
+                coordinates[i] = bb.getDouble(mValuesOffset + pointNumber * Double.BYTES);
+            }
+        }
+        return new LineString(new PackedCoordinateSequence(coordinates, hasZ, hasM));
+    }
+}
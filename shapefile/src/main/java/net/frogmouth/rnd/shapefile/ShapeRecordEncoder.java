@@ -0,0 +1,287 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.nio.ByteBuffer;
+import net.frogmouth.rnd.simplefeaturesaccess.CoordinateSequence;
+import net.frogmouth.rnd.simplefeaturesaccess.Geometry;
+import net.frogmouth.rnd.simplefeaturesaccess.LineString;
+import net.frogmouth.rnd.simplefeaturesaccess.Point;
+
+/**
+ * Encoder for Shapefile records.
+ *
+ * <p>This is the reverse of {@link ShapeRecordDecoder}, covering the same geometries: points, and
+ * single part polylines. The record content is written with absolute puts into a little endian
+ * buffer, and the bounds of each record are merged into a running extent for the file header.
+ *
+ * <p>M values are optional in Z shape types, and are only written if the geometry has them. M shape
+ * types always have M values, so a geometry without them is written with the "no data" value. Z and
+ * M values are dropped for shape types that do not have them.
+ */
+final class ShapeRecordEncoder {
+
+    /** M value written when there is no measure. Anything below -10^38 means "no data". */
+    static final double NO_DATA = -Double.MAX_VALUE;
+
+    /** Number of values in an extent: X, Y, Z and M ranges. */
+    static final int EXTENT_LEN = 8;
+
+    private static final int RECORD_HEADER_LEN = ShapeRecordDecoder.RECORD_HEADER_LEN;
+    private static final int POLYLINE_HEADER_LEN = ShapeRecordDecoder.POLYLINE_HEADER_LEN;
+    private static final double NO_DATA_LIMIT = -1e38;
+
+    private ShapeRecordEncoder() {}
+
+    /**
+     * Check that a shape type can be written.
+     *
+     * @param shapeType the shape type of the file
+     * @throws IllegalArgumentException if records of that type cannot be encoded
+     */
+    static void checkSupported(ShapeType shapeType) {
+        switch (shapeType) {
+            case Point, PointM, PointZ, PolyLine, PolyLineM, PolyLineZ -> {}
+            default -> throw new IllegalArgumentException(
+                    "Writing " + shapeType + " records is not supported");
+        }
+    }
+
+    /**
+     * Create an empty extent.
+     *
+     * @return the extent, as {@code minX, minY, maxX, maxY, minZ, maxZ, minM, maxM}, with each
+     *     minimum at positive infinity and each maximum at negative infinity
+     */
+    static double[] emptyExtent() {
+        double inf = Double.POSITIVE_INFINITY;
+        return new double[] {inf, inf, -inf, -inf, inf, -inf, inf, -inf};
+    }
+
+    /**
+     * Get the length of the record content for a geometry.
+     *
+     * @param shapeType the shape type of the file
+     * @param geometry the geometry, or null for a null shape
+     * @return the content length in bytes, excluding the record header
+     * @throws IllegalArgumentException if the geometry does not suit the shape type
+     */
+    static int getContentLength(ShapeType shapeType, Geometry geometry) {
+        if (isNullShape(geometry)) {
+            return Integer.BYTES;
+        }
+        switch (shapeType) {
+            case Point:
+                asPoint(shapeType, geometry);
+                return Integer.BYTES + 2 * Double.BYTES;
+            case PointM:
+                asPoint(shapeType, geometry);
+                return Integer.BYTES + 3 * Double.BYTES;
+            case PointZ:
+                Point point = asPoint(shapeType, geometry);
+                return Integer.BYTES + (point.hasM() ? 4 : 3) * Double.BYTES;
+            default:
+                LineString lineString = asLineString(shapeType, geometry);
+                int numPoints = lineString.getNumPoints();
+                int length = Integer.BYTES + POLYLINE_HEADER_LEN + Integer.BYTES;
+                length += numPoints * 2 * Double.BYTES;
+                if (shapeType.hasZ()) {
+                    length += (2 + numPoints) * Double.BYTES;
+                }
+                if (writesM(shapeType, geometry)) {
+                    length += (2 + numPoints) * Double.BYTES;
+                }
+                return length;
+        }
+    }
+
+    /**
+     * Encode a record, including the record header.
+     *
+     * @param shapeType the shape type of the file
+     * @param geometry the geometry, or null for a null shape
+     * @param recordNumber the one-based record number
+     * @param contentLength the content length, from {@link #getContentLength(ShapeType, Geometry)}
+     * @param bb little endian buffer to write to
+     * @param offset the offset of the record header within the buffer
+     * @param extent the running extent, which is updated with the bounds of this record
+     */
+    static void encode(
+            final ShapeType shapeType,
+            final Geometry geometry,
+            final int recordNumber,
+            final int contentLength,
+            final ByteBuffer bb,
+            final int offset,
+            final double[] extent) {
+        encodeHeader(recordNumber, contentLength, bb, offset);
+        int contentOffset = offset + RECORD_HEADER_LEN;
+        if (isNullShape(geometry)) {
+            bb.putInt(contentOffset, ShapeType.NullShape.getValue());
+            return;
+        }
+        bb.putInt(contentOffset, shapeType.getValue());
+        int valuesOffset = contentOffset + Integer.BYTES;
+        switch (shapeType) {
+            case Point, PointM, PointZ -> encodePoint(
+                    shapeType, (Point) geometry, bb, valuesOffset, extent);
+            default -> encodePolyLine(shapeType, (LineString) geometry, bb, valuesOffset, extent);
+        }
+    }
+
+    /**
+     * Encode a record header.
+     *
+     * @param recordNumber the one-based record number
+     * @param contentLength the content length in bytes
+     * @param bb little endian buffer to write to
+     * @param offset the offset of the record header within the buffer
+     */
+    static void encodeHeader(int recordNumber, int contentLength, ByteBuffer bb, int offset) {
+        // The record header is big endian, but the buffer is little endian
+        bb.putInt(offset, Integer.reverseBytes(recordNumber));
+        bb.putInt(offset + Integer.BYTES, Integer.reverseBytes(contentLength / Short.BYTES));
+    }
+
+    private static void encodePoint(
+            ShapeType shapeType, Point point, ByteBuffer bb, int offset, double[] extent) {
+        bb.putDouble(offset, point.x());
+        bb.putDouble(offset + Double.BYTES, point.y());
+        includeXY(extent, point.x(), point.y(), point.x(), point.y());
+        int next = offset + 2 * Double.BYTES;
+        if (shapeType.hasZ()) {
+            bb.putDouble(next, point.z());
+            include(extent, 4, point.z());
+            next += Double.BYTES;
+        }
+        if (writesM(shapeType, point)) {
+            double m = point.hasM() ? point.m() : NO_DATA;
+            bb.putDouble(next, m);
+            include(extent, 6, m);
+        }
+    }
+
+    private static void encodePolyLine(
+            ShapeType shapeType,
+            LineString lineString,
+            ByteBuffer bb,
+            int offset,
+            double[] extent) {
+        CoordinateSequence coordinates = lineString.getCoordinateSequence();
+        int numPoints = coordinates.size();
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        int pointsOffset = offset + POLYLINE_HEADER_LEN + Integer.BYTES;
+        for (int i = 0; i < numPoints; i++) {
+            double x = coordinates.getX(i);
+            double y = coordinates.getY(i);
+            bb.putDouble(pointsOffset + i * 2 * Double.BYTES, x);
+            bb.putDouble(pointsOffset + (i * 2 + 1) * Double.BYTES, y);
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+        bb.putDouble(offset, minX);
+        bb.putDouble(offset + Double.BYTES, minY);
+        bb.putDouble(offset + 2 * Double.BYTES, maxX);
+        bb.putDouble(offset + 3 * Double.BYTES, maxY);
+        includeXY(extent, minX, minY, maxX, maxY);
+        // A single part, starting at the first point
+        bb.putInt(offset + Box.BYTES, 1);
+        bb.putInt(offset + Box.BYTES + Integer.BYTES, numPoints);
+        bb.putInt(offset + POLYLINE_HEADER_LEN, 0);
+        int next = pointsOffset + numPoints * 2 * Double.BYTES;
+        if (shapeType.hasZ()) {
+            next = encodeRange(bb, next, numPoints, coordinates, false, extent, 4);
+        }
+        if (writesM(shapeType, lineString)) {
+            encodeRange(bb, next, numPoints, coordinates, true, extent, 6);
+        }
+    }
+
+    private static int encodeRange(
+            ByteBuffer bb,
+            int offset,
+            int numPoints,
+            CoordinateSequence coordinates,
+            boolean m,
+            double[] extent,
+            int extentIndex) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        int valuesOffset = offset + 2 * Double.BYTES;
+        for (int i = 0; i < numPoints; i++) {
+            double value;
+            if (m) {
+                value = coordinates.hasM() ? coordinates.getM(i) : NO_DATA;
+            } else {
+                value = coordinates.getZ(i);
+            }
+            bb.putDouble(valuesOffset + i * Double.BYTES, value);
+            if (value > NO_DATA_LIMIT) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+        if (min > max) {
+            // Every value is "no data"
+            min = NO_DATA;
+            max = NO_DATA;
+        }
+        bb.putDouble(offset, min);
+        bb.putDouble(offset + Double.BYTES, max);
+        include(extent, extentIndex, min);
+        include(extent, extentIndex, max);
+        return valuesOffset + numPoints * Double.BYTES;
+    }
+
+    private static boolean isNullShape(Geometry geometry) {
+        return geometry == null
+                || (geometry instanceof LineString lineString && lineString.getNumPoints() == 0);
+    }
+
+    private static boolean writesM(ShapeType shapeType, Geometry geometry) {
+        return shapeType.hasM() && (!shapeType.hasZ() || geometry.hasM());
+    }
+
+    private static Point asPoint(ShapeType shapeType, Geometry geometry) {
+        if (!(geometry instanceof Point point)) {
+            throw wrongGeometry(shapeType, geometry);
+        }
+        if (shapeType.hasZ() && !point.hasZ()) {
+            throw new IllegalArgumentException(shapeType + " records need Z values");
+        }
+        return point;
+    }
+
+    private static LineString asLineString(ShapeType shapeType, Geometry geometry) {
+        if (!(geometry instanceof LineString lineString)) {
+            throw wrongGeometry(shapeType, geometry);
+        }
+        if (shapeType.hasZ() && !lineString.hasZ()) {
+            throw new IllegalArgumentException(shapeType + " records need Z values");
+        }
+        return lineString;
+    }
+
+    private static IllegalArgumentException wrongGeometry(ShapeType shapeType, Geometry geometry) {
+        return new IllegalArgumentException(
+                String.format(
+                        "Cannot write %s as %s", geometry.getClass().getSimpleName(), shapeType));
+    }
+
+    static void includeXY(double[] extent, double minX, double minY, double maxX, double maxY) {
+        extent[0] = Math.min(extent[0], minX);
+        extent[1] = Math.min(extent[1], minY);
+        extent[2] = Math.max(extent[2], maxX);
+        extent[3] = Math.max(extent[3], maxY);
+    }
+
+    static void include(double[] extent, int index, double value) {
+        if (value > NO_DATA_LIMIT) {
+            extent[index] = Math.min(extent[index], value);
+            extent[index + 1] = Math.max(extent[index + 1], value);
+        }
+    }
+}
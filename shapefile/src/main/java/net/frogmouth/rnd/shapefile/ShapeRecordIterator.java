@@ -0,0 +1,110 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming iterator over Shapefile records.
+ *
+ * <p>Records are read and decoded one at a time, as {@link #next()} is called, so memory use does
+ * not depend on the size of the file. The record content is read into a single buffer that is
+ * reused for each record.
+ *
+ * <p>The iterator owns the input stream, and closes it when the iterator is closed. Read failures
+ * during iteration are reported as {@link UncheckedIOException}.
+ */
+public class ShapeRecordIterator implements Iterator<ShapeRecord>, Closeable {
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private final DataInputStream dis;
+    private final FileHeader fileHeader;
+    private long bytesRemaining;
+    private ByteBuffer recordLE =
+            ByteBuffer.allocate(INITIAL_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Constructor.
+     *
+     * <p>This reads the file header from the input stream.
+     *
+     * @param inputStream the input stream to read from
+     * @throws IOException if the file header could not be read
+     */
+    public ShapeRecordIterator(InputStream inputStream) throws IOException {
+        this.dis = new DataInputStream(inputStream);
+        try {
+            this.fileHeader = FileHeader.fromDataInputStream(dis);
+        } catch (IOException e) {
+            dis.close();
+            throw e;
+        }
+        // The length in the header is unsigned
+        this.bytesRemaining = fileHeader.getFileLength() - FileHeader.BYTES;
+    }
+
+    /**
+     * Get the file header.
+     *
+     * @return the file header for the Shapefile being read.
+     */
+    public FileHeader getFileHeader() {
+        return fileHeader;
+    }
+
+    /**
+     * Get the number of bytes left to read.
+     *
+     * @return the number of bytes after the last record read, according to the file header
+     */
+    long getBytesRemaining() {
+        return bytesRemaining;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return bytesRemaining > 0;
+    }
+
+    @Override
+    public ShapeRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return readNext();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Read the next record.
+     *
+     * <p>This is the same as {@link #next()}, except that read failures are reported directly.
+     *
+     * @return the decoded record
+     * @throws IOException if the record could not be read or decoded
+     */
+    ShapeRecord readNext() throws IOException {
+        int recordNumber = dis.readInt();
+        int contentLength = dis.readInt() * Short.BYTES;
+        if (recordLE.capacity() < contentLength) {
+            recordLE = ByteBuffer.allocate(contentLength).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        dis.readFully(recordLE.array(), 0, contentLength);
+        bytesRemaining -= ShapeRecordDecoder.RECORD_HEADER_LEN + contentLength;
+        return ShapeRecordDecoder.decode(recordNumber, recordLE, 0, contentLength);
+    }
+
+    @Override
+    public void close() throws IOException {
+        dis.close();
+    }
+}
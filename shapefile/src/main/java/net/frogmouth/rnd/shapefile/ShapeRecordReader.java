@@ -0,0 +1,256 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Random access reader for Shapefile records.
+ *
+ * <p>This uses the offsets from the Shape Index (.shx) file to read any record from the .shp file
+ * with a single positional read, without scanning the records before it.
+ *
+ * <p>Records are identified by their zero-based index, so the first record is index 0. The record
+ * number stored in the file is one more than the index.
+ *
+ * <p>Instances hold an open file channel, and should be closed after use. Instances reuse a read
+ * buffer, and are not thread safe.
+ */
+public class ShapeRecordReader implements Closeable {
+
+    private static final int RECORD_HEADER_LEN = ShapeRecordDecoder.RECORD_HEADER_LEN;
+    private final FileChannel channel;
+    private final FileHeader fileHeader;
+    private final MappedShapeIndex shapeIndex;
+    private final Object fileKey;
+    private ByteBuffer buffer = ByteBuffer.allocate(0).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Constructor.
+     *
+     * @param channel the channel for the .shp file, which is closed along with this reader
+     * @param shapeIndex the shape index corresponding to the .shp file
+     * @param fileKey the identity of the .shp file, see {@link #getFileKey()}
+     * @throws IOException if the .shp file header could not be read
+     */
+    ShapeRecordReader(FileChannel channel, MappedShapeIndex shapeIndex, Object fileKey)
+            throws IOException {
+        this.channel = channel;
+        this.shapeIndex = shapeIndex;
+        this.fileKey = fileKey;
+        this.fileHeader = FileHeader.fromFileChannel(channel);
+    }
+
+    /**
+     * Open a reader for a .shp / .shx file pair.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param shxFile the corresponding Shape Index (.shx) file
+     * @return the reader, which must be closed after use
+     * @throws IOException if either file could not be opened or parsed
+     */
+    public static ShapeRecordReader open(File shpFile, File shxFile) throws IOException {
+        MappedShapeIndex shapeIndex = MappedShapeIndex.open(shxFile);
+        FileChannel channel = FileChannel.open(shpFile.toPath(), StandardOpenOption.READ);
+        try {
+            return new ShapeRecordReader(channel, shapeIndex, FileKey.of(shpFile));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the file header.
+     *
+     * @return the file header from the .shp file
+     */
+    public FileHeader getFileHeader() {
+        return fileHeader;
+    }
+
+    /**
+     * Get the number of records.
+     *
+     * @return the number of records listed in the shape index
+     */
+    public int getNumRecords() {
+        return shapeIndex.size();
+    }
+
+    /**
+     * Get the content length of a record.
+     *
+     * @param index the zero-based index of the record
+     * @return the length of the record content in bytes, excluding the record header
+     * @throws IndexOutOfBoundsException if the index is not valid
+     */
+    int getContentLength(int index) {
+        return shapeIndex.contentLength(index);
+    }
+
+    /**
+     * Get the identity of the .shp file.
+     *
+     * <p>Readers opened on the same file have equal keys, as long as the file has not been modified
+     * in between.
+     *
+     * @return the file key, suitable for use in a hash map
+     */
+    Object getFileKey() {
+        return fileKey;
+    }
+
+    /**
+     * Read a single record.
+     *
+     * @param index the zero-based index of the record
+     * @return the decoded record
+     * @throws IOException if the record could not be read or decoded
+     * @throws IndexOutOfBoundsException if the index is not valid
+     */
+    public ShapeRecord read(int index) throws IOException {
+        int contentLength = shapeIndex.contentLength(index);
+        ByteBuffer bb = readFully(shapeIndex.offset(index), RECORD_HEADER_LEN + contentLength);
+        return ShapeRecordDecoder.decodeRecord(bb, 0, contentLength);
+    }
+
+    /**
+     * Read a single record as Well-Known Binary.
+     *
+     * <p>The record is transcoded straight from the read buffer, without decoding it to a geometry.
+     *
+     * @param index the zero-based index of the record
+     * @param transcoder the transcoder to use
+     * @return the transcoder output buffer holding the WKB, which is only valid until the next use
+     *     of the transcoder, and is empty for a null shape
+     * @throws IOException if the record could not be read or transcoded
+     * @throws IndexOutOfBoundsException if the index is not valid
+     * @see WKBTranscoder#transcode(ByteBuffer, int, int)
+     */
+    public ByteBuffer readWKB(int index, WKBTranscoder transcoder) throws IOException {
+        int contentLength = shapeIndex.contentLength(index);
+        ByteBuffer bb = readFully(shapeIndex.offset(index), RECORD_HEADER_LEN + contentLength);
+        return transcoder.transcode(bb, RECORD_HEADER_LEN, contentLength);
+    }
+
+    /**
+     * Read a batch of records.
+     *
+     * <p>The records are read in the order they appear in the file, which keeps the reads moving
+     * forward through the file. The results are returned in the order of the requested indexes.
+     *
+     * @param indexes the zero-based indexes of the records
+     * @return the decoded records, in the same order as {@code indexes}
+     * @throws IOException if any of the records could not be read or decoded
+     * @throws IndexOutOfBoundsException if any index is not valid
+     */
+    public List<ShapeRecord> read(int... indexes) throws IOException {
+        long[] keys = sortByOffset(shapeIndex, indexes);
+        ShapeRecord[] results = new ShapeRecord[indexes.length];
+        for (long key : keys) {
+            int i = (int) key;
+            results[i] = read(indexes[i]);
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Read the records from a set of candidates that intersect a query window.
+     *
+     * <p>This is intended for the candidates from a spatial index. Each candidate is read with a
+     * single positional read, in file order, and its bounds are checked before it is decoded, so
+     * candidates that do not intersect the window are never decoded. Null shapes never match.
+     *
+     * @param indexes the zero-based indexes of the candidate records
+     * @param window the query window
+     * @param visitor the visitor to call for each matching record, in file order
+     * @throws IOException if any of the records could not be read or decoded
+     * @throws IndexOutOfBoundsException if any index is not valid
+     */
+    public void query(int[] indexes, Box window, ShapeRecordVisitor visitor) throws IOException {
+        long[] keys = sortByOffset(shapeIndex, indexes);
+        for (long key : keys) {
+            int index = indexes[(int) key];
+            int contentLength = shapeIndex.contentLength(index);
+            ByteBuffer bb = readFully(shapeIndex.offset(index), RECORD_HEADER_LEN + contentLength);
+            if (ShapeRecordDecoder.intersects(bb, RECORD_HEADER_LEN, window)) {
+                visitor.visit(ShapeRecordDecoder.decodeRecord(bb, 0, contentLength));
+            }
+        }
+    }
+
+    /**
+     * Sort record indexes into file order.
+     *
+     * @param shapeIndex the shape index
+     * @param indexes the zero-based indexes of the records
+     * @return sort keys in file order, each with the position in {@code indexes} in its low 32 bits
+     * @throws IndexOutOfBoundsException if any index is not valid
+     */
+    static long[] sortByOffset(MappedShapeIndex shapeIndex, int[] indexes) {
+        long[] keys = new long[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            // The offset in 16-bit words fits in the high 32 bits
+            long offset = shapeIndex.offset(indexes[i]) / Short.BYTES;
+            // Flip the sign bit, so that offsets over 2^31 words still sort after the others
+            keys[i] = ((offset << Integer.SIZE) | i) ^ Long.MIN_VALUE;
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        if (buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) {
+                throw new EOFException(
+                        String.format("Unexpected end of file reading at offset %d", position));
+            }
+        }
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Identity of a file.
+     *
+     * <p>The size and modification time are included, so that a file that is replaced or appended
+     * to gets a different key.
+     *
+     * @param path the real path of the file
+     * @param fileKey the file system key for the file (e.g. device and inode), or null if the file
+     *     system does not provide one
+     * @param size the size of the file in bytes
+     * @param lastModified the last modified time of the file, in milliseconds since the epoch
+     */
+    record FileKey(String path, Object fileKey, long size, long lastModified) {
+
+        static FileKey of(File file) throws IOException {
+            BasicFileAttributes attributes =
+                    Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            return new FileKey(
+                    file.toPath().toRealPath().toString(),
+                    attributes.fileKey(),
+                    attributes.size(),
+                    attributes.lastModifiedTime().toMillis());
+        }
+    }
+}
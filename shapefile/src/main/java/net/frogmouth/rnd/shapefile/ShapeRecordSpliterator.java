@@ -0,0 +1,201 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Splittable source of Shapefile records.
+ *
+ * <p>This covers a range of record indexes, and uses the Shape Index (.shx) offsets to split that
+ * range into two parts holding roughly the same number of bytes, rather than the same number of
+ * records. This keeps the work balanced when record sizes vary, as is common for PolyLine and
+ * Polygon layers.
+ *
+ * <p>Each part maps its own window of the shared .shp channel, so the parts can be traversed on
+ * separate threads (e.g. by a parallel stream on a fork-join pool). The window is released when the
+ * part runs out of records.
+ */
+final class ShapeRecordSpliterator implements Spliterator<ShapeRecord> {
+
+    /** Default minimum number of bytes in a split, to keep per-task overhead small. */
+    static final int DEFAULT_MIN_SPLIT_BYTES = 1 << 20;
+
+    private static final int RECORD_HEADER_LEN = ShapeRecordDecoder.RECORD_HEADER_LEN;
+    private final FileChannel channel;
+    private final List<IndexRecord> indexRecords;
+    private final boolean ordered;
+    private final int minSplitBytes;
+    private int index;
+    private final int fence;
+    private MappedFile mappedFile;
+
+    /**
+     * Constructor.
+     *
+     * @param channel the channel for the .shp file, which is not closed by this spliterator
+     * @param indexRecords the records from the corresponding Shape Index
+     * @param ordered whether the records should be reported in file order
+     * @param minSplitBytes the minimum number of bytes in a split
+     * @param index the first record index (inclusive) covered by this spliterator
+     * @param fence the last record index (exclusive) covered by this spliterator
+     */
+    ShapeRecordSpliterator(
+            FileChannel channel,
+            List<IndexRecord> indexRecords,
+            boolean ordered,
+            int minSplitBytes,
+            int index,
+            int fence) {
+        this.channel = channel;
+        this.indexRecords = indexRecords;
+        this.ordered = ordered;
+        this.minSplitBytes = minSplitBytes;
+        this.index = index;
+        this.fence = fence;
+    }
+
+    /**
+     * Constructor for all of the records in the index.
+     *
+     * @param channel the channel for the .shp file, which is not closed by this spliterator
+     * @param indexRecords the records from the corresponding Shape Index
+     * @param ordered whether the records should be reported in file order
+     */
+    ShapeRecordSpliterator(FileChannel channel, List<IndexRecord> indexRecords, boolean ordered) {
+        this(channel, indexRecords, ordered, DEFAULT_MIN_SPLIT_BYTES, 0, indexRecords.size());
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super ShapeRecord> action) {
+        if (index >= fence) {
+            release();
+            return false;
+        }
+        ShapeRecord shapeRecord = readRecord(index++);
+        if (index >= fence) {
+            release();
+        }
+        action.accept(shapeRecord);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super ShapeRecord> action) {
+        try {
+            while (index < fence) {
+                action.accept(readRecord(index++));
+            }
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public Spliterator<ShapeRecord> trySplit() {
+        if (fence - index < 2) {
+            return null;
+        }
+        long start = startOf(index);
+        long end = endOfRange();
+        if (end - start < 2L * minSplitBytes) {
+            return null;
+        }
+        int mid = findFirstAtOrAfter(start + (end - start) / 2);
+        if (mid <= index || mid >= fence) {
+            return null;
+        }
+        ShapeRecordSpliterator prefix =
+                new ShapeRecordSpliterator(
+                        channel, indexRecords, ordered, minSplitBytes, index, mid);
+        index = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+        int characteristics = SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        if (ordered) {
+            characteristics |= ORDERED;
+        }
+        return characteristics;
+    }
+
+    private long startOf(int i) {
+        return indexRecords.get(i).byteOffset();
+    }
+
+    private int lengthOf(int i) {
+        return indexRecords.get(i).contentLength();
+    }
+
+    /** The byte position just after the last record covered by this spliterator. */
+    private long endOfRange() {
+        return startOf(fence - 1) + RECORD_HEADER_LEN + lengthOf(fence - 1);
+    }
+
+    /**
+     * Find the first record index in this range that starts at or after a file position.
+     *
+     * <p>This relies on the records being stored in index order, which is the normal layout.
+     */
+    private int findFirstAtOrAfter(long position) {
+        int low = index;
+        int high = fence;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (startOf(mid) < position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Check whether this part holds a mapped view of the channel.
+     *
+     * @return true if a view is open, which is only between the first and last record
+     */
+    boolean isMapped() {
+        return mappedFile != null;
+    }
+
+    private void release() {
+        if (mappedFile == null) {
+            return;
+        }
+        try {
+            mappedFile.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            mappedFile = null;
+        }
+    }
+
+    private ShapeRecord readRecord(int i) {
+        try {
+            if (mappedFile == null) {
+                // Only map the records that are left in this split, not a whole default window
+                long remaining = endOfRange() - startOf(i);
+                int chunkSize = (int) Math.min(remaining, MappedFile.DEFAULT_CHUNK_SIZE);
+                mappedFile = MappedFile.view(channel, chunkSize);
+            }
+            int contentLength = lengthOf(i);
+            int offset = mappedFile.map(startOf(i), RECORD_HEADER_LEN + contentLength);
+            return ShapeRecordDecoder.decodeRecord(mappedFile.buffer(), offset, contentLength);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package net.frogmouth.rnd.shapefile;
+
+/**
+ * Visitor for Shapefile records.
+ *
+ * <p>This is the push-based alternative to {@link ShapeRecordIterator}. The reader calls the
+ * visitor once for each record, in file order, and does not retain the record afterwards.
+ */
+@FunctionalInterface
+public interface ShapeRecordVisitor {
+
+    /**
+     * Visit a single record.
+     *
+     * @param shapeRecord the decoded record
+     */
+    void visit(ShapeRecord shapeRecord);
+}
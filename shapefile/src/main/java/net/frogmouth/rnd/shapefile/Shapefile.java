@@ -1,17 +1,21 @@
 package net.frogmouth.rnd.shapefile;
 
-import java.io.DataInputStream;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import net.frogmouth.rnd.simplefeaturesaccess.LineString;
-import net.frogmouth.rnd.simplefeaturesaccess.Point;
 
 /**
  * Shapefile.
@@ -20,11 +24,7 @@ import net.frogmouth.rnd.simplefeaturesaccess.Point;
  */
 public class Shapefile {
 
-    private static final int NUM_VALUES_IN_POINT = 2;
-    private static final int NUM_VALUES_IN_POINTM = 3;
-    private static final int NUM_VALUES_IN_POINTZ = 3;
-    private static final int NUM_VALUES_IN_POINTZM = 4;
-    private static final int POLYLINE_HEADER_LEN = 4 * Double.BYTES + 2 * Integer.BYTES;
+    private static final int RECORD_HEADER_LEN = ShapeRecordDecoder.RECORD_HEADER_LEN;
     private FileHeader fileHeader;
 
     /** Constructor. */
@@ -39,188 +39,551 @@ public class Shapefile {
      * @throws IOException if parsing fails.
      */
     public static Shapefile fromFile(File file) throws FileNotFoundException, IOException {
-        return fromInputStream(new FileInputStream(file));
+        return fromFile(file, shapeRecord -> {});
     }
 
     /**
-     * Create a Shapefile instance from an input stream.
+     * Read a Shapefile from a file, passing each record to a visitor.
      *
-     * @param inputStream the input stream to read from
+     * @param file the file to read from
+     * @param visitor the visitor to call for each record, in file order
      * @return the corresponding Shapefile
+     * @throws FileNotFoundException if the file could not be found
      * @throws IOException if parsing fails.
      */
-    public static Shapefile fromInputStream(InputStream inputStream) throws IOException {
+    public static Shapefile fromFile(File file, ShapeRecordVisitor visitor)
+            throws FileNotFoundException, IOException {
+        return fromFile(file, visitor, null);
+    }
+
+    /**
+     * Read a Shapefile from a file, passing each record to a visitor, and reporting metrics for
+     * each phase of the read.
+     *
+     * @param file the file to read from
+     * @param visitor the visitor to call for each record, in file order
+     * @param listener the listener to report metrics to, or null for none
+     * @return the corresponding Shapefile
+     * @throws FileNotFoundException if the file could not be found
+     * @throws IOException if parsing fails.
+     */
+    public static Shapefile fromFile(
+            File file, ShapeRecordVisitor visitor, ReadMetricsListener listener)
+            throws FileNotFoundException, IOException {
+        ReadRecorder recorder = new ReadRecorder("shp", file.getPath(), listener);
+        recorder.begin(ReadPhase.Open);
+        InputStream inputStream = new BufferedInputStream(new FileInputStream(file));
+        return read(inputStream, visitor, recorder);
+    }
+
+    /**
+     * Create a Shapefile instance from a file, using a memory mapping.
+     *
+     * <p>This avoids copying the file content through an input stream, and decodes the records
+     * directly from the mapped buffer. Files larger than a single mapping are mapped in chunks.
+     *
+     * @param file the file to read from
+     * @return the corresponding Shapefile
+     * @throws IOException if the file could not be opened or parsing fails.
+     */
+    public static Shapefile fromFileMapped(File file) throws IOException {
+        return fromFileMapped(file, shapeRecord -> {});
+    }
+
+    /**
+     * Read a Shapefile from a file using a memory mapping, passing each record to a visitor.
+     *
+     * @param file the file to read from
+     * @param visitor the visitor to call for each record, in file order
+     * @return the corresponding Shapefile
+     * @throws IOException if the file could not be opened or parsing fails.
+     */
+    public static Shapefile fromFileMapped(File file, ShapeRecordVisitor visitor)
+            throws IOException {
+        return fromFileMapped(file, visitor, null);
+    }
+
+    /**
+     * Read a Shapefile from a file using a memory mapping, passing each record to a visitor, and
+     * reporting metrics for each phase of the read.
+     *
+     * @param file the file to read from
+     * @param visitor the visitor to call for each record, in file order
+     * @param listener the listener to report metrics to, or null for none
+     * @return the corresponding Shapefile
+     * @throws IOException if the file could not be opened or parsing fails.
+     */
+    public static Shapefile fromFileMapped(
+            File file, ShapeRecordVisitor visitor, ReadMetricsListener listener)
+            throws IOException {
+        ReadRecorder recorder = new ReadRecorder("shp", file.getPath(), listener);
+        recorder.begin(ReadPhase.Open);
+        try (MappedFile mappedFile = MappedFile.open(file.toPath())) {
+            return fromMappedFile(mappedFile, visitor, false, recorder);
+        }
+    }
+
+    /**
+     * Read a Shapefile from a file using a memory mapping, passing views of each record to a
+     * visitor.
+     *
+     * <p>This is the same as {@link #fromFileMapped(File, ShapeRecordVisitor)}, except that line
+     * geometries are flyweight views over the mapped buffer. Their coordinates are read on demand,
+     * and nothing is copied unless {@link LineString#copy()} is called. This suits callers (like
+     * renderers) that touch each vertex once.
+     *
+     * <p>The views remain valid after the visitor returns, because they keep the mapping alive.
+     * Callers that retain many of them should copy them, so the mappings can be released.
+     *
+     * @param file the file to read from
+     * @param visitor the visitor to call for each record, in file order
+     * @return the corresponding Shapefile
+     * @throws IOException if the file could not be opened or parsing fails.
+     */
+    public static Shapefile fromFileMappedViews(File file, ShapeRecordVisitor visitor)
+            throws IOException {
+        try (MappedFile mappedFile = MappedFile.open(file.toPath())) {
+            return fromMappedFile(mappedFile, visitor, true);
+        }
+    }
+
+    static Shapefile fromMappedFile(MappedFile mappedFile, ShapeRecordVisitor visitor)
+            throws IOException {
+        return fromMappedFile(mappedFile, visitor, false);
+    }
+
+    static Shapefile fromMappedFile(MappedFile mappedFile, ShapeRecordVisitor visitor, boolean view)
+            throws IOException {
+        return fromMappedFile(mappedFile, visitor, view, new ReadRecorder("shp", null, null));
+    }
+
+    private static Shapefile fromMappedFile(
+            MappedFile mappedFile, ShapeRecordVisitor visitor, boolean view, ReadRecorder recorder)
+            throws IOException {
         Shapefile shapefile = new Shapefile();
-        try (DataInputStream dis = new DataInputStream(inputStream)) {
-            shapefile.setFileHeader(FileHeader.fromDataInputStream(dis));
-            int bytesRemaining = shapefile.getFileHeader().getFileLength() - FileHeader.BYTES;
-            while (bytesRemaining > 0) {
-                int recordNumber = dis.readInt();
-                bytesRemaining -= Integer.BYTES;
-                int contentLength = dis.readInt() * Short.BYTES;
-                bytesRemaining -= Integer.BYTES;
-                int recordShapeTypeBigEndian = dis.readInt();
-                bytesRemaining -= Integer.BYTES;
-                int recordShapeTypeLittleEndian = Integer.reverseBytes(recordShapeTypeBigEndian);
-                ShapeType recordShapeType = ShapeType.lookupValue(recordShapeTypeLittleEndian);
-                // we already read the 4 bytes for the Shape Type at the start of the record
-                int recordBytesLen = contentLength - Integer.BYTES;
-                switch (recordShapeType) {
-                    case Point -> {
-                        int numBytes = NUM_VALUES_IN_POINT * Double.BYTES;
-                        byte[] recordBytes = dis.readNBytes(numBytes);
-                        bytesRemaining -= numBytes;
-                        ByteBuffer recordValues =
-                                ByteBuffer.wrap(recordBytes).order(ByteOrder.LITTLE_ENDIAN);
-                        double x = recordValues.getDouble(0);
-                        double y = recordValues.getDouble(1 * Double.BYTES);
-                        Point point = new Point(x, y);
-                        System.out.println(point.toString());
-                    }
-                    case PointM -> {
-                        int numBytes = NUM_VALUES_IN_POINTM * Double.BYTES;
-                        byte[] recordBytes = dis.readNBytes(numBytes);
-                        bytesRemaining -= numBytes;
-                        ByteBuffer recordValues =
-                                ByteBuffer.wrap(recordBytes).order(ByteOrder.LITTLE_ENDIAN);
-                        double x = recordValues.getDouble(0);
-                        double y = recordValues.getDouble(1 * Double.BYTES);
-                        double m = recordValues.getDouble(2 * Double.BYTES);
-                        Point point = Point.fromXYM(x, y, m);
-                        System.out.println(point.toString());
-                    }
-                    case PointZ -> {
-                        // This could be POINTZ, or POINTZM - the M is optional
-                        int numBytes = NUM_VALUES_IN_POINTZ * Double.BYTES;
-                        boolean hasM = false;
-                        if (recordBytesLen == NUM_VALUES_IN_POINTZM * Double.BYTES) {
-                            numBytes = NUM_VALUES_IN_POINTZM * Double.BYTES;
-                            hasM = true;
-                        }
-                        byte[] recordBytes = dis.readNBytes(numBytes);
-                        bytesRemaining -= numBytes;
-                        ByteBuffer recordValues =
-                                ByteBuffer.wrap(recordBytes).order(ByteOrder.LITTLE_ENDIAN);
-                        double x = recordValues.getDouble(0);
-                        double y = recordValues.getDouble(1 * Double.BYTES);
-                        double z = recordValues.getDouble(2 * Double.BYTES);
-                        if (hasM) {
-                            double m = recordValues.getDouble(3 * Double.BYTES);
-                            Point point = new Point(x, y, z, m);
-                            System.out.println(point.toString());
-                        } else {
-                            Point point = Point.fromXYZ(x, y, z);
-                            System.out.println(point.toString());
-                        }
-                    }
-                    case PolyLine -> {
-                        bytesRemaining = processPolyLine(dis, bytesRemaining);
-                    }
-                    case PolyLineM -> {
-                        bytesRemaining = processPolyLineM(dis, bytesRemaining);
-                    }
-                    default -> {
-                        dis.skipBytes(recordBytesLen);
-                        bytesRemaining -= recordBytesLen;
-                        System.out.println("Need to handle " + recordShapeType.toString());
-                    }
-                }
-            }
+        recorder.begin(ReadPhase.Header);
+        mappedFile.map(0, FileHeader.BYTES);
+        shapefile.setFileHeader(FileHeader.fromByteBuffer(mappedFile.buffer()));
+        recorder.bytes(FileHeader.BYTES);
+        recorder.begin(ReadPhase.Decode);
+        long position = FileHeader.BYTES;
+        long end = mappedFile.size();
+        while (position + RECORD_HEADER_LEN <= end) {
+            int offset = mappedFile.map(position, RECORD_HEADER_LEN);
+            // The record header is big endian, but the mapped buffer is little endian
+            int contentLength =
+                    Integer.reverseBytes(mappedFile.buffer().getInt(offset + Integer.BYTES))
+                            * Short.BYTES;
+            offset = mappedFile.map(position, RECORD_HEADER_LEN + contentLength);
+            ShapeRecord shapeRecord =
+                    ShapeRecordDecoder.decodeRecord(
+                            mappedFile.buffer(), offset, contentLength, view);
+            recorder.record(shapeRecord.shapeType(), RECORD_HEADER_LEN + contentLength);
+            visitor.visit(shapeRecord);
+            position += RECORD_HEADER_LEN + contentLength;
         }
+        recorder.end();
         return shapefile;
     }
 
-    private static int processPolyLine(final DataInputStream dis, int bytesRemaining)
-            throws UnsupportedOperationException, IOException {
-        byte[] fixedBytes = dis.readNBytes(POLYLINE_HEADER_LEN);
-        bytesRemaining -= POLYLINE_HEADER_LEN;
-        ByteBuffer fixedBytesLE = ByteBuffer.wrap(fixedBytes).order(ByteOrder.LITTLE_ENDIAN);
-        Box box = Box.fromByteBuffer(fixedBytesLE);
-        int numParts = fixedBytesLE.getInt(Box.BYTES);
-        int numPoints = fixedBytesLE.getInt(Box.BYTES + Integer.BYTES);
-        System.out.println(box.toString());
-        int variableBytesSize =
-                numParts * Integer.BYTES + numPoints * NUM_VALUES_IN_POINT * Double.BYTES;
-        byte[] variableBytes = dis.readNBytes(variableBytesSize);
-        bytesRemaining -= variableBytesSize;
-        ByteBuffer variableBytesLE = ByteBuffer.wrap(variableBytes).order(ByteOrder.LITTLE_ENDIAN);
-        List<Integer> partOffsets = new ArrayList<>();
-        List<Point> points = new ArrayList<>();
-        int variableBytesOffset = 0;
-        for (int partNumber = 0; partNumber < numParts; partNumber++) {
-            partOffsets.add(variableBytesLE.getInt(variableBytesOffset));
-            variableBytesOffset += Integer.BYTES;
+    /**
+     * Query a Shapefile for records that intersect a bounding box.
+     *
+     * <p>Only the shape type and the bounds of each record are read to decide whether it matches:
+     * the {@link Box} at the start of multi-vertex records, or the coordinates of point records.
+     * Records that do not intersect the window are skipped without touching their vertices, and
+     * only matching records are decoded and passed to the visitor. Null shapes never match.
+     *
+     * <p>The file is memory-mapped, so the vertex data of skipped records is not read from disk
+     * unless it shares a page with data that is needed.
+     *
+     * @param file the file to read from
+     * @param window the query window
+     * @param visitor the visitor to call for each matching record, in file order
+     * @return the corresponding Shapefile
+     * @throws IOException if the file could not be opened or parsing fails.
+     */
+    public static Shapefile query(File file, Box window, ShapeRecordVisitor visitor)
+            throws IOException {
+        return query(file, window, visitor, null);
+    }
+
+    /**
+     * Query a Shapefile for records that intersect a bounding box, reporting metrics for each phase
+     * of the read.
+     *
+     * <p>This is the same as {@link #query(File, Box, ShapeRecordVisitor)}. Records that do not
+     * intersect the window are counted as skipped, along with the bytes of their bounds.
+     *
+     * @param file the file to read from
+     * @param window the query window
+     * @param visitor the visitor to call for each matching record, in file order
+     * @param listener the listener to report metrics to, or null for none
+     * @return the corresponding Shapefile
+     * @throws IOException if the file could not be opened or parsing fails.
+     */
+    public static Shapefile query(
+            File file, Box window, ShapeRecordVisitor visitor, ReadMetricsListener listener)
+            throws IOException {
+        ReadRecorder recorder = new ReadRecorder("shp", file.getPath(), listener);
+        recorder.begin(ReadPhase.Open);
+        try (MappedFile mappedFile = MappedFile.open(file.toPath())) {
+            return query(mappedFile, window, visitor, recorder);
         }
-        for (int pointNumber = 0; pointNumber < numPoints; pointNumber++) {
-            double x = variableBytesLE.getDouble(variableBytesOffset);
-            variableBytesOffset += Double.BYTES;
-            double y = variableBytesLE.getDouble(variableBytesOffset);
-            variableBytesOffset += Double.BYTES;
-            Point point = new Point(x, y);
-            points.add(point);
+    }
+
+    /**
+     * Query a Shapefile for records that intersect a window, using a spatial index if there is one.
+     *
+     * <p>If there is a {@link HilbertRTree} or a {@link QuadTreeIndex} (.qix) sidecar file next to
+     * the .shp file, the candidates from that index are read from the .shp file using the Shape
+     * Index offsets, and checked against their record bounds. Otherwise, this falls back to
+     * scanning the whole file with {@link #query(File, Box, ShapeRecordVisitor)}.
+     *
+     * <p>A sidecar file is only used if it looks like it was built from the current records: it
+     * must be no older than the .shp and .shx files, and must not cover more records than the Shape
+     * Index has (or, for a .qix file, a different number). A sidecar file that fails these checks
+     * is ignored, and the whole file is scanned instead.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param shxFile the corresponding Shape Index (.shx) file
+     * @param window the query window
+     * @param visitor the visitor to call for each matching record, in file order
+     * @return the corresponding Shapefile
+     * @throws IOException if the files could not be opened or parsing fails.
+     */
+    public static Shapefile query(
+            File shpFile, File shxFile, Box window, ShapeRecordVisitor visitor) throws IOException {
+        try (ShapeRecordReader reader = ShapeRecordReader.open(shpFile, shxFile)) {
+            int[] candidates = querySpatialIndex(shpFile, shxFile, reader.getNumRecords(), window);
+            if (candidates != null) {
+                Shapefile shapefile = new Shapefile();
+                shapefile.setFileHeader(reader.getFileHeader());
+                reader.query(candidates, window, visitor);
+                return shapefile;
+            }
         }
-        if (partOffsets.size() == 1) {
-            LineString lineString = new LineString(points);
-            System.out.println(lineString.toString());
-        } else if (partOffsets.size() > 1) {
-            throw new UnsupportedOperationException("TODO: multilinestring");
-            // TODO: Multilinestring case
+        return query(shpFile, window, visitor);
+    }
+
+    /**
+     * Find the candidate records for a window from a spatial index sidecar file.
+     *
+     * @return the candidate record indexes, or null if there is no sidecar file that matches the
+     *     records
+     */
+    private static int[] querySpatialIndex(File shpFile, File shxFile, int numRecords, Box window)
+            throws IOException {
+        File hilbertFile = HilbertRTree.getIndexFile(shpFile);
+        if (isUpToDate(hilbertFile, shpFile, shxFile)) {
+            try (HilbertRTree index = HilbertRTree.open(hilbertFile)) {
+                // Null shapes are left out, so there can be fewer items than records
+                if (index.getNumItems() <= numRecords) {
+                    IntStream.Builder results = IntStream.builder();
+                    index.query(window, (recordIndex, offset) -> results.add(recordIndex));
+                    return results.build().toArray();
+                }
+            }
         }
-        return bytesRemaining;
-    }
-
-    private static int processPolyLineM(final DataInputStream dis, int bytesRemaining)
-            throws UnsupportedOperationException, IOException {
-        // TODO: this looks to be the same as processPolyLine
-        byte[] fixedBytes = dis.readNBytes(POLYLINE_HEADER_LEN);
-        bytesRemaining -= POLYLINE_HEADER_LEN;
-        ByteBuffer fixedBytesLE = ByteBuffer.wrap(fixedBytes).order(ByteOrder.LITTLE_ENDIAN);
-        Box box = Box.fromByteBuffer(fixedBytesLE);
-        int numParts = fixedBytesLE.getInt(Box.BYTES);
-        int numPoints = fixedBytesLE.getInt(Box.BYTES + Integer.BYTES);
-        System.out.println(box.toString());
-        int variableBytesSize =
-                numParts * Integer.BYTES + numPoints * NUM_VALUES_IN_POINT * Double.BYTES;
-        byte[] variableBytes = dis.readNBytes(variableBytesSize);
-        bytesRemaining -= variableBytesSize;
-        ByteBuffer variableBytesLE = ByteBuffer.wrap(variableBytes).order(ByteOrder.LITTLE_ENDIAN);
-        List<Integer> partOffsets = new ArrayList<>();
-        List<Point> basePoints = new ArrayList<>();
-        int variableBytesOffset = 0;
-        for (int partNumber = 0; partNumber < numParts; partNumber++) {
-            partOffsets.add(variableBytesLE.getInt(variableBytesOffset));
-            variableBytesOffset += Integer.BYTES;
+        File qixFile = QuadTreeIndex.getIndexFile(shpFile);
+        if (isUpToDate(qixFile, shpFile, shxFile)) {
+            try (QuadTreeIndex index = QuadTreeIndex.open(qixFile)) {
+                if (index.getNumShapes() == numRecords) {
+                    return index.query(window);
+                }
+            }
         }
-        for (int pointNumber = 0; pointNumber < numPoints; pointNumber++) {
-            double x = variableBytesLE.getDouble(variableBytesOffset);
-            variableBytesOffset += Double.BYTES;
-            double y = variableBytesLE.getDouble(variableBytesOffset);
-            variableBytesOffset += Double.BYTES;
-            Point point = new Point(x, y);
-            basePoints.add(point);
+        return null;
+    }
+
+    private static boolean isUpToDate(File indexFile, File shpFile, File shxFile) {
+        // An index that is older than the data was built from other records
+        long lastModified = indexFile.lastModified();
+        return indexFile.isFile()
+                && lastModified >= shpFile.lastModified()
+                && lastModified >= shxFile.lastModified();
+    }
+
+    static Shapefile query(MappedFile mappedFile, Box window, ShapeRecordVisitor visitor)
+            throws IOException {
+        return query(mappedFile, window, visitor, new ReadRecorder("shp", null, null));
+    }
+
+    private static Shapefile query(
+            MappedFile mappedFile, Box window, ShapeRecordVisitor visitor, ReadRecorder recorder)
+            throws IOException {
+        Shapefile shapefile = new Shapefile();
+        recorder.begin(ReadPhase.Header);
+        mappedFile.map(0, FileHeader.BYTES);
+        FileHeader fileHeader = FileHeader.fromByteBuffer(mappedFile.buffer());
+        shapefile.setFileHeader(fileHeader);
+        recorder.bytes(FileHeader.BYTES);
+        if (!window.intersects(
+                fileHeader.getMinX(),
+                fileHeader.getMinY(),
+                fileHeader.getMaxX(),
+                fileHeader.getMaxY())) {
+            recorder.end();
+            return shapefile;
+        }
+        recorder.begin(ReadPhase.Decode);
+        long position = FileHeader.BYTES;
+        long end = mappedFile.size();
+        while (position + RECORD_HEADER_LEN <= end) {
+            int offset = mappedFile.map(position, RECORD_HEADER_LEN);
+            // The record header is big endian, but the mapped buffer is little endian
+            int contentLength =
+                    Integer.reverseBytes(mappedFile.buffer().getInt(offset + Integer.BYTES))
+                            * Short.BYTES;
+            int prefixLength = Math.min(contentLength, ShapeRecordDecoder.BOUNDS_PREFIX_LEN);
+            offset = mappedFile.map(position, RECORD_HEADER_LEN + prefixLength);
+            if (ShapeRecordDecoder.intersects(
+                    mappedFile.buffer(), offset + RECORD_HEADER_LEN, window)) {
+                offset = mappedFile.map(position, RECORD_HEADER_LEN + contentLength);
+                ShapeRecord shapeRecord =
+                        ShapeRecordDecoder.decodeRecord(mappedFile.buffer(), offset, contentLength);
+                recorder.record(shapeRecord.shapeType(), RECORD_HEADER_LEN + contentLength);
+                visitor.visit(shapeRecord);
+            } else {
+                recorder.skip(RECORD_HEADER_LEN + prefixLength);
+            }
+            position += RECORD_HEADER_LEN + contentLength;
         }
-        // M part starts here - everything above is common with PolyLine
-        byte[] mBytes = dis.readNBytes((2 + numPoints) * Double.BYTES);
-        bytesRemaining -= mBytes.length;
-        ByteBuffer mRangeBytesLE = ByteBuffer.wrap(mBytes).order(ByteOrder.LITTLE_ENDIAN);
-        // TODO: work out how to expose the M range.
-        double minM = mRangeBytesLE.getDouble(0 * Double.BYTES);
-        double maxM = mRangeBytesLE.getDouble(1 * Double.BYTES);
-        List<Point> points = new ArrayList<>();
-        for (int pointNumber = 0; pointNumber < numPoints; pointNumber++) {
-            double m = variableBytesLE.getDouble((2 + pointNumber) * Double.BYTES);
-            Point basePoint = basePoints.get(pointNumber);
-            Point point = basePoint.withM(m);
-            points.add(point);
+        recorder.end();
+        return shapefile;
+    }
+
+    /**
+     * Create a Shapefile instance from an input stream.
+     *
+     * @param inputStream the input stream to read from
+     * @return the corresponding Shapefile
+     * @throws IOException if parsing fails.
+     */
+    public static Shapefile fromInputStream(InputStream inputStream) throws IOException {
+        return fromInputStream(inputStream, shapeRecord -> {});
+    }
+
+    /**
+     * Read a Shapefile from an input stream, passing each record to a visitor.
+     *
+     * <p>Records are decoded one at a time and are not retained, so memory use does not depend on
+     * the size of the file.
+     *
+     * @param inputStream the input stream to read from
+     * @param visitor the visitor to call for each record, in file order
+     * @return the corresponding Shapefile
+     * @throws IOException if parsing fails.
+     */
+    public static Shapefile fromInputStream(InputStream inputStream, ShapeRecordVisitor visitor)
+            throws IOException {
+        return fromInputStream(inputStream, visitor, null);
+    }
+
+    /**
+     * Read a Shapefile from an input stream, passing each record to a visitor, and reporting
+     * metrics for each phase of the read.
+     *
+     * @param inputStream the input stream to read from
+     * @param visitor the visitor to call for each record, in file order
+     * @param listener the listener to report metrics to, or null for none
+     * @return the corresponding Shapefile
+     * @throws IOException if parsing fails.
+     */
+    public static Shapefile fromInputStream(
+            InputStream inputStream, ShapeRecordVisitor visitor, ReadMetricsListener listener)
+            throws IOException {
+        return read(inputStream, visitor, new ReadRecorder("shp", null, listener));
+    }
+
+    private static Shapefile read(
+            InputStream inputStream, ShapeRecordVisitor visitor, ReadRecorder recorder)
+            throws IOException {
+        Shapefile shapefile = new Shapefile();
+        recorder.begin(ReadPhase.Header);
+        try (ShapeRecordIterator iterator = new ShapeRecordIterator(inputStream)) {
+            shapefile.setFileHeader(iterator.getFileHeader());
+            recorder.bytes(FileHeader.BYTES);
+            recorder.begin(ReadPhase.Decode);
+            while (iterator.hasNext()) {
+                long bytesRemaining = iterator.getBytesRemaining();
+                ShapeRecord shapeRecord = iterator.readNext();
+                recorder.record(
+                        shapeRecord.shapeType(), bytesRemaining - iterator.getBytesRemaining());
+                visitor.visit(shapeRecord);
+            }
+            recorder.end();
         }
-        if (partOffsets.size() == 1) {
-            LineString lineString = new LineString(points);
-            System.out.println(lineString.toString());
-        } else if (partOffsets.size() > 1) {
-            throw new UnsupportedOperationException("TODO: multilinestring");
-            // TODO: Multilinestring case
+        return shapefile;
+    }
+
+    /**
+     * Create a streaming iterator over the records in an input stream.
+     *
+     * @param inputStream the input stream to read from, which is closed with the iterator
+     * @return the iterator, which should be closed after use
+     * @throws IOException if the file header could not be read
+     */
+    public static ShapeRecordIterator iterator(InputStream inputStream) throws IOException {
+        return new ShapeRecordIterator(inputStream);
+    }
+
+    /**
+     * Create a sequential stream of the records in an input stream.
+     *
+     * <p>Records are read lazily as the stream is consumed. Closing the stream closes the input
+     * stream.
+     *
+     * @param inputStream the input stream to read from
+     * @return the stream of records
+     * @throws IOException if the file header could not be read
+     */
+    public static Stream<ShapeRecord> stream(InputStream inputStream) throws IOException {
+        ShapeRecordIterator iterator = new ShapeRecordIterator(inputStream);
+        Spliterator<ShapeRecord> spliterator =
+                Spliterators.spliteratorUnknownSize(
+                        iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(closer(iterator));
+    }
+
+    /**
+     * Create a parallel stream of the records in a .shp / .shx file pair.
+     *
+     * <p>The Shape Index offsets are used to split the records into ranges of roughly equal size in
+     * bytes, and each range is decoded from a memory mapping of the .shp file. The stream runs on
+     * the common fork-join pool, unless it is consumed from a task running in another pool.
+     *
+     * <p>If {@code ordered} is true, the stream has an encounter order matching the file order, so
+     * operations like {@link Stream#forEachOrdered} and {@link Stream#toList} keep the record
+     * order. If {@code ordered} is false, the stream is unordered, which avoids buffering to
+     * restore order and is faster when the order does not matter.
+     *
+     * <p>Closing the stream closes the .shp file.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param shxFile the corresponding Shape Index (.shx) file
+     * @param ordered whether the stream should keep the record order
+     * @return the parallel stream of records
+     * @throws IOException if either file could not be opened or parsed
+     */
+    public static Stream<ShapeRecord> parallelStream(File shpFile, File shxFile, boolean ordered)
+            throws IOException {
+        ShapeIndex shapeIndex = ShapeIndex.fromFile(shxFile);
+        FileChannel channel = FileChannel.open(shpFile.toPath(), StandardOpenOption.READ);
+        ShapeRecordSpliterator spliterator =
+                new ShapeRecordSpliterator(channel, shapeIndex.getIndexRecords(), ordered);
+        return StreamSupport.stream(spliterator, true).onClose(closer(channel));
+    }
+
+    /**
+     * Read a .shp / .shx file pair in parallel, passing each record to a visitor.
+     *
+     * <p>See {@link #parallelStream(File, File, boolean)} for how the work is divided. If {@code
+     * ordered} is true, the visitor is called for each record in file order, one at a time. If
+     * {@code ordered} is false, the visitor is called concurrently from several threads in no
+     * particular order, so it must be thread safe.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param shxFile the corresponding Shape Index (.shx) file
+     * @param visitor the visitor to call for each record
+     * @param ordered whether the visitor should be called in record order
+     * @return the corresponding Shapefile
+     * @throws IOException if either file could not be opened or parsed
+     */
+    public static Shapefile fromFileParallel(
+            File shpFile, File shxFile, ShapeRecordVisitor visitor, boolean ordered)
+            throws IOException {
+        ShapeIndex shapeIndex = ShapeIndex.fromFile(shxFile);
+        try (FileChannel channel = FileChannel.open(shpFile.toPath(), StandardOpenOption.READ)) {
+            Shapefile shapefile = new Shapefile();
+            shapefile.setFileHeader(FileHeader.fromFileChannel(channel));
+            ShapeRecordSpliterator spliterator =
+                    new ShapeRecordSpliterator(channel, shapeIndex.getIndexRecords(), ordered);
+            Stream<ShapeRecord> stream = StreamSupport.stream(spliterator, true);
+            if (ordered) {
+                stream.forEachOrdered(visitor::visit);
+            } else {
+                stream.forEach(visitor::visit);
+            }
+            return shapefile;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
-        return bytesRemaining;
+    }
+
+    private static Runnable closer(Closeable closeable) {
+        return () -> {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    /**
+     * Open a random access reader for a .shp / .shx file pair.
+     *
+     * <p>The reader fetches individual records (or batches of records) by index, using the offsets
+     * in the Shape Index file, rather than scanning the whole Shapefile.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param shxFile the corresponding Shape Index (.shx) file
+     * @return the reader, which must be closed after use
+     * @throws IOException if either file could not be opened or parsed
+     */
+    public static ShapeRecordReader openRecordReader(File shpFile, File shxFile)
+            throws IOException {
+        return ShapeRecordReader.open(shpFile, shxFile);
+    }
+
+    /**
+     * Open a thread safe random access reader for a .shp / .shx file pair.
+     *
+     * <p>The reader holds one file channel, which any number of threads can read records through at
+     * the same time.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param shxFile the corresponding Shape Index (.shx) file
+     * @return the reader, which must be closed after use
+     * @throws IOException if either file could not be opened or parsed
+     */
+    public static SharedShapeRecordReader openSharedRecordReader(File shpFile, File shxFile)
+            throws IOException {
+        return SharedShapeRecordReader.open(shpFile, shxFile);
+    }
+
+    /**
+     * Open an asynchronous random access reader for a .shp / .shx file pair.
+     *
+     * <p>The reader returns a future for each requested record, and merges the reads for records
+     * that are close together in the file.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param shxFile the corresponding Shape Index (.shx) file
+     * @return the reader, which must be closed after use
+     * @throws IOException if either file could not be opened, or the index could not be parsed
+     */
+    public static AsyncShapeRecordReader openAsyncRecordReader(File shpFile, File shxFile)
+            throws IOException {
+        return AsyncShapeRecordReader.open(shpFile, shxFile);
+    }
+
+    /**
+     * Open a feature reader for a .shp file and the .dbf file next to it.
+     *
+     * <p>The dataset reads the geometry and the attributes of each feature together, in one pass
+     * over both files.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param fieldNames the names of the fields to read, or none to read all of the fields
+     * @return the dataset, which must be closed after use
+     * @throws IOException if either file could not be opened, or a header is not valid
+     * @throws IllegalArgumentException if a field name does not match any field
+     */
+    public static ShapefileDataset openDataset(File shpFile, String... fieldNames)
+            throws IOException {
+        return ShapefileDataset.open(shpFile, fieldNames);
     }
 
     /**
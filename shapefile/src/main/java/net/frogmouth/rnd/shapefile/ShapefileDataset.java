@@ -0,0 +1,267 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Feature reader for a Shapefile dataset: the .shp geometry file and its .dbf attribute table.
+ *
+ * <p>Record N of the .shp file and row N of the .dbf file describe the same feature. This opens
+ * both files once, memory-mapped, and walks them in lockstep, so each feature is read with its
+ * geometry and its projected attributes together, rather than reading each file separately and
+ * joining them in memory.
+ *
+ * <p>Features can be filtered by a bounding box, an attribute predicate, or both. Each filter is
+ * checked against the raw bytes of its own file: the bounds at the start of the .shp record, and
+ * the field bytes of the .dbf row. A feature that fails either filter is skipped without decoding
+ * its geometry or copying its attributes. Deleted rows are always skipped.
+ *
+ * <p>Matching features are decoded in batches of up to {@link #BATCH_SIZE}, so memory use depends
+ * on the batch size rather than the size of the dataset.
+ *
+ * <p>Instances hold open files, and should be closed after use. Instances are not thread safe.
+ */
+public final class ShapefileDataset implements Closeable {
+
+    /** The largest number of features decoded together. */
+    static final int BATCH_SIZE = 4096;
+
+    private static final int RECORD_HEADER_LEN = ShapeRecordDecoder.RECORD_HEADER_LEN;
+    private final MappedFile shp;
+    private final MappedFile dbf;
+    private final FileHeader fileHeader;
+    private final DBFHeader dbfHeader;
+    private final int[] projection;
+    private final List<DBFFieldDefinition> columns;
+
+    private ShapefileDataset(
+            MappedFile shp,
+            MappedFile dbf,
+            FileHeader fileHeader,
+            DBFHeader dbfHeader,
+            int[] projection) {
+        this.shp = shp;
+        this.dbf = dbf;
+        this.fileHeader = fileHeader;
+        this.dbfHeader = dbfHeader;
+        this.projection = projection;
+        this.columns = dbfHeader.getFieldDefinitions(projection);
+    }
+
+    /**
+     * Open a dataset, using the .dbf file next to the .shp file.
+     *
+     * <p>The .dbf file has the same base name as the .shp file, with an extension in the same case.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param fieldNames the names of the fields to read, in the order the columns should be
+     *     returned. If no names are given, all of the fields are read.
+     * @return the dataset, which must be closed after use
+     * @throws IOException if either file could not be opened, or a header is not valid
+     * @throws IllegalArgumentException if a field name does not match any field
+     */
+    public static ShapefileDataset open(File shpFile, String... fieldNames) throws IOException {
+        return open(shpFile, getSiblingFile(shpFile, "dbf"), fieldNames);
+    }
+
+    /**
+     * Open a dataset.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param dbfFile the corresponding attribute (.dbf) file
+     * @param fieldNames the names of the fields to read, in the order the columns should be
+     *     returned. If no names are given, all of the fields are read.
+     * @return the dataset, which must be closed after use
+     * @throws IOException if either file could not be opened, or a header is not valid
+     * @throws IllegalArgumentException if a field name does not match any field
+     */
+    public static ShapefileDataset open(File shpFile, File dbfFile, String... fieldNames)
+            throws IOException {
+        MappedFile shp = MappedFile.open(shpFile.toPath());
+        MappedFile dbf = null;
+        try {
+            shp.map(0, FileHeader.BYTES);
+            FileHeader fileHeader = FileHeader.fromByteBuffer(shp.buffer());
+            dbf = MappedFile.open(dbfFile.toPath());
+            DBFHeader dbfHeader = DBFHeader.read(dbf);
+            int[] projection = dbfHeader.getProjection(fieldNames);
+            return new ShapefileDataset(shp, dbf, fileHeader, dbfHeader, projection);
+        } catch (IOException | RuntimeException e) {
+            shp.close();
+            if (dbf != null) {
+                dbf.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Get a file next to a .shp file.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param extension the lower case extension of the other file, without the dot
+     * @return the file with the same base name and the given extension, in upper case if the .shp
+     *     extension is upper case
+     */
+    static File getSiblingFile(File shpFile, String extension) {
+        String name = shpFile.getName();
+        int dot = name.lastIndexOf('.');
+        String baseName = dot < 0 ? name : name.substring(0, dot);
+        boolean upperCase = dot >= 0 && name.substring(dot + 1).equals("SHP");
+        return new File(
+                shpFile.getParentFile(),
+                baseName + "." + (upperCase ? extension.toUpperCase() : extension));
+    }
+
+    /**
+     * Get the .shp file header.
+     *
+     * @return the file header from the .shp file
+     */
+    public FileHeader getFileHeader() {
+        return fileHeader;
+    }
+
+    /**
+     * Get the number of attribute rows.
+     *
+     * @return the number of rows in the .dbf file, including deleted rows
+     */
+    public int getNumRecords() {
+        return dbfHeader.getNumRecords();
+    }
+
+    /**
+     * Get the definitions of the projected fields.
+     *
+     * @return the field definitions, in projection order
+     */
+    public List<DBFFieldDefinition> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Read every feature.
+     *
+     * @param visitor the visitor to call for each feature, in file order
+     * @throws IOException if either file could not be read or decoded
+     */
+    public void read(ShapefileFeatureVisitor visitor) throws IOException {
+        query(null, null, visitor);
+    }
+
+    /**
+     * Read the features that match a bounding box and an attribute predicate.
+     *
+     * <p>The .shp and .dbf files are read up to the end of whichever has fewer records, so features
+     * are only reported if they have both a geometry and an attribute row.
+     *
+     * @param window the query window, or null to match any geometry. Null shapes never match a
+     *     window.
+     * @param predicate the attribute filter, or null to match any attributes. The predicate can use
+     *     any field in the file, not just the projected fields.
+     * @param visitor the visitor to call for each matching feature, in file order
+     * @throws IOException if either file could not be read or decoded
+     * @throws IllegalArgumentException if the predicate uses a field that does not exist, or
+     *     compares a field of the wrong type
+     */
+    public void query(Box window, DBFPredicate predicate, ShapefileFeatureVisitor visitor)
+            throws IOException {
+        DBFPredicate.Matcher matcher = predicate == null ? null : predicate.bind(dbfHeader);
+        if (window != null
+                && !window.intersects(
+                        fileHeader.getMinX(),
+                        fileHeader.getMinY(),
+                        fileHeader.getMaxX(),
+                        fileHeader.getMaxY())) {
+            return;
+        }
+        int numRecords = dbfHeader.getNumRecords();
+        int recordLength = dbfHeader.getRecordLength();
+        int[] indexes = new int[BATCH_SIZE];
+        long[] positions = new long[BATCH_SIZE];
+        int[] contentLengths = new int[BATCH_SIZE];
+        long position = FileHeader.BYTES;
+        long end = shp.size();
+        int index = 0;
+        while (index < numRecords && position + RECORD_HEADER_LEN <= end) {
+            // Find the next batch of matches, without decoding anything
+            int count = 0;
+            while (count < BATCH_SIZE
+                    && index < numRecords
+                    && position + RECORD_HEADER_LEN <= end) {
+                int offset = shp.map(position, RECORD_HEADER_LEN);
+                // The record header is big endian, but the mapped buffer is little endian
+                int contentLength =
+                        Integer.reverseBytes(shp.buffer().getInt(offset + Integer.BYTES))
+                                * Short.BYTES;
+                if (matches(window, position, contentLength)
+                        && matches(matcher, index, recordLength)) {
+                    indexes[count] = index;
+                    positions[count] = position;
+                    contentLengths[count] = contentLength;
+                    count++;
+                }
+                position += RECORD_HEADER_LEN + contentLength;
+                index++;
+            }
+            if (count > 0) {
+                readBatch(indexes, positions, contentLengths, count, visitor);
+            }
+        }
+    }
+
+    private boolean matches(Box window, long position, int contentLength) throws IOException {
+        if (window == null) {
+            return true;
+        }
+        int prefixLength = Math.min(contentLength, ShapeRecordDecoder.BOUNDS_PREFIX_LEN);
+        int offset = shp.map(position, RECORD_HEADER_LEN + prefixLength);
+        return ShapeRecordDecoder.intersects(shp.buffer(), offset + RECORD_HEADER_LEN, window);
+    }
+
+    private boolean matches(DBFPredicate.Matcher matcher, int index, int recordLength)
+            throws IOException {
+        int offset = dbf.map(dbfHeader.getRecordPosition(index), recordLength);
+        ByteBuffer bb = dbf.buffer();
+        return !DBFHeader.isDeleted(bb.get(offset))
+                && (matcher == null || matcher.matches(bb, offset));
+    }
+
+    private void readBatch(
+            int[] indexes,
+            long[] positions,
+            int[] contentLengths,
+            int count,
+            ShapefileFeatureVisitor visitor)
+            throws IOException {
+        int recordLength = dbfHeader.getRecordLength();
+        DBFColumnBatch.Builder builder = new DBFColumnBatch.Builder(dbfHeader, projection, count);
+        ShapeRecord[] shapeRecords = new ShapeRecord[count];
+        for (int row = 0; row < count; row++) {
+            int offset = dbf.map(dbfHeader.getRecordPosition(indexes[row]), recordLength);
+            builder.add(row, dbf.buffer(), offset);
+            int contentLength = contentLengths[row];
+            offset = shp.map(positions[row], RECORD_HEADER_LEN + contentLength);
+            shapeRecords[row] =
+                    ShapeRecordDecoder.decodeRecord(shp.buffer(), offset, contentLength);
+        }
+        DBFColumnBatch batch = builder.build(indexes[0], Arrays.copyOf(indexes, count));
+        for (int row = 0; row < count; row++) {
+            visitor.visit(new ShapefileFeature(shapeRecords[row], batch, row));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            shp.close();
+        } finally {
+            dbf.close();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package net.frogmouth.rnd.shapefile;
+
+/**
+ * A Shapefile feature: the geometry from a .shp record, joined with the attributes from the
+ * corresponding DBF row.
+ *
+ * <p>The attributes are not decoded up front. They are held as the raw field bytes of a row in a
+ * {@link DBFColumnBatch}, which is shared with the other features read in the same batch, and are
+ * only decoded when one of the accessors is called.
+ */
+public final class ShapefileFeature {
+
+    private final ShapeRecord shapeRecord;
+    private final DBFColumnBatch attributes;
+    private final int row;
+
+    /**
+     * Constructor.
+     *
+     * @param shapeRecord the decoded geometry record
+     * @param attributes the batch holding the attribute row
+     * @param row the zero-based row of this feature within the batch
+     */
+    ShapefileFeature(ShapeRecord shapeRecord, DBFColumnBatch attributes, int row) {
+        this.shapeRecord = shapeRecord;
+        this.attributes = attributes;
+        this.row = row;
+    }
+
+    /**
+     * Get the index of the feature.
+     *
+     * @return the zero-based index of the feature, which is both the .shp record index and the DBF
+     *     row index
+     */
+    public int getRecordIndex() {
+        return attributes.getRecordIndex(row);
+    }
+
+    /**
+     * Get the geometry record.
+     *
+     * @return the decoded record from the .shp file
+     */
+    public ShapeRecord getShapeRecord() {
+        return shapeRecord;
+    }
+
+    /**
+     * Get the attribute batch.
+     *
+     * <p>This gives access to the typed accessors of each {@link DBFColumn}, using {@link
+     * #getRow()} as the row.
+     *
+     * @return the batch holding the attributes of this feature
+     */
+    public DBFColumnBatch getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Get the row of this feature within the attribute batch.
+     *
+     * @return the zero-based row within {@link #getAttributes()}
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * Get an attribute value as text.
+     *
+     * @param column the zero-based index of the column within the projection
+     * @return the value, without padding
+     * @throws IndexOutOfBoundsException if the column is not valid
+     */
+    public String getString(int column) {
+        return attributes.getColumn(column).getString(row);
+    }
+
+    /**
+     * Check whether an attribute value is null.
+     *
+     * @param column the zero-based index of the column within the projection
+     * @return true if the value is null
+     * @throws IndexOutOfBoundsException if the column is not valid
+     */
+    public boolean isNull(int column) {
+        return attributes.getColumn(column).isNull(row);
+    }
+
+    /**
+     * Get a Numeric or Float attribute value as a double.
+     *
+     * @param column the zero-based index of the column within the projection
+     * @return the value, or NaN if the value is null
+     * @throws IndexOutOfBoundsException if the column is not valid
+     * @throws IllegalStateException if the field is not Numeric or Float
+     */
+    public double getDouble(int column) {
+        return attributes.getColumn(column).getDouble(row);
+    }
+
+    /**
+     * Get a Numeric or Float attribute value as a long.
+     *
+     * <p>Any fraction is truncated.
+     *
+     * @param column the zero-based index of the column within the projection
+     * @return the integer part of the value, or 0 if the value is null
+     * @throws IndexOutOfBoundsException if the column is not valid
+     * @throws IllegalStateException if the field is not Numeric or Float
+     */
+    public long getLong(int column) {
+        return attributes.getColumn(column).getLong(row);
+    }
+}
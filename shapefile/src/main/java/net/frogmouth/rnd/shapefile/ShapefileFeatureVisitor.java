@@ -0,0 +1,19 @@
+package net.frogmouth.rnd.shapefile;
+
+/**
+ * Visitor for Shapefile features.
+ *
+ * <p>The dataset calls the visitor once for each matching feature, in file order. The feature
+ * shares its attribute batch with the other features read alongside it, so it is valid after the
+ * visitor returns, but keeping it also keeps the batch reachable.
+ */
+@FunctionalInterface
+public interface ShapefileFeatureVisitor {
+
+    /**
+     * Visit a single feature.
+     *
+     * @param feature the geometry and attributes of the feature
+     */
+    void visit(ShapefileFeature feature);
+}
@@ -0,0 +1,653 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generator for synthetic Shapefile datasets.
+ *
+ * <p>This writes a valid .shp, .shx and .dbf set of any shape type and number of records, for tests
+ * and benchmarks. Everything is derived from the seed, so the same settings always produce the same
+ * files. Records are encoded straight into the {@link ShapefileWriter} buffers, without creating a
+ * geometry for each one, so the files are written in a single streaming pass and memory use does
+ * not depend on the number of records. The .shp file is limited to just under 8 GB (see {@link
+ * ShapefileWriter#MAX_FILE_SIZE}), but the .dbf file can be larger.
+ *
+ * <p>Each record fits within a square of the feature size, placed inside the extent by the {@link
+ * Distribution}. Records with more than one part divide that square into side-by-side cells, one
+ * for each part:
+ *
+ * <ul>
+ *   <li>MultiPoint records have the vertices per part as scattered points. The number of parts is
+ *       not used.
+ *   <li>PolyLine parts run left to right across their cell.
+ *   <li>Polygon parts are disjoint closed rings, in clockwise (i.e. outer ring) order. The last
+ *       vertex repeats the first.
+ *   <li>MultiPatch parts are triangle strips.
+ * </ul>
+ *
+ * <p>Z values are between 0 and 1000. M values count the vertices along each record, except for
+ * points, which get a value between 0 and 100. Z shape types always have M values.
+ *
+ * <p>Attribute values are random, within the width and decimal count of each field, except that
+ * integer Numeric fields hold the zero-based record index (like an ID) wherever it fits. Deleted
+ * rows are flagged in the .dbf file only: their .shp records are written as usual.
+ */
+public final class ShapefileGenerator {
+
+    /** How record anchor points are spread over the extent. */
+    public enum Distribution {
+        /** Evenly over the whole extent. */
+        Uniform,
+        /** Normally distributed around a few random centres. */
+        Clustered
+    }
+
+    /** Fields written by default: one of each field type. */
+    public static final List<DBFFieldDefinition> DEFAULT_FIELDS =
+            List.of(
+                    new DBFFieldDefinition("ID", DBFFieldType.Numeric, 10, 0),
+                    new DBFFieldDefinition("NAME", DBFFieldType.Character, 24, 0),
+                    new DBFFieldDefinition("VALUE", DBFFieldType.Float, 16, 6),
+                    new DBFFieldDefinition("UPDATED", DBFFieldType.Date, 8, 0),
+                    new DBFFieldDefinition("ACTIVE", DBFFieldType.Logical, 1, 0));
+
+    private static final int NUM_CLUSTERS = 16;
+
+    /** Standard deviation of a cluster, as a fraction of the extent. */
+    private static final double CLUSTER_SPREAD = 0.02;
+
+    private static final double MAX_Z = 1000.0;
+    private static final double MAX_POINT_M = 100.0;
+    private static final LocalDate FIRST_DATE = LocalDate.of(1970, 1, 1);
+    private static final int DATE_RANGE_DAYS = 100 * 365;
+    private static final int MAX_NUMBER_DIGITS = 15;
+
+    /** MultiPatch part type for a triangle strip. */
+    private static final int TRIANGLE_STRIP = 0;
+
+    private static final int MULTI_HEADER_LEN = Integer.BYTES + Box.BYTES + Integer.BYTES;
+    private static final int PARTS_HEADER_LEN = MULTI_HEADER_LEN + Integer.BYTES;
+
+    private final ShapeType shapeType;
+    private final long seed;
+    private int partsPerRecord = 1;
+    private int verticesPerPart = 8;
+    private Distribution distribution = Distribution.Uniform;
+    private Box extent = new Box(-180.0, -90.0, 180.0, 90.0);
+    private double featureSize = 1.0;
+    private double deletedRatio = 0.0;
+    private List<DBFFieldDefinition> fields = DEFAULT_FIELDS;
+
+    /**
+     * Constructor.
+     *
+     * @param shapeType the shape type of every record
+     * @param seed the seed for all of the generated values
+     */
+    public ShapefileGenerator(ShapeType shapeType, long seed) {
+        this.shapeType = shapeType;
+        this.seed = seed;
+    }
+
+    /**
+     * Get the shape type.
+     *
+     * @return the shape type of every record
+     */
+    public ShapeType getShapeType() {
+        return shapeType;
+    }
+
+    /**
+     * Get the seed.
+     *
+     * @return the seed for all of the generated values
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the number of parts in each record.
+     *
+     * @return the number of parts, for PolyLine, Polygon and MultiPatch shape types
+     */
+    public int getPartsPerRecord() {
+        return partsPerRecord;
+    }
+
+    /**
+     * Set the number of parts in each record.
+     *
+     * <p>This only applies to PolyLine, Polygon and MultiPatch shape types. The default is 1.
+     *
+     * @param partsPerRecord the number of parts
+     * @throws IllegalArgumentException if the number of parts is less than 1
+     */
+    public void setPartsPerRecord(int partsPerRecord) {
+        if (partsPerRecord < 1) {
+            throw new IllegalArgumentException("Records need at least one part");
+        }
+        this.partsPerRecord = partsPerRecord;
+    }
+
+    /**
+     * Get the number of vertices in each part.
+     *
+     * @return the number of vertices, for all but the Point shape types
+     */
+    public int getVerticesPerPart() {
+        return verticesPerPart;
+    }
+
+    /**
+     * Set the number of vertices in each part.
+     *
+     * <p>PolyLine parts need at least 2 vertices, MultiPatch parts at least 3, and Polygon parts at
+     * least 4, including the closing vertex. The default is 8.
+     *
+     * @param verticesPerPart the number of vertices
+     * @throws IllegalArgumentException if there are too few vertices for the shape type
+     */
+    public void setVerticesPerPart(int verticesPerPart) {
+        int minimum = getMinVerticesPerPart();
+        if (verticesPerPart < minimum) {
+            throw new IllegalArgumentException(
+                    String.format("%s parts need at least %d vertices", shapeType, minimum));
+        }
+        this.verticesPerPart = verticesPerPart;
+    }
+
+    private int getMinVerticesPerPart() {
+        return switch (shapeType) {
+            case PolyLine, PolyLineM, PolyLineZ -> 2;
+            case MultiPatch -> 3;
+            case Polygon, PolygonM, PolygonZ -> 4;
+            default -> 1;
+        };
+    }
+
+    /**
+     * Get the spatial distribution.
+     *
+     * @return how record anchor points are spread over the extent
+     */
+    public Distribution getDistribution() {
+        return distribution;
+    }
+
+    /**
+     * Set the spatial distribution.
+     *
+     * <p>The default is {@link Distribution#Uniform}.
+     *
+     * @param distribution how record anchor points are spread over the extent
+     */
+    public void setDistribution(Distribution distribution) {
+        this.distribution = distribution;
+    }
+
+    /**
+     * Get the extent.
+     *
+     * @return the box that contains every record
+     */
+    public Box getExtent() {
+        return extent;
+    }
+
+    /**
+     * Set the extent.
+     *
+     * <p>The default is the whole world in degrees, from -180, -90 to 180, 90.
+     *
+     * @param extent the box that contains every record
+     * @throws IllegalArgumentException if the box is empty, or not finite
+     */
+    public void setExtent(Box extent) {
+        if (!(extent.minX() < extent.maxX() && extent.minY() < extent.maxY())
+                || !Double.isFinite(extent.maxX() - extent.minX())
+                || !Double.isFinite(extent.maxY() - extent.minY())) {
+            throw new IllegalArgumentException("Extent must be a finite, non-empty box");
+        }
+        this.extent = extent;
+    }
+
+    /**
+     * Get the feature size.
+     *
+     * @return the width and height of the square that each record fits in
+     */
+    public double getFeatureSize() {
+        return featureSize;
+    }
+
+    /**
+     * Set the feature size.
+     *
+     * <p>Features are shrunk to fit the extent if they would not otherwise. The default is 1.
+     *
+     * @param featureSize the width and height of the square that each record fits in
+     * @throws IllegalArgumentException if the size is not positive and finite
+     */
+    public void setFeatureSize(double featureSize) {
+        if (!(featureSize > 0.0) || Double.isInfinite(featureSize)) {
+            throw new IllegalArgumentException("Feature size must be positive and finite");
+        }
+        this.featureSize = featureSize;
+    }
+
+    /**
+     * Get the deleted row ratio.
+     *
+     * @return the probability that each .dbf row is flagged as deleted
+     */
+    public double getDeletedRatio() {
+        return deletedRatio;
+    }
+
+    /**
+     * Set the deleted row ratio.
+     *
+     * <p>The default is 0, for no deleted rows.
+     *
+     * @param deletedRatio the probability that each .dbf row is flagged as deleted
+     * @throws IllegalArgumentException if the ratio is not between 0 and 1
+     */
+    public void setDeletedRatio(double deletedRatio) {
+        if (!(deletedRatio >= 0.0 && deletedRatio <= 1.0)) {
+            throw new IllegalArgumentException("Deleted ratio must be between 0 and 1");
+        }
+        this.deletedRatio = deletedRatio;
+    }
+
+    /**
+     * Get the attribute fields.
+     *
+     * @return the field definitions, in record order
+     */
+    public List<DBFFieldDefinition> getFields() {
+        return fields;
+    }
+
+    /**
+     * Set the attribute fields.
+     *
+     * <p>Values are generated to fit each field. Numeric and Float fields too narrow for their
+     * decimal count, and Date fields narrower than 8 bytes, are left null. The default is {@link
+     * #DEFAULT_FIELDS}.
+     *
+     * @param fields the field definitions, in record order
+     */
+    public void setFields(List<DBFFieldDefinition> fields) {
+        this.fields = List.copyOf(fields);
+    }
+
+    /**
+     * Get the length of each record's content.
+     *
+     * @return the content length in bytes, excluding the record header
+     * @throws IllegalArgumentException if records would be too long for the .shp file
+     */
+    public int getContentLength() {
+        long numPoints = (long) partsPerRecord * verticesPerPart;
+        long length =
+                switch (shapeType) {
+                    case NullShape -> Integer.BYTES;
+                    case Point -> Integer.BYTES + 2 * Double.BYTES;
+                    case PointM -> Integer.BYTES + 3 * Double.BYTES;
+                    case PointZ -> Integer.BYTES + 4 * Double.BYTES;
+                    case MultiPoint, MultiPointM, MultiPointZ -> MULTI_HEADER_LEN
+                            + getPointsLength(verticesPerPart);
+                    case MultiPatch -> PARTS_HEADER_LEN
+                            + 2L * partsPerRecord * Integer.BYTES
+                            + getPointsLength(numPoints);
+                    default -> PARTS_HEADER_LEN
+                            + (long) partsPerRecord * Integer.BYTES
+                            + getPointsLength(numPoints);
+                };
+        // Records are encoded into a single buffer
+        if (length > Integer.MAX_VALUE - ShapeRecordDecoder.RECORD_HEADER_LEN) {
+            throw new IllegalArgumentException(
+                    String.format("%s records of %d points are too long", shapeType, numPoints));
+        }
+        return (int) length;
+    }
+
+    private long getPointsLength(long numPoints) {
+        long length = numPoints * 2 * Double.BYTES;
+        if (shapeType.hasZ()) {
+            length += (2 + numPoints) * Double.BYTES;
+        }
+        if (shapeType.hasM()) {
+            length += (2 + numPoints) * Double.BYTES;
+        }
+        return length;
+    }
+
+    /**
+     * Get the length of the .shp file for a number of records.
+     *
+     * <p>This is for choosing the number of records that gives a file of a particular size.
+     *
+     * @param numRecords the number of records
+     * @return the .shp file length in bytes
+     * @throws IllegalArgumentException if records would be too long for the .shp file
+     */
+    public long getShapefileLength(int numRecords) {
+        return FileHeader.BYTES
+                + (long) numRecords
+                        * (ShapeRecordDecoder.RECORD_HEADER_LEN + (long) getContentLength());
+    }
+
+    /**
+     * Generate a dataset, writing the .shx and .dbf files next to the .shp file.
+     *
+     * <p>Any existing files are replaced.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param numRecords the number of records
+     * @throws IOException if any of the files could not be written, or the .shp file would grow
+     *     beyond {@link ShapefileWriter#MAX_FILE_SIZE}
+     * @throws IllegalArgumentException if the number of records is negative, records would be too
+     *     long for the .shp file, or a field definition is not valid
+     */
+    public void generate(File shpFile, int numRecords) throws IOException {
+        if (numRecords < 0) {
+            throw new IllegalArgumentException("Number of records must not be negative");
+        }
+        if (getShapefileLength(numRecords) > ShapefileWriter.MAX_FILE_SIZE) {
+            throw new IOException(
+                    String.format(
+                            "%d records would exceed the maximum Shapefile size", numRecords));
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        RecordGenerator records = new RecordGenerator(random, getContentLength());
+        Object[] values = new Object[fields.size()];
+        try (ShapefileWriter writer = ShapefileWriter.createRaw(shpFile, shapeType, fields)) {
+            for (int i = 0; i < numRecords; i++) {
+                boolean deleted = random.nextDouble() < deletedRatio;
+                for (int field = 0; field < values.length; field++) {
+                    values[field] = createValue(random, fields.get(field), i);
+                }
+                writer.writeRecord(records, deleted, values);
+            }
+        }
+    }
+
+    private static Object createValue(SplittableRandom random, DBFFieldDefinition field, int i) {
+        int width = field.fieldLengthBinary();
+        return switch (field.fieldType()) {
+            case Character -> createText(random, width);
+            case Numeric, Float -> createNumber(random, width, field.fieldDecimalCount(), i);
+            case Date -> width < 8 ? null : FIRST_DATE.plusDays(random.nextInt(DATE_RANGE_DAYS));
+            case Logical -> random.nextBoolean();
+        };
+    }
+
+    private static String createText(SplittableRandom random, int width) {
+        char[] chars = new char[1 + random.nextInt(width)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('A' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    private static Number createNumber(
+            SplittableRandom random, int width, int decimals, int recordIndex) {
+        // Characters left for the sign and the integer part
+        int room = width - (decimals > 0 ? decimals + 1 : 0);
+        if (room < 1) {
+            return null;
+        }
+        int integerDigits = room > 1 ? room - 1 : 1;
+        int digits = Math.min(integerDigits + decimals, MAX_NUMBER_DIGITS);
+        long bound = 1;
+        for (int i = 0; i < digits; i++) {
+            bound *= 10;
+        }
+        if (decimals == 0 && recordIndex < bound) {
+            return (long) recordIndex;
+        }
+        long unscaled = random.nextLong(bound);
+        if (room > 1 && random.nextBoolean()) {
+            unscaled = -unscaled;
+        }
+        if (decimals == 0) {
+            return unscaled;
+        }
+        return unscaled / Math.pow(10, decimals);
+    }
+
+    /** Encoder for the record content, which generates the coordinates as it writes them. */
+    private final class RecordGenerator implements ShapefileWriter.RecordContent {
+
+        private final SplittableRandom random;
+        private final int contentLength;
+        private final double size;
+        private final double[] clusters = new double[2 * NUM_CLUSTERS];
+        private final double[] vertexXY = new double[2];
+        private double ringRadius;
+        private double ringStart;
+        private double firstX;
+        private double firstY;
+
+        RecordGenerator(SplittableRandom random, int contentLength) {
+            this.random = random;
+            this.contentLength = contentLength;
+            double width = extent.maxX() - extent.minX();
+            double height = extent.maxY() - extent.minY();
+            this.size = Math.min(featureSize, Math.min(width, height));
+            if (distribution == Distribution.Clustered) {
+                for (int i = 0; i < NUM_CLUSTERS; i++) {
+                    clusters[2 * i] = randomAnchor(extent.minX(), extent.maxX());
+                    clusters[2 * i + 1] = randomAnchor(extent.minY(), extent.maxY());
+                }
+            }
+        }
+
+        @Override
+        public int getContentLength() {
+            return contentLength;
+        }
+
+        @Override
+        public void encode(ByteBuffer bb, int offset, double[] runningExtent) {
+            bb.putInt(offset, shapeType.getValue());
+            // The anchor is the lower left corner of the square the record fits in
+            double x;
+            double y;
+            if (distribution == Distribution.Clustered) {
+                int cluster = random.nextInt(NUM_CLUSTERS);
+                x = clusteredAnchor(clusters[2 * cluster], extent.minX(), extent.maxX());
+                y = clusteredAnchor(clusters[2 * cluster + 1], extent.minY(), extent.maxY());
+            } else {
+                x = randomAnchor(extent.minX(), extent.maxX());
+                y = randomAnchor(extent.minY(), extent.maxY());
+            }
+            int valuesOffset = offset + Integer.BYTES;
+            switch (shapeType) {
+                case NullShape -> {}
+                case Point, PointM, PointZ -> encodePoint(bb, valuesOffset, runningExtent, x, y);
+                case MultiPoint, MultiPointM, MultiPointZ -> {
+                    bb.putInt(valuesOffset + Box.BYTES, verticesPerPart);
+                    encodeVertices(bb, offset, offset + MULTI_HEADER_LEN, 1, runningExtent, x, y);
+                }
+                default -> {
+                    bb.putInt(valuesOffset + Box.BYTES, partsPerRecord);
+                    bb.putInt(
+                            valuesOffset + Box.BYTES + Integer.BYTES,
+                            partsPerRecord * verticesPerPart);
+                    int next = offset + PARTS_HEADER_LEN;
+                    for (int part = 0; part < partsPerRecord; part++) {
+                        bb.putInt(next, part * verticesPerPart);
+                        next += Integer.BYTES;
+                    }
+                    if (shapeType == ShapeType.MultiPatch) {
+                        for (int part = 0; part < partsPerRecord; part++) {
+                            bb.putInt(next, TRIANGLE_STRIP);
+                            next += Integer.BYTES;
+                        }
+                    }
+                    encodeVertices(bb, offset, next, partsPerRecord, runningExtent, x, y);
+                }
+            }
+        }
+
+        private double randomAnchor(double min, double max) {
+            return min + random.nextDouble() * (max - min - size);
+        }
+
+        private double clusteredAnchor(double centre, double min, double max) {
+            double value = centre + random.nextGaussian() * CLUSTER_SPREAD * (max - min);
+            return Math.max(min, Math.min(max - size, value));
+        }
+
+        private void encodePoint(
+                ByteBuffer bb, int offset, double[] runningExtent, double x, double y) {
+            bb.putDouble(offset, x);
+            bb.putDouble(offset + Double.BYTES, y);
+            ShapeRecordEncoder.includeXY(runningExtent, x, y, x, y);
+            int next = offset + 2 * Double.BYTES;
+            if (shapeType.hasZ()) {
+                double z = random.nextDouble() * MAX_Z;
+                bb.putDouble(next, z);
+                ShapeRecordEncoder.include(runningExtent, 4, z);
+                next += Double.BYTES;
+            }
+            if (shapeType.hasM()) {
+                double m = random.nextDouble() * MAX_POINT_M;
+                bb.putDouble(next, m);
+                ShapeRecordEncoder.include(runningExtent, 6, m);
+            }
+        }
+
+        /**
+         * Write the bounding box, XY points, and any Z and M values, for a record.
+         *
+         * @param bb the buffer to write to
+         * @param offset the offset of the record content
+         * @param pointsOffset the offset of the first XY point
+         * @param parts the number of parts, each with {@code verticesPerPart} points
+         * @param runningExtent the running extent
+         * @param x the left edge of the record
+         * @param y the bottom edge of the record
+         */
+        private void encodeVertices(
+                ByteBuffer bb,
+                int offset,
+                int pointsOffset,
+                int parts,
+                double[] runningExtent,
+                double x,
+                double y) {
+            double minX = Double.POSITIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+            double cellWidth = size / parts;
+            int next = pointsOffset;
+            for (int part = 0; part < parts; part++) {
+                double left = x + part * cellWidth;
+                for (int vertex = 0; vertex < verticesPerPart; vertex++) {
+                    setVertex(vertex, left, y, cellWidth);
+                    double px = vertexXY[0];
+                    double py = vertexXY[1];
+                    bb.putDouble(next, px);
+                    bb.putDouble(next + Double.BYTES, py);
+                    next += 2 * Double.BYTES;
+                    minX = Math.min(minX, px);
+                    minY = Math.min(minY, py);
+                    maxX = Math.max(maxX, px);
+                    maxY = Math.max(maxY, py);
+                }
+            }
+            int boxOffset = offset + Integer.BYTES;
+            bb.putDouble(boxOffset, minX);
+            bb.putDouble(boxOffset + Double.BYTES, minY);
+            bb.putDouble(boxOffset + 2 * Double.BYTES, maxX);
+            bb.putDouble(boxOffset + 3 * Double.BYTES, maxY);
+            ShapeRecordEncoder.includeXY(runningExtent, minX, minY, maxX, maxY);
+            int numPoints = parts * verticesPerPart;
+            if (shapeType.hasZ()) {
+                next = encodeRange(bb, next, numPoints, false, runningExtent, 4);
+            }
+            if (shapeType.hasM()) {
+                encodeRange(bb, next, numPoints, true, runningExtent, 6);
+            }
+        }
+
+        /** Set {@code vertexXY} to a vertex of a part, within the part's cell. */
+        private void setVertex(int vertex, double left, double bottom, double cellWidth) {
+            switch (shapeType) {
+                case MultiPoint, MultiPointM, MultiPointZ -> {
+                    vertexXY[0] = left + random.nextDouble() * cellWidth;
+                    vertexXY[1] = bottom + random.nextDouble() * size;
+                }
+                case Polygon, PolygonM, PolygonZ -> {
+                    int numDistinct = verticesPerPart - 1;
+                    if (vertex == 0) {
+                        // Stay clear of the cell edges, so the rings do not touch
+                        ringRadius = 0.45 * Math.min(cellWidth, size);
+                        ringStart = random.nextDouble() * 2 * Math.PI;
+                    }
+                    if (vertex == numDistinct) {
+                        // Close the ring
+                        vertexXY[0] = firstX;
+                        vertexXY[1] = firstY;
+                        return;
+                    }
+                    // Decreasing angles go clockwise. Each vertex is on its own ray from the
+                    // centre, so the ring does not cross itself.
+                    double angle = ringStart - 2 * Math.PI * vertex / numDistinct;
+                    double radius = ringRadius * (0.5 + 0.5 * random.nextDouble());
+                    vertexXY[0] = left + 0.5 * cellWidth + radius * Math.cos(angle);
+                    vertexXY[1] = bottom + 0.5 * size + radius * Math.sin(angle);
+                    if (vertex == 0) {
+                        firstX = vertexXY[0];
+                        firstY = vertexXY[1];
+                    }
+                }
+                case MultiPatch -> {
+                    // Alternate between the bottom and top of the cell
+                    vertexXY[0] = left + vertex * cellWidth / (verticesPerPart - 1);
+                    double edge = (vertex % 2 == 0) ? 0.0 : 0.75 * size;
+                    vertexXY[1] = bottom + edge + random.nextDouble() * 0.25 * size;
+                }
+                default -> {
+                    // Polylines move left to right, at random heights
+                    vertexXY[0] = left + vertex * cellWidth / (verticesPerPart - 1);
+                    vertexXY[1] = bottom + random.nextDouble() * size;
+                }
+            }
+        }
+
+        private int encodeRange(
+                ByteBuffer bb,
+                int offset,
+                int numPoints,
+                boolean m,
+                double[] runningExtent,
+                int extentIndex) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            int valuesOffset = offset + 2 * Double.BYTES;
+            for (int i = 0; i < numPoints; i++) {
+                double value = m ? i : random.nextDouble() * MAX_Z;
+                bb.putDouble(valuesOffset + i * Double.BYTES, value);
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            bb.putDouble(offset, min);
+            bb.putDouble(offset + Double.BYTES, max);
+            ShapeRecordEncoder.include(runningExtent, extentIndex, min);
+            ShapeRecordEncoder.include(runningExtent, extentIndex, max);
+            return valuesOffset + numPoints * Double.BYTES;
+        }
+    }
+}
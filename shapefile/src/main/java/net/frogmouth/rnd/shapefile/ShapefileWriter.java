@@ -0,0 +1,574 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import net.frogmouth.rnd.simplefeaturesaccess.Geometry;
+
+/**
+ * Streaming writer for a Shapefile dataset: the .shp, .shx and .dbf files together.
+ *
+ * <p>Each call to {@link #write(Geometry, Object...)} adds one feature: a .shp record, its .shx
+ * entry and a .dbf row. The records are encoded straight into a large direct buffer for each file,
+ * which is written to the file channel when it fills, so memory use does not depend on the number
+ * of features. The bounding box and Z / M ranges are tracked as the records are written, and the
+ * headers are written when the writer is closed, so the output is produced in a single pass.
+ *
+ * <p>The supported shape types are the ones {@link ShapeRecordDecoder} reads: points, and single
+ * part polylines, each with optional Z and M variants. A null geometry (or an empty line string) is
+ * written as a null shape.
+ *
+ * <p>An existing dataset can be extended with {@link #append(File)}, which writes the new records
+ * after the existing ones and then updates the headers in place, without rewriting the file. Any
+ * spatial index sidecar files are deleted, since they would not cover the new records.
+ *
+ * <p>Instances hold open files, and must be closed to produce valid output. Instances are not
+ * thread safe.
+ */
+public final class ShapefileWriter implements Closeable {
+
+    /** Size of the .shp write buffer. Larger records get a buffer of their own size. */
+    static final int SHP_BUFFER_SIZE = 1 << 20;
+
+    /** Size of the .shx write buffer. */
+    static final int SHX_BUFFER_SIZE = 1 << 16;
+
+    /** Size of the .dbf write buffer. Longer records get a buffer of their own size. */
+    static final int DBF_BUFFER_SIZE = 1 << 18;
+
+    /**
+     * The largest size of the .shp file. The file length and record offsets are 32-bit counts of
+     * 16-bit words, which are read as unsigned, so this is just under 8 GB.
+     */
+    static final long MAX_FILE_SIZE = 0xFFFFFFFFL * Short.BYTES;
+
+    /** Version number written to the file headers. */
+    static final int VERSION = 1000;
+
+    private static final int RECORD_HEADER_LEN = ShapeRecordDecoder.RECORD_HEADER_LEN;
+    private static final int INDEX_RECORD_LEN = 2 * Integer.BYTES;
+    private final FileChannel shp;
+    private final FileChannel shx;
+    private final FileChannel dbf;
+    private final ShapeType shapeType;
+    private final List<DBFFieldDefinition> fields;
+    private final int[] fieldOffsets;
+    private final int recordLength;
+    private final int dbfHeaderLength;
+    private final ByteBuffer dbfHeader;
+    private final double[] extent;
+    private ByteBuffer shpBuffer = newBuffer(SHP_BUFFER_SIZE, ByteOrder.LITTLE_ENDIAN);
+    private ByteBuffer shxBuffer = newBuffer(SHX_BUFFER_SIZE, ByteOrder.BIG_ENDIAN);
+    private ByteBuffer dbfBuffer = newBuffer(DBF_BUFFER_SIZE, ByteOrder.LITTLE_ENDIAN);
+    private long shpLength;
+    private int numRecords;
+    private boolean closed;
+
+    private ShapefileWriter(
+            FileChannel shp,
+            FileChannel shx,
+            FileChannel dbf,
+            ShapeType shapeType,
+            ByteBuffer dbfHeader,
+            double[] extent,
+            long shpLength,
+            int numRecords)
+            throws IOException {
+        this.shp = shp;
+        this.shx = shx;
+        this.dbf = dbf;
+        this.shapeType = shapeType;
+        this.dbfHeader = dbfHeader;
+        this.extent = extent;
+        this.shpLength = shpLength;
+        this.numRecords = numRecords;
+        DBFHeader header = DBFHeader.fromByteBuffer(dbfHeader);
+        this.fields = header.getFieldDefinitions();
+        this.recordLength = header.getRecordLength();
+        this.dbfHeaderLength = header.getHeaderLength();
+        this.fieldOffsets = new int[fields.size()];
+        for (int i = 0; i < fieldOffsets.length; i++) {
+            fieldOffsets[i] = header.getFieldOffset(i);
+        }
+    }
+
+    /**
+     * Create a dataset, writing the .shx and .dbf files next to the .shp file.
+     *
+     * <p>Any existing files are replaced. The .shx and .dbf files have the same base name as the
+     * .shp file, with extensions in the same case.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param shapeType the shape type of every record
+     * @param fields the attribute field definitions, in record order
+     * @return the writer, which must be closed to complete the files
+     * @throws IOException if any of the files could not be created
+     * @throws IllegalArgumentException if the shape type cannot be written, or a field definition
+     *     is not valid
+     */
+    public static ShapefileWriter create(
+            File shpFile, ShapeType shapeType, List<DBFFieldDefinition> fields) throws IOException {
+        ShapeRecordEncoder.checkSupported(shapeType);
+        return createRaw(shpFile, shapeType, fields);
+    }
+
+    /**
+     * Create a dataset for records that are encoded by the caller.
+     *
+     * <p>This accepts any shape type. Features can only be added with {@link
+     * #writeRecord(RecordContent, boolean, Object...)} unless the shape type is one that {@link
+     * #create(File, ShapeType, List)} accepts.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param shapeType the shape type of every record
+     * @param fields the attribute field definitions, in record order
+     * @return the writer, which must be closed to complete the files
+     * @throws IOException if any of the files could not be created
+     * @throws IllegalArgumentException if a field definition is not valid
+     */
+    static ShapefileWriter createRaw(
+            File shpFile, ShapeType shapeType, List<DBFFieldDefinition> fields) throws IOException {
+        ByteBuffer dbfHeader = DBFHeader.encode(fields, 0, LocalDate.now());
+        FileChannel shp = null;
+        FileChannel shx = null;
+        FileChannel dbf = null;
+        try {
+            shp = create(shpFile);
+            shx = create(ShapefileDataset.getSiblingFile(shpFile, "shx"));
+            dbf = create(ShapefileDataset.getSiblingFile(shpFile, "dbf"));
+            shp.position(FileHeader.BYTES);
+            shx.position(FileHeader.BYTES);
+            dbf.position(dbfHeader.capacity());
+            return new ShapefileWriter(
+                    shp,
+                    shx,
+                    dbf,
+                    shapeType,
+                    dbfHeader,
+                    ShapeRecordEncoder.emptyExtent(),
+                    FileHeader.BYTES,
+                    0);
+        } catch (IOException | RuntimeException e) {
+            closeAll(shp, shx, dbf);
+            throw e;
+        }
+    }
+
+    private static FileChannel create(File file) throws IOException {
+        return FileChannel.open(
+                file.toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Open an existing dataset to add more features.
+     *
+     * <p>The shape type and attribute fields are taken from the existing files. The existing
+     * records are not read or rewritten: the headers are updated in place when the writer is
+     * closed, and the bounding box and Z / M ranges grow to cover the new records.
+     *
+     * <p>The .dbf record count is the last thing to be written when a writer is closed, so it is
+     * the number of committed records. The ends of those records in the .shp and .shx files are
+     * worked out from the .shx entry of the last one, rather than from the .shp and .shx headers,
+     * which may already include records from an append that was interrupted before the count was
+     * written. New records are written after the committed ones, so anything beyond those is
+     * overwritten. The bounds in the .shp header are kept, so after such an interruption they may
+     * still cover the discarded records.
+     *
+     * <p>Any {@link HilbertRTree} (.hrt) or {@link QuadTreeIndex} (.qix) file next to the .shp file
+     * is deleted before anything is written, as it only covers the existing records. It can be
+     * rebuilt once the writer is closed.
+     *
+     * @param shpFile the Shapefile (.shp) file, with the .shx and .dbf files next to it
+     * @return the writer, which must be closed to update the headers
+     * @throws IOException if any of the files could not be opened, a header is not valid, the .shx
+     *     file has fewer entries than the .dbf file has records, or a spatial index file could not
+     *     be deleted
+     * @throws IllegalArgumentException if records of the shape type cannot be written
+     */
+    public static ShapefileWriter append(File shpFile) throws IOException {
+        FileChannel shp = null;
+        FileChannel shx = null;
+        FileChannel dbf = null;
+        try {
+            shp = openForUpdate(shpFile);
+            shx = openForUpdate(ShapefileDataset.getSiblingFile(shpFile, "shx"));
+            dbf = openForUpdate(ShapefileDataset.getSiblingFile(shpFile, "dbf"));
+            FileHeader fileHeader = FileHeader.fromFileChannel(shp);
+            FileHeader indexHeader = FileHeader.fromFileChannel(shx);
+            ShapeType shapeType = fileHeader.getShapeType();
+            ShapeRecordEncoder.checkSupported(shapeType);
+            ByteBuffer dbfHeader = DBFHeader.readBytes(dbf);
+            DBFHeader header = DBFHeader.fromByteBuffer(dbfHeader);
+            int numRecords = header.getNumRecords();
+            long shxLength = FileHeader.BYTES + (long) numRecords * INDEX_RECORD_LEN;
+            if (indexHeader.getFileLength() < shxLength || shx.size() < shxLength) {
+                throw new IOException(
+                        String.format(
+                                "Shape Index length %d is too short for %d DBF records",
+                                indexHeader.getFileLength(), numRecords));
+            }
+            long shpLength = getRecordsEnd(shx, numRecords);
+            long dbfLength = header.getRecordPosition(numRecords);
+            if (shpLength > shp.size() || dbfLength > dbf.size()) {
+                throw new IOException("Files are shorter than their records describe");
+            }
+            Files.deleteIfExists(HilbertRTree.getIndexFile(shpFile).toPath());
+            Files.deleteIfExists(QuadTreeIndex.getIndexFile(shpFile).toPath());
+            shp.position(shpLength);
+            shx.position(shxLength);
+            dbf.position(dbfLength);
+            return new ShapefileWriter(
+                    shp,
+                    shx,
+                    dbf,
+                    shapeType,
+                    dbfHeader,
+                    getExtent(fileHeader, numRecords),
+                    shpLength,
+                    numRecords);
+        } catch (IOException | RuntimeException e) {
+            closeAll(shp, shx, dbf);
+            throw e;
+        }
+    }
+
+    /**
+     * Get the end of the first records in the .shp file, from their .shx entries.
+     *
+     * @param shx the Shape Index channel, which holds at least that many entries
+     * @param numRecords the number of records
+     * @return the offset just past the last of the records, or the header length if there are none
+     * @throws IOException if the entry could not be read, or does not point past the header
+     */
+    private static long getRecordsEnd(FileChannel shx, int numRecords) throws IOException {
+        if (numRecords == 0) {
+            return FileHeader.BYTES;
+        }
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_RECORD_LEN);
+        long position = FileHeader.BYTES + (long) (numRecords - 1) * INDEX_RECORD_LEN;
+        while (entry.hasRemaining()) {
+            if (shx.read(entry, position + entry.position()) < 0) {
+                throw new IOException("Unexpected end of Shape Index at record " + numRecords);
+            }
+        }
+        long offset = Integer.toUnsignedLong(entry.getInt(0)) * Short.BYTES;
+        int contentLength = entry.getInt(Integer.BYTES) * Short.BYTES;
+        if (offset < FileHeader.BYTES || contentLength < 0) {
+            throw new IOException(
+                    String.format(
+                            "Bad Shape Index entry for record %d: offset %d, length %d",
+                            numRecords, offset, contentLength));
+        }
+        return offset + RECORD_HEADER_LEN + contentLength;
+    }
+
+    private static FileChannel openForUpdate(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static double[] getExtent(FileHeader fileHeader, int numRecords) {
+        double[] extent = ShapeRecordEncoder.emptyExtent();
+        if (numRecords == 0) {
+            // The header of an empty file has no meaningful bounds
+            return extent;
+        }
+        extent[0] = fileHeader.getMinX();
+        extent[1] = fileHeader.getMinY();
+        extent[2] = fileHeader.getMaxX();
+        extent[3] = fileHeader.getMaxY();
+        if (fileHeader.getMinZ() != null) {
+            extent[4] = fileHeader.getMinZ();
+            extent[5] = fileHeader.getMaxZ();
+        }
+        if (fileHeader.getMinM() != null) {
+            extent[6] = fileHeader.getMinM();
+            extent[7] = fileHeader.getMaxM();
+        }
+        return extent;
+    }
+
+    /**
+     * Get the shape type.
+     *
+     * @return the shape type of every record
+     */
+    public ShapeType getShapeType() {
+        return shapeType;
+    }
+
+    /**
+     * Get the attribute field definitions.
+     *
+     * @return the field definitions, in record order
+     */
+    public List<DBFFieldDefinition> getFields() {
+        return fields;
+    }
+
+    /**
+     * Get the number of records.
+     *
+     * @return the number of features written so far
+     */
+    public int getNumRecords() {
+        return numRecords;
+    }
+
+    /**
+     * Write a feature.
+     *
+     * <p>The geometry and values are checked before anything is written, so a feature that is
+     * rejected leaves the files unchanged.
+     *
+     * @param geometry the geometry, or null for a null shape
+     * @param values one value for each field, in record order. See {@link DBFFieldType} for the
+     *     value types: Numeric and Float fields take a {@link Number}, Date fields a {@link
+     *     LocalDate}, Logical fields a {@link Boolean}, and Character fields any value. Null values
+     *     are written as the null value for the field type.
+     * @throws IOException if writing fails, or the .shp file would grow beyond {@link
+     *     #MAX_FILE_SIZE}
+     * @throws IllegalArgumentException if the geometry does not suit the shape type, the number of
+     *     values does not match the number of fields, or a value does not suit its field
+     * @throws IllegalStateException if the writer has been closed
+     */
+    public void write(Geometry geometry, Object... values) throws IOException {
+        checkValues(values);
+        ShapeRecordEncoder.checkSupported(shapeType);
+        int contentLength = ShapeRecordEncoder.getContentLength(shapeType, geometry);
+        int shpOffset = startRecord(contentLength, false, values);
+        ShapeRecordEncoder.encode(
+                shapeType, geometry, numRecords + 1, contentLength, shpBuffer, shpOffset, extent);
+        finishRecord(shpOffset, contentLength);
+    }
+
+    /**
+     * Write a feature with record content that is encoded by the caller.
+     *
+     * <p>This is for generating records (e.g. test data) without building a geometry for each one.
+     * The record header and .shx entry are written as for {@link #write(Geometry, Object...)}.
+     *
+     * @param content the record content
+     * @param deleted whether to flag the .dbf row as deleted
+     * @param values one value for each field, in record order
+     * @throws IOException if writing fails, or the .shp file would grow beyond {@link
+     *     #MAX_FILE_SIZE}
+     * @throws IllegalArgumentException if the number of values does not match the number of fields,
+     *     or a value does not suit its field
+     * @throws IllegalStateException if the writer has been closed
+     */
+    void writeRecord(RecordContent content, boolean deleted, Object... values) throws IOException {
+        checkValues(values);
+        int contentLength = content.getContentLength();
+        int shpOffset = startRecord(contentLength, deleted, values);
+        ShapeRecordEncoder.encodeHeader(numRecords + 1, contentLength, shpBuffer, shpOffset);
+        content.encode(shpBuffer, shpOffset + RECORD_HEADER_LEN, extent);
+        finishRecord(shpOffset, contentLength);
+    }
+
+    private void checkValues(Object[] values) {
+        if (closed) {
+            throw new IllegalStateException("Writer is closed");
+        }
+        if (values.length != fields.size()) {
+            throw new IllegalArgumentException(
+                    String.format(
+                            "Expected %d attribute values, but got %d",
+                            fields.size(), values.length));
+        }
+    }
+
+    /**
+     * Write the .dbf row for a feature, and make room for its .shp record.
+     *
+     * @return the offset in the .shp buffer to write the record header at
+     */
+    private int startRecord(int contentLength, boolean deleted, Object[] values)
+            throws IOException {
+        int shpRecordLength = RECORD_HEADER_LEN + contentLength;
+        if (shpLength + shpRecordLength > MAX_FILE_SIZE) {
+            throw new IOException("Shapefile would exceed the maximum size of 8 GB");
+        }
+        // Format the attributes first, as they can still be rejected
+        dbfBuffer = reserve(dbfBuffer, dbf, recordLength);
+        int dbfOffset = dbfBuffer.position();
+        dbfBuffer.put(dbfOffset, deleted ? DBFHeader.DELETED_FLAG : DBFHeader.VALID_FLAG);
+        for (int i = 0; i < values.length; i++) {
+            DBFValueFormatter.format(
+                    dbfBuffer, dbfOffset + fieldOffsets[i], fields.get(i), values[i]);
+        }
+        dbfBuffer.position(dbfOffset + recordLength);
+
+        shpBuffer = reserve(shpBuffer, shp, shpRecordLength);
+        return shpBuffer.position();
+    }
+
+    /** Complete the .shp record written at an offset, and add its .shx entry. */
+    private void finishRecord(int shpOffset, int contentLength) throws IOException {
+        int shpRecordLength = RECORD_HEADER_LEN + contentLength;
+        shpBuffer.position(shpOffset + shpRecordLength);
+
+        shxBuffer = reserve(shxBuffer, shx, INDEX_RECORD_LEN);
+        shxBuffer.putInt((int) (shpLength / Short.BYTES));
+        shxBuffer.putInt(contentLength / Short.BYTES);
+
+        shpLength += shpRecordLength;
+        numRecords++;
+    }
+
+    /** Record content that is encoded by the caller, for {@link #writeRecord}. */
+    interface RecordContent {
+
+        /**
+         * Get the length of the record content.
+         *
+         * @return the content length in bytes, excluding the record header
+         */
+        int getContentLength();
+
+        /**
+         * Encode the record content.
+         *
+         * @param bb little endian buffer to write to, with at least the content length available
+         * @param offset the offset of the content (i.e. the shape type) within the buffer
+         * @param extent the running extent, as {@code minX, minY, maxX, maxY, minZ, maxZ, minM,
+         *     maxM}, which must be updated with the bounds of this record
+         */
+        void encode(ByteBuffer bb, int offset, double[] extent);
+    }
+
+    private static ByteBuffer reserve(ByteBuffer buffer, FileChannel channel, int length)
+            throws IOException {
+        if (buffer.remaining() < length) {
+            flush(buffer, channel);
+            if (buffer.capacity() < length) {
+                return newBuffer(length, buffer.order());
+            }
+        }
+        return buffer;
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static ByteBuffer newBuffer(int capacity, ByteOrder order) {
+        return ByteBuffer.allocateDirect(capacity).order(order);
+    }
+
+    /**
+     * Build the file header for the records written so far.
+     *
+     * @param fileLength the file length in bytes
+     * @return the file header, with the bounds and Z / M ranges of all of the records
+     */
+    private FileHeader getFileHeader(long fileLength) {
+        FileHeader fileHeader = new FileHeader();
+        fileHeader.setFileLength(fileLength);
+        fileHeader.setVersion(VERSION);
+        fileHeader.setShapeType(shapeType);
+        fileHeader.setMinX(finite(extent[0]));
+        fileHeader.setMinY(finite(extent[1]));
+        fileHeader.setMaxX(finite(extent[2]));
+        fileHeader.setMaxY(finite(extent[3]));
+        if (shapeType.hasZ()) {
+            fileHeader.setMinZ(finite(extent[4]));
+            fileHeader.setMaxZ(finite(extent[5]));
+        }
+        if (shapeType.hasM()) {
+            fileHeader.setMinM(finite(extent[6]));
+            fileHeader.setMaxM(finite(extent[7]));
+        }
+        return fileHeader;
+    }
+
+    /** Empty ranges are written as 0. */
+    private static double finite(double value) {
+        return Double.isInfinite(value) ? 0.0 : value;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer bb, long position)
+            throws IOException {
+        while (bb.hasRemaining()) {
+            channel.write(bb, position + bb.position());
+        }
+    }
+
+    /**
+     * Complete the files.
+     *
+     * <p>This writes any buffered records, trims anything left beyond them, and syncs the records
+     * to disk. Only then are the .shp and .shx file headers and the .dbf record count written, with
+     * the .dbf record count last, and synced in turn. Writing the count commits the new records:
+     * {@link #append(File)} ignores any records beyond it.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            long shxLength = FileHeader.BYTES + (long) numRecords * INDEX_RECORD_LEN;
+            long dbfLength = dbfHeaderLength + (long) numRecords * recordLength + 1;
+            flush(shpBuffer, shp);
+            flush(shxBuffer, shx);
+            dbfBuffer = reserve(dbfBuffer, dbf, 1);
+            dbfBuffer.put(DBFHeader.END_OF_FILE);
+            flush(dbfBuffer, dbf);
+            shp.truncate(shpLength);
+            shx.truncate(shxLength);
+            dbf.truncate(dbfLength);
+            force(shp, shx, dbf);
+            writeFully(shp, getFileHeader(shpLength).toByteBuffer(), 0);
+            writeFully(shx, getFileHeader(shxLength).toByteBuffer(), 0);
+            force(shp, shx);
+            DBFHeader.setNumRecords(dbfHeader, numRecords, LocalDate.now());
+            writeFully(dbf, dbfHeader.clear(), 0);
+            force(dbf);
+        } finally {
+            closeAll(shp, shx, dbf);
+        }
+    }
+
+    private static void force(FileChannel... channels) throws IOException {
+        for (FileChannel channel : channels) {
+            channel.force(false);
+        }
+    }
+
+    private static void closeAll(Closeable... closeables) throws IOException {
+        IOException failure = null;
+        for (Closeable closeable : closeables) {
+            try {
+                if (closeable != null) {
+                    closeable.close();
+                }
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
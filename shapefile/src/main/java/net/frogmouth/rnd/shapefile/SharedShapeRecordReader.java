@@ -0,0 +1,242 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Thread safe random access reader for Shapefile records.
+ *
+ * <p>This is the shared counterpart to {@link ShapeRecordReader}. One instance holds a single file
+ * channel for a .shp file, and any number of threads can read records through it at the same time.
+ * Each read is a positional read into its own buffer, so there is no shared file position, no read
+ * buffer to guard and no lock on the read path. There is no per-thread state either, which suits
+ * virtual threads as well as thread pools.
+ *
+ * <p>The shape index and file header are read once, when the reader is opened, and do not change
+ * after that.
+ *
+ * <p>Interrupting a thread that is reading from a file channel closes the channel. If that happens,
+ * the interrupted read fails, and the channel is opened again for the other threads.
+ *
+ * <p>Records are identified by their zero-based index, so the first record is index 0. Instances
+ * should be closed once all of the threads have finished with them.
+ */
+public final class SharedShapeRecordReader implements Closeable {
+
+    private static final int RECORD_HEADER_LEN = ShapeRecordDecoder.RECORD_HEADER_LEN;
+    private final Path path;
+    private final ByteBuffer fileHeaderBytes;
+    private final MappedShapeIndex shapeIndex;
+    private final Object fileKey;
+    private volatile FileChannel channel;
+    private volatile boolean closed;
+
+    private SharedShapeRecordReader(
+            Path path, FileChannel channel, MappedShapeIndex shapeIndex, Object fileKey)
+            throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.shapeIndex = shapeIndex;
+        this.fileKey = fileKey;
+        ByteBuffer bb = ByteBuffer.allocate(FileHeader.BYTES);
+        readFully(channel, bb, 0);
+        FileHeader.fromByteBuffer(bb);
+        this.fileHeaderBytes = bb.asReadOnlyBuffer();
+    }
+
+    /**
+     * Open a shared reader for a .shp / .shx file pair.
+     *
+     * @param shpFile the Shapefile (.shp) file
+     * @param shxFile the corresponding Shape Index (.shx) file
+     * @return the reader, which must be closed after use
+     * @throws IOException if either file could not be opened or parsed
+     */
+    public static SharedShapeRecordReader open(File shpFile, File shxFile) throws IOException {
+        MappedShapeIndex shapeIndex = MappedShapeIndex.open(shxFile);
+        Path path = shpFile.toPath();
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new SharedShapeRecordReader(
+                    path, channel, shapeIndex, ShapeRecordReader.FileKey.of(shpFile));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the file header.
+     *
+     * @return a new copy of the file header from the .shp file, which the caller may modify
+     */
+    public FileHeader getFileHeader() {
+        try {
+            return FileHeader.fromByteBuffer(fileHeaderBytes.duplicate());
+        } catch (IOException e) {
+            // The header was parsed when the reader was opened
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Get the number of records.
+     *
+     * @return the number of records listed in the shape index
+     */
+    public int getNumRecords() {
+        return shapeIndex.size();
+    }
+
+    /**
+     * Get the content length of a record.
+     *
+     * @param index the zero-based index of the record
+     * @return the length of the record content in bytes, excluding the record header
+     * @throws IndexOutOfBoundsException if the index is not valid
+     */
+    int getContentLength(int index) {
+        return shapeIndex.contentLength(index);
+    }
+
+    /**
+     * Get the identity of the .shp file.
+     *
+     * @return the file key, which matches the key of a {@link ShapeRecordReader} on the same file
+     */
+    Object getFileKey() {
+        return fileKey;
+    }
+
+    /**
+     * Read a single record.
+     *
+     * @param index the zero-based index of the record
+     * @return the decoded record
+     * @throws IOException if the record could not be read or decoded
+     * @throws IndexOutOfBoundsException if the index is not valid
+     */
+    public ShapeRecord read(int index) throws IOException {
+        int contentLength = shapeIndex.contentLength(index);
+        ByteBuffer bb = read(shapeIndex.offset(index), RECORD_HEADER_LEN + contentLength);
+        return ShapeRecordDecoder.decodeRecord(bb, 0, contentLength);
+    }
+
+    /**
+     * Read a single record as Well-Known Binary.
+     *
+     * <p>Transcoders are not thread safe, so each thread needs its own.
+     *
+     * @param index the zero-based index of the record
+     * @param transcoder the transcoder to use
+     * @return the transcoder output buffer holding the WKB, which is only valid until the next use
+     *     of the transcoder, and is empty for a null shape
+     * @throws IOException if the record could not be read or transcoded
+     * @throws IndexOutOfBoundsException if the index is not valid
+     * @see WKBTranscoder#transcode(ByteBuffer, int, int)
+     */
+    public ByteBuffer readWKB(int index, WKBTranscoder transcoder) throws IOException {
+        int contentLength = shapeIndex.contentLength(index);
+        ByteBuffer bb = read(shapeIndex.offset(index), RECORD_HEADER_LEN + contentLength);
+        return transcoder.transcode(bb, RECORD_HEADER_LEN, contentLength);
+    }
+
+    /**
+     * Read a batch of records.
+     *
+     * <p>The records are read in the order they appear in the file. The results are returned in the
+     * order of the requested indexes.
+     *
+     * @param indexes the zero-based indexes of the records
+     * @return the decoded records, in the same order as {@code indexes}
+     * @throws IOException if any of the records could not be read or decoded
+     * @throws IndexOutOfBoundsException if any index is not valid
+     */
+    public List<ShapeRecord> read(int... indexes) throws IOException {
+        long[] keys = ShapeRecordReader.sortByOffset(shapeIndex, indexes);
+        ShapeRecord[] results = new ShapeRecord[indexes.length];
+        for (long key : keys) {
+            int i = (int) key;
+            results[i] = read(indexes[i]);
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Read the records from a set of candidates that intersect a query window.
+     *
+     * @param indexes the zero-based indexes of the candidate records
+     * @param window the query window
+     * @param visitor the visitor to call for each matching record, in file order
+     * @throws IOException if any of the records could not be read or decoded
+     * @throws IndexOutOfBoundsException if any index is not valid
+     * @see ShapeRecordReader#query(int[], Box, ShapeRecordVisitor)
+     */
+    public void query(int[] indexes, Box window, ShapeRecordVisitor visitor) throws IOException {
+        long[] keys = ShapeRecordReader.sortByOffset(shapeIndex, indexes);
+        for (long key : keys) {
+            int index = indexes[(int) key];
+            int contentLength = shapeIndex.contentLength(index);
+            ByteBuffer bb = read(shapeIndex.offset(index), RECORD_HEADER_LEN + contentLength);
+            if (ShapeRecordDecoder.intersects(bb, RECORD_HEADER_LEN, window)) {
+                visitor.visit(ShapeRecordDecoder.decodeRecord(bb, 0, contentLength));
+            }
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (true) {
+            FileChannel current = channel;
+            try {
+                readFully(current, bb, position);
+                return bb;
+            } catch (ClosedByInterruptException e) {
+                reopen(current);
+                throw e;
+            } catch (ClosedChannelException e) {
+                if (closed) {
+                    throw e;
+                }
+                // Another thread was interrupted, and closed the channel under this read
+                reopen(current);
+                bb.clear();
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer bb, long position)
+            throws IOException {
+        while (bb.hasRemaining()) {
+            int n = channel.read(bb, position + bb.position());
+            if (n < 0) {
+                throw new EOFException(
+                        String.format("Unexpected end of file reading at offset %d", position));
+            }
+        }
+        bb.flip();
+    }
+
+    private synchronized void reopen(FileChannel failed) throws IOException {
+        if (!closed && channel == failed) {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+}
@@ -0,0 +1,18 @@
+package net.frogmouth.rnd.shapefile;
+
+/**
+ * Visitor for spatial index query results.
+ *
+ * <p>The index calls the visitor once for each record whose bounds match the query.
+ */
+@FunctionalInterface
+public interface SpatialIndexVisitor {
+
+    /**
+     * Visit a single matching record.
+     *
+     * @param recordIndex the zero-based index of the record
+     * @param offset the byte offset of the record within the .shp file
+     */
+    void visit(int recordIndex, long offset);
+}
@@ -0,0 +1,318 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import net.frogmouth.rnd.simplefeaturesaccess.WKBWriter;
+
+/**
+ * Transcoder from .shp record content straight to Well-Known Binary (WKB).
+ *
+ * <p>This reads the record values from the buffer and writes them to the output with absolute puts,
+ * without decoding to geometry objects. Points become WKB Points, single part polylines become
+ * LineStrings, multi-part polylines become MultiLineStrings, and multipoints become MultiPoints.
+ * For points and single part polylines, the output is identical to decoding the record and writing
+ * the geometry with the same {@link WKBWriter}; the other types are not decoded to geometry
+ * objects, so there is nothing to compare against. Z values are included for Z shape types, and M
+ * values are included whenever the record has them. M values are copied as they are, so "no data"
+ * measures stay as large negative numbers. Two dimensional polylines in little endian output are
+ * copied in bulk.
+ *
+ * <p>Null shapes have no WKB representation, and produce no output (a length of zero), which suits
+ * storing them as SQL NULL. Polygon and MultiPatch records cannot be transcoded yet.
+ *
+ * <p>Instances hold a reusable output buffer and per-record state, and are not thread safe.
+ */
+public final class WKBTranscoder {
+
+    private static final int POINTS_HEADER_LEN = Integer.BYTES + Box.BYTES + Integer.BYTES;
+    private static final int POLYLINE_HEADER_LEN =
+            Integer.BYTES + ShapeRecordDecoder.POLYLINE_HEADER_LEN;
+    private static final int XY_LEN = 2 * Double.BYTES;
+    private static final int RANGE_LEN = 2 * Double.BYTES;
+
+    private final WKBWriter writer;
+    private ByteBuffer buffer;
+
+    // Layout of the record being transcoded, set by parse()
+    private ShapeType shapeType;
+    private int numParts;
+    private int numPoints;
+    private int partsOffset;
+    private int xyOffset;
+    private int zOffset;
+    private int mOffset;
+
+    /**
+     * Constructor for little endian output.
+     *
+     * @param writer the writer defining the WKB flavour (ISO or Extended) and SRID
+     */
+    public WKBTranscoder(WKBWriter writer) {
+        this(writer, ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param writer the writer defining the WKB flavour (ISO or Extended) and SRID
+     * @param byteOrder the byte order of the output from {@link #transcode(ByteBuffer, int, int)}
+     */
+    public WKBTranscoder(WKBWriter writer, ByteOrder byteOrder) {
+        this.writer = writer;
+        this.buffer = ByteBuffer.allocate(0).order(byteOrder);
+    }
+
+    /**
+     * Get the writer.
+     *
+     * @return the writer defining the WKB flavour (ISO or Extended) and SRID
+     */
+    public WKBWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Get the WKB length for a record.
+     *
+     * @param bb little endian buffer holding the record content
+     * @param offset the offset of the record content (i.e. the shape type) within the buffer
+     * @param contentLength the length of the record content in bytes
+     * @return the WKB length in bytes, or 0 for a null shape
+     * @throws IOException if the record is not valid
+     * @throws UnsupportedOperationException if the record shape type cannot be transcoded
+     */
+    public int getLength(ByteBuffer bb, int offset, int contentLength) throws IOException {
+        parse(bb, offset, contentLength);
+        if (shapeType == ShapeType.NullShape) {
+            return 0;
+        }
+        long ordinateBytes = getOrdinateCount() * (long) Double.BYTES;
+        long length = writer.getHeaderLength(true);
+        switch (shapeType) {
+            case Point, PointM, PointZ -> length += ordinateBytes;
+            case MultiPoint, MultiPointM, MultiPointZ -> length +=
+                    Integer.BYTES + numPoints * (writer.getHeaderLength(false) + ordinateBytes);
+            default -> {
+                length += Integer.BYTES + numPoints * ordinateBytes;
+                if (numParts > 1) {
+                    length += numParts * (long) (writer.getHeaderLength(false) + Integer.BYTES);
+                }
+            }
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException(String.format("WKB for record is too long: %d bytes", length));
+        }
+        return (int) length;
+    }
+
+    /**
+     * Transcode a record into the reusable output buffer.
+     *
+     * <p>The returned buffer is positioned at 0, with the limit at the end of the WKB. It is
+     * overwritten by the next call, so copy the bytes out (or hand them to the consumer) first.
+     *
+     * @param bb little endian buffer holding the record content
+     * @param offset the offset of the record content (i.e. the shape type) within the buffer
+     * @param contentLength the length of the record content in bytes
+     * @return the output buffer holding the WKB, which is empty for a null shape
+     * @throws IOException if the record is not valid
+     * @throws UnsupportedOperationException if the record shape type cannot be transcoded
+     */
+    public ByteBuffer transcode(ByteBuffer bb, int offset, int contentLength) throws IOException {
+        int length = getLength(bb, offset, contentLength);
+        if (buffer.capacity() < length) {
+            // Grow geometrically, so a run of slightly longer records does not reallocate each time
+            int capacity =
+                    (int) Math.min(Integer.MAX_VALUE, Math.max(length, 2L * buffer.capacity()));
+            buffer = ByteBuffer.allocate(capacity).order(buffer.order());
+        }
+        buffer.clear().limit(length);
+        write(bb, buffer, 0);
+        return buffer;
+    }
+
+    /**
+     * Transcode a record into a caller supplied buffer.
+     *
+     * <p>The byte order of the WKB is the byte order of {@code out}. The position of {@code out} is
+     * not used or changed.
+     *
+     * @param bb little endian buffer holding the record content
+     * @param offset the offset of the record content (i.e. the shape type) within the buffer
+     * @param contentLength the length of the record content in bytes
+     * @param out the buffer to write the WKB to
+     * @param outOffset the offset within {@code out} to write the WKB at
+     * @return the number of bytes written, which is 0 for a null shape
+     * @throws IOException if the record is not valid
+     * @throws UnsupportedOperationException if the record shape type cannot be transcoded
+     * @throws IndexOutOfBoundsException if the WKB does not fit in {@code out}
+     */
+    public int transcode(
+            ByteBuffer bb, int offset, int contentLength, ByteBuffer out, int outOffset)
+            throws IOException {
+        int length = getLength(bb, offset, contentLength);
+        if (outOffset < 0 || length > out.limit() - outOffset) {
+            throw new IndexOutOfBoundsException(
+                    String.format(
+                            "%d bytes do not fit in buffer at offset %d (limit %d)",
+                            length, outOffset, out.limit()));
+        }
+        write(bb, out, outOffset);
+        return length;
+    }
+
+    private void write(ByteBuffer bb, ByteBuffer out, int outOffset) {
+        boolean hasZ = zOffset >= 0;
+        boolean hasM = mOffset >= 0;
+        int next = outOffset;
+        switch (shapeType) {
+            case NullShape -> {}
+            case Point, PointM, PointZ -> {
+                next = writer.writeHeader(out, next, WKBWriter.POINT, hasZ, hasM, true);
+                writeVertices(bb, 0, 1, out, next);
+            }
+            case MultiPoint, MultiPointM, MultiPointZ -> {
+                next = writer.writeHeader(out, next, WKBWriter.MULTI_POINT, hasZ, hasM, true);
+                out.putInt(next, numPoints);
+                next += Integer.BYTES;
+                for (int i = 0; i < numPoints; i++) {
+                    next = writer.writeHeader(out, next, WKBWriter.POINT, hasZ, hasM, false);
+                    next = writeVertices(bb, i, 1, out, next);
+                }
+            }
+            default -> {
+                if (numParts <= 1) {
+                    next = writer.writeHeader(out, next, WKBWriter.LINE_STRING, hasZ, hasM, true);
+                    out.putInt(next, numPoints);
+                    writeVertices(bb, 0, numPoints, out, next + Integer.BYTES);
+                    return;
+                }
+                next = writer.writeHeader(out, next, WKBWriter.MULTI_LINE_STRING, hasZ, hasM, true);
+                out.putInt(next, numParts);
+                next += Integer.BYTES;
+                for (int part = 0; part < numParts; part++) {
+                    int first = bb.getInt(partsOffset + part * Integer.BYTES);
+                    int end =
+                            part + 1 < numParts
+                                    ? bb.getInt(partsOffset + (part + 1) * Integer.BYTES)
+                                    : numPoints;
+                    next = writer.writeHeader(out, next, WKBWriter.LINE_STRING, hasZ, hasM, false);
+                    out.putInt(next, end - first);
+                    next = writeVertices(bb, first, end - first, out, next + Integer.BYTES);
+                }
+            }
+        }
+    }
+
+    private int writeVertices(ByteBuffer bb, int first, int count, ByteBuffer out, int next) {
+        if (zOffset < 0 && mOffset < 0 && out.order() == ByteOrder.LITTLE_ENDIAN) {
+            // The record XY pairs are already laid out as WKB XY coordinates
+            out.put(next, bb, xyOffset + first * XY_LEN, count * XY_LEN);
+            return next + count * XY_LEN;
+        }
+        for (int i = first; i < first + count; i++) {
+            out.putDouble(next, bb.getDouble(xyOffset + i * XY_LEN));
+            out.putDouble(next + Double.BYTES, bb.getDouble(xyOffset + i * XY_LEN + Double.BYTES));
+            next += XY_LEN;
+            if (zOffset >= 0) {
+                out.putDouble(next, bb.getDouble(zOffset + i * Double.BYTES));
+                next += Double.BYTES;
+            }
+            if (mOffset >= 0) {
+                out.putDouble(next, bb.getDouble(mOffset + i * Double.BYTES));
+                next += Double.BYTES;
+            }
+        }
+        return next;
+    }
+
+    private int getOrdinateCount() {
+        return 2 + (zOffset >= 0 ? 1 : 0) + (mOffset >= 0 ? 1 : 0);
+    }
+
+    private void parse(ByteBuffer bb, int offset, int contentLength) throws IOException {
+        if (contentLength < Integer.BYTES) {
+            throw new IOException(
+                    String.format("Record content too short: %d bytes", contentLength));
+        }
+        shapeType = ShapeRecordDecoder.readShapeType(bb, offset);
+        numParts = 0;
+        numPoints = 0;
+        partsOffset = -1;
+        zOffset = -1;
+        mOffset = -1;
+        long end = (long) offset + contentLength;
+        switch (shapeType) {
+            case NullShape -> {}
+            case Point, PointM, PointZ -> {
+                numPoints = 1;
+                xyOffset = offset + Integer.BYTES;
+                int next = xyOffset + XY_LEN;
+                if (shapeType.hasZ()) {
+                    zOffset = next;
+                    next += Double.BYTES;
+                }
+                checkLength(shapeType == ShapeType.PointM ? next + Double.BYTES : next, end);
+                // M is optional for PointZ, and takes the rest of the record if present
+                if (shapeType.hasM() && next + Double.BYTES <= end) {
+                    mOffset = next;
+                }
+            }
+            case MultiPoint, MultiPointM, MultiPointZ -> {
+                checkLength(offset + POINTS_HEADER_LEN, end);
+                numPoints = bb.getInt(offset + Integer.BYTES + Box.BYTES);
+                parseVertices(offset + POINTS_HEADER_LEN, end);
+            }
+            case PolyLine, PolyLineM, PolyLineZ -> {
+                checkLength(offset + POLYLINE_HEADER_LEN, end);
+                numParts = bb.getInt(offset + Integer.BYTES + Box.BYTES);
+                numPoints = bb.getInt(offset + Integer.BYTES + Box.BYTES + Integer.BYTES);
+                if (numParts < 0 || numParts > contentLength / Integer.BYTES) {
+                    throw new IOException(String.format("Bad number of parts: %d", numParts));
+                }
+                partsOffset = offset + POLYLINE_HEADER_LEN;
+                parseVertices(partsOffset + numParts * (long) Integer.BYTES, end);
+                checkParts(bb);
+            }
+            default -> throw new UnsupportedOperationException(
+                    "Transcoding " + shapeType + " records to WKB is not supported");
+        }
+    }
+
+    private void parseVertices(long pointsOffset, long end) throws IOException {
+        if (numPoints < 0 || numPoints > (end - pointsOffset) / XY_LEN) {
+            throw new IOException(String.format("Bad number of points: %d", numPoints));
+        }
+        xyOffset = (int) pointsOffset;
+        long next = pointsOffset + numPoints * (long) XY_LEN;
+        long rangedLength = RANGE_LEN + numPoints * (long) Double.BYTES;
+        if (shapeType.hasZ()) {
+            checkLength(next + rangedLength, end);
+            zOffset = (int) (next + RANGE_LEN);
+            next += rangedLength;
+        }
+        // The M range and values are optional, even for M shape types
+        if (shapeType.hasM() && next + rangedLength <= end) {
+            mOffset = (int) (next + RANGE_LEN);
+        }
+    }
+
+    private void checkParts(ByteBuffer bb) throws IOException {
+        int previous = 0;
+        for (int part = 0; part < numParts; part++) {
+            int first = bb.getInt(partsOffset + part * Integer.BYTES);
+            if ((part == 0 && first != 0) || first < previous || first > numPoints) {
+                throw new IOException(String.format("Bad start index %d for part %d", first, part));
+            }
+            previous = first;
+        }
+    }
+
+    private static void checkLength(long required, long end) throws IOException {
+        if (required > end) {
+            throw new IOException(
+                    String.format("Record content too short, needs %d more bytes", required - end));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.generate;
+import static net.frogmouth.rnd.shapefile.TestResources.getShxFile;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.AsynchronousCloseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+import org.testng.annotations.Test;
+
+public class AsyncShapeRecordReaderTest {
+
+    private static final int NUM_RECORDS = 200;
+
+    private static List<String> readExpected(File shpFile) throws IOException {
+        List<String> expected = new ArrayList<>();
+        try (ShapeRecordReader reader = Shapefile.openRecordReader(shpFile, getShxFile(shpFile))) {
+            for (int i = 0; i < NUM_RECORDS; i++) {
+                expected.add(reader.read(i).geometry().toString());
+            }
+        }
+        return expected;
+    }
+
+    private static void checkResults(
+            int[] indexes, List<CompletableFuture<ShapeRecord>> futures, List<String> expected) {
+        assertEquals(futures.size(), indexes.length);
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        for (int i = 0; i < indexes.length; i++) {
+            ShapeRecord shapeRecord = futures.get(i).join();
+            assertEquals(shapeRecord.recordNumber(), indexes[i] + 1);
+            assertEquals(shapeRecord.geometry().toString(), expected.get(indexes[i]));
+        }
+    }
+
+    @Test
+    public void checkMergedReads() throws IOException {
+        File shpFile = generate(ShapeType.PolyLine, 17L, NUM_RECORDS);
+        List<String> expected = readExpected(shpFile);
+        // Everything in reverse order, which is all one extent
+        int[] reversed = IntStream.range(0, NUM_RECORDS).map(i -> NUM_RECORDS - 1 - i).toArray();
+        try (AsyncShapeRecordReader reader =
+                Shapefile.openAsyncRecordReader(shpFile, getShxFile(shpFile))) {
+            assertEquals(reader.getNumRecords(), NUM_RECORDS);
+            checkResults(reversed, reader.read(reversed), expected);
+            assertEquals(reader.getReadCount(), 1);
+
+            // Short gaps are read through, but long ones are not
+            int[] every10th = IntStream.range(0, NUM_RECORDS / 10).map(i -> i * 10).toArray();
+            checkResults(every10th, reader.read(every10th), expected);
+            assertEquals(reader.getReadCount(), 2);
+            int[] every50th = {150, 0, 50, 100};
+            checkResults(every50th, reader.read(every50th), expected);
+            assertEquals(reader.getReadCount(), 6);
+
+            assertEquals(reader.read(7).join().recordNumber(), 8);
+            List<CompletableFuture<ShapeRecord>> duplicates = reader.read(3, 9, 3);
+            assertSame(duplicates.get(0), duplicates.get(2));
+            checkResults(new int[] {3, 9, 3}, duplicates, expected);
+
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.read(1, NUM_RECORDS));
+        }
+    }
+
+    @Test
+    public void checkOutstandingLimit() throws IOException {
+        File shpFile = generate(ShapeType.PolyLine, 17L, NUM_RECORDS);
+        List<String> expected = readExpected(shpFile);
+        int[] all = IntStream.range(0, NUM_RECORDS).toArray();
+        try (AsyncShapeRecordReader reader =
+                AsyncShapeRecordReader.open(shpFile, getShxFile(shpFile), 2, 1024)) {
+            List<CompletableFuture<ShapeRecord>> futures = new ArrayList<>();
+            // Several callers at once share the limit
+            for (int pass = 0; pass < 3; pass++) {
+                futures.addAll(reader.read(all));
+            }
+            int[] indexes = IntStream.range(0, 3 * NUM_RECORDS).map(i -> i % NUM_RECORDS).toArray();
+            checkResults(indexes, futures, expected);
+            assertTrue(reader.getReadCount() > 3 * NUM_RECORDS / 10);
+            assertTrue(reader.getPeakOutstandingReads() <= 2);
+        }
+        // Records bigger than the buffer size are read on their own
+        try (AsyncShapeRecordReader reader =
+                AsyncShapeRecordReader.open(shpFile, getShxFile(shpFile), 4, 16)) {
+            checkResults(all, reader.read(all), expected);
+            assertEquals(reader.getReadCount(), NUM_RECORDS);
+        }
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> AsyncShapeRecordReader.open(shpFile, getShxFile(shpFile), 0, 1024));
+    }
+
+    @Test
+    public void checkClosed() throws IOException {
+        File shpFile = generate(ShapeType.PolyLine, 17L, NUM_RECORDS);
+        AsyncShapeRecordReader reader =
+                Shapefile.openAsyncRecordReader(shpFile, getShxFile(shpFile));
+        reader.close();
+        CompletableFuture<ShapeRecord> future = reader.read(0);
+        CompletionException e = expectThrows(CompletionException.class, future::join);
+        assertTrue(e.getCause() instanceof AsynchronousCloseException);
+    }
+}
@@ -0,0 +1,90 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.getResourceFile;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.annotations.Test;
+
+public class DBFColumnReaderTest {
+
+    @Test
+    public void checkAllColumns() throws IOException, URISyntaxException {
+        try (DBFColumnReader reader = DBFColumnReader.open(getResourceFile("simplepoint.dbf"))) {
+            assertEquals(reader.getNumRecords(), 2);
+            assertEquals(reader.getColumns().size(), 2);
+            assertEquals(reader.getColumns().get(0).fieldType(), DBFFieldType.Numeric);
+            DBFColumnBatch batch = reader.readBatch(0, 10);
+            assertEquals(batch.getFirstRecord(), 0);
+            assertEquals(batch.size(), 2);
+            assertFalse(batch.isDeleted(0));
+            assertEquals(batch.getColumn(0).getString(0), "1");
+            assertEquals(batch.getColumn(0).getString(1), "2");
+            assertEquals(batch.getColumn(1).getString(0), "Rockhampton Airport");
+            assertEquals(batch.getColumn(1).getString(1), "Central Queensland University");
+        }
+    }
+
+    @Test
+    public void checkProjection() throws IOException, URISyntaxException {
+        try (DBFColumnReader reader = DBFColumnReader.open(getResourceFile("pointz.dbf"), "NAME")) {
+            assertEquals(reader.getColumns().size(), 1);
+            assertEquals(reader.getColumns().get(0).fieldName(), "Name");
+            DBFColumnBatch batch = reader.readBatch(1, 1);
+            assertEquals(batch.getFirstRecord(), 1);
+            assertEquals(batch.size(), 1);
+            assertEquals(batch.getColumns().size(), 1);
+            assertEquals(batch.getColumn(0).getString(0), "Central Queensland University");
+            assertThrows(IndexOutOfBoundsException.class, () -> batch.getColumn(0).getString(1));
+        }
+    }
+
+    @Test
+    public void checkNoRecords() throws IOException, URISyntaxException {
+        try (DBFColumnReader reader = DBFColumnReader.open(getResourceFile("null.dbf"))) {
+            assertEquals(reader.getNumRecords(), 0);
+            assertEquals(reader.readBatch(0, 100).size(), 0);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void checkUnknownColumn() throws IOException, URISyntaxException {
+        DBFColumnReader.open(getResourceFile("simplepoint.dbf"), "missing").close();
+    }
+
+    @Test
+    public void checkWideTableBatches() throws IOException {
+        List<DBFFieldDefinition> fields = new ArrayList<>();
+        for (int f = 0; f < 60; f++) {
+            fields.add(new DBFFieldDefinition("F" + f, DBFFieldType.Character, 5 + f % 3, 0));
+        }
+        List<String[]> rows = new ArrayList<>();
+        for (int r = 0; r < 25; r++) {
+            String[] row = new String[fields.size()];
+            for (int f = 0; f < row.length; f++) {
+                row[f] = r + "." + f;
+            }
+            rows.add(row);
+        }
+        File file = DBFTestFiles.write(fields, rows, 3, 24);
+        try (DBFColumnReader reader = DBFColumnReader.open(file, "F59", "F7")) {
+            int seen = 0;
+            for (int first = 0; first < reader.getNumRecords(); first += 10) {
+                DBFColumnBatch batch = reader.readBatch(first, 10);
+                assertEquals(batch.size(), Math.min(10, 25 - first));
+                for (int row = 0; row < batch.size(); row++) {
+                    int r = first + row;
+                    assertEquals(batch.isDeleted(row), r == 3 || r == 24);
+                    assertEquals(batch.getColumn(0).getString(row), r + ".59");
+                    assertEquals(batch.getColumn(1).getString(row), r + ".7");
+                    seen++;
+                }
+            }
+            assertEquals(seen, 25);
+        }
+    }
+}
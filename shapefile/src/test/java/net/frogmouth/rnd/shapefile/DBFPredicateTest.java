@@ -0,0 +1,109 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.getResourceFile;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.time.LocalDate;
+import java.util.List;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class DBFPredicateTest {
+
+    private File roads;
+
+    @BeforeClass
+    public void createRoads() throws IOException {
+        List<DBFFieldDefinition> fields =
+                List.of(
+                        new DBFFieldDefinition("ROAD_CLASS", DBFFieldType.Character, 4, 0),
+                        new DBFFieldDefinition("NAME", DBFFieldType.Character, 20, 0),
+                        new DBFFieldDefinition("POP", DBFFieldType.Numeric, 10, 0),
+                        new DBFFieldDefinition("OPENED", DBFFieldType.Date, 8, 0),
+                        new DBFFieldDefinition("TOLL", DBFFieldType.Logical, 1, 0));
+        List<String[]> rows =
+                List.of(
+                        new String[] {"M", "Bruce Highway", "250000", "19650301", "F"},
+                        new String[] {"A", "Capricorn Hwy", "90000", "19701010", "F"},
+                        new String[] {"M", "Gateway Motorway", "1500000", "19860101", "T"},
+                        new String[] {"B", "Bruce Street", "", "", "?"},
+                        new String[] {"M", "Deleted Road", "999999", "20000101", "T"},
+                        new String[] {"MA", "Mount Morgan Rd", "100000", "19991231", "N"});
+        roads = DBFTestFiles.write(fields, rows, 4);
+    }
+
+    private int[] filter(DBFPredicate predicate) throws IOException {
+        try (DBFColumnReader reader = DBFColumnReader.open(roads, "NAME")) {
+            return reader.filter(predicate);
+        }
+    }
+
+    @Test
+    public void checkEquality() throws IOException {
+        assertEquals(filter(DBFPredicate.eq("ROAD_CLASS", "M")), new int[] {0, 2});
+        assertEquals(filter(DBFPredicate.eq("road_class", "MA")), new int[] {5});
+        assertEquals(filter(DBFPredicate.eq("ROAD_CLASS", "X")), new int[0]);
+        assertEquals(filter(DBFPredicate.eq("POP", 90000)), new int[] {1});
+        assertEquals(filter(DBFPredicate.eq("TOLL", true)), new int[] {2});
+        assertEquals(filter(DBFPredicate.eq("TOLL", false)), new int[] {0, 1, 5});
+    }
+
+    @Test
+    public void checkRange() throws IOException {
+        assertEquals(filter(DBFPredicate.greaterThan("POP", 100000)), new int[] {0, 2});
+        assertEquals(filter(DBFPredicate.between("POP", 90000, 100000)), new int[] {1, 5});
+        assertEquals(filter(DBFPredicate.lessThan("POP", 100000)), new int[] {1});
+        assertEquals(
+                filter(
+                        DBFPredicate.between(
+                                "OPENED", LocalDate.of(1970, 1, 1), LocalDate.of(1999, 12, 31))),
+                new int[] {1, 2, 5});
+    }
+
+    @Test
+    public void checkInAndPrefix() throws IOException {
+        assertEquals(filter(DBFPredicate.in("ROAD_CLASS", "A", "B", "MA")), new int[] {1, 3, 5});
+        assertEquals(filter(DBFPredicate.in("POP", 250000, 100000)), new int[] {0, 5});
+        assertEquals(filter(DBFPredicate.prefix("NAME", "Bruce")), new int[] {0, 3});
+        assertEquals(filter(DBFPredicate.prefix("NAME", "Bruce Highway Extra")), new int[0]);
+    }
+
+    @Test
+    public void checkCombined() throws IOException {
+        assertEquals(
+                filter(
+                        DBFPredicate.eq("ROAD_CLASS", "M")
+                                .and(DBFPredicate.greaterThan("POP", 1000000))),
+                new int[] {2});
+        assertEquals(
+                filter(DBFPredicate.eq("ROAD_CLASS", "A").or(DBFPredicate.eq("TOLL", true))),
+                new int[] {1, 2});
+    }
+
+    @Test
+    public void checkWrongType() {
+        assertThrows(
+                IllegalArgumentException.class, () -> filter(DBFPredicate.greaterThan("NAME", 1)));
+        assertThrows(IllegalArgumentException.class, () -> filter(DBFPredicate.eq("POP", true)));
+        assertThrows(IllegalArgumentException.class, () -> filter(DBFPredicate.eq("MISSING", "x")));
+    }
+
+    @Test
+    public void checkDrivesShapefileFetch() throws IOException, URISyntaxException {
+        int[] matches;
+        try (DBFColumnReader reader = DBFColumnReader.open(getResourceFile("simplepoint.dbf"))) {
+            matches = reader.filter(DBFPredicate.prefix("Name", "Central"));
+        }
+        assertEquals(matches, new int[] {1});
+        try (ShapeRecordReader reader =
+                Shapefile.openRecordReader(
+                        getResourceFile("simplepoint.shp"), getResourceFile("simplepoint.shx"))) {
+            List<ShapeRecord> shapeRecords = reader.read(matches);
+            assertEquals(shapeRecords.size(), 1);
+            assertEquals(shapeRecords.get(0).recordNumber(), 2);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.getResourceFile;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.annotations.Test;
+
+public class DBFRecordReaderTest {
+
+    private static File createNumbered(int numRecords, int... deleted) throws IOException {
+        List<DBFFieldDefinition> fields =
+                List.of(
+                        new DBFFieldDefinition("ID", DBFFieldType.Numeric, 10, 0),
+                        new DBFFieldDefinition("LABEL", DBFFieldType.Character, 40, 0));
+        List<String[]> rows = new ArrayList<>();
+        for (int r = 0; r < numRecords; r++) {
+            rows.add(new String[] {Integer.toString(r), "record " + r});
+        }
+        return DBFTestFiles.write(fields, rows, deleted);
+    }
+
+    @Test
+    public void checkSingle() throws IOException, URISyntaxException {
+        try (DBFRecordReader reader =
+                DataBaseFile.openRecordReader(getResourceFile("simplepoint.dbf"))) {
+            assertEquals(reader.getNumRecords(), 2);
+            assertEquals(reader.getColumns().size(), 2);
+            DBFColumnBatch batch = reader.read(1);
+            assertEquals(batch.size(), 1);
+            assertEquals(batch.getRecordIndex(0), 1);
+            assertEquals(batch.getColumn(0).getLong(0), 2L);
+            assertEquals(batch.getColumn(1).getString(0), "Central Queensland University");
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.read(2));
+        }
+    }
+
+    @Test
+    public void checkBatchOrder() throws IOException {
+        File file = createNumbered(1000, 500);
+        try (DBFRecordReader reader = DBFRecordReader.open(file, "LABEL", "ID")) {
+            int[] indexes = {999, 3, 500, 3, 0, 501};
+            DBFColumnBatch batch = reader.read(indexes);
+            assertEquals(batch.size(), indexes.length);
+            for (int row = 0; row < indexes.length; row++) {
+                assertEquals(batch.getRecordIndex(row), indexes[row]);
+                assertEquals(batch.getColumn(0).getString(row), "record " + indexes[row]);
+                assertEquals(batch.getColumn(1).getLong(row), indexes[row]);
+                assertEquals(batch.isDeleted(row), indexes[row] == 500);
+            }
+            assertEquals(reader.read().size(), 0);
+        }
+    }
+
+    @Test
+    public void checkCoalescing() throws IOException {
+        // Each record is 51 bytes, so the gap limit covers about 160 records
+        File file = createNumbered(5000);
+        try (DBFRecordReader reader = DBFRecordReader.open(file, "ID")) {
+            reader.read(10, 11, 12, 13, 14);
+            assertEquals(reader.getReadCount(), 1);
+            reader.read(100, 20, 150);
+            assertEquals(reader.getReadCount(), 2);
+            reader.read(0, 4000);
+            assertEquals(reader.getReadCount(), 4);
+            int[] all = new int[5000];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            DBFColumnBatch batch = reader.read(all);
+            for (int row = 0; row < all.length; row++) {
+                assertEquals(batch.getColumn(0).getLong(row), row);
+            }
+            // 5000 records of 51 bytes fit in a single read
+            assertEquals(reader.getReadCount(), 5);
+        }
+    }
+}
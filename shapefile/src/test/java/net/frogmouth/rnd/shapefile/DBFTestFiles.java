@@ -0,0 +1,71 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/** Builds small DBF files for tests, for the field types the resource files do not cover. */
+final class DBFTestFiles {
+
+    private DBFTestFiles() {}
+
+    /**
+     * Write a DBF file.
+     *
+     * @param fields the field definitions
+     * @param rows the raw field text for each record. Values are padded (numbers on the left, other
+     *     values on the right) to the field width.
+     * @param deleted the records to flag as deleted
+     * @return the temporary file, which is deleted on exit
+     */
+    static File write(List<DBFFieldDefinition> fields, List<String[]> rows, int... deleted)
+            throws IOException {
+        int headerLength = 32 + fields.size() * 32 + 1;
+        int recordLength = 1;
+        for (DBFFieldDefinition field : fields) {
+            recordLength += field.fieldLengthBinary();
+        }
+        ByteBuffer bb =
+                ByteBuffer.allocate(headerLength + rows.size() * recordLength + 1)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+        bb.put((byte) 0x03).put((byte) 124).put((byte) 10).put((byte) 17);
+        bb.putInt(rows.size()).putShort((short) headerLength).putShort((short) recordLength);
+        bb.position(32);
+        for (DBFFieldDefinition field : fields) {
+            int start = bb.position();
+            bb.put(field.fieldName().getBytes(StandardCharsets.US_ASCII));
+            bb.position(start + 11);
+            bb.put(field.fieldType().getEncodedValue());
+            bb.position(start + 16);
+            bb.put((byte) field.fieldLengthBinary()).put((byte) field.fieldDecimalCount());
+            bb.position(start + 32);
+        }
+        bb.put((byte) 0x0D);
+        for (int r = 0; r < rows.size(); r++) {
+            boolean isDeleted = false;
+            for (int d : deleted) {
+                isDeleted |= d == r;
+            }
+            bb.put(isDeleted ? DBFHeader.DELETED_FLAG : DBFHeader.VALID_FLAG);
+            for (int f = 0; f < fields.size(); f++) {
+                DBFFieldDefinition field = fields.get(f);
+                String value = rows.get(r)[f];
+                String padded =
+                        field.fieldType() == DBFFieldType.Numeric
+                                        || field.fieldType() == DBFFieldType.Float
+                                ? String.format("%" + field.fieldLengthBinary() + "s", value)
+                                : String.format("%-" + field.fieldLengthBinary() + "s", value);
+                bb.put(padded.getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        bb.put((byte) 0x1A);
+        File file = Files.createTempFile("jgeovec", ".dbf").toFile();
+        file.deleteOnExit();
+        Files.write(file.toPath(), bb.array());
+        return file;
+    }
+}
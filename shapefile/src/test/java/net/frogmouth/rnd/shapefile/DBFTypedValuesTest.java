@@ -0,0 +1,165 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.getResourceFile;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.List;
+import org.testng.annotations.Test;
+
+public class DBFTypedValuesTest {
+
+    private static ByteBuffer ascii(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static double parseDouble(String text) {
+        return DBFValueParser.parseDouble(ascii(text), 0, text.length());
+    }
+
+    private static long parseUnscaled(String text, int scale) {
+        return DBFValueParser.parseUnscaled(ascii(text), 0, text.length(), scale);
+    }
+
+    private static int parseEpochDay(String text) {
+        return DBFValueParser.parseEpochDay(ascii(text), 0, text.length());
+    }
+
+    @Test
+    public void checkParseDouble() {
+        assertEquals(parseDouble("       1.5"), 1.5);
+        assertEquals(parseDouble("  -12.3400"), -12.34);
+        assertEquals(parseDouble("+0.1      "), 0.1);
+        assertEquals(parseDouble("  0.000005"), 0.000005);
+        assertEquals(parseDouble("        42"), 42.0);
+        assertEquals(parseDouble(" 1.234e+05"), 123400.0);
+        assertEquals(parseDouble("123456789012345678901.5"), 123456789012345678901.5);
+        assertEquals(parseDouble("0.1234567890123456789"), 0.1234567890123456789);
+        // 15 significant digits take the fast path, and 16 go to the JDK parser
+        assertEquals(parseDouble("999999999999.999"), 999999999999.999);
+        assertEquals(parseDouble("9007199254740993"), 9007199254740993.0);
+        assertTrue(Double.isNaN(parseDouble("          ")));
+        assertTrue(Double.isNaN(parseDouble("**********")));
+        assertThrows(NumberFormatException.class, () -> parseDouble("   1.2.3"));
+        assertThrows(NumberFormatException.class, () -> parseDouble("  12 34"));
+        assertThrows(NumberFormatException.class, () -> parseDouble("     -"));
+    }
+
+    @Test
+    public void checkParseDoubleMatchesJdk() {
+        String[] values = {"3.14159", "-0.3", "100.01", "9007199254740.993", "0.07", "1.0000001"};
+        for (String value : values) {
+            assertEquals(parseDouble(value), Double.parseDouble(value), value);
+        }
+    }
+
+    @Test
+    public void checkParseUnscaled() {
+        assertEquals(parseUnscaled("      1234", 0), 1234L);
+        assertEquals(parseUnscaled("     -12.5", 0), -12L);
+        assertEquals(parseUnscaled("     -12.5", 2), -1250L);
+        assertEquals(parseUnscaled("   12.3456", 2), 1234L);
+        assertEquals(parseUnscaled("          ", 2), 0L);
+        assertEquals(parseUnscaled("9223372036854775807", 0), Long.MAX_VALUE);
+        assertThrows(NumberFormatException.class, () -> parseUnscaled("9223372036854775808", 0));
+        assertThrows(NumberFormatException.class, () -> parseUnscaled("       abc", 0));
+    }
+
+    @Test
+    public void checkParseEpochDay() {
+        assertEquals(parseEpochDay("19700101"), 0);
+        assertEquals(parseEpochDay("20240229"), LocalDate.of(2024, 2, 29).toEpochDay());
+        assertEquals(parseEpochDay("16000301"), LocalDate.of(1600, 3, 1).toEpochDay());
+        assertEquals(parseEpochDay("19691231"), -1);
+        assertEquals(parseEpochDay("        "), DBFColumn.NULL_DATE);
+        assertEquals(parseEpochDay("00000000"), DBFColumn.NULL_DATE);
+        assertThrows(DateTimeException.class, () -> parseEpochDay("20230229"));
+        assertThrows(DateTimeException.class, () -> parseEpochDay("2023-1-1"));
+    }
+
+    @Test
+    public void checkEpochDayMatchesLocalDate() {
+        for (LocalDate date = LocalDate.of(1899, 12, 1);
+                date.isBefore(LocalDate.of(2101, 2, 1));
+                date = date.plusDays(13)) {
+            assertEquals(
+                    DBFValueParser.epochDay(
+                            date.getYear(), date.getMonthValue(), date.getDayOfMonth()),
+                    date.toEpochDay());
+        }
+    }
+
+    @Test
+    public void checkTypedColumns() throws IOException {
+        List<DBFFieldDefinition> fields =
+                List.of(
+                        new DBFFieldDefinition("POP", DBFFieldType.Numeric, 10, 0),
+                        new DBFFieldDefinition("AREA", DBFFieldType.Numeric, 12, 3),
+                        new DBFFieldDefinition("RATIO", DBFFieldType.Float, 19, 11),
+                        new DBFFieldDefinition("SURVEYED", DBFFieldType.Date, 8, 0),
+                        new DBFFieldDefinition("ACTIVE", DBFFieldType.Logical, 1, 0));
+        List<String[]> rows =
+                List.of(
+                        new String[] {"123456", "1234.567", "5.00000000000e-01", "20200115", "T"},
+                        new String[] {"", "-0.5", "", "", "?"},
+                        new String[] {"***", "7", "1.25", "19991231", "n"});
+        File file = DBFTestFiles.write(fields, rows);
+        try (DBFColumnReader reader = DBFColumnReader.open(file)) {
+            DBFColumnBatch batch = reader.readBatch(0, rows.size());
+            DBFColumn pop = batch.getColumn(0);
+            DBFColumn area = batch.getColumn(1);
+            DBFColumn ratio = batch.getColumn(2);
+            DBFColumn surveyed = batch.getColumn(3);
+            DBFColumn active = batch.getColumn(4);
+
+            assertEquals(pop.getLong(0), 123456L);
+            assertEquals(pop.getDouble(0), 123456.0);
+            assertTrue(pop.isNull(1));
+            assertEquals(pop.getLong(1), 0L);
+            assertTrue(pop.isNull(2));
+            assertTrue(Double.isNaN(pop.getDouble(2)));
+
+            assertEquals(area.getDouble(0), 1234.567);
+            assertEquals(area.getLong(0), 1234L);
+            assertEquals(area.getUnscaledLong(0), 1234567L);
+            assertEquals(area.getUnscaledLong(1), -500L);
+            assertEquals(area.getUnscaledLong(2), 7000L);
+
+            assertEquals(ratio.getDouble(0), 0.5);
+            assertTrue(ratio.isNull(1));
+            assertEquals(ratio.getDouble(2), 1.25);
+
+            assertEquals(LocalDate.ofEpochDay(surveyed.getEpochDay(0)), LocalDate.of(2020, 1, 15));
+            assertTrue(surveyed.isNull(1));
+            assertEquals(surveyed.getEpochDay(1), DBFColumn.NULL_DATE);
+            assertEquals(LocalDate.ofEpochDay(surveyed.getEpochDay(2)), LocalDate.of(1999, 12, 31));
+
+            assertEquals(active.getLogical(0), Boolean.TRUE);
+            assertTrue(active.getBoolean(0));
+            assertNull(active.getLogical(1));
+            assertTrue(active.isNull(1));
+            assertFalse(active.getBoolean(1));
+            assertEquals(active.getLogical(2), Boolean.FALSE);
+
+            assertThrows(IllegalStateException.class, () -> active.getLong(0));
+            assertThrows(IllegalStateException.class, () -> pop.getEpochDay(0));
+            assertThrows(IllegalStateException.class, () -> pop.getLogical(0));
+        }
+    }
+
+    @Test
+    public void checkResourceNumeric() throws IOException, URISyntaxException {
+        try (DBFColumnReader reader =
+                DBFColumnReader.open(getResourceFile("simplepoint.dbf"), "id")) {
+            DBFColumnBatch batch = reader.readBatch(0, 2);
+            assertEquals(batch.getColumn(0).getLong(0), 1L);
+            assertEquals(batch.getColumn(0).getLong(1), 2L);
+        }
+    }
+}
@@ -2,7 +2,10 @@ package net.frogmouth.rnd.shapefile;
 
 import static org.testng.Assert.*;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
 import java.util.List;
 import org.testng.annotations.Test;
 
@@ -20,4 +23,26 @@ public class DataBaseFileTest {
         assertEquals(fieldDefs.get(0).fieldName(), "id");
         assertEquals(fieldDefs.get(1).fieldName(), "Name");
     }
+
+    @Test
+    public void checkOnlyDeletedFlagSkips() throws IOException {
+        List<DBFFieldDefinition> fields =
+                List.of(new DBFFieldDefinition("NAME", DBFFieldType.Character, 8, 0));
+        List<String[]> rows = List.of(new String[] {"a"}, new String[] {"b"}, new String[] {"c"});
+        File file = DBFTestFiles.write(fields, rows, 2);
+        // Some writers leave the flag of a valid record as zero
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(32 + 32 + 1 + 9);
+            raf.writeByte(0);
+        }
+        List<ReadMetrics> metrics = new ArrayList<>();
+        DataBaseFile.fromFile(file, metrics::add);
+        ReadMetrics decode = metrics.get(metrics.size() - 1);
+        assertEquals(decode.phase(), ReadPhase.Decode);
+        assertEquals(decode.recordsRead(), 2);
+        assertEquals(decode.recordsSkipped(), 1);
+        try (DBFColumnReader reader = DBFColumnReader.open(file, "NAME")) {
+            assertEquals(reader.filter(DBFPredicate.in("NAME", "a", "b", "c")), new int[] {0, 1});
+        }
+    }
 }
@@ -0,0 +1,130 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.getResourceFile;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.testng.annotations.Test;
+
+public class HilbertRTreeTest {
+
+    private static File createTempIndexFile() throws IOException {
+        File indexFile =
+                Files.createTempFile("jgeovec", "." + HilbertRTree.FILE_EXTENSION).toFile();
+        indexFile.deleteOnExit();
+        return indexFile;
+    }
+
+    @Test
+    public void checkIndexFileName() {
+        File indexFile = HilbertRTree.getIndexFile(new File("/data/roads.shp"));
+        assertEquals(indexFile, new File("/data/roads.hrt"));
+    }
+
+    @Test
+    public void checkHilbertDistinct() {
+        assertEquals(HilbertRTree.hilbert(0, 0), 0);
+        Set<Integer> values = new HashSet<>();
+        for (int x = 0; x < 64; x++) {
+            for (int y = 0; y < 64; y++) {
+                values.add(HilbertRTree.hilbert(x, y));
+            }
+        }
+        assertEquals(values.size(), 64 * 64);
+    }
+
+    @Test
+    public void checkPoint() throws IOException, URISyntaxException {
+        File indexFile = createTempIndexFile();
+        HilbertRTree.build(
+                getResourceFile("simplepoint.shp"), getResourceFile("simplepoint.shx"), indexFile);
+        try (HilbertRTree uut = HilbertRTree.open(indexFile)) {
+            assertEquals(uut.getNumItems(), 2);
+            assertEquals(uut.getNodeSize(), HilbertRTree.DEFAULT_NODE_SIZE);
+            List<Long> offsets = new ArrayList<>();
+            uut.query(
+                    new Box(150.51, -23.33, 150.52, -23.31),
+                    (recordIndex, offset) -> {
+                        assertEquals(recordIndex, 1);
+                        offsets.add(offset);
+                    });
+            assertEquals(offsets, List.of(128L));
+            List<Integer> all = new ArrayList<>();
+            uut.query(
+                    new Box(150.0, -24.0, 151.0, -23.0),
+                    (recordIndex, offset) -> all.add(recordIndex));
+            assertEquals(all.size(), 2);
+            uut.query(new Box(0.0, 0.0, 1.0, 1.0), (recordIndex, offset) -> fail());
+        }
+    }
+
+    @Test
+    public void checkNullShapesExcluded() throws IOException, URISyntaxException {
+        File indexFile = createTempIndexFile();
+        HilbertRTree.build(getResourceFile("null.shp"), getResourceFile("null.shx"), indexFile);
+        try (HilbertRTree uut = HilbertRTree.open(indexFile)) {
+            assertEquals(uut.getNumItems(), 0);
+            uut.query(new Box(-1.0, -1.0, 1.0, 1.0), (recordIndex, offset) -> fail());
+        }
+    }
+
+    @Test
+    public void checkRandomAgainstScan() throws IOException {
+        Random random = new Random(42);
+        int n = 5000;
+        double[] bounds = new double[n * 4];
+        int[] offsets = new int[n];
+        for (int i = 0; i < n; i++) {
+            offsets[i] = 50 + i * 10;
+            if (i % 100 == 7) {
+                for (int j = 0; j < 4; j++) {
+                    bounds[i * 4 + j] = Double.NaN;
+                }
+                continue;
+            }
+            double x = random.nextDouble() * 360.0 - 180.0;
+            double y = random.nextDouble() * 180.0 - 90.0;
+            bounds[i * 4] = x;
+            bounds[i * 4 + 1] = y;
+            bounds[i * 4 + 2] = x + random.nextDouble() * 2.0;
+            bounds[i * 4 + 3] = y + random.nextDouble() * 2.0;
+        }
+        Path indexPath = createTempIndexFile().toPath();
+        HilbertRTree.write(indexPath, bounds, offsets, 4);
+        try (HilbertRTree uut = HilbertRTree.open(indexPath.toFile())) {
+            assertEquals(uut.getNumItems(), n - 50);
+            for (int q = 0; q < 50; q++) {
+                double x = random.nextDouble() * 360.0 - 180.0;
+                double y = random.nextDouble() * 180.0 - 90.0;
+                Box window = new Box(x, y, x + 20.0, y + 10.0);
+                Set<Integer> expected = new HashSet<>();
+                for (int i = 0; i < n; i++) {
+                    if (window.intersects(
+                            bounds[i * 4],
+                            bounds[i * 4 + 1],
+                            bounds[i * 4 + 2],
+                            bounds[i * 4 + 3])) {
+                        expected.add(i);
+                    }
+                }
+                Set<Integer> actual = new HashSet<>();
+                uut.query(
+                        window,
+                        (recordIndex, offset) -> {
+                            assertEquals(offset, (50L + recordIndex * 10L) * 2);
+                            assertTrue(actual.add(recordIndex));
+                        });
+                assertEquals(actual, expected);
+            }
+        }
+    }
+}
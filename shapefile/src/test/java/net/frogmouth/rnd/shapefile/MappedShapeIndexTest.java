@@ -0,0 +1,79 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.createTempShapefile;
+import static net.frogmouth.rnd.shapefile.TestResources.getResourceFile;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import org.testng.annotations.Test;
+
+public class MappedShapeIndexTest {
+
+    @Test
+    public void checkPoint() throws IOException, URISyntaxException {
+        MappedShapeIndex shapeIndex = MappedShapeIndex.open(getResourceFile("simplepoint.shx"));
+        FileHeader fileHeader = shapeIndex.getFileHeader();
+        assertEquals(fileHeader.getShapeType(), ShapeType.Point);
+        assertEquals(fileHeader.getMaxX(), 150.519745, 0.000001);
+        assertEquals(shapeIndex.size(), 2);
+        assertEquals(shapeIndex.offset(0), 100);
+        assertEquals(shapeIndex.contentLength(0), 20);
+        assertEquals(shapeIndex.offset(1), 128);
+        assertEquals(shapeIndex.contentLength(1), 20);
+        assertThrows(IndexOutOfBoundsException.class, () -> shapeIndex.offset(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> shapeIndex.contentLength(-1));
+
+        // Each copy of the header is separate
+        fileHeader.setShapeType(ShapeType.PolyLine);
+        assertEquals(shapeIndex.getFileHeader().getShapeType(), ShapeType.Point);
+    }
+
+    @Test
+    public void checkSameAsShapeIndex() throws IOException {
+        int numRecords = 1000;
+        ShapefileGenerator generator = new ShapefileGenerator(ShapeType.PolygonM, 19L);
+        generator.setVerticesPerPart(5);
+        generator.setPartsPerRecord(2);
+        File shpFile = createTempShapefile();
+        generator.generate(shpFile, numRecords);
+        File shxFile = ShapefileDataset.getSiblingFile(shpFile, "shx");
+
+        ShapeIndex shapeIndex = ShapeIndex.fromFile(shxFile);
+        MappedShapeIndex mapped = MappedShapeIndex.open(shxFile);
+        List<IndexRecord> indexRecords = shapeIndex.getIndexRecords();
+        assertEquals(mapped.size(), numRecords);
+        assertEquals(shapeIndex.size(), numRecords);
+        for (int i = 0; i < numRecords; i++) {
+            assertEquals(mapped.offset(i), indexRecords.get(i).byteOffset());
+            assertEquals(mapped.contentLength(i), indexRecords.get(i).contentLength());
+            assertEquals(shapeIndex.offset(i), mapped.offset(i));
+            assertEquals(shapeIndex.contentLength(i), mapped.contentLength(i));
+        }
+        assertEquals(mapped.getFileHeader().getFileLength(), shxFile.length());
+        assertEquals(mapped.getFileHeader().getMinX(), shapeIndex.getFileHeader().getMinX());
+    }
+
+    @Test
+    public void checkLargeAndTruncated() throws IOException, URISyntaxException {
+        byte[] shx = Files.readAllBytes(getResourceFile("simplepoint.shx").toPath());
+        // Offsets beyond 2^31 words are unsigned
+        ByteBuffer.wrap(shx).putInt(FileHeader.BYTES, 0x80000000);
+        File file = Files.createTempFile("jgeovec", ".shx").toFile();
+        file.deleteOnExit();
+        Files.write(file.toPath(), shx);
+        MappedShapeIndex shapeIndex = MappedShapeIndex.open(file);
+        assertEquals(shapeIndex.offset(0), 1L << 32);
+        assertEquals(shapeIndex.offset(1), 128);
+
+        Files.write(file.toPath(), Arrays.copyOf(shx, shx.length - 4));
+        assertThrows(IOException.class, () -> MappedShapeIndex.open(file));
+        Files.write(file.toPath(), Arrays.copyOf(shx, FileHeader.BYTES - 1));
+        assertThrows(IOException.class, () -> MappedShapeIndex.open(file));
+    }
+}
@@ -0,0 +1,192 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.createTempShapefile;
+import static net.frogmouth.rnd.shapefile.TestResources.getResourceFile;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.testng.annotations.Test;
+
+public class QuadTreeIndexTest {
+
+    private static File createTempIndexFile() throws IOException {
+        File indexFile =
+                Files.createTempFile("jgeovec", "." + QuadTreeIndex.FILE_EXTENSION).toFile();
+        indexFile.deleteOnExit();
+        return indexFile;
+    }
+
+    @Test
+    public void checkIndexFileName() {
+        File indexFile = QuadTreeIndex.getIndexFile(new File("/data/roads.shp"));
+        assertEquals(indexFile, new File("/data/roads.qix"));
+    }
+
+    @Test
+    public void checkDefaultDepth() {
+        assertEquals(QuadTreeIndex.getDefaultDepth(0), 0);
+        assertEquals(QuadTreeIndex.getDefaultDepth(4), 0);
+        assertEquals(QuadTreeIndex.getDefaultDepth(5), 1);
+        assertEquals(QuadTreeIndex.getDefaultDepth(10000), 12);
+        assertEquals(QuadTreeIndex.getDefaultDepth(Integer.MAX_VALUE), 12);
+    }
+
+    @Test
+    public void checkPoint() throws IOException, URISyntaxException {
+        File indexFile = createTempIndexFile();
+        QuadTreeIndex.build(
+                getResourceFile("simplepoint.shp"),
+                getResourceFile("simplepoint.shx"),
+                indexFile,
+                4);
+        byte[] header = Files.readAllBytes(indexFile.toPath());
+        assertEquals(new String(header, 0, 3, "US-ASCII"), "SQT");
+        assertEquals(header[3], 1);
+        try (QuadTreeIndex uut = QuadTreeIndex.open(indexFile)) {
+            assertEquals(uut.getNumShapes(), 2);
+            assertEquals(uut.getMaxDepth(), 4);
+            assertEquals(uut.query(new Box(150.0, -24.0, 151.0, -23.0)), new int[] {0, 1});
+            assertEquals(uut.query(new Box(0.0, 0.0, 1.0, 1.0)), new int[0]);
+        }
+    }
+
+    @Test
+    public void checkNullShapesExcluded() throws IOException, URISyntaxException {
+        File indexFile = createTempIndexFile();
+        QuadTreeIndex.build(getResourceFile("null.shp"), getResourceFile("null.shx"), indexFile);
+        try (QuadTreeIndex uut = QuadTreeIndex.open(indexFile)) {
+            assertEquals(uut.getNumShapes(), 1);
+            assertEquals(uut.query(new Box(-1.0, -1.0, 1.0, 1.0)), new int[0]);
+        }
+    }
+
+    @Test
+    public void checkRandomLittleEndian() throws IOException {
+        checkRandomAgainstScan(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Test
+    public void checkRandomBigEndian() throws IOException {
+        checkRandomAgainstScan(ByteOrder.BIG_ENDIAN);
+    }
+
+    private void checkRandomAgainstScan(ByteOrder byteOrder) throws IOException {
+        Random random = new Random(42);
+        int n = 5000;
+        double[] bounds = new double[n * 4];
+        for (int i = 0; i < n; i++) {
+            if (i % 100 == 7) {
+                for (int j = 0; j < 4; j++) {
+                    bounds[i * 4 + j] = Double.NaN;
+                }
+                continue;
+            }
+            double x = random.nextDouble() * 360.0 - 180.0;
+            double y = random.nextDouble() * 180.0 - 90.0;
+            bounds[i * 4] = x;
+            bounds[i * 4 + 1] = y;
+            bounds[i * 4 + 2] = x + random.nextDouble() * 2.0;
+            bounds[i * 4 + 3] = y + random.nextDouble() * 2.0;
+        }
+        Path indexPath = createTempIndexFile().toPath();
+        QuadTreeIndex.write(indexPath, bounds, 0, byteOrder);
+        try (QuadTreeIndex uut = QuadTreeIndex.open(indexPath.toFile())) {
+            assertEquals(uut.getNumShapes(), n);
+            assertEquals(uut.getMaxDepth(), QuadTreeIndex.getDefaultDepth(n));
+            for (int q = 0; q < 50; q++) {
+                double x = random.nextDouble() * 360.0 - 180.0;
+                double y = random.nextDouble() * 180.0 - 90.0;
+                Box window = new Box(x, y, x + 20.0, y + 10.0);
+                Set<Integer> expected = new HashSet<>();
+                for (int i = 0; i < n; i++) {
+                    if (window.intersects(
+                            bounds[i * 4],
+                            bounds[i * 4 + 1],
+                            bounds[i * 4 + 2],
+                            bounds[i * 4 + 3])) {
+                        expected.add(i);
+                    }
+                }
+                int[] candidates = uut.query(window);
+                Set<Integer> actual = new HashSet<>();
+                for (int i = 0; i < candidates.length; i++) {
+                    assertTrue(i == 0 || candidates[i - 1] < candidates[i]);
+                    assertTrue(actual.add(candidates[i]));
+                }
+                assertTrue(actual.containsAll(expected));
+                // The index should prune most of the records
+                assertTrue(actual.size() < n / 4);
+            }
+        }
+    }
+
+    @Test
+    public void checkShapefileQueryWithIndex() throws IOException, URISyntaxException {
+        Path dir = Files.createTempDirectory("jgeovec");
+        dir.toFile().deleteOnExit();
+        File shpFile = dir.resolve("simplepoint.shp").toFile();
+        File shxFile = dir.resolve("simplepoint.shx").toFile();
+        Files.copy(getResourceFile("simplepoint.shp").toPath(), shpFile.toPath());
+        Files.copy(getResourceFile("simplepoint.shx").toPath(), shxFile.toPath());
+        shpFile.deleteOnExit();
+        shxFile.deleteOnExit();
+        Box window = new Box(150.51, -23.33, 150.52, -23.31);
+        List<ShapeRecord> scanned = new ArrayList<>();
+        Shapefile.query(shpFile, shxFile, window, scanned::add);
+        File indexFile = QuadTreeIndex.getIndexFile(shpFile);
+        indexFile.deleteOnExit();
+        QuadTreeIndex.build(shpFile, shxFile, indexFile);
+        List<ShapeRecord> indexed = new ArrayList<>();
+        Shapefile shapefile = Shapefile.query(shpFile, shxFile, window, indexed::add);
+        assertEquals(shapefile.getFileHeader().getShapeType(), ShapeType.Point);
+        assertEquals(scanned.size(), 1);
+        assertEquals(indexed, scanned);
+        assertEquals(indexed.get(0).recordNumber(), 2);
+    }
+
+    @Test
+    public void checkShapefileQueryWithStaleIndex() throws IOException {
+        ShapefileGenerator generator = new ShapefileGenerator(ShapeType.Point, 5L);
+        File shpFile = createTempShapefile();
+        File shxFile = ShapefileDataset.getSiblingFile(shpFile, "shx");
+        generator.generate(shpFile, 50);
+        File qixFile = QuadTreeIndex.getIndexFile(shpFile);
+        File hilbertFile = HilbertRTree.getIndexFile(shpFile);
+        qixFile.deleteOnExit();
+        hilbertFile.deleteOnExit();
+        QuadTreeIndex.build(shpFile, shxFile, qixFile);
+        Box window = new Box(-180.0, -90.0, 180.0, 90.0);
+        List<ShapeRecord> indexed = new ArrayList<>();
+        Shapefile.query(shpFile, shxFile, window, indexed::add);
+        assertEquals(indexed.size(), 50);
+
+        // Replace the data, leaving the index behind with a newer time stamp
+        generator.generate(shpFile, 80);
+        long now = System.currentTimeMillis();
+        assertTrue(qixFile.setLastModified(now + 60_000));
+        List<ShapeRecord> scanned = new ArrayList<>();
+        Shapefile.query(shpFile, shxFile, window, scanned::add);
+        assertEquals(scanned.size(), 80);
+
+        // An index that is older than the data is not used either
+        HilbertRTree.build(shpFile, shxFile, hilbertFile);
+        generator.generate(shpFile, 50);
+        assertTrue(hilbertFile.setLastModified(now - 60_000));
+        scanned.clear();
+        Shapefile.query(shpFile, shxFile, window, scanned::add);
+        assertEquals(scanned.size(), 50);
+        List<ShapeRecord> rescanned = new ArrayList<>();
+        Shapefile.query(shpFile, window, rescanned::add);
+        assertEquals(scanned, rescanned);
+    }
+}
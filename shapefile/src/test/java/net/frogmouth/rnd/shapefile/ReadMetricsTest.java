@@ -0,0 +1,144 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.createTempShapefile;
+import static net.frogmouth.rnd.shapefile.TestResources.generate;
+import static net.frogmouth.rnd.shapefile.TestResources.getResourceFile;
+import static net.frogmouth.rnd.shapefile.TestResources.getShxFile;
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.testng.annotations.Test;
+
+public class ReadMetricsTest {
+
+    @Test
+    public void checkShapefilePhases() throws IOException, URISyntaxException {
+        File file = getResourceFile("pointz.shp");
+        List<ReadMetrics> metrics = new ArrayList<>();
+        List<ShapeRecord> shapeRecords = new ArrayList<>();
+        Shapefile.fromFile(file, shapeRecords::add, metrics::add);
+        assertEquals(metrics.size(), 3);
+        assertEquals(metrics.get(0).phase(), ReadPhase.Open);
+        ReadMetrics header = metrics.get(1);
+        assertEquals(header.phase(), ReadPhase.Header);
+        assertEquals(header.bytesRead(), FileHeader.BYTES);
+        ReadMetrics decode = metrics.get(2);
+        assertEquals(decode.fileType(), "shp");
+        assertEquals(decode.phase(), ReadPhase.Decode);
+        assertEquals(decode.recordsRead(), shapeRecords.size());
+        assertEquals(decode.recordsSkipped(), 0);
+        assertEquals(decode.bytesRead(), file.length() - FileHeader.BYTES);
+        assertEquals(
+                decode.recordsByShapeType(), Map.of(ShapeType.PointZ, (long) shapeRecords.size()));
+        for (ReadMetrics phase : metrics) {
+            assertTrue(phase.nanos() >= 0);
+            assertTrue(phase.allocatedBytes() >= -1);
+        }
+
+        // The mapped reader reports the same records
+        List<ReadMetrics> mapped = new ArrayList<>();
+        Shapefile.fromFileMapped(file, shapeRecord -> {}, mapped::add);
+        assertEquals(mapped.get(2).recordsByShapeType(), decode.recordsByShapeType());
+        assertEquals(mapped.get(2).bytesRead(), decode.bytesRead());
+    }
+
+    @Test
+    public void checkQuerySkipped() throws IOException {
+        int numRecords = 500;
+        File shpFile = generate(ShapeType.PolyLine, 5L, numRecords);
+        List<ReadMetrics> metrics = new ArrayList<>();
+        List<ShapeRecord> matches = new ArrayList<>();
+        Shapefile.query(shpFile, new Box(-180, -90, 0, 0), matches::add, metrics::add);
+        ReadMetrics decode = metrics.get(metrics.size() - 1);
+        assertEquals(decode.phase(), ReadPhase.Decode);
+        assertEquals(decode.recordsRead(), matches.size());
+        assertTrue(decode.recordsSkipped() > 0);
+        assertEquals(decode.recordsRead() + decode.recordsSkipped(), numRecords);
+    }
+
+    @Test
+    public void checkIndexAndDataBaseFile() throws IOException {
+        int numRecords = 300;
+        ShapefileGenerator generator = new ShapefileGenerator(ShapeType.PolyLine, 5L);
+        generator.setDeletedRatio(0.3);
+        File shpFile = createTempShapefile();
+        generator.generate(shpFile, numRecords);
+        List<ReadMetrics> metrics = new ArrayList<>();
+        ShapeIndex.fromFile(getShxFile(shpFile), metrics::add);
+        ReadMetrics indexDecode = metrics.get(2);
+        assertEquals(indexDecode.fileType(), "shx");
+        assertEquals(indexDecode.recordsRead(), numRecords);
+        assertEquals(indexDecode.bytesRead(), numRecords * 8L);
+        assertTrue(indexDecode.recordsByShapeType().isEmpty());
+
+        metrics.clear();
+        PrintStream out = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        DataBaseFile dataBaseFile;
+        try {
+            System.setOut(new PrintStream(captured));
+            dataBaseFile =
+                    DataBaseFile.fromFile(
+                            ShapefileDataset.getSiblingFile(shpFile, "dbf"), metrics::add);
+        } finally {
+            System.setOut(out);
+        }
+        assertEquals(captured.size(), 0);
+        ReadMetrics dbfDecode = metrics.get(2);
+        assertEquals(dbfDecode.fileType(), "dbf");
+        assertTrue(dbfDecode.recordsSkipped() > 0);
+        assertEquals(dbfDecode.recordsRead() + dbfDecode.recordsSkipped(), numRecords);
+        assertEquals(dataBaseFile.getFieldDefinitions().size(), 5);
+    }
+
+    @Test
+    public void checkFlightRecorderEvents() throws IOException {
+        int numRecords = 3 * ReadRecorder.BATCH_SIZE + 10;
+        File shpFile = generate(ShapeType.PolyLine, 5L, numRecords);
+        Path dump = Files.createTempFile("jgeovec", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("net.frogmouth.rnd.shapefile.FileOpen");
+            recording.enable("net.frogmouth.rnd.shapefile.HeaderParse");
+            recording.enable("net.frogmouth.rnd.shapefile.BatchDecode");
+            recording.start();
+            Shapefile.fromFile(shpFile, shapeRecord -> {});
+            recording.stop();
+            recording.dump(dump);
+        }
+        int opens = 0;
+        int headers = 0;
+        int batches = 0;
+        long recordsRead = 0;
+        for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+            switch (event.getEventType().getName()) {
+                case "net.frogmouth.rnd.shapefile.FileOpen" -> {
+                    opens++;
+                    assertEquals(event.getString("path"), shpFile.getPath());
+                }
+                case "net.frogmouth.rnd.shapefile.HeaderParse" -> headers++;
+                case "net.frogmouth.rnd.shapefile.BatchDecode" -> {
+                    batches++;
+                    recordsRead += event.getLong("recordsRead");
+                }
+                default -> {}
+            }
+        }
+        Files.delete(dump);
+        assertEquals(opens, 1);
+        assertEquals(headers, 1);
+        assertEquals(batches, 4);
+        assertEquals(recordsRead, numRecords);
+    }
+}
@@ -0,0 +1,119 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.generate;
+import static net.frogmouth.rnd.shapefile.TestResources.getShxFile;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.testng.annotations.Test;
+
+public class ShapeRecordCacheTest {
+
+    private static ShapeRecordReader openReader(File shpFile) throws IOException {
+        return Shapefile.openRecordReader(shpFile, getShxFile(shpFile));
+    }
+
+    @Test
+    public void checkHitsAndMisses() throws IOException {
+        File shpFile = generate(ShapeType.PolyLine, 9L, 20);
+        ShapeRecordCache cache = new ShapeRecordCache(1 << 20);
+        try (ShapeRecordReader reader = openReader(shpFile);
+                ShapeRecordReader other = openReader(shpFile)) {
+            ShapeRecord first = cache.read(reader, 3);
+            assertEquals(first.recordNumber(), 4);
+            assertEquals(cache.getMisses(), 1);
+            assertEquals(cache.getHits(), 0);
+
+            // Readers on the same file share the entries
+            assertSame(cache.read(reader, 3), first);
+            assertSame(cache.read(other, 3), first);
+            assertEquals(cache.getHits(), 2);
+            assertEquals(cache.getEntryCount(), 1);
+            long weight = ShapeRecordCache.ENTRY_OVERHEAD + reader.getContentLength(3);
+            assertEquals(cache.getWeightedSize(), weight);
+
+            assertThrows(IndexOutOfBoundsException.class, () -> cache.read(reader, 20));
+            cache.invalidate(other);
+            assertEquals(cache.getEntryCount(), 0);
+            assertEquals(cache.getWeightedSize(), 0);
+            assertNotSame(cache.read(reader, 3), first);
+            assertEquals(cache.getMisses(), 2);
+            assertEquals(cache.getEvictions(), 0);
+        }
+    }
+
+    @Test
+    public void checkByteBudget() throws IOException {
+        File shpFile = generate(ShapeType.PolyLine, 9L, 20);
+        try (ShapeRecordReader reader = openReader(shpFile)) {
+            long weight = ShapeRecordCache.ENTRY_OVERHEAD + reader.getContentLength(0);
+            ShapeRecordCache cache = new ShapeRecordCache(3 * weight);
+            for (int i = 0; i < 3; i++) {
+                cache.read(reader, i);
+            }
+            assertEquals(cache.getEvictions(), 0);
+            // Touch record 0, so that record 1 is the least recently used
+            cache.read(reader, 0);
+            cache.read(reader, 3);
+            assertEquals(cache.getEvictions(), 1);
+            assertEquals(cache.getEntryCount(), 3);
+            assertTrue(cache.getWeightedSize() <= cache.getMaxBytes());
+            long misses = cache.getMisses();
+            cache.read(reader, 0);
+            assertEquals(cache.getMisses(), misses);
+            cache.read(reader, 1);
+            assertEquals(cache.getMisses(), misses + 1);
+
+            // Records bigger than the whole budget are not cached
+            ShapeRecordCache tiny = new ShapeRecordCache(weight - 1);
+            assertNotNull(tiny.read(reader, 0));
+            assertEquals(tiny.getEntryCount(), 0);
+            assertEquals(tiny.getEvictions(), 0);
+            cache.clear();
+            assertEquals(cache.getWeightedSize(), 0);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new ShapeRecordCache(-1));
+    }
+
+    @Test
+    public void checkConcurrentReaders() throws Exception {
+        int numRecords = 200;
+        File shpFile = generate(ShapeType.PolyLine, 9L, numRecords);
+        ShapeRecordCache cache = new ShapeRecordCache(1 << 20);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(
+                        executor.submit(
+                                () -> {
+                                    int count = 0;
+                                    try (ShapeRecordReader reader = openReader(shpFile)) {
+                                        for (int pass = 0; pass < 5; pass++) {
+                                            for (int i = 0; i < numRecords; i++) {
+                                                ShapeRecord record = cache.read(reader, i);
+                                                assertEquals(record.recordNumber(), i + 1);
+                                                count++;
+                                            }
+                                        }
+                                    }
+                                    return count;
+                                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(result.get().intValue(), 5 * numRecords);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(cache.getHits() + cache.getMisses(), 4 * 5 * numRecords);
+        assertTrue(cache.getMisses() >= numRecords);
+        assertEquals(cache.getEntryCount(), numRecords);
+    }
+}
@@ -0,0 +1,76 @@
+package net.frogmouth.rnd.shapefile;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import net.frogmouth.rnd.simplefeaturesaccess.LineString;
+import net.frogmouth.rnd.simplefeaturesaccess.Point;
+import org.testng.annotations.Test;
+
+public class ShapeRecordIteratorTest {
+
+    @Test
+    public void checkIterator() throws IOException {
+        ClassLoader classloader = Thread.currentThread().getContextClassLoader();
+        try (ShapeRecordIterator iterator =
+                Shapefile.iterator(classloader.getResourceAsStream("simplepoint.shp"))) {
+            assertEquals(iterator.getFileHeader().getShapeType(), ShapeType.Point);
+            assertTrue(iterator.hasNext());
+            ShapeRecord first = iterator.next();
+            assertEquals(first.recordNumber(), 1);
+            assertEquals(((Point) first.geometry()).x(), 150.473999, 0.000001);
+            assertTrue(iterator.hasNext());
+            ShapeRecord second = iterator.next();
+            assertEquals(second.recordNumber(), 2);
+            assertEquals(((Point) second.geometry()).y(), -23.319978, 0.000001);
+            assertFalse(iterator.hasNext());
+            assertThrows(NoSuchElementException.class, iterator::next);
+        }
+    }
+
+    @Test
+    public void checkVisitor() throws IOException, URISyntaxException {
+        ClassLoader classloader = Thread.currentThread().getContextClassLoader();
+        List<ShapeRecord> shapeRecords = new ArrayList<>();
+        Shapefile shapefile =
+                Shapefile.fromInputStream(
+                        classloader.getResourceAsStream("linestringm.shp"), shapeRecords::add);
+        assertEquals(shapefile.getFileHeader().getShapeType(), ShapeType.PolyLineM);
+        assertEquals(shapeRecords.size(), 1);
+        LineString lineString = (LineString) shapeRecords.get(0).geometry();
+        assertEquals(lineString.getNumPoints(), 2);
+        assertTrue(lineString.hasM());
+        List<ShapeRecord> mapped = new ArrayList<>();
+        Shapefile.fromFileMapped(
+                new File(classloader.getResource("linestringm.shp").toURI()), mapped::add);
+        assertEquals(mapped, shapeRecords);
+    }
+
+    @Test
+    public void checkMappedVisitor() throws IOException, URISyntaxException {
+        ClassLoader classloader = Thread.currentThread().getContextClassLoader();
+        File file = new File(classloader.getResource("pointz.shp").toURI());
+        List<ShapeRecord> shapeRecords = new ArrayList<>();
+        Shapefile.fromFileMapped(file, shapeRecords::add);
+        List<ShapeRecord> expected = new ArrayList<>();
+        Shapefile.fromFile(file, expected::add);
+        assertEquals(shapeRecords, expected);
+        assertEquals(shapeRecords.size(), 2);
+        assertTrue(shapeRecords.get(0).geometry().hasZ());
+    }
+
+    @Test
+    public void checkStream() throws IOException {
+        ClassLoader classloader = Thread.currentThread().getContextClassLoader();
+        try (Stream<ShapeRecord> stream =
+                Shapefile.stream(classloader.getResourceAsStream("null.shp"))) {
+            assertTrue(stream.allMatch(shapeRecord -> shapeRecord.geometry() == null));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.getResourceFile;
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import net.frogmouth.rnd.simplefeaturesaccess.CoordinateSequence;
+import net.frogmouth.rnd.simplefeaturesaccess.LineString;
+import net.frogmouth.rnd.simplefeaturesaccess.Point;
+import org.testng.annotations.Test;
+
+public class ShapeRecordReaderTest {
+
+    private static ShapeRecordReader openReader(String baseName)
+            throws IOException, URISyntaxException {
+        return Shapefile.openRecordReader(
+                getResourceFile(baseName + ".shp"), getResourceFile(baseName + ".shx"));
+    }
+
+    @Test
+    public void checkPoint() throws IOException, URISyntaxException {
+        try (ShapeRecordReader reader = openReader("simplepoint")) {
+            assertEquals(reader.getFileHeader().getShapeType(), ShapeType.Point);
+            assertEquals(reader.getNumRecords(), 2);
+            ShapeRecord shapeRecord = reader.read(1);
+            assertEquals(shapeRecord.recordNumber(), 2);
+            assertEquals(shapeRecord.shapeType(), ShapeType.Point);
+            Point point = (Point) shapeRecord.geometry();
+            assertEquals(point.x(), 150.519745, 0.000001);
+            assertEquals(point.y(), -23.319978, 0.000001);
+            assertEquals(shapeRecord.box().minX(), point.x());
+            assertEquals(shapeRecord.box().maxY(), point.y());
+        }
+    }
+
+    @Test
+    public void checkPointBatch() throws IOException, URISyntaxException {
+        try (ShapeRecordReader reader = openReader("simplepoint")) {
+            List<ShapeRecord> shapeRecords = reader.read(1, 0, 1);
+            assertEquals(shapeRecords.size(), 3);
+            assertEquals(shapeRecords.get(0).recordNumber(), 2);
+            assertEquals(shapeRecords.get(1).recordNumber(), 1);
+            assertEquals(shapeRecords.get(2).recordNumber(), 2);
+            Point point = (Point) shapeRecords.get(1).geometry();
+            assertEquals(point.x(), 150.473999, 0.000001);
+            assertEquals(point.y(), -23.376772, 0.000001);
+        }
+    }
+
+    @Test
+    public void checkLinestringM() throws IOException, URISyntaxException {
+        try (ShapeRecordReader reader = openReader("linestringm")) {
+            ShapeRecord shapeRecord = reader.read(0);
+            assertEquals(shapeRecord.recordNumber(), 1);
+            assertEquals(shapeRecord.shapeType(), ShapeType.PolyLineM);
+            assertEquals(shapeRecord.box().minX(), 150.790347, 0.000001);
+            assertEquals(shapeRecord.box().maxY(), -23.158527, 0.000001);
+            LineString lineString = (LineString) shapeRecord.geometry();
+            assertEquals(lineString.getNumPoints(), 2);
+            assertTrue(lineString.hasM());
+            assertFalse(lineString.hasZ());
+            assertEquals(lineString.getPointN(1).x(), 150.938363, 0.000001);
+            assertEquals(lineString.getPointN(1).m(), 0.0);
+            CoordinateSequence coordinates = lineString.getCoordinateSequence();
+            assertEquals(coordinates.size(), 2);
+            assertEquals(coordinates.getX(0), 150.790347, 0.000001);
+            assertEquals(coordinates.getY(0), -23.158527, 0.000001);
+            assertEquals(coordinates.getM(0), 0.0);
+            assertTrue(Double.isNaN(coordinates.getZ(0)));
+        }
+    }
+
+    @Test
+    public void checkLinestringZ() throws IOException, URISyntaxException {
+        try (ShapeRecordReader reader = openReader("linestringz")) {
+            ShapeRecord shapeRecord = reader.read(0);
+            assertEquals(shapeRecord.shapeType(), ShapeType.PolyLineZ);
+            LineString lineString = (LineString) shapeRecord.geometry();
+            assertEquals(lineString.getNumPoints(), 2);
+            assertTrue(lineString.hasZ());
+            // This file has no M part
+            assertFalse(lineString.hasM());
+            assertEquals(lineString.getPointN(1).x(), 150.938363, 0.000001);
+            assertEquals(lineString.getPointN(1).z(), 0.0);
+        }
+    }
+
+    @Test
+    public void checkUnsupportedShapeType() throws IOException, URISyntaxException {
+        try (ShapeRecordReader reader = openReader("polygon")) {
+            ShapeRecord shapeRecord = reader.read(0);
+            assertEquals(shapeRecord.shapeType(), ShapeType.Polygon);
+            assertNotNull(shapeRecord.box());
+            assertNull(shapeRecord.geometry());
+        }
+        // The stream readers skip over the geometry in the same way
+        for (String baseName : List.of("polygon", "multipoint", "multipatch")) {
+            List<ShapeRecord> shapeRecords = new ArrayList<>();
+            Shapefile.fromFile(getResourceFile(baseName + ".shp"), shapeRecords::add);
+            assertFalse(shapeRecords.isEmpty(), baseName);
+            for (ShapeRecord shapeRecord : shapeRecords) {
+                assertNull(shapeRecord.geometry(), baseName);
+            }
+        }
+    }
+
+    @Test
+    public void checkMultiPartPolyLine() throws IOException {
+        // A PolyLine record with parts of two and one points
+        int numPoints = 3;
+        int contentLength = 4 + 32 + 4 + 4 + 2 * 4 + numPoints * 16;
+        ByteBuffer record = ByteBuffer.allocate(contentLength).order(ByteOrder.LITTLE_ENDIAN);
+        record.putInt(ShapeType.PolyLine.getValue());
+        record.putDouble(0).putDouble(0).putDouble(5).putDouble(5);
+        record.putInt(2).putInt(numPoints).putInt(0).putInt(2);
+        record.putDouble(0).putDouble(0).putDouble(1).putDouble(1).putDouble(5).putDouble(5);
+        for (boolean view : new boolean[] {false, true}) {
+            ShapeRecord shapeRecord = ShapeRecordDecoder.decode(7, record, 0, contentLength, view);
+            assertEquals(shapeRecord.recordNumber(), 7);
+            assertEquals(shapeRecord.shapeType(), ShapeType.PolyLine);
+            assertEquals(shapeRecord.box(), new Box(0, 0, 5, 5));
+            assertNull(shapeRecord.geometry());
+        }
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void checkOutOfRange() throws IOException, URISyntaxException {
+        try (ShapeRecordReader reader = openReader("simplepoint")) {
+            reader.read(2);
+        }
+    }
+}
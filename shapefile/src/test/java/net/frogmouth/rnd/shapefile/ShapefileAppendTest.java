@@ -0,0 +1,192 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.createTempShapefile;
+import static net.frogmouth.rnd.shapefile.TestResources.getResourceFile;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import net.frogmouth.rnd.simplefeaturesaccess.Point;
+import org.testng.annotations.Test;
+
+public class ShapefileAppendTest {
+
+    private static File copyResource(String baseName) throws IOException, URISyntaxException {
+        File shpFile = createTempShapefile();
+        for (String extension : new String[] {"shp", "shx", "dbf"}) {
+            Files.copy(
+                    getResourceFile(baseName + "." + extension).toPath(),
+                    ShapefileDataset.getSiblingFile(shpFile, extension).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        return shpFile;
+    }
+
+    private static List<ShapefileFeature> readAll(File shpFile) throws IOException {
+        List<ShapefileFeature> features = new ArrayList<>();
+        try (ShapefileDataset dataset = ShapefileDataset.open(shpFile)) {
+            dataset.read(features::add);
+        }
+        return features;
+    }
+
+    @Test
+    public void checkAppend() throws IOException, URISyntaxException {
+        File shpFile = copyResource("simplepoint");
+        File shxFile = ShapefileDataset.getSiblingFile(shpFile, "shx");
+        FileHeader before = Shapefile.fromFile(shpFile).getFileHeader();
+        try (ShapefileWriter writer = ShapefileWriter.append(shpFile)) {
+            assertEquals(writer.getShapeType(), ShapeType.Point);
+            assertEquals(writer.getNumRecords(), 2);
+            assertEquals(writer.getFields().get(1).fieldName(), "Name");
+            writer.write(new Point(152.0, -24.0), 3, "Gladstone");
+            writer.write(new Point(150.49, -23.35), 4, "Inside");
+            assertEquals(writer.getNumRecords(), 4);
+        }
+
+        FileHeader after = Shapefile.fromFile(shpFile).getFileHeader();
+        assertEquals(after.getFileLength(), shpFile.length());
+        assertEquals(after.getMinX(), before.getMinX());
+        assertEquals(after.getMaxY(), before.getMaxY());
+        assertEquals(after.getMaxX(), 152.0);
+        assertEquals(after.getMinY(), -24.0);
+        ShapeIndex shapeIndex = ShapeIndex.fromFile(shxFile);
+        assertEquals(shapeIndex.getIndexRecords().size(), 4);
+        assertEquals(shapeIndex.getFileHeader().getMaxX(), 152.0);
+
+        List<ShapefileFeature> features = readAll(shpFile);
+        assertEquals(features.size(), 4);
+        assertEquals(features.get(1).getString(1), "Central Queensland University");
+        assertEquals(features.get(2).getShapeRecord().recordNumber(), 3);
+        assertEquals(features.get(2).getString(1), "Gladstone");
+        assertEquals(features.get(3).getLong(0), 4L);
+        try (ShapeRecordReader reader = ShapeRecordReader.open(shpFile, shxFile)) {
+            assertEquals(reader.read(3).geometry(), new Point(150.49, -23.35));
+        }
+    }
+
+    @Test
+    public void checkAppendToEmpty() throws IOException {
+        File shpFile = createTempShapefile();
+        List<DBFFieldDefinition> fields =
+                List.of(new DBFFieldDefinition("ID", DBFFieldType.Numeric, 5, 0));
+        ShapefileWriter.create(shpFile, ShapeType.Point, fields).close();
+        try (ShapefileWriter writer = ShapefileWriter.append(shpFile)) {
+            writer.write(new Point(10.0, 20.0), 1);
+        }
+        FileHeader fileHeader = Shapefile.fromFile(shpFile).getFileHeader();
+        // The zero bounds of the empty file are not included
+        assertEquals(fileHeader.getMinX(), 10.0);
+        assertEquals(fileHeader.getMaxY(), 20.0);
+        assertEquals(readAll(shpFile).size(), 1);
+    }
+
+    @Test
+    public void checkAppendDeletesSpatialIndexes() throws IOException, URISyntaxException {
+        File shpFile = copyResource("simplepoint");
+        File shxFile = ShapefileDataset.getSiblingFile(shpFile, "shx");
+        File hilbertFile = HilbertRTree.getIndexFile(shpFile);
+        File qixFile = QuadTreeIndex.getIndexFile(shpFile);
+        hilbertFile.deleteOnExit();
+        qixFile.deleteOnExit();
+        HilbertRTree.build(shpFile, shxFile, hilbertFile);
+        QuadTreeIndex.build(shpFile, shxFile, qixFile);
+        Box window = new Box(151.0, -25.0, 153.0, -23.5);
+        List<ShapeRecord> before = new ArrayList<>();
+        Shapefile.query(shpFile, shxFile, window, before::add);
+        assertTrue(before.isEmpty());
+
+        try (ShapefileWriter writer = ShapefileWriter.append(shpFile)) {
+            assertFalse(hilbertFile.exists());
+            assertFalse(qixFile.exists());
+            writer.write(new Point(152.0, -24.0), 3, "Gladstone");
+        }
+        List<ShapeRecord> after = new ArrayList<>();
+        Shapefile.query(shpFile, shxFile, window, after::add);
+        assertEquals(after.size(), 1);
+        assertEquals(after.get(0).recordNumber(), 3);
+
+        // A rebuilt index covers the new record
+        QuadTreeIndex.build(shpFile, shxFile, qixFile);
+        after.clear();
+        Shapefile.query(shpFile, shxFile, window, after::add);
+        assertEquals(after.size(), 1);
+    }
+
+    @Test
+    public void checkInterruptedAppend() throws IOException, URISyntaxException {
+        File shpFile = copyResource("simplepoint");
+        File dbfFile = ShapefileDataset.getSiblingFile(shpFile, "dbf");
+        long dbfLength = dbfFile.length();
+        // Records that were written, but never made it into the headers
+        byte[] partial = new byte[300];
+        Files.write(shpFile.toPath(), partial, StandardOpenOption.APPEND);
+        Files.write(dbfFile.toPath(), partial, StandardOpenOption.APPEND);
+        assertEquals(readAll(shpFile).size(), 2);
+
+        try (ShapefileWriter writer = ShapefileWriter.append(shpFile)) {
+            writer.write(new Point(150.0, -23.0), 3, "Third");
+        }
+        FileHeader fileHeader = Shapefile.fromFile(shpFile).getFileHeader();
+        assertEquals(fileHeader.getFileLength(), shpFile.length());
+        // One more record, and the end of file marker that the original did not have
+        assertEquals(dbfFile.length(), dbfLength + 92);
+        List<ShapefileFeature> features = readAll(shpFile);
+        assertEquals(features.size(), 3);
+        assertEquals(features.get(2).getString(1), "Third");
+    }
+
+    private static void setDbfRecordCount(File shpFile, int count) throws IOException {
+        File dbfFile = ShapefileDataset.getSiblingFile(shpFile, "dbf");
+        try (FileChannel channel = FileChannel.open(dbfFile.toPath(), StandardOpenOption.WRITE)) {
+            ByteBuffer numRecords = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            channel.write(numRecords.putInt(0, count), 4);
+        }
+    }
+
+    @Test
+    public void checkUncommittedRecords() throws IOException, URISyntaxException {
+        File shpFile = copyResource("simplepoint");
+        File shxFile = ShapefileDataset.getSiblingFile(shpFile, "shx");
+        long shpLength = shpFile.length();
+        try (ShapefileWriter writer = ShapefileWriter.append(shpFile)) {
+            writer.write(new Point(152.0, -24.0), 3, "Gladstone");
+            writer.write(new Point(153.0, -25.0), 4, "Bundaberg");
+        }
+        // Interrupted after the .shp and .shx headers were written, but before the .dbf count
+        setDbfRecordCount(shpFile, 2);
+        assertEquals(ShapeIndex.fromFile(shxFile).getIndexRecords().size(), 4);
+
+        try (ShapefileWriter writer = ShapefileWriter.append(shpFile)) {
+            assertEquals(writer.getNumRecords(), 2);
+            writer.write(new Point(150.0, -23.0), 3, "Third");
+        }
+        FileHeader fileHeader = Shapefile.fromFile(shpFile).getFileHeader();
+        assertEquals(fileHeader.getFileLength(), shpLength + 28);
+        assertEquals(shpFile.length(), shpLength + 28);
+        assertEquals(shxFile.length(), FileHeader.BYTES + 3 * 8);
+        assertEquals(ShapeIndex.fromFile(shxFile).getIndexRecords().size(), 3);
+        List<ShapefileFeature> features = readAll(shpFile);
+        assertEquals(features.size(), 3);
+        assertEquals(features.get(1).getString(1), "Central Queensland University");
+        assertEquals(features.get(2).getString(1), "Third");
+        assertEquals(features.get(2).getShapeRecord().geometry(), new Point(150.0, -23.0));
+    }
+
+    @Test
+    public void checkMismatchedCounts() throws IOException, URISyntaxException {
+        File shpFile = copyResource("simplepoint");
+        // More records in the .dbf than the .shx has entries for
+        setDbfRecordCount(shpFile, 3);
+        assertThrows(IOException.class, () -> ShapefileWriter.append(shpFile));
+    }
+}
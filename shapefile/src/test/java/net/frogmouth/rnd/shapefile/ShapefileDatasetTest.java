@@ -0,0 +1,89 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.getResourceFile;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import net.frogmouth.rnd.simplefeaturesaccess.Point;
+import org.testng.annotations.Test;
+
+public class ShapefileDatasetTest {
+
+    @Test
+    public void checkReadAll() throws IOException, URISyntaxException {
+        List<ShapefileFeature> features = new ArrayList<>();
+        try (ShapefileDataset dataset =
+                Shapefile.openDataset(getResourceFile("simplepoint.shp"), "Name", "id")) {
+            assertEquals(dataset.getFileHeader().getShapeType(), ShapeType.Point);
+            assertEquals(dataset.getNumRecords(), 2);
+            assertEquals(dataset.getColumns().get(0).fieldName(), "Name");
+            dataset.read(features::add);
+        }
+        assertEquals(features.size(), 2);
+        ShapefileFeature first = features.get(0);
+        assertEquals(first.getRecordIndex(), 0);
+        assertEquals(first.getShapeRecord().recordNumber(), 1);
+        assertTrue(first.getShapeRecord().geometry() instanceof Point);
+        assertEquals(first.getString(0), "Rockhampton Airport");
+        assertEquals(first.getLong(1), 1L);
+        ShapefileFeature second = features.get(1);
+        assertEquals(second.getRecordIndex(), 1);
+        assertEquals(second.getShapeRecord().recordNumber(), 2);
+        assertEquals(second.getString(0), "Central Queensland University");
+        assertEquals(second.getDouble(1), 2.0);
+        assertSame(second.getAttributes(), first.getAttributes());
+        assertEquals(second.getRow(), 1);
+    }
+
+    @Test
+    public void checkQuery() throws IOException, URISyntaxException {
+        File shpFile = getResourceFile("simplepoint.shp");
+        try (ShapefileDataset dataset = ShapefileDataset.open(shpFile, "Name")) {
+            List<ShapefileFeature> features = new ArrayList<>();
+            dataset.query(new Box(150.47, -23.38, 150.48, -23.37), null, features::add);
+            assertEquals(features.size(), 1);
+            assertEquals(features.get(0).getString(0), "Rockhampton Airport");
+
+            features.clear();
+            dataset.query(null, DBFPredicate.eq("id", 2), features::add);
+            assertEquals(features.size(), 1);
+            assertEquals(features.get(0).getShapeRecord().recordNumber(), 2);
+
+            features.clear();
+            dataset.query(
+                    new Box(150.47, -23.38, 150.48, -23.37),
+                    DBFPredicate.prefix("Name", "Central"),
+                    features::add);
+            assertTrue(features.isEmpty());
+
+            dataset.query(new Box(0.0, 0.0, 1.0, 1.0), null, features::add);
+            assertTrue(features.isEmpty());
+        }
+    }
+
+    @Test
+    public void checkMismatchedCounts() throws IOException, URISyntaxException {
+        // The .shp has a record, but the .dbf has no rows
+        List<ShapefileFeature> features = new ArrayList<>();
+        try (ShapefileDataset dataset = ShapefileDataset.open(getResourceFile("null.shp"))) {
+            assertEquals(dataset.getNumRecords(), 0);
+            dataset.read(features::add);
+        }
+        assertTrue(features.isEmpty());
+    }
+
+    @Test
+    public void checkSiblingFile() {
+        File dir = new File("data");
+        assertEquals(
+                ShapefileDataset.getSiblingFile(new File(dir, "roads.shp"), "dbf"),
+                new File(dir, "roads.dbf"));
+        assertEquals(
+                ShapefileDataset.getSiblingFile(new File(dir, "ROADS.SHP"), "dbf"),
+                new File(dir, "ROADS.DBF"));
+    }
+}
@@ -0,0 +1,223 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.createTempShapefile;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import net.frogmouth.rnd.simplefeaturesaccess.LineString;
+import org.testng.annotations.Test;
+
+public class ShapefileGeneratorTest {
+
+    private static final Box EXTENT = new Box(150.0, -30.0, 155.0, -20.0);
+
+    private static byte[] readBytes(File shpFile, String extension) throws IOException {
+        return Files.readAllBytes(ShapefileDataset.getSiblingFile(shpFile, extension).toPath());
+    }
+
+    @Test
+    public void checkEveryShapeType() throws IOException {
+        int numRecords = 40;
+        for (ShapeType shapeType : ShapeType.values()) {
+            ShapefileGenerator generator = new ShapefileGenerator(shapeType, 7L);
+            generator.setPartsPerRecord(3);
+            generator.setVerticesPerPart(5);
+            generator.setExtent(EXTENT);
+            generator.setFeatureSize(0.5);
+            File shpFile = createTempShapefile();
+            generator.generate(shpFile, numRecords);
+
+            ByteBuffer shp = ByteBuffer.wrap(readBytes(shpFile, "shp"));
+            FileHeader fileHeader = FileHeader.fromByteBuffer(shp);
+            assertEquals(fileHeader.getShapeType(), shapeType);
+            assertEquals(fileHeader.getFileLength(), shpFile.length());
+            assertEquals(fileHeader.getFileLength(), generator.getShapefileLength(numRecords));
+            if (shapeType != ShapeType.NullShape) {
+                assertTrue(fileHeader.getMinX() >= EXTENT.minX(), shapeType.toString());
+                assertTrue(fileHeader.getMaxY() <= EXTENT.maxY(), shapeType.toString());
+            }
+            assertEquals(fileHeader.getMinZ() != null, shapeType.hasZ());
+            assertEquals(fileHeader.getMinM() != null, shapeType.hasM());
+
+            ShapeIndex shapeIndex =
+                    ShapeIndex.fromFile(ShapefileDataset.getSiblingFile(shpFile, "shx"));
+            List<IndexRecord> indexRecords = shapeIndex.getIndexRecords();
+            assertEquals(indexRecords.size(), numRecords);
+            shp.order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < numRecords; i++) {
+                IndexRecord indexRecord = indexRecords.get(i);
+                assertEquals(indexRecord.contentLength(), generator.getContentLength());
+                int offset = (int) indexRecord.byteOffset();
+                assertEquals(Integer.reverseBytes(shp.getInt(offset)), i + 1);
+                checkRecord(generator, shp, offset + ShapeRecordDecoder.RECORD_HEADER_LEN);
+            }
+        }
+    }
+
+    /** Check the structure of a generated record. */
+    private static void checkRecord(ShapefileGenerator generator, ByteBuffer bb, int offset) {
+        ShapeType shapeType = generator.getShapeType();
+        assertEquals(bb.getInt(offset), shapeType.getValue());
+        switch (shapeType) {
+            case NullShape, Point, PointM, PointZ -> {
+                return;
+            }
+            default -> {}
+        }
+        Box box = Box.fromByteBuffer(bb, offset + Integer.BYTES);
+        assertTrue(EXTENT.intersects(box));
+        assertTrue(box.maxX() - box.minX() <= generator.getFeatureSize());
+        assertTrue(box.maxY() - box.minY() <= generator.getFeatureSize());
+        boolean multiPoint = shapeType.toString().startsWith("MultiPoint");
+        int numParts = multiPoint ? 1 : bb.getInt(offset + 36);
+        int numPoints = bb.getInt(offset + (multiPoint ? 36 : 40));
+        assertEquals(numParts, multiPoint ? 1 : generator.getPartsPerRecord());
+        assertEquals(numPoints, numParts * generator.getVerticesPerPart());
+        if (multiPoint) {
+            return;
+        }
+        int pointsOffset = offset + 44 + numParts * Integer.BYTES;
+        if (shapeType == ShapeType.MultiPatch) {
+            pointsOffset += numParts * Integer.BYTES;
+        }
+        int verticesPerPart = generator.getVerticesPerPart();
+        for (int part = 0; part < numParts; part++) {
+            assertEquals(bb.getInt(offset + 44 + part * Integer.BYTES), part * verticesPerPart);
+            if (shapeType.toString().startsWith("Polygon")) {
+                // Closed, clockwise rings
+                int first = pointsOffset + part * verticesPerPart * 16;
+                int last = first + (verticesPerPart - 1) * 16;
+                assertEquals(bb.getDouble(last), bb.getDouble(first));
+                assertEquals(bb.getDouble(last + 8), bb.getDouble(first + 8));
+                double area = 0.0;
+                for (int v = first; v < last; v += 16) {
+                    area += bb.getDouble(v) * bb.getDouble(v + 24);
+                    area -= bb.getDouble(v + 16) * bb.getDouble(v + 8);
+                }
+                assertTrue(area < 0.0, "Ring should be clockwise");
+            }
+        }
+    }
+
+    @Test
+    public void checkAttributes() throws IOException {
+        int numRecords = 2000;
+        ShapefileGenerator generator = new ShapefileGenerator(ShapeType.PolyLineM, 11L);
+        generator.setDeletedRatio(0.25);
+        generator.setDistribution(ShapefileGenerator.Distribution.Clustered);
+        File shpFile = createTempShapefile();
+        generator.generate(shpFile, numRecords);
+
+        int deleted = 0;
+        File dbfFile = ShapefileDataset.getSiblingFile(shpFile, "dbf");
+        try (DBFRecordReader reader = DataBaseFile.openRecordReader(dbfFile)) {
+            assertEquals(reader.getNumRecords(), numRecords);
+            assertEquals(reader.getColumns(), ShapefileGenerator.DEFAULT_FIELDS);
+            DBFColumnBatch batch = reader.read(IntStream.range(0, numRecords).toArray());
+            for (int row = 0; row < numRecords; row++) {
+                if (batch.isDeleted(row)) {
+                    deleted++;
+                }
+                assertEquals(batch.getColumn(0).getLong(row), row);
+                assertFalse(batch.getColumn(1).isNull(row));
+                assertTrue(Math.abs(batch.getColumn(2).getDouble(row)) < 1e9);
+                assertFalse(batch.getColumn(3).isNull(row));
+                assertNotNull(batch.getColumn(4).getLogical(row));
+            }
+        }
+        assertTrue(deleted > 400 && deleted < 600, "Deleted rows: " + deleted);
+
+        // Deleted rows are skipped, and everything else reads back
+        List<ShapefileFeature> features = new ArrayList<>();
+        try (ShapefileDataset dataset = ShapefileDataset.open(shpFile)) {
+            dataset.read(features::add);
+        }
+        assertEquals(features.size(), numRecords - deleted);
+        for (ShapefileFeature feature : features) {
+            ShapeRecord record = feature.getShapeRecord();
+            assertEquals(record.shapeType(), ShapeType.PolyLineM);
+            assertEquals(((LineString) record.geometry()).getNumPoints(), 8);
+        }
+    }
+
+    @Test
+    public void checkDeterministic() throws IOException {
+        List<DBFFieldDefinition> fields =
+                List.of(
+                        new DBFFieldDefinition("CODE", DBFFieldType.Numeric, 3, 2),
+                        new DBFFieldDefinition("DAY", DBFFieldType.Date, 6, 0),
+                        new DBFFieldDefinition("SMALL", DBFFieldType.Numeric, 1, 0));
+        byte[][] first = null;
+        for (long seed : new long[] {3L, 3L, 4L}) {
+            ShapefileGenerator generator = new ShapefileGenerator(ShapeType.PolygonZ, seed);
+            generator.setFields(fields);
+            generator.setDeletedRatio(0.5);
+            File shpFile = createTempShapefile();
+            generator.generate(shpFile, 100);
+            byte[][] files = {readBytes(shpFile, "shp"), readBytes(shpFile, "shx")};
+            if (first == null) {
+                first = files;
+            } else if (seed == 3L) {
+                assertEquals(files[0], first[0]);
+                assertEquals(files[1], first[1]);
+            } else {
+                assertNotEquals(files[0], first[0]);
+                // The offsets only depend on the record lengths, but the bounds differ
+                assertEquals(
+                        Arrays.copyOfRange(files[1], FileHeader.BYTES, files[1].length),
+                        Arrays.copyOfRange(first[1], FileHeader.BYTES, first[1].length));
+            }
+            File dbfFile = ShapefileDataset.getSiblingFile(shpFile, "dbf");
+            try (DBFRecordReader reader = DataBaseFile.openRecordReader(dbfFile)) {
+                DBFColumnBatch batch = reader.read(0, 99);
+                // Fields too narrow for any value are left null
+                assertTrue(batch.getColumn(0).isNull(1));
+                assertTrue(batch.getColumn(1).isNull(1));
+                assertFalse(batch.getColumn(2).isNull(1));
+            }
+        }
+    }
+
+    @Test
+    public void checkSettings() {
+        ShapefileGenerator generator = new ShapefileGenerator(ShapeType.Polygon, 0L);
+        assertThrows(IllegalArgumentException.class, () -> generator.setVerticesPerPart(3));
+        assertThrows(IllegalArgumentException.class, () -> generator.setPartsPerRecord(0));
+        assertThrows(IllegalArgumentException.class, () -> generator.setDeletedRatio(1.5));
+        assertThrows(IllegalArgumentException.class, () -> generator.setFeatureSize(0.0));
+        assertThrows(
+                IllegalArgumentException.class, () -> generator.setExtent(new Box(1, 1, 1, 2)));
+        generator.setPartsPerRecord(2000);
+        generator.setVerticesPerPart(100000);
+        assertThrows(IllegalArgumentException.class, generator::getContentLength);
+
+        // The .shp file is limited by its 32-bit length in 16-bit words
+        generator.setPartsPerRecord(1);
+        generator.setVerticesPerPart(4);
+        int perRecord = ShapeRecordDecoder.RECORD_HEADER_LEN + generator.getContentLength();
+        int tooMany = (int) (ShapefileWriter.MAX_FILE_SIZE / perRecord) + 1;
+        assertTrue(generator.getShapefileLength(tooMany) > ShapefileWriter.MAX_FILE_SIZE);
+        assertThrows(IOException.class, () -> generator.generate(createTempShapefile(), tooMany));
+    }
+
+    @Test
+    public void checkLargeOffsets() throws IOException {
+        // Offsets and lengths are counted in 16-bit words, so the top bit is only set past 4 GB
+        assertEquals(new IndexRecord(0x80000000, 8).byteOffset(), 1L << 32);
+        assertEquals(new IndexRecord(-1, 8).byteOffset(), 0xFFFFFFFFL * 2);
+        FileHeader fileHeader = new FileHeader();
+        fileHeader.setShapeType(ShapeType.PolyLine);
+        fileHeader.setFileLength(6L << 30);
+        ByteBuffer bb = fileHeader.toByteBuffer();
+        assertTrue(bb.duplicate().order(ByteOrder.BIG_ENDIAN).getInt(24) < 0);
+        assertEquals(FileHeader.fromByteBuffer(bb).getFileLength(), 6L << 30);
+    }
+}
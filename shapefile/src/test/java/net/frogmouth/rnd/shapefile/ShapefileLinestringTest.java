@@ -3,6 +3,9 @@ package net.frogmouth.rnd.shapefile;
 import static org.testng.Assert.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import net.frogmouth.rnd.simplefeaturesaccess.WKTWriter;
 import org.testng.annotations.Test;
 
 public class ShapefileLinestringTest {
@@ -25,4 +28,15 @@ public class ShapefileLinestringTest {
         assertNull(uut.getMaxM());
         // TODO: check linestring result
     }
+
+    @Test
+    public void checkWKT() throws IOException {
+        ClassLoader classloader = Thread.currentThread().getContextClassLoader();
+        List<ShapeRecord> records = new ArrayList<>();
+        Shapefile.fromInputStream(
+                classloader.getResourceAsStream("simplelinestring.shp"), records::add);
+        assertEquals(
+                new WKTWriter(3).write(records.get(0).geometry()),
+                "LINESTRING (150.79 -23.159, 150.938 -23.184)");
+    }
 }
@@ -0,0 +1,94 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.getResourceFile;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import net.frogmouth.rnd.simplefeaturesaccess.LineString;
+import net.frogmouth.rnd.simplefeaturesaccess.PackedCoordinateSequence;
+import org.testng.annotations.Test;
+
+public class ShapefileMappedTest {
+
+    @Test
+    public void checkPoint() throws IOException, URISyntaxException {
+        Shapefile shapefile = Shapefile.fromFileMapped(getResourceFile("simplepoint.shp"));
+        FileHeader uut = shapefile.getFileHeader();
+        assertEquals(uut.getVersion(), 1000);
+        assertEquals(uut.getShapeType(), ShapeType.Point);
+        assertEquals(uut.getMinX(), 150.473999, 0.000001);
+        assertEquals(uut.getMinY(), -23.376772, 0.000001);
+        assertEquals(uut.getMaxX(), 150.519745, 0.000001);
+        assertEquals(uut.getMaxY(), -23.319978, 0.000001);
+        assertNull(uut.getMinZ());
+        assertNull(uut.getMaxZ());
+        assertNull(uut.getMinM());
+        assertNull(uut.getMaxM());
+    }
+
+    @Test
+    public void checkLinestringM() throws IOException, URISyntaxException {
+        Shapefile shapefile = Shapefile.fromFileMapped(getResourceFile("linestringm.shp"));
+        FileHeader uut = shapefile.getFileHeader();
+        assertEquals(uut.getShapeType(), ShapeType.PolyLineM);
+        assertEquals(uut.getMinM(), 0.0);
+        assertEquals(uut.getMaxM(), 0.0);
+    }
+
+    @Test
+    public void checkViews() throws IOException, URISyntaxException {
+        File file = getResourceFile("linestringm.shp");
+        List<ShapeRecord> views = new ArrayList<>();
+        Shapefile.fromFileMappedViews(file, views::add);
+        List<ShapeRecord> decoded = new ArrayList<>();
+        Shapefile.fromFile(file, decoded::add);
+        assertEquals(views.size(), 1);
+        LineString view = (LineString) views.get(0).geometry();
+        LineString expected = (LineString) decoded.get(0).geometry();
+        assertTrue(view.getCoordinateSequence() instanceof ByteBufferCoordinateSequence);
+        assertEquals(view, expected);
+        assertEquals(view.getCoordinateSequence().getX(1), 150.938363, 0.000001);
+        assertEquals(view.getCoordinateSequence().getM(1), 0.0);
+        LineString copy = view.copy();
+        assertTrue(copy.getCoordinateSequence() instanceof PackedCoordinateSequence);
+        assertEquals(copy, expected);
+        assertThrows(IndexOutOfBoundsException.class, () -> view.getCoordinateSequence().getX(2));
+    }
+
+    @Test
+    public void checkSmallChunks() throws IOException, URISyntaxException {
+        File file = getResourceFile("pointz.shp");
+        // Force a remap for each record
+        try (MappedFile mappedFile = MappedFile.open(file.toPath(), 16)) {
+            Shapefile shapefile = Shapefile.fromMappedFile(mappedFile, shapeRecord -> {});
+            FileHeader uut = shapefile.getFileHeader();
+            assertEquals(uut.getShapeType(), ShapeType.PointZ);
+            assertEquals(uut.getFileLength(), file.length());
+        }
+    }
+
+    @Test
+    public void checkMappedRange() throws IOException, URISyntaxException {
+        File file = getResourceFile("simplepoint.shp");
+        try (MappedFile mappedFile = MappedFile.open(file.toPath(), 64)) {
+            assertEquals(mappedFile.size(), 156);
+            assertEquals(mappedFile.map(0, FileHeader.BYTES), 0);
+            assertEquals(mappedFile.map(10, 20), 10);
+            // beyond the current window, so this remaps from the requested position
+            assertEquals(mappedFile.map(120, 36), 0);
+            assertEquals(mappedFile.map(130, 4), 10);
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void checkMappedRangeOutside() throws IOException, URISyntaxException {
+        File file = getResourceFile("simplepoint.shp");
+        try (MappedFile mappedFile = MappedFile.open(file.toPath())) {
+            mappedFile.map(150, 10);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.getResourceFile;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.testng.annotations.Test;
+
+public class ShapefileParallelTest {
+
+    @Test
+    public void checkOrderedStream() throws IOException, URISyntaxException {
+        try (Stream<ShapeRecord> stream =
+                Shapefile.parallelStream(
+                        getResourceFile("simplepoint.shp"),
+                        getResourceFile("simplepoint.shx"),
+                        true)) {
+            assertTrue(stream.isParallel());
+            List<Integer> recordNumbers =
+                    stream.map(ShapeRecord::recordNumber).collect(Collectors.toList());
+            assertEquals(recordNumbers, List.of(1, 2));
+        }
+    }
+
+    @Test
+    public void checkUnorderedVisitor() throws IOException, URISyntaxException {
+        List<ShapeRecord> shapeRecords = Collections.synchronizedList(new ArrayList<>());
+        Shapefile shapefile =
+                Shapefile.fromFileParallel(
+                        getResourceFile("pointz.shp"),
+                        getResourceFile("pointz.shx"),
+                        shapeRecords::add,
+                        false);
+        assertEquals(shapefile.getFileHeader().getShapeType(), ShapeType.PointZ);
+        assertEquals(shapeRecords.size(), 2);
+    }
+
+    @Test
+    public void checkSplit() throws IOException, URISyntaxException {
+        File shxFile = getResourceFile("simplepoint.shx");
+        List<IndexRecord> indexRecords = ShapeIndex.fromFile(shxFile).getIndexRecords();
+        try (FileChannel channel =
+                FileChannel.open(
+                        getResourceFile("simplepoint.shp").toPath(), StandardOpenOption.READ)) {
+            ShapeRecordSpliterator uut =
+                    new ShapeRecordSpliterator(channel, indexRecords, true, 1, 0, 2);
+            assertTrue(uut.hasCharacteristics(Spliterator.ORDERED));
+            assertTrue(uut.hasCharacteristics(Spliterator.SUBSIZED));
+            Spliterator<ShapeRecord> prefix = uut.trySplit();
+            assertNotNull(prefix);
+            assertEquals(prefix.estimateSize(), 1);
+            assertEquals(uut.estimateSize(), 1);
+            assertNull(uut.trySplit());
+            assertTrue(prefix.tryAdvance(r -> assertEquals(r.recordNumber(), 1)));
+            // The view is released with the last record of the split
+            assertFalse(((ShapeRecordSpliterator) prefix).isMapped());
+            assertFalse(prefix.tryAdvance(r -> fail()));
+            assertTrue(uut.tryAdvance(r -> assertEquals(r.recordNumber(), 2)));
+            assertFalse(uut.tryAdvance(r -> fail()));
+        }
+    }
+
+    @Test
+    public void checkNoSplitWhenSmall() throws IOException, URISyntaxException {
+        File shxFile = getResourceFile("simplepoint.shx");
+        List<IndexRecord> indexRecords = ShapeIndex.fromFile(shxFile).getIndexRecords();
+        try (FileChannel channel =
+                FileChannel.open(
+                        getResourceFile("simplepoint.shp").toPath(), StandardOpenOption.READ)) {
+            ShapeRecordSpliterator uut = new ShapeRecordSpliterator(channel, indexRecords, false);
+            assertFalse(uut.hasCharacteristics(Spliterator.ORDERED));
+            assertNull(uut.trySplit());
+            assertEquals(uut.estimateSize(), 2);
+            assertTrue(uut.tryAdvance(r -> assertEquals(r.recordNumber(), 1)));
+            assertTrue(uut.isMapped());
+            List<ShapeRecord> rest = new ArrayList<>();
+            uut.forEachRemaining(rest::add);
+            assertEquals(rest.size(), 1);
+            assertFalse(uut.isMapped());
+        }
+    }
+}
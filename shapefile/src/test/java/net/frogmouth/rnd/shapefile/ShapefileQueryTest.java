@@ -0,0 +1,65 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.getResourceFile;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.annotations.Test;
+
+public class ShapefileQueryTest {
+
+    @Test
+    public void checkBoxIntersects() {
+        Box uut = new Box(0.0, 0.0, 10.0, 10.0);
+        assertTrue(uut.intersects(new Box(5.0, 5.0, 15.0, 15.0)));
+        assertTrue(uut.intersects(new Box(10.0, 10.0, 15.0, 15.0)));
+        assertTrue(uut.intersects(new Box(2.0, 2.0, 3.0, 3.0)));
+        assertTrue(uut.intersects(new Box(-5.0, -5.0, 15.0, 15.0)));
+        assertFalse(uut.intersects(new Box(10.5, 0.0, 15.0, 10.0)));
+        assertFalse(uut.intersects(new Box(0.0, -5.0, 10.0, -0.5)));
+    }
+
+    @Test
+    public void checkPointQuery() throws IOException, URISyntaxException {
+        List<ShapeRecord> shapeRecords = new ArrayList<>();
+        Box window = new Box(150.47, -23.38, 150.48, -23.37);
+        Shapefile shapefile =
+                Shapefile.query(getResourceFile("simplepoint.shp"), window, shapeRecords::add);
+        assertEquals(shapefile.getFileHeader().getShapeType(), ShapeType.Point);
+        assertEquals(shapeRecords.size(), 1);
+        assertEquals(shapeRecords.get(0).recordNumber(), 1);
+    }
+
+    @Test
+    public void checkDisjointQuery() throws IOException, URISyntaxException {
+        List<ShapeRecord> shapeRecords = new ArrayList<>();
+        Box window = new Box(0.0, 0.0, 1.0, 1.0);
+        Shapefile.query(getResourceFile("simplepoint.shp"), window, shapeRecords::add);
+        assertTrue(shapeRecords.isEmpty());
+    }
+
+    @Test
+    public void checkLinestringQuery() throws IOException, URISyntaxException {
+        File file = getResourceFile("simplelinestring.shp");
+        List<ShapeRecord> shapeRecords = new ArrayList<>();
+        // Overlaps the record box, but not the start or end points
+        Box window = new Box(150.8, -23.17, 150.9, -23.16);
+        try (MappedFile mappedFile = MappedFile.open(file.toPath(), 32)) {
+            Shapefile.query(mappedFile, window, shapeRecords::add);
+        }
+        assertEquals(shapeRecords.size(), 1);
+        assertNotNull(shapeRecords.get(0).geometry());
+    }
+
+    @Test
+    public void checkNullShapeQuery() throws IOException, URISyntaxException {
+        List<ShapeRecord> shapeRecords = new ArrayList<>();
+        Box window = new Box(-1.0e9, -1.0e9, 1.0e9, 1.0e9);
+        Shapefile.query(getResourceFile("null.shp"), window, shapeRecords::add);
+        assertTrue(shapeRecords.isEmpty());
+    }
+}
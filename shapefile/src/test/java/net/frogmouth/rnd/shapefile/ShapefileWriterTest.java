@@ -0,0 +1,234 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.createTempShapefile;
+import static net.frogmouth.rnd.shapefile.TestResources.getResourceFile;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import net.frogmouth.rnd.simplefeaturesaccess.LineString;
+import net.frogmouth.rnd.simplefeaturesaccess.Point;
+import org.testng.annotations.Test;
+
+public class ShapefileWriterTest {
+
+    private static final List<DBFFieldDefinition> FIELDS =
+            List.of(
+                    new DBFFieldDefinition("ID", DBFFieldType.Numeric, 10, 0),
+                    new DBFFieldDefinition("NAME", DBFFieldType.Character, 20, 0),
+                    new DBFFieldDefinition("LENGTH", DBFFieldType.Numeric, 12, 3),
+                    new DBFFieldDefinition("OPENED", DBFFieldType.Date, 8, 0),
+                    new DBFFieldDefinition("TOLL", DBFFieldType.Logical, 1, 0));
+
+    @Test
+    public void checkPoints() throws IOException {
+        File shpFile = createTempShapefile();
+        try (ShapefileWriter writer = ShapefileWriter.create(shpFile, ShapeType.Point, FIELDS)) {
+            writer.write(new Point(150.5, -23.4), 1, "Rockhampton", 12.5, null, true);
+            writer.write(null, 2L, null, -0.0625, LocalDate.of(1999, 12, 31), null);
+            writer.write(new Point(151.25, -23.1), 3, "Yeppoon", 1234567.891, null, false);
+            assertEquals(writer.getNumRecords(), 3);
+        }
+
+        List<ShapefileFeature> features = new ArrayList<>();
+        try (ShapefileDataset dataset = ShapefileDataset.open(shpFile)) {
+            FileHeader fileHeader = dataset.getFileHeader();
+            assertEquals(fileHeader.getShapeType(), ShapeType.Point);
+            assertEquals(fileHeader.getVersion(), 1000);
+            assertEquals(fileHeader.getFileLength(), shpFile.length());
+            assertEquals(fileHeader.getMinX(), 150.5);
+            assertEquals(fileHeader.getMinY(), -23.4);
+            assertEquals(fileHeader.getMaxX(), 151.25);
+            assertEquals(fileHeader.getMaxY(), -23.1);
+            assertEquals(dataset.getNumRecords(), 3);
+            dataset.read(features::add);
+        }
+        assertEquals(features.size(), 3);
+        ShapefileFeature first = features.get(0);
+        assertEquals(first.getShapeRecord().geometry(), new Point(150.5, -23.4));
+        assertEquals(first.getLong(0), 1L);
+        assertEquals(first.getString(1), "Rockhampton");
+        assertEquals(first.getAttributes().getColumn(2).getUnscaledLong(first.getRow()), 12500L);
+        assertTrue(first.isNull(3));
+        assertTrue(first.getAttributes().getColumn(4).getBoolean(first.getRow()));
+        ShapefileFeature second = features.get(1);
+        assertEquals(second.getShapeRecord().shapeType(), ShapeType.NullShape);
+        assertTrue(second.isNull(1));
+        assertEquals(second.getString(2), "-0.063");
+        assertEquals(
+                second.getAttributes().getColumn(3).getEpochDay(second.getRow()),
+                LocalDate.of(1999, 12, 31).toEpochDay());
+        assertNull(second.getAttributes().getColumn(4).getLogical(second.getRow()));
+        assertEquals(features.get(2).getString(2), "1234567.891");
+
+        ShapeIndex shapeIndex =
+                ShapeIndex.fromFile(ShapefileDataset.getSiblingFile(shpFile, "shx"));
+        assertEquals(shapeIndex.getIndexRecords().size(), 3);
+        assertEquals(shapeIndex.getFileHeader().getMinX(), 150.5);
+        try (ShapeRecordReader reader =
+                ShapeRecordReader.open(shpFile, ShapefileDataset.getSiblingFile(shpFile, "shx"))) {
+            assertEquals(reader.read(2).geometry(), new Point(151.25, -23.1));
+        }
+    }
+
+    @Test
+    public void checkPolyLineM() throws IOException {
+        File shpFile = createTempShapefile();
+        LineString lineString =
+                new LineString(
+                        List.of(
+                                Point.fromXYM(1.0, 2.0, 10.0),
+                                Point.fromXYM(3.0, -1.0, 20.0),
+                                Point.fromXYM(5.0, 4.0, 5.0)));
+        try (ShapefileWriter writer =
+                ShapefileWriter.create(shpFile, ShapeType.PolyLineM, List.of())) {
+            writer.write(lineString);
+            writer.write(new LineString(List.of(new Point(0.0, 0.0), new Point(1.0, 1.0))));
+        }
+        List<ShapeRecord> shapeRecords = new ArrayList<>();
+        Shapefile shapefile = Shapefile.fromFile(shpFile, shapeRecords::add);
+        FileHeader fileHeader = shapefile.getFileHeader();
+        assertEquals(fileHeader.getMinX(), 0.0);
+        assertEquals(fileHeader.getMinY(), -1.0);
+        assertEquals(fileHeader.getMaxX(), 5.0);
+        assertEquals(fileHeader.getMaxY(), 4.0);
+        // The second line has no M values, which are written as "no data"
+        assertEquals(fileHeader.getMinM(), 5.0);
+        assertEquals(fileHeader.getMaxM(), 20.0);
+        assertEquals(shapeRecords.size(), 2);
+        assertEquals(shapeRecords.get(0).geometry(), lineString);
+        assertEquals(shapeRecords.get(0).box(), new Box(1.0, -1.0, 5.0, 4.0));
+        LineString second = (LineString) shapeRecords.get(1).geometry();
+        assertEquals(second.getNumPoints(), 2);
+        assertTrue(second.getPointN(0).m() < -1e38);
+    }
+
+    @Test
+    public void checkPolyLineZ() throws IOException {
+        File shpFile = createTempShapefile();
+        LineString withM =
+                new LineString(
+                        List.of(
+                                new Point(1.0, 2.0, 100.0, 10.0),
+                                new Point(3.0, -1.0, 120.0, 20.0)));
+        LineString withoutM =
+                new LineString(
+                        List.of(
+                                Point.fromXYZ(0.0, 0.0, -5.0),
+                                Point.fromXYZ(1.0, 1.0, 0.0),
+                                Point.fromXYZ(2.0, 0.5, 5.0)));
+        try (ShapefileWriter writer =
+                ShapefileWriter.create(shpFile, ShapeType.PolyLineZ, List.of())) {
+            writer.write(withM);
+            writer.write(withoutM);
+        }
+        List<ShapeRecord> shapeRecords = new ArrayList<>();
+        FileHeader fileHeader = Shapefile.fromFile(shpFile, shapeRecords::add).getFileHeader();
+        assertEquals(fileHeader.getShapeType(), ShapeType.PolyLineZ);
+        assertEquals(fileHeader.getMinZ(), -5.0);
+        assertEquals(fileHeader.getMaxZ(), 120.0);
+        assertEquals(shapeRecords.size(), 2);
+        assertEquals(shapeRecords.get(0).geometry(), withM);
+        assertEquals(shapeRecords.get(1).geometry(), withoutM);
+        assertFalse(((LineString) shapeRecords.get(1).geometry()).hasM());
+
+        // The memory-mapped views and the random access reader agree
+        List<ShapeRecord> mapped = new ArrayList<>();
+        Shapefile.fromFileMapped(shpFile, mapped::add);
+        assertEquals(mapped.get(0).geometry().toString(), withM.toString());
+        assertEquals(mapped.get(1).geometry().toString(), withoutM.toString());
+        try (ShapeRecordReader reader =
+                ShapeRecordReader.open(shpFile, ShapefileDataset.getSiblingFile(shpFile, "shx"))) {
+            assertEquals(reader.read(1).geometry(), withoutM);
+        }
+    }
+
+    @Test
+    public void checkPointZ() throws IOException {
+        File shpFile = createTempShapefile();
+        try (ShapefileWriter writer =
+                ShapefileWriter.create(shpFile, ShapeType.PointZ, List.of())) {
+            writer.write(Point.fromXYZ(1.0, 2.0, 30.0));
+            writer.write(new Point(-1.0, 5.0, -4.0, 7.0));
+            assertThrows(IllegalArgumentException.class, () -> writer.write(new Point(1.0, 2.0)));
+        }
+        List<ShapeRecord> shapeRecords = new ArrayList<>();
+        FileHeader fileHeader = Shapefile.fromFile(shpFile, shapeRecords::add).getFileHeader();
+        assertEquals(fileHeader.getMinZ(), -4.0);
+        assertEquals(fileHeader.getMaxZ(), 30.0);
+        assertEquals(fileHeader.getMinM(), 7.0);
+        assertEquals(fileHeader.getMaxM(), 7.0);
+        assertEquals(shapeRecords.size(), 2);
+        assertEquals(shapeRecords.get(0).geometry(), Point.fromXYZ(1.0, 2.0, 30.0));
+        assertEquals(shapeRecords.get(1).geometry(), new Point(-1.0, 5.0, -4.0, 7.0));
+    }
+
+    @Test
+    public void checkRejectedFeature() throws IOException {
+        File shpFile = createTempShapefile();
+        try (ShapefileWriter writer = ShapefileWriter.create(shpFile, ShapeType.Point, FIELDS)) {
+            Point point = new Point(1.0, 1.0);
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> writer.write(point, "one", "x", 1.0, null, true));
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> writer.write(point, 12345678901L, "x", 1.0, null, true));
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> writer.write(point, 1, "a name that is too long", 1.0, null, true));
+            assertThrows(IllegalArgumentException.class, () -> writer.write(point, 1));
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () ->
+                            writer.write(
+                                    new LineString(List.of(point, point)),
+                                    1,
+                                    "x",
+                                    1.0,
+                                    null,
+                                    true));
+            assertEquals(writer.getNumRecords(), 0);
+            writer.write(point, 1, "x", 1.0, null, true);
+        }
+        try (DBFRecordReader reader =
+                DBFRecordReader.open(ShapefileDataset.getSiblingFile(shpFile, "dbf"), "ID")) {
+            assertEquals(reader.getNumRecords(), 1);
+            assertEquals(reader.read(0).getColumn(0).getLong(0), 1L);
+        }
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> ShapefileWriter.create(shpFile, ShapeType.Polygon, List.of()));
+    }
+
+    @Test
+    public void checkCopy() throws IOException, URISyntaxException {
+        File source = getResourceFile("simplelinestring.shp");
+        File shpFile = createTempShapefile();
+        List<ShapefileFeature> features = new ArrayList<>();
+        try (ShapefileDataset dataset = ShapefileDataset.open(source)) {
+            dataset.read(features::add);
+            try (ShapefileWriter writer =
+                    ShapefileWriter.create(
+                            shpFile,
+                            dataset.getFileHeader().getShapeType(),
+                            dataset.getColumns())) {
+                for (ShapefileFeature feature : features) {
+                    writer.write(
+                            feature.getShapeRecord().geometry(),
+                            feature.getLong(0),
+                            feature.getString(1));
+                }
+            }
+        }
+        assertEquals(Files.readAllBytes(shpFile.toPath()), Files.readAllBytes(source.toPath()));
+        assertEquals(
+                Files.readAllBytes(ShapefileDataset.getSiblingFile(shpFile, "shx").toPath()),
+                Files.readAllBytes(getResourceFile("simplelinestring.shx").toPath()));
+    }
+}
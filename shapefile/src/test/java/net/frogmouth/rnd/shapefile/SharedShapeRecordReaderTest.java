@@ -0,0 +1,105 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.generate;
+import static net.frogmouth.rnd.shapefile.TestResources.getShxFile;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.testng.annotations.Test;
+
+public class SharedShapeRecordReaderTest {
+
+    private static SharedShapeRecordReader openReader(File shpFile) throws IOException {
+        return Shapefile.openSharedRecordReader(shpFile, getShxFile(shpFile));
+    }
+
+    @Test
+    public void checkConcurrentReads() throws Exception {
+        int numRecords = 500;
+        int numThreads = 8;
+        File shpFile = generate(ShapeType.PolyLineM, 13L, numRecords);
+        List<String> expected = new ArrayList<>();
+        try (ShapeRecordReader reader = Shapefile.openRecordReader(shpFile, getShxFile(shpFile))) {
+            for (int i = 0; i < numRecords; i++) {
+                expected.add(reader.read(i).geometry().toString());
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try (SharedShapeRecordReader reader = openReader(shpFile)) {
+            assertEquals(reader.getNumRecords(), numRecords);
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                int start = t;
+                results.add(
+                        executor.submit(
+                                () -> {
+                                    int count = 0;
+                                    for (int n = 0; n < numRecords; n++) {
+                                        int i = (start * 61 + n * 7) % numRecords;
+                                        ShapeRecord shapeRecord = reader.read(i);
+                                        assertEquals(shapeRecord.recordNumber(), i + 1);
+                                        assertEquals(
+                                                shapeRecord.geometry().toString(), expected.get(i));
+                                        count++;
+                                    }
+                                    return count;
+                                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(result.get().intValue(), numRecords);
+            }
+
+            List<ShapeRecord> batch = reader.read(9, 2, 9);
+            assertEquals(batch.get(0).recordNumber(), 10);
+            assertEquals(batch.get(1).recordNumber(), 3);
+            assertEquals(batch.get(2).geometry().toString(), expected.get(9));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void checkInterruptedRead() throws IOException {
+        File shpFile = generate(ShapeType.PolyLineM, 13L, 10);
+        try (SharedShapeRecordReader reader = openReader(shpFile)) {
+            Thread.currentThread().interrupt();
+            try {
+                assertThrows(ClosedByInterruptException.class, () -> reader.read(1));
+            } finally {
+                Thread.interrupted();
+            }
+            // The interrupt closed the channel, but other reads carry on
+            assertEquals(reader.read(1).recordNumber(), 2);
+        }
+    }
+
+    @Test
+    public void checkHeaderAndClose() throws IOException {
+        File shpFile = generate(ShapeType.PolyLineM, 13L, 10);
+        SharedShapeRecordReader reader = openReader(shpFile);
+        FileHeader fileHeader = reader.getFileHeader();
+        assertEquals(fileHeader.getShapeType(), ShapeType.PolyLineM);
+        assertEquals(fileHeader.getFileLength(), shpFile.length());
+        fileHeader.setShapeType(ShapeType.Point);
+        assertEquals(reader.getFileHeader().getShapeType(), ShapeType.PolyLineM);
+
+        // Readers of both kinds share cache entries for the same file
+        ShapeRecordCache cache = new ShapeRecordCache(1 << 20);
+        ShapeRecord shapeRecord = cache.read(reader, 4);
+        try (ShapeRecordReader other = Shapefile.openRecordReader(shpFile, getShxFile(shpFile))) {
+            assertSame(cache.read(other, 4), shapeRecord);
+        }
+
+        reader.close();
+        assertThrows(ClosedChannelException.class, () -> reader.read(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.read(10));
+    }
+}
@@ -0,0 +1,64 @@
+package net.frogmouth.rnd.shapefile;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+
+/** Locates the test resource files, and creates temporary Shapefiles. */
+final class TestResources {
+
+    private TestResources() {}
+
+    /**
+     * Get a test resource as a file.
+     *
+     * @param name the resource name, such as {@code "simplepoint.shp"}
+     * @return the file
+     */
+    static File getResourceFile(String name) throws URISyntaxException {
+        ClassLoader classloader = Thread.currentThread().getContextClassLoader();
+        return new File(classloader.getResource(name).toURI());
+    }
+
+    /**
+     * Create a path for a Shapefile in a new temporary directory.
+     *
+     * <p>The .shp, .shx and .dbf files are deleted on exit.
+     *
+     * @return the .shp file, which does not exist yet
+     */
+    static File createTempShapefile() throws IOException {
+        File dir = Files.createTempDirectory("jgeovec").toFile();
+        dir.deleteOnExit();
+        File shpFile = new File(dir, "test.shp");
+        for (String extension : new String[] {"shp", "shx", "dbf"}) {
+            ShapefileDataset.getSiblingFile(shpFile, extension).deleteOnExit();
+        }
+        return shpFile;
+    }
+
+    /**
+     * Generate a temporary Shapefile.
+     *
+     * @param shapeType the shape type of the records
+     * @param seed the random seed, so that the same file is generated each time
+     * @param numRecords the number of records
+     * @return the .shp file
+     */
+    static File generate(ShapeType shapeType, long seed, int numRecords) throws IOException {
+        File shpFile = createTempShapefile();
+        new ShapefileGenerator(shapeType, seed).generate(shpFile, numRecords);
+        return shpFile;
+    }
+
+    /**
+     * Get the index file that goes with a Shapefile.
+     *
+     * @param shpFile the .shp file
+     * @return the .shx file
+     */
+    static File getShxFile(File shpFile) {
+        return ShapefileDataset.getSiblingFile(shpFile, "shx");
+    }
+}
@@ -0,0 +1,165 @@
+package net.frogmouth.rnd.shapefile;
+
+import static net.frogmouth.rnd.shapefile.TestResources.getResourceFile;
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import net.frogmouth.rnd.simplefeaturesaccess.Geometry;
+import net.frogmouth.rnd.simplefeaturesaccess.LineString;
+import net.frogmouth.rnd.simplefeaturesaccess.Point;
+import net.frogmouth.rnd.simplefeaturesaccess.WKBReader;
+import net.frogmouth.rnd.simplefeaturesaccess.WKBWriter;
+import org.testng.annotations.Test;
+
+public class WKBTranscoderTest {
+
+    private static ShapeRecordReader openReader(String baseName)
+            throws IOException, URISyntaxException {
+        return Shapefile.openRecordReader(
+                getResourceFile(baseName + ".shp"), getResourceFile(baseName + ".shx"));
+    }
+
+    private static byte[] toArray(ByteBuffer bb) {
+        byte[] bytes = new byte[bb.remaining()];
+        bb.duplicate().get(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void checkMatchesWriter() throws IOException, URISyntaxException {
+        for (WKBWriter writer : List.of(WKBWriter.iso(), WKBWriter.extended(4326))) {
+            WKBTranscoder transcoder = new WKBTranscoder(writer);
+            for (String baseName :
+                    List.of("simplepoint", "pointm", "pointz", "simplelinestring", "linestringm")) {
+                try (ShapeRecordReader reader = openReader(baseName)) {
+                    for (int i = 0; i < reader.getNumRecords(); i++) {
+                        Geometry geometry = reader.read(i).geometry();
+                        byte[] wkb = toArray(reader.readWKB(i, transcoder));
+                        assertEquals(wkb, writer.write(geometry), baseName);
+                        assertEquals(WKBReader.read(wkb), geometry, baseName);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void checkLineStringZ() throws IOException, URISyntaxException {
+        WKBTranscoder transcoder = new WKBTranscoder(WKBWriter.iso(), ByteOrder.BIG_ENDIAN);
+        try (ShapeRecordReader reader = openReader("linestringz")) {
+            ByteBuffer wkb = reader.readWKB(0, transcoder);
+            assertEquals(wkb.remaining(), 1 + 4 + 4 + 2 * 3 * 8);
+            assertEquals(wkb.get(0), WKBWriter.BIG_ENDIAN);
+            assertEquals(wkb.getInt(1), 1002);
+            LineString lineString = (LineString) WKBReader.read(wkb, 0);
+            assertTrue(lineString.hasZ());
+            assertFalse(lineString.hasM());
+            assertEquals(lineString.getPointN(1).x(), 150.938363, 0.000001);
+            assertEquals(lineString.getPointN(1).y(), -23.183681, 0.000001);
+            assertEquals(lineString.getPointN(1).z(), 0.0);
+        }
+    }
+
+    @Test
+    public void checkMultiPoint() throws IOException, URISyntaxException {
+        WKBWriter writer = WKBWriter.extended(4326);
+        WKBTranscoder transcoder = new WKBTranscoder(writer);
+        try (ShapeRecordReader reader = openReader("multipointz")) {
+            ByteBuffer wkb = reader.readWKB(0, transcoder).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(
+                    wkb.getInt(1), writer.getTypeCode(WKBWriter.MULTI_POINT, true, false, true));
+            assertEquals(WKBReader.getSRID(wkb, 0), 4326);
+            assertEquals(wkb.getInt(9), 2);
+            int pointLength = 1 + 4 + 3 * 8;
+            assertEquals(wkb.remaining(), 13 + 2 * pointLength);
+            assertEquals(WKBReader.getSRID(wkb, 13), 0);
+            Point second = (Point) WKBReader.read(wkb, 13 + pointLength);
+            assertEquals(second.x(), 150.769249, 0.000001);
+            assertEquals(second.y(), -23.477908, 0.000001);
+            assertEquals(second.z(), 0.0);
+        }
+    }
+
+    @Test
+    public void checkMultiLineString() throws IOException {
+        // A PolyLineZ record with M values, with parts of three and two points
+        double[][] xyzm = {
+            {0, 0, 1, 10}, {1, 1, 2, 11}, {2, 0, 3, 12}, {5, 5, 4, 13}, {6, 4, 5, 14}
+        };
+        int numPoints = xyzm.length;
+        int contentLength = 4 + 32 + 4 + 4 + 2 * 4 + numPoints * 16 + 2 * (16 + numPoints * 8);
+        int offset = 12;
+        ByteBuffer record =
+                ByteBuffer.allocate(offset + contentLength).order(ByteOrder.LITTLE_ENDIAN);
+        record.position(offset);
+        record.putInt(ShapeType.PolyLineZ.getValue());
+        record.putDouble(0).putDouble(0).putDouble(6).putDouble(5);
+        record.putInt(2).putInt(numPoints).putInt(0).putInt(3);
+        for (double[] vertex : xyzm) {
+            record.putDouble(vertex[0]).putDouble(vertex[1]);
+        }
+        for (int ordinate = 2; ordinate < 4; ordinate++) {
+            record.putDouble(0).putDouble(0);
+            for (double[] vertex : xyzm) {
+                record.putDouble(vertex[ordinate]);
+            }
+        }
+
+        WKBTranscoder transcoder = new WKBTranscoder(WKBWriter.iso());
+        int length = transcoder.getLength(record, offset, contentLength);
+        int lineLength = 1 + 4 + 4;
+        assertEquals(length, 1 + 4 + 4 + 2 * lineLength + numPoints * 4 * 8);
+        ByteBuffer out = ByteBuffer.allocate(length + 3).order(ByteOrder.BIG_ENDIAN);
+        assertEquals(transcoder.transcode(record, offset, contentLength, out, 3), length);
+        assertEquals(out.get(3), WKBWriter.BIG_ENDIAN);
+        assertEquals(out.getInt(4), 3005);
+        assertEquals(out.getInt(8), 2);
+        LineString first = (LineString) WKBReader.read(out, 12);
+        assertEquals(
+                first,
+                new LineString(
+                        List.of(
+                                new Point(0, 0, 1.0, 10.0),
+                                new Point(1, 1, 2.0, 11.0),
+                                new Point(2, 0, 3.0, 12.0))));
+        LineString second = (LineString) WKBReader.read(out, 12 + lineLength + 3 * 4 * 8);
+        assertEquals(
+                second,
+                new LineString(List.of(new Point(5, 5, 4.0, 13.0), new Point(6, 4, 5.0, 14.0))));
+
+        assertThrows(
+                IndexOutOfBoundsException.class,
+                () -> transcoder.transcode(record, offset, contentLength, out, 4));
+        // Parts must start at the first point, and stay in order
+        record.putInt(offset + 4 + 32 + 4 + 4 + 4, 6);
+        assertThrows(IOException.class, () -> transcoder.getLength(record, offset, contentLength));
+    }
+
+    @Test
+    public void checkNullAndUnsupported() throws IOException, URISyntaxException {
+        WKBTranscoder transcoder = new WKBTranscoder(WKBWriter.iso());
+        try (ShapeRecordReader reader = openReader("null")) {
+            assertEquals(reader.readWKB(0, transcoder).remaining(), 0);
+        }
+        try (ShapeRecordReader reader = openReader("polygon")) {
+            assertThrows(UnsupportedOperationException.class, () -> reader.readWKB(0, transcoder));
+        }
+    }
+
+    @Test
+    public void checkTruncated() {
+        ByteBuffer record = ByteBuffer.allocate(100).order(ByteOrder.LITTLE_ENDIAN);
+        record.putInt(0, ShapeType.PolyLine.getValue());
+        record.putInt(36, 1);
+        record.putInt(40, 4);
+        WKBTranscoder transcoder = new WKBTranscoder(WKBWriter.iso());
+        // Four points need 64 bytes, but only 52 remain after the part index
+        assertThrows(IOException.class, () -> transcoder.transcode(record, 0, 100));
+        record.putInt(0, ShapeType.PointZ.getValue());
+        assertThrows(IOException.class, () -> transcoder.transcode(record, 0, 20));
+    }
+}
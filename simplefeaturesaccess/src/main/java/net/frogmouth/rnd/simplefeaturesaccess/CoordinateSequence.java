@@ -0,0 +1,105 @@
+package net.frogmouth.rnd.simplefeaturesaccess;
+
+/**
+ * Coordinate Sequence.
+ *
+ * <p>This is an ordered list of coordinates, as used for the vertices of a {@link LineString}.
+ * Coordinates are accessed by index, and by ordinate, so implementations can store them in
+ * primitive form rather than as one {@link Point} object per vertex.
+ *
+ * <p>All of the coordinates in a sequence have the same dimension. If the sequence has no Z (or M)
+ * values, then {@link #getZ(int)} (or {@link #getM(int)}) returns {@link Double#NaN}.
+ */
+public interface CoordinateSequence {
+
+    /**
+     * Get the number of coordinates in the sequence.
+     *
+     * @return the number of coordinates
+     */
+    int size();
+
+    /**
+     * Whether the coordinates have Z (elevation or height) values.
+     *
+     * @return true if the coordinates have Z values, otherwise false.
+     */
+    boolean hasZ();
+
+    /**
+     * Whether the coordinates have M (measure) values.
+     *
+     * @return true if the coordinates have M values, otherwise false.
+     */
+    boolean hasM();
+
+    /**
+     * Get the X value of a coordinate.
+     *
+     * @param index the zero-based index of the coordinate
+     * @return the X value
+     */
+    double getX(int index);
+
+    /**
+     * Get the Y value of a coordinate.
+     *
+     * @param index the zero-based index of the coordinate
+     * @return the Y value
+     */
+    double getY(int index);
+
+    /**
+     * Get the Z value of a coordinate.
+     *
+     * @param index the zero-based index of the coordinate
+     * @return the Z value, or {@link Double#NaN} if the sequence has no Z values
+     */
+    double getZ(int index);
+
+    /**
+     * Get the M value of a coordinate.
+     *
+     * @param index the zero-based index of the coordinate
+     * @return the M value, or {@link Double#NaN} if the sequence has no M values
+     */
+    double getM(int index);
+
+    /**
+     * Get a coordinate as a Point.
+     *
+     * <p>This creates a new object, so prefer the ordinate accessors where performance matters.
+     *
+     * @param index the zero-based index of the coordinate
+     * @return the coordinate as a Point
+     */
+    default Point getPoint(int index) {
+        return new Point(
+                getX(index), getY(index), hasZ() ? getZ(index) : null, hasM() ? getM(index) : null);
+    }
+
+    /**
+     * Create a materialised copy of this sequence.
+     *
+     * <p>The copy holds its own coordinate values, so it does not depend on whatever storage backs
+     * this sequence (e.g. a file buffer).
+     *
+     * @return a packed copy of the coordinates
+     */
+    default CoordinateSequence copy() {
+        int stride = PackedCoordinateSequence.getStride(hasZ(), hasM());
+        double[] values = new double[size() * stride];
+        int i = 0;
+        for (int index = 0; index < size(); index++) {
+            values[i++] = getX(index);
+            values[i++] = getY(index);
+            if (hasZ()) {
+                values[i++] = getZ(index);
+            }
+            if (hasM()) {
+                values[i++] = getM(index);
+            }
+        }
+        return new PackedCoordinateSequence(values, hasZ(), hasM());
+    }
+}
@@ -0,0 +1,24 @@
+package net.frogmouth.rnd.simplefeaturesaccess;
+
+/**
+ * Geometry.
+ *
+ * <p>Geometry is the root of the geometry hierarchy. Each concrete geometry type (e.g. {@link
+ * Point}, {@link LineString}) implements this interface.
+ */
+public interface Geometry {
+
+    /**
+     * Whether this geometry has Z (elevation or height) values.
+     *
+     * @return true if the geometry has Z values, otherwise false.
+     */
+    boolean hasZ();
+
+    /**
+     * Whether this geometry has M (measure) values.
+     *
+     * @return true if the geometry has M values, otherwise false.
+     */
+    boolean hasM();
+}
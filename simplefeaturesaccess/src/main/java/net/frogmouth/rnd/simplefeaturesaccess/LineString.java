@@ -2,42 +2,127 @@ package net.frogmouth.rnd.simplefeaturesaccess;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
-public class LineString {
-    private final List<Point> points;
+/**
+ * LineString.
+ *
+ * <p>A LineString is a curve with linear interpolation between points. The points (vertices) are
+ * held in a {@link CoordinateSequence}, which by default stores the ordinates in a packed primitive
+ * array.
+ */
+public class LineString implements Geometry {
+    private final CoordinateSequence coordinates;
 
     public LineString(List<Point> pointList) {
-        points = new ArrayList<>(pointList);
+        this(PackedCoordinateSequence.fromPoints(pointList));
+    }
+
+    /**
+     * Create a LineString from a coordinate sequence.
+     *
+     * <p>The sequence is used directly, not copied.
+     *
+     * @param coordinates the vertices of the line string
+     */
+    public LineString(CoordinateSequence coordinates) {
+        this.coordinates = coordinates;
     }
 
     public int getNumPoints() {
-        return points.size();
+        return coordinates.size();
+    }
+
+    /**
+     * Get the vertices of this LineString.
+     *
+     * <p>This does not copy the coordinate values, and the ordinate accessors on the sequence do
+     * not allocate.
+     *
+     * @return the vertices as a coordinate sequence
+     */
+    public CoordinateSequence getCoordinateSequence() {
+        return coordinates;
+    }
+
+    /**
+     * Create a materialised copy of this LineString.
+     *
+     * <p>This is mainly useful for LineStrings that are views over some other storage, such as a
+     * file buffer, and need to outlive that storage.
+     *
+     * @return a LineString holding its own copy of the coordinates
+     */
+    public LineString copy() {
+        return new LineString(coordinates.copy());
     }
 
     public List<Point> getPoints() {
-        return new ArrayList<>(points);
+        List<Point> points = new ArrayList<>(coordinates.size());
+        for (int i = 0; i < coordinates.size(); i++) {
+            points.add(coordinates.getPoint(i));
+        }
+        return points;
     }
 
     public Point getPointN(int n) {
-        return points.get(n);
+        return coordinates.getPoint(n);
     }
 
     @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder();
-        if (points.get(0).hasM() && points.get(0).hasZ()) {
-            sb.append("LINESTRING ZM(");
-        } else if (points.get(0).hasZ()) {
-            sb.append("LINESTRING Z(");
-        } else if (points.get(0).hasM()) {
-            sb.append("LINESTRING M(");
-        } else {
-            sb.append("LINESTRING (");
+    public boolean hasZ() {
+        return coordinates.hasZ();
+    }
+
+    @Override
+    public boolean hasM() {
+        return coordinates.hasM();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof LineString other)) {
+            return false;
+        }
+        CoordinateSequence otherCoordinates = other.coordinates;
+        if (coordinates.size() != otherCoordinates.size()
+                || coordinates.hasZ() != otherCoordinates.hasZ()
+                || coordinates.hasM() != otherCoordinates.hasM()) {
+            return false;
+        }
+        for (int i = 0; i < coordinates.size(); i++) {
+            if (Double.compare(coordinates.getX(i), otherCoordinates.getX(i)) != 0
+                    || Double.compare(coordinates.getY(i), otherCoordinates.getY(i)) != 0
+                    || Double.compare(coordinates.getZ(i), otherCoordinates.getZ(i)) != 0
+                    || Double.compare(coordinates.getM(i), otherCoordinates.getM(i)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        for (int i = 0; i < coordinates.size(); i++) {
+            hash = 31 * hash + Double.hashCode(coordinates.getX(i));
+            hash = 31 * hash + Double.hashCode(coordinates.getY(i));
         }
-        sb.append(
-                points.stream().map(Point::getStringCoordinates).collect(Collectors.joining(",")));
-        sb.append(")");
-        return sb.toString();
+        return hash;
+    }
+
+    /**
+     * Get the Well-Known Text for this LineString.
+     *
+     * <p>Each ordinate is written with the shortest text that parses back to the same value. Use a
+     * {@link WKTWriter} directly to write large geometries to a stream.
+     *
+     * @return the WKT, such as {@code LINESTRING (1 2, 3 4.5)}
+     */
+    @Override
+    public String toString() {
+        return new WKTWriter().write(this);
     }
 }
@@ -0,0 +1,126 @@
+package net.frogmouth.rnd.simplefeaturesaccess;
+
+import java.util.List;
+
+/**
+ * Packed Coordinate Sequence.
+ *
+ * <p>This stores the coordinates interleaved in a single {@code double[]}, so that a sequence of
+ * XYZM coordinates is laid out as {@code [x0, y0, z0, m0, x1, y1, z1, m1, ...]}. Sequences without
+ * Z or M values leave those ordinates out of the array.
+ *
+ * <p>Instances are immutable, provided the array passed to the constructor is not modified
+ * afterwards.
+ */
+public final class PackedCoordinateSequence implements CoordinateSequence {
+
+    private final double[] coordinates;
+    private final boolean hasZ;
+    private final boolean hasM;
+    private final int stride;
+    private final int zOffset;
+    private final int mOffset;
+
+    /**
+     * Constructor.
+     *
+     * <p>The array is used directly, not copied.
+     *
+     * @param coordinates the interleaved ordinate values
+     * @param hasZ whether each coordinate has a Z value
+     * @param hasM whether each coordinate has an M value
+     */
+    public PackedCoordinateSequence(double[] coordinates, boolean hasZ, boolean hasM) {
+        this.coordinates = coordinates;
+        this.hasZ = hasZ;
+        this.hasM = hasM;
+        this.stride = getStride(hasZ, hasM);
+        if (coordinates.length % stride != 0) {
+            throw new IllegalArgumentException(
+                    String.format(
+                            "Coordinate array length %d is not a multiple of %d",
+                            coordinates.length, stride));
+        }
+        this.zOffset = hasZ ? 2 : -1;
+        this.mOffset = hasM ? stride - 1 : -1;
+    }
+
+    /**
+     * Create a packed sequence from a list of points.
+     *
+     * <p>The dimension is taken from the first point. Missing Z or M values in later points are
+     * stored as {@link Double#NaN}.
+     *
+     * @param points the points to pack
+     * @return the packed coordinate sequence
+     */
+    public static PackedCoordinateSequence fromPoints(List<Point> points) {
+        boolean hasZ = !points.isEmpty() && points.get(0).hasZ();
+        boolean hasM = !points.isEmpty() && points.get(0).hasM();
+        int stride = getStride(hasZ, hasM);
+        double[] coordinates = new double[points.size() * stride];
+        int i = 0;
+        for (Point point : points) {
+            coordinates[i++] = point.x();
+            coordinates[i++] = point.y();
+            if (hasZ) {
+                coordinates[i++] = point.hasZ() ? point.z() : Double.NaN;
+            }
+            if (hasM) {
+                coordinates[i++] = point.hasM() ? point.m() : Double.NaN;
+            }
+        }
+        return new PackedCoordinateSequence(coordinates, hasZ, hasM);
+    }
+
+    /**
+     * Get the number of ordinates stored for each coordinate.
+     *
+     * @param hasZ whether each coordinate has a Z value
+     * @param hasM whether each coordinate has an M value
+     * @return the number of ordinates, between 2 and 4.
+     */
+    public static int getStride(boolean hasZ, boolean hasM) {
+        return 2 + (hasZ ? 1 : 0) + (hasM ? 1 : 0);
+    }
+
+    @Override
+    public int size() {
+        return coordinates.length / stride;
+    }
+
+    @Override
+    public boolean hasZ() {
+        return hasZ;
+    }
+
+    @Override
+    public boolean hasM() {
+        return hasM;
+    }
+
+    @Override
+    public double getX(int index) {
+        return coordinates[index * stride];
+    }
+
+    @Override
+    public double getY(int index) {
+        return coordinates[index * stride + 1];
+    }
+
+    @Override
+    public double getZ(int index) {
+        return hasZ ? coordinates[index * stride + zOffset] : Double.NaN;
+    }
+
+    @Override
+    public double getM(int index) {
+        return hasM ? coordinates[index * stride + mOffset] : Double.NaN;
+    }
+
+    @Override
+    public CoordinateSequence copy() {
+        return new PackedCoordinateSequence(coordinates.clone(), hasZ, hasM);
+    }
+}
@@ -9,7 +9,7 @@ package net.frogmouth.rnd.simplefeaturesaccess;
  *
  * <p>The boundary of a Point is the empty set.
  */
-public record Point(double x, double y, Double z, Double m) {
+public record Point(double x, double y, Double z, Double m) implements Geometry {
 
     public Point(double x, double y) {
         this(x, y, null, null);
@@ -23,10 +23,12 @@ public record Point(double x, double y, Double z, Double m) {
         return new Point(x, y, null, m);
     }
 
+    @Override
     public boolean hasZ() {
         return z != null;
     }
 
+    @Override
     public boolean hasM() {
         return m != null;
     }
@@ -35,28 +37,26 @@ public record Point(double x, double y, Double z, Double m) {
         return new Point(this.x, this.y, this.z, mValue);
     }
 
+    /**
+     * Get the Well-Known Text for this point.
+     *
+     * <p>Each ordinate is written with the shortest text that parses back to the same value.
+     *
+     * @return the WKT, such as {@code POINT Z (1.5 2 3)}
+     * @see WKTWriter
+     */
     @Override
     public String toString() {
-        if (hasZ() && hasM()) {
-            return String.format("POINT ZM(%f  %f  %f  %f)", x, y, z, m);
-        } else if (hasZ()) {
-            return String.format("POINT Z(%f %f %f)", x, y, z);
-        } else if (hasM()) {
-            return String.format("POINT M(%f %f %f)", x, y, m);
-        } else {
-            return String.format("POINT(%f %f)", x, y);
-        }
+        return new WKTWriter().write(this);
     }
 
+    /**
+     * Get the ordinates of this point as text, separated by spaces.
+     *
+     * @return the ordinates, in the same form as {@link #toString()} but without the tag and
+     *     brackets
+     */
     public String getStringCoordinates() {
-        if (hasZ() && hasM()) {
-            return String.format("%f  %f  %f  %f", x, y, z, m);
-        } else if (hasZ()) {
-            return String.format("%f %f %f", x, y, z);
-        } else if (hasM()) {
-            return String.format("%f %f %f", x, y, m);
-        } else {
-            return String.format("%f %f", x, y);
-        }
+        return new WKTWriter().writeCoordinates(this);
     }
 }
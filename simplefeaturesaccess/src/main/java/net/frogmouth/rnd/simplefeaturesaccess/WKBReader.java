@@ -0,0 +1,130 @@
+package net.frogmouth.rnd.simplefeaturesaccess;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Well-Known Binary (WKB) reader.
+ *
+ * <p>This reads both ISO WKB and PostGIS Extended WKB (EWKB), in either byte order, as produced by
+ * {@link WKBWriter}. The dimension is taken from the geometry type code, either from the ISO 1000,
+ * 2000 and 3000 offsets, or from the EWKB flags. An EWKB SRID is skipped, and can be read with
+ * {@link #getSRID(ByteBuffer, int)}.
+ *
+ * <p>Only the geometry types that have a matching class ({@link Point} and {@link LineString}) can
+ * be read.
+ */
+public final class WKBReader {
+
+    private static final int EWKB_FLAGS =
+            WKBWriter.EWKB_Z_FLAG | WKBWriter.EWKB_M_FLAG | WKBWriter.EWKB_SRID_FLAG;
+
+    private WKBReader() {}
+
+    /**
+     * Decode a geometry from an array.
+     *
+     * @param bytes the encoded geometry
+     * @return the decoded geometry
+     * @throws IllegalArgumentException if the encoding is not valid, or the geometry type is not
+     *     supported
+     */
+    public static Geometry read(byte[] bytes) {
+        return read(ByteBuffer.wrap(bytes), 0);
+    }
+
+    /**
+     * Decode a geometry from a buffer.
+     *
+     * <p>The buffer position and byte order are not used or changed.
+     *
+     * @param bb the buffer holding the encoded geometry
+     * @param offset the offset of the geometry (i.e. the byte order marker) within the buffer
+     * @return the decoded geometry
+     * @throws IllegalArgumentException if the encoding is not valid, or the geometry type is not
+     *     supported
+     */
+    public static Geometry read(ByteBuffer bb, int offset) {
+        ByteBuffer in = bb.duplicate().order(getByteOrder(bb, offset));
+        int typeCode = in.getInt(offset + 1);
+        int next = offset + 1 + Integer.BYTES;
+        int geometryType;
+        boolean hasZ;
+        boolean hasM;
+        if ((typeCode & EWKB_FLAGS) != 0) {
+            geometryType = typeCode & ~EWKB_FLAGS;
+            hasZ = (typeCode & WKBWriter.EWKB_Z_FLAG) != 0;
+            hasM = (typeCode & WKBWriter.EWKB_M_FLAG) != 0;
+            if ((typeCode & WKBWriter.EWKB_SRID_FLAG) != 0) {
+                next += Integer.BYTES;
+            }
+        } else {
+            geometryType = typeCode % 1000;
+            int dimension = typeCode / 1000;
+            hasZ = dimension == 1 || dimension == 3;
+            hasM = dimension == 2 || dimension == 3;
+        }
+        return switch (geometryType) {
+            case WKBWriter.POINT -> readPoint(in, next, hasZ, hasM);
+            case WKBWriter.LINE_STRING -> readLineString(in, next, hasZ, hasM);
+            default -> throw new IllegalArgumentException(
+                    String.format("Unsupported WKB geometry type: %d", typeCode));
+        };
+    }
+
+    /**
+     * Get the SRID of an Extended WKB geometry.
+     *
+     * @param bb the buffer holding the encoded geometry
+     * @param offset the offset of the geometry (i.e. the byte order marker) within the buffer
+     * @return the SRID, or 0 if the geometry does not have one
+     * @throws IllegalArgumentException if the byte order marker is not valid
+     */
+    public static int getSRID(ByteBuffer bb, int offset) {
+        ByteBuffer in = bb.duplicate().order(getByteOrder(bb, offset));
+        int typeCode = in.getInt(offset + 1);
+        if ((typeCode & WKBWriter.EWKB_SRID_FLAG) == 0) {
+            return 0;
+        }
+        return in.getInt(offset + 1 + Integer.BYTES);
+    }
+
+    private static ByteOrder getByteOrder(ByteBuffer bb, int offset) {
+        byte marker = bb.get(offset);
+        return switch (marker) {
+            case WKBWriter.BIG_ENDIAN -> ByteOrder.BIG_ENDIAN;
+            case WKBWriter.LITTLE_ENDIAN -> ByteOrder.LITTLE_ENDIAN;
+            default -> throw new IllegalArgumentException(
+                    String.format("Bad WKB byte order marker: 0x%02x", marker));
+        };
+    }
+
+    private static Point readPoint(ByteBuffer in, int offset, boolean hasZ, boolean hasM) {
+        double x = in.getDouble(offset);
+        double y = in.getDouble(offset + Double.BYTES);
+        int next = offset + 2 * Double.BYTES;
+        Double z = null;
+        if (hasZ) {
+            z = in.getDouble(next);
+            next += Double.BYTES;
+        }
+        Double m = hasM ? in.getDouble(next) : null;
+        return new Point(x, y, z, m);
+    }
+
+    private static LineString readLineString(
+            ByteBuffer in, int offset, boolean hasZ, boolean hasM) {
+        int numPoints = in.getInt(offset);
+        int next = offset + Integer.BYTES;
+        int stride = PackedCoordinateSequence.getStride(hasZ, hasM);
+        if (numPoints < 0 || numPoints > (in.limit() - next) / (stride * Double.BYTES)) {
+            throw new IllegalArgumentException(
+                    String.format("WKB LineString truncated, or bad point count %d", numPoints));
+        }
+        double[] coordinates = new double[numPoints * stride];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = in.getDouble(next + i * Double.BYTES);
+        }
+        return new LineString(new PackedCoordinateSequence(coordinates, hasZ, hasM));
+    }
+}
@@ -0,0 +1,261 @@
+package net.frogmouth.rnd.simplefeaturesaccess;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Well-Known Binary (WKB) writer.
+ *
+ * <p>This writes geometries as either ISO WKB, where Z and M are indicated by adding 1000, 2000 or
+ * 3000 to the geometry type code, or as PostGIS Extended WKB (EWKB), where they are indicated by
+ * flags in the high bits of the type code, optionally followed by an SRID.
+ *
+ * <p>Geometries are written with absolute puts into a caller supplied buffer, so a single buffer
+ * can be reused for any number of geometries. The byte order of the output is the byte order of
+ * that buffer.
+ *
+ * <p>The header methods are public so that other encoders (e.g. transcoders from other binary
+ * formats) can produce identical output without creating geometry objects. Instances are immutable
+ * and thread safe.
+ */
+public final class WKBWriter {
+
+    /** Geometry type code for Point. */
+    public static final int POINT = 1;
+
+    /** Geometry type code for LineString. */
+    public static final int LINE_STRING = 2;
+
+    /** Geometry type code for MultiPoint. */
+    public static final int MULTI_POINT = 4;
+
+    /** Geometry type code for MultiLineString. */
+    public static final int MULTI_LINE_STRING = 5;
+
+    /** Byte order marker for big endian (XDR). */
+    public static final byte BIG_ENDIAN = 0;
+
+    /** Byte order marker for little endian (NDR). */
+    public static final byte LITTLE_ENDIAN = 1;
+
+    /** EWKB flag for geometries with Z values. */
+    public static final int EWKB_Z_FLAG = 0x80000000;
+
+    /** EWKB flag for geometries with M values. */
+    public static final int EWKB_M_FLAG = 0x40000000;
+
+    /** EWKB flag for geometries that are followed by an SRID. */
+    public static final int EWKB_SRID_FLAG = 0x20000000;
+
+    private static final WKBWriter ISO = new WKBWriter(false, 0);
+
+    private final boolean extended;
+    private final int srid;
+
+    private WKBWriter(boolean extended, int srid) {
+        this.extended = extended;
+        this.srid = srid;
+    }
+
+    /**
+     * Get a writer for ISO WKB.
+     *
+     * @return the writer
+     */
+    public static WKBWriter iso() {
+        return ISO;
+    }
+
+    /**
+     * Get a writer for PostGIS Extended WKB.
+     *
+     * @param srid the spatial reference identifier to write on each geometry, or 0 to leave it out
+     * @return the writer
+     */
+    public static WKBWriter extended(int srid) {
+        return new WKBWriter(true, srid);
+    }
+
+    /**
+     * Whether this writer produces Extended WKB.
+     *
+     * @return true for EWKB, false for ISO WKB
+     */
+    public boolean isExtended() {
+        return extended;
+    }
+
+    /**
+     * Get the SRID that is written on each geometry.
+     *
+     * @return the SRID, or 0 if no SRID is written
+     */
+    public int getSRID() {
+        return srid;
+    }
+
+    /**
+     * Get the geometry type code to write.
+     *
+     * @param geometryType the base geometry type, such as {@link #LINE_STRING}
+     * @param hasZ whether the geometry has Z values
+     * @param hasM whether the geometry has M values
+     * @param outermost whether this is the outermost geometry, rather than a member of a
+     *     collection. Only the outermost geometry carries the EWKB SRID.
+     * @return the type code, including the Z and M indication and any EWKB flags
+     */
+    public int getTypeCode(int geometryType, boolean hasZ, boolean hasM, boolean outermost) {
+        if (extended) {
+            int typeCode = geometryType;
+            if (hasZ) {
+                typeCode |= EWKB_Z_FLAG;
+            }
+            if (hasM) {
+                typeCode |= EWKB_M_FLAG;
+            }
+            if (outermost && srid != 0) {
+                typeCode |= EWKB_SRID_FLAG;
+            }
+            return typeCode;
+        }
+        return geometryType + (hasZ ? 1000 : 0) + (hasM ? 2000 : 0);
+    }
+
+    /**
+     * Get the length of a geometry header.
+     *
+     * @param outermost whether this is the outermost geometry, rather than a member of a collection
+     * @return the length in bytes of the byte order marker, the type code, and the SRID if any
+     */
+    public int getHeaderLength(boolean outermost) {
+        int length = 1 + Integer.BYTES;
+        if (extended && outermost && srid != 0) {
+            length += Integer.BYTES;
+        }
+        return length;
+    }
+
+    /**
+     * Write a geometry header.
+     *
+     * @param bb the buffer to write to, in the byte order of the output
+     * @param offset the offset within the buffer to write the header at
+     * @param geometryType the base geometry type, such as {@link #LINE_STRING}
+     * @param hasZ whether the geometry has Z values
+     * @param hasM whether the geometry has M values
+     * @param outermost whether this is the outermost geometry, rather than a member of a collection
+     * @return the offset just past the header
+     */
+    public int writeHeader(
+            ByteBuffer bb,
+            int offset,
+            int geometryType,
+            boolean hasZ,
+            boolean hasM,
+            boolean outermost) {
+        bb.put(offset, bb.order() == ByteOrder.BIG_ENDIAN ? BIG_ENDIAN : LITTLE_ENDIAN);
+        bb.putInt(offset + 1, getTypeCode(geometryType, hasZ, hasM, outermost));
+        int next = offset + 1 + Integer.BYTES;
+        if (extended && outermost && srid != 0) {
+            bb.putInt(next, srid);
+            next += Integer.BYTES;
+        }
+        return next;
+    }
+
+    /**
+     * Get the encoded length of a geometry.
+     *
+     * @param geometry the geometry to encode
+     * @return the length in bytes
+     * @throws IllegalArgumentException if the geometry type is not supported
+     */
+    public int getLength(Geometry geometry) {
+        int ordinateBytes =
+                PackedCoordinateSequence.getStride(geometry.hasZ(), geometry.hasM()) * Double.BYTES;
+        if (geometry instanceof Point) {
+            return getHeaderLength(true) + ordinateBytes;
+        }
+        if (geometry instanceof LineString lineString) {
+            return getHeaderLength(true)
+                    + Integer.BYTES
+                    + lineString.getNumPoints() * ordinateBytes;
+        }
+        throw unsupported(geometry);
+    }
+
+    /**
+     * Encode a geometry to a new array, in little endian byte order.
+     *
+     * @param geometry the geometry to encode
+     * @return the encoded geometry
+     * @throws IllegalArgumentException if the geometry type is not supported
+     */
+    public byte[] write(Geometry geometry) {
+        byte[] bytes = new byte[getLength(geometry)];
+        write(geometry, ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN), 0);
+        return bytes;
+    }
+
+    /**
+     * Encode a geometry into a buffer.
+     *
+     * <p>The buffer position is not used or changed, but the geometry must fit within the limit.
+     *
+     * @param geometry the geometry to encode
+     * @param bb the buffer to write to, in the byte order of the output
+     * @param offset the offset within the buffer to write the geometry at
+     * @return the number of bytes written, which is {@link #getLength(Geometry)}
+     * @throws IllegalArgumentException if the geometry type is not supported
+     * @throws IndexOutOfBoundsException if the geometry does not fit in the buffer
+     */
+    public int write(Geometry geometry, ByteBuffer bb, int offset) {
+        int length = getLength(geometry);
+        if (offset < 0 || length > bb.limit() - offset) {
+            throw new IndexOutOfBoundsException(
+                    String.format(
+                            "%d bytes do not fit in buffer at offset %d (limit %d)",
+                            length, offset, bb.limit()));
+        }
+        boolean hasZ = geometry.hasZ();
+        boolean hasM = geometry.hasM();
+        if (geometry instanceof Point point) {
+            int next = writeHeader(bb, offset, POINT, hasZ, hasM, true);
+            bb.putDouble(next, point.x());
+            bb.putDouble(next + Double.BYTES, point.y());
+            next += 2 * Double.BYTES;
+            if (hasZ) {
+                bb.putDouble(next, point.z());
+                next += Double.BYTES;
+            }
+            if (hasM) {
+                bb.putDouble(next, point.m());
+            }
+        } else {
+            CoordinateSequence coordinates = ((LineString) geometry).getCoordinateSequence();
+            int next = writeHeader(bb, offset, LINE_STRING, hasZ, hasM, true);
+            int numPoints = coordinates.size();
+            bb.putInt(next, numPoints);
+            next += Integer.BYTES;
+            for (int i = 0; i < numPoints; i++) {
+                bb.putDouble(next, coordinates.getX(i));
+                bb.putDouble(next + Double.BYTES, coordinates.getY(i));
+                next += 2 * Double.BYTES;
+                if (hasZ) {
+                    bb.putDouble(next, coordinates.getZ(i));
+                    next += Double.BYTES;
+                }
+                if (hasM) {
+                    bb.putDouble(next, coordinates.getM(i));
+                    next += Double.BYTES;
+                }
+            }
+        }
+        return length;
+    }
+
+    private static IllegalArgumentException unsupported(Object geometry) {
+        return new IllegalArgumentException(
+                "Unsupported geometry type for WKB: " + geometry.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,320 @@
+package net.frogmouth.rnd.simplefeaturesaccess;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Well-Known Text (WKT) writer.
+ *
+ * <p>This writes geometries in the ISO form, such as {@code LINESTRING Z (1 2 3, 4 5 6)}, to any
+ * {@link Appendable}. Text is formatted into an internal character buffer and handed to the output
+ * in blocks, so a {@link Writer} or {@link StringBuilder} gets one call per block rather than one
+ * per character. Coordinates are read through the {@link CoordinateSequence} accessors, so no
+ * {@link Point} objects are created for LineString vertices.
+ *
+ * <p>By default each ordinate is written with the fewest decimal places that parse back to exactly
+ * the same double. Alternatively, a maximum number of decimal places can be set, and ordinates are
+ * rounded half away from zero to that precision, with trailing zeros dropped. Either way, values up
+ * to about 15 significant digits are formatted with integer arithmetic; anything longer falls back
+ * to {@link Double#toString(double)} (which also round-trips) or {@link BigDecimal}.
+ *
+ * <p>Instances reuse their buffer, and are not thread safe.
+ */
+public final class WKTWriter {
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+        1e17
+    };
+
+    /** Scaled values below this are exact integers in a double, and fit in a long. */
+    private static final double MAX_EXACT = 0x1p53;
+
+    /** Text is handed to the output once the buffer reaches this many characters. */
+    private static final int FLUSH_SIZE = 8192;
+
+    private final int maxDecimals;
+    private char[] buffer = new char[64];
+    private final char[] digits = new char[20];
+    private Appendable out;
+    private int length;
+
+    /** Constructor for the shortest text that round-trips each ordinate. */
+    public WKTWriter() {
+        this.maxDecimals = -1;
+    }
+
+    /**
+     * Constructor for a fixed maximum precision.
+     *
+     * @param maxDecimals the maximum number of decimal places to write for each ordinate
+     * @throws IllegalArgumentException if the number of decimal places is negative
+     */
+    public WKTWriter(int maxDecimals) {
+        if (maxDecimals < 0) {
+            throw new IllegalArgumentException("Decimal places must not be negative");
+        }
+        this.maxDecimals = maxDecimals;
+    }
+
+    /**
+     * Get the maximum number of decimal places.
+     *
+     * @return the maximum number of decimal places, or -1 for the shortest round-trip text
+     */
+    public int getMaxDecimals() {
+        return maxDecimals;
+    }
+
+    /**
+     * Write a geometry to a string.
+     *
+     * @param geometry the geometry to write
+     * @return the WKT
+     * @throws IllegalArgumentException if the geometry type is not supported
+     */
+    public String write(Geometry geometry) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            write(geometry, sb);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Write a geometry to an output.
+     *
+     * <p>Nothing is written after the geometry, so callers writing many geometries add their own
+     * separators (e.g. a newline).
+     *
+     * @param geometry the geometry to write
+     * @param output the output to append the WKT to
+     * @throws IOException if the output throws
+     * @throws IllegalArgumentException if the geometry type is not supported
+     */
+    public void write(Geometry geometry, Appendable output) throws IOException {
+        out = output;
+        length = 0;
+        try {
+            if (geometry instanceof Point point) {
+                writePoint(point);
+            } else if (geometry instanceof LineString lineString) {
+                writeLineString(lineString.getCoordinateSequence());
+            } else {
+                throw new IllegalArgumentException(
+                        "Unsupported geometry type for WKT: "
+                                + geometry.getClass().getSimpleName());
+            }
+            flush();
+        } finally {
+            out = null;
+        }
+    }
+
+    /**
+     * Write the ordinates of a point, separated by spaces.
+     *
+     * @param point the point to write
+     * @return the ordinates, without the geometry tag or brackets
+     */
+    String writeCoordinates(Point point) {
+        StringBuilder sb = new StringBuilder();
+        out = sb;
+        length = 0;
+        try {
+            writeOrdinates(point);
+            flush();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            out = null;
+        }
+        return sb.toString();
+    }
+
+    private void writePoint(Point point) throws IOException {
+        writeTag("POINT", point.hasZ(), point.hasM());
+        if (Double.isNaN(point.x()) && Double.isNaN(point.y())) {
+            append("EMPTY");
+            return;
+        }
+        put('(');
+        writeOrdinates(point);
+        put(')');
+    }
+
+    private void writeOrdinates(Point point) throws IOException {
+        writeNumber(point.x());
+        put(' ');
+        writeNumber(point.y());
+        if (point.hasZ()) {
+            put(' ');
+            writeNumber(point.z());
+        }
+        if (point.hasM()) {
+            put(' ');
+            writeNumber(point.m());
+        }
+    }
+
+    private void writeLineString(CoordinateSequence coordinates) throws IOException {
+        boolean hasZ = coordinates.hasZ();
+        boolean hasM = coordinates.hasM();
+        writeTag("LINESTRING", hasZ, hasM);
+        int size = coordinates.size();
+        if (size == 0) {
+            append("EMPTY");
+            return;
+        }
+        put('(');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                put(',');
+                put(' ');
+            }
+            writeNumber(coordinates.getX(i));
+            put(' ');
+            writeNumber(coordinates.getY(i));
+            if (hasZ) {
+                put(' ');
+                writeNumber(coordinates.getZ(i));
+            }
+            if (hasM) {
+                put(' ');
+                writeNumber(coordinates.getM(i));
+            }
+        }
+        put(')');
+    }
+
+    private void writeTag(String tag, boolean hasZ, boolean hasM) throws IOException {
+        append(tag);
+        put(' ');
+        if (hasZ || hasM) {
+            if (hasZ) {
+                put('Z');
+            }
+            if (hasM) {
+                put('M');
+            }
+            put(' ');
+        }
+    }
+
+    private void writeNumber(double d) throws IOException {
+        if (!Double.isFinite(d)) {
+            append(Double.toString(d));
+            return;
+        }
+        if (d == 0.0) {
+            // Includes negative zero
+            put('0');
+            return;
+        }
+        boolean negative = d < 0;
+        double magnitude = Math.abs(d);
+        if (maxDecimals >= 0) {
+            if (maxDecimals < POWERS_OF_TEN.length
+                    && magnitude * POWERS_OF_TEN[maxDecimals] < MAX_EXACT) {
+                long scaled = (long) (magnitude * POWERS_OF_TEN[maxDecimals] + 0.5);
+                writeScaled(negative && scaled != 0, scaled, maxDecimals);
+                return;
+            }
+            BigDecimal rounded =
+                    BigDecimal.valueOf(d)
+                            .setScale(maxDecimals, RoundingMode.HALF_UP)
+                            .stripTrailingZeros();
+            append(rounded.signum() == 0 ? "0" : rounded.toPlainString());
+            return;
+        }
+        for (int decimals = 0; decimals < POWERS_OF_TEN.length; decimals++) {
+            double scaled = magnitude * POWERS_OF_TEN[decimals];
+            if (scaled >= MAX_EXACT) {
+                break;
+            }
+            long candidate = (long) Math.rint(scaled);
+            // Both values are exact, so the division is the nearest double to the decimal value,
+            // which is what parsing the text gives
+            if (candidate / POWERS_OF_TEN[decimals] == magnitude) {
+                writeScaled(negative, candidate, decimals);
+                return;
+            }
+        }
+        append(Double.toString(d));
+    }
+
+    private void writeScaled(boolean negative, long scaled, int decimals) throws IOException {
+        // Drop trailing zeros from the fraction
+        while (decimals > 0 && scaled % 10 == 0) {
+            scaled /= 10;
+            decimals--;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (char) ('0' + scaled % 10);
+            scaled /= 10;
+        } while (scaled != 0 || count <= decimals);
+        reserve(count + 2);
+        if (negative) {
+            buffer[length++] = '-';
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            if (i == decimals - 1) {
+                buffer[length++] = '.';
+            }
+            buffer[length++] = digits[i];
+        }
+    }
+
+    private void put(char c) throws IOException {
+        reserve(1);
+        buffer[length++] = c;
+    }
+
+    private void append(String s) throws IOException {
+        if (s.length() > FLUSH_SIZE) {
+            // Only very long fallback numbers get here
+            flush();
+            out.append(s);
+            return;
+        }
+        reserve(s.length());
+        s.getChars(0, s.length(), buffer, length);
+        length += s.length();
+    }
+
+    private void reserve(int count) throws IOException {
+        if (length + count <= buffer.length) {
+            return;
+        }
+        if (length + count > FLUSH_SIZE) {
+            flush();
+        }
+        if (length + count > buffer.length) {
+            // Start small, so that writing a single point stays cheap
+            int capacity = Math.min(FLUSH_SIZE, Math.max(2 * buffer.length, length + count));
+            buffer = Arrays.copyOf(buffer, capacity);
+        }
+    }
+
+    private void flush() throws IOException {
+        if (length == 0) {
+            return;
+        }
+        if (out instanceof StringBuilder sb) {
+            sb.append(buffer, 0, length);
+        } else if (out instanceof Writer writer) {
+            writer.write(buffer, 0, length);
+        } else {
+            out.append(CharBuffer.wrap(buffer, 0, length));
+        }
+        length = 0;
+    }
+}
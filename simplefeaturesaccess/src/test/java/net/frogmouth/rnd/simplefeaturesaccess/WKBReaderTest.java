@@ -0,0 +1,56 @@
+package net.frogmouth.rnd.simplefeaturesaccess;
+
+import static org.testng.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import org.testng.annotations.Test;
+
+public class WKBReaderTest {
+
+    @Test
+    public void checkRoundTrip() {
+        List<Geometry> geometries =
+                List.of(
+                        new Point(150.5, -23.0),
+                        Point.fromXYZ(1.0, 2.0, 3.0),
+                        Point.fromXYM(1.0, 2.0, 4.0),
+                        new Point(1.0, 2.0, 3.0, 4.0),
+                        new LineString(List.of()),
+                        new LineString(List.of(new Point(0, 0), new Point(1, 1))),
+                        new LineString(
+                                List.of(new Point(0, 0, 1.0, 10.0), new Point(1, 1, 2.0, 11.0))));
+        for (WKBWriter writer : List.of(WKBWriter.iso(), WKBWriter.extended(4326))) {
+            for (Geometry geometry : geometries) {
+                assertEquals(WKBReader.read(writer.write(geometry)), geometry);
+                // Big endian, part way into a buffer
+                ByteBuffer bb =
+                        ByteBuffer.allocate(writer.getLength(geometry) + 3)
+                                .order(ByteOrder.BIG_ENDIAN);
+                writer.write(geometry, bb, 3);
+                assertEquals(WKBReader.read(bb, 3), geometry);
+            }
+        }
+    }
+
+    @Test
+    public void checkInvalid() {
+        byte[] wkb = WKBWriter.iso().write(new Point(1.0, 2.0));
+        wkb[0] = 2;
+        assertThrows(IllegalArgumentException.class, () -> WKBReader.read(wkb));
+        assertThrows(
+                IllegalArgumentException.class, () -> WKBReader.getSRID(ByteBuffer.wrap(wkb), 0));
+
+        // A MultiPoint header, which has no geometry class to read into
+        ByteBuffer bb = ByteBuffer.allocate(9).order(ByteOrder.LITTLE_ENDIAN);
+        bb.put(0, WKBWriter.LITTLE_ENDIAN).putInt(1, WKBWriter.MULTI_POINT).putInt(5, 0);
+        assertThrows(IllegalArgumentException.class, () -> WKBReader.read(bb, 0));
+
+        // A LineString with more points than the buffer holds
+        byte[] lineString =
+                WKBWriter.iso().write(new LineString(List.of(new Point(0, 0), new Point(1, 1))));
+        ByteBuffer.wrap(lineString).order(ByteOrder.LITTLE_ENDIAN).putInt(5, 3);
+        assertThrows(IllegalArgumentException.class, () -> WKBReader.read(lineString));
+    }
+}
@@ -0,0 +1,74 @@
+package net.frogmouth.rnd.simplefeaturesaccess;
+
+import static org.testng.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import org.testng.annotations.Test;
+
+public class WKBWriterTest {
+
+    @Test
+    public void checkPoint() {
+        byte[] wkb = WKBWriter.iso().write(new Point(1.5, -2.0));
+        assertEquals(wkb.length, 1 + 4 + 2 * 8);
+        ByteBuffer bb = ByteBuffer.wrap(wkb).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(bb.get(0), WKBWriter.LITTLE_ENDIAN);
+        assertEquals(bb.getInt(1), 1);
+        assertEquals(bb.getDouble(5), 1.5);
+        assertEquals(bb.getDouble(13), -2.0);
+
+        assertEquals(WKBWriter.iso().getTypeCode(WKBWriter.POINT, true, false, true), 1001);
+        assertEquals(WKBWriter.iso().getTypeCode(WKBWriter.POINT, false, true, true), 2001);
+        assertEquals(WKBWriter.iso().getTypeCode(WKBWriter.POINT, true, true, false), 3001);
+    }
+
+    @Test
+    public void checkExtended() {
+        WKBWriter writer = WKBWriter.extended(4326);
+        assertTrue(writer.isExtended());
+        assertEquals(writer.getSRID(), 4326);
+        assertEquals(writer.getHeaderLength(true), 1 + 4 + 4);
+        assertEquals(writer.getHeaderLength(false), 1 + 4);
+        assertEquals(
+                writer.getTypeCode(WKBWriter.LINE_STRING, true, true, true),
+                WKBWriter.LINE_STRING
+                        | WKBWriter.EWKB_Z_FLAG
+                        | WKBWriter.EWKB_M_FLAG
+                        | WKBWriter.EWKB_SRID_FLAG);
+        // Members of a collection do not carry the SRID
+        assertEquals(
+                writer.getTypeCode(WKBWriter.POINT, false, true, false),
+                WKBWriter.POINT | WKBWriter.EWKB_M_FLAG);
+        assertEquals(
+                WKBWriter.extended(0).getTypeCode(WKBWriter.POINT, false, false, true),
+                WKBWriter.POINT);
+
+        byte[] wkb = writer.write(Point.fromXYZ(1.0, 2.0, 3.0));
+        assertEquals(wkb.length, 1 + 4 + 4 + 3 * 8);
+        assertEquals(WKBReader.getSRID(ByteBuffer.wrap(wkb), 0), 4326);
+        assertEquals(
+                WKBReader.getSRID(ByteBuffer.wrap(WKBWriter.iso().write(new Point(1, 2))), 0), 0);
+    }
+
+    @Test
+    public void checkBuffer() {
+        LineString lineString =
+                new LineString(List.of(Point.fromXYM(1.0, 2.0, 3.0), Point.fromXYM(4.0, 5.0, 6.0)));
+        WKBWriter writer = WKBWriter.iso();
+        int length = writer.getLength(lineString);
+        assertEquals(length, 1 + 4 + 4 + 2 * 3 * 8);
+        ByteBuffer bb = ByteBuffer.allocate(length + 7).order(ByteOrder.BIG_ENDIAN);
+        bb.position(2);
+        assertEquals(writer.write(lineString, bb, 7), length);
+        assertEquals(bb.position(), 2);
+        assertEquals(bb.get(7), WKBWriter.BIG_ENDIAN);
+        assertEquals(bb.getInt(8), 2002);
+        assertEquals(bb.getInt(12), 2);
+        assertEquals(bb.getDouble(16 + 5 * 8), 6.0);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> writer.write(lineString, bb, 8));
+        assertThrows(IndexOutOfBoundsException.class, () -> writer.write(lineString, bb, -1));
+    }
+}
@@ -0,0 +1,90 @@
+package net.frogmouth.rnd.simplefeaturesaccess;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Random;
+import org.testng.annotations.Test;
+
+public class WKTWriterTest {
+
+    @Test
+    public void checkPoints() {
+        assertEquals(new Point(150.5, -23.0).toString(), "POINT (150.5 -23)");
+        assertEquals(Point.fromXYZ(1.0, 2.0, -0.0).toString(), "POINT Z (1 2 0)");
+        assertEquals(
+                Point.fromXYM(0.1, 0.000123, 1e20).toString(), "POINT M (0.1 0.000123 1.0E20)");
+        assertEquals(new Point(1.0, 2.0, 3.0, 4.0).toString(), "POINT ZM (1 2 3 4)");
+        assertEquals(new Point(1.0, 2.0, 3.0, 4.0).getStringCoordinates(), "1 2 3 4");
+        assertEquals(new Point(Double.NaN, Double.NaN).toString(), "POINT EMPTY");
+    }
+
+    @Test
+    public void checkLineStrings() {
+        assertEquals(
+                new LineString(List.of(Point.fromXYM(1.25, 2, 3), Point.fromXYM(4, 5, 6)))
+                        .toString(),
+                "LINESTRING M (1.25 2 3, 4 5 6)");
+        assertEquals(new LineString(List.of()).toString(), "LINESTRING EMPTY");
+        assertEquals(
+                new WKTWriter(3)
+                        .write(
+                                new LineString(
+                                        List.of(
+                                                new Point(150.790347, -23.158527),
+                                                new Point(150.938363, -23.183681)))),
+                "LINESTRING (150.79 -23.159, 150.938 -23.184)");
+    }
+
+    @Test
+    public void checkRoundTrip() {
+        Random random = new Random(42);
+        double[] values = new double[30000];
+        for (int i = 0; i < values.length; i += 3) {
+            values[i] = (random.nextDouble() - 0.5) * 360.0;
+            values[i + 1] = Math.round(values[i] * 1e6) / 1e6;
+            values[i + 2] = Double.longBitsToDouble(random.nextLong());
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (Double.isNaN(values[i])) {
+                values[i] = 1.0;
+            }
+        }
+        LineString lineString = new LineString(new PackedCoordinateSequence(values, false, false));
+        String wkt = new WKTWriter().write(lineString);
+        String[] ordinates = wkt.substring("LINESTRING (".length(), wkt.length() - 1).split(",? ");
+        assertEquals(ordinates.length, values.length);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(Double.parseDouble(ordinates[i]), values[i], ordinates[i]);
+        }
+        // Rounded coordinates come out as they went in
+        assertEquals(ordinates[1], Double.toString(values[1]).replaceAll("\\.0$", ""));
+    }
+
+    @Test
+    public void checkPrecision() throws IOException {
+        WKTWriter writer = new WKTWriter(2);
+        assertEquals(writer.getMaxDecimals(), 2);
+        assertEquals(writer.write(new Point(1.005, -0.004)), "POINT (1 0)");
+        assertEquals(writer.write(new Point(-2.676, 0.125)), "POINT (-2.68 0.13)");
+        assertEquals(
+                writer.write(new Point(1e300, 12345.5)),
+                "POINT (1" + "0".repeat(300) + " 12345.5)");
+        assertThrows(IllegalArgumentException.class, () -> new WKTWriter(-1));
+
+        // Several flushes to a Writer
+        int numPoints = 5000;
+        double[] values = new double[numPoints * 2];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i + 0.5;
+        }
+        StringWriter out = new StringWriter();
+        writer.write(new LineString(new PackedCoordinateSequence(values, false, false)), out);
+        String wkt = out.toString();
+        assertTrue(wkt.startsWith("LINESTRING (0.5 1.5, 2.5 3.5,"));
+        assertTrue(wkt.endsWith("9998.5 9999.5)"));
+        assertEquals(wkt.split(",").length, numPoints);
+    }
+}